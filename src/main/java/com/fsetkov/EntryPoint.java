@@ -1,92 +1,101 @@
 package com.fsetkov;
 
-import com.fsetkov.models.*;
+import com.fsetkov.archive.ColumnarArchiveWriter;
+import com.fsetkov.eventlog.EventLog;
+import com.fsetkov.eventlog.RingBufferEventLog;
 import com.fsetkov.service.CustomerService;
+import com.fsetkov.service.OrderIdempotencyGuard;
 import com.fsetkov.service.PrintService;
 import com.fsetkov.service.ProductService;
+import com.fsetkov.session.HashedTimingWheel;
+import com.fsetkov.session.OrderSession;
+import com.fsetkov.session.SessionManager;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.HashMap;
-import java.util.List;
+import java.util.Optional;
 import java.util.Scanner;
+import java.util.function.Supplier;
 
 
 public class EntryPoint {
 
-    public static void main(String[] args) {
-        try (Scanner scanner = new Scanner(System.in)) {
-            CustomerService customerService = new CustomerService(new HashMap<>());
-            ProductService productService = new ProductService();
-            List<Product> products = productService.getProducts();
-            List<Product> nonExtraProducts = productService.getSublistByProductTypePredicate(
-                    products,
-                    p -> p.getProductType() != ProductType.EXTRA);
-
-            PrintService printService = new PrintService(productService, scanner);
+    /**
+     * System property naming the directory of the structured event log; no events are logged when it is not set.
+     */
+    public static final String EVENT_LOG_DIRECTORY_PROPERTY = "coffeeshop.eventlog.dir";
 
-            while (true) {
-                printService.printHelloMessageAndAskCustomerNameMessage();
-                String customerName = scanner.nextLine();
-                Customer customer = customerService.getCustomerByUsername(customerName);
-                List<Product> customerOrderList = new ArrayList<>();
+    /**
+     * System property naming the directory of the columnar order archive; no orders are archived when it is not set.
+     */
+    public static final String ORDER_ARCHIVE_DIRECTORY_PROPERTY = "coffeeshop.archive.dir";
 
-                printService.printHelloCustomerMessage(customerName);
+    /**
+     * System property setting the seconds without input after which the open order is cancelled and the next
+     * customer greeted; defaults to {@value #DEFAULT_SESSION_IDLE_TIMEOUT_SECONDS}.
+     */
+    public static final String SESSION_IDLE_TIMEOUT_PROPERTY = "coffeeshop.session.idleTimeoutSeconds";
 
-                boolean isOrderedBeverage = false;
-                boolean isOrderedSnack = false;
-                printService.printWriteChoiceOrEnd();
-                printService.printPossibleProducts(nonExtraProducts);
-                String productChoice = scanner.nextLine();
+    private static final long DEFAULT_SESSION_IDLE_TIMEOUT_SECONDS = 300;
+    private static final String CONSOLE_TERMINAL_ID = "console";
+    private static final Duration ORDER_ID_WINDOW = Duration.ofHours(1);
+    private static final int EXPECTED_ORDERS_PER_WINDOW = 10_000;
 
-                while (!printService.isCustomerEndHisChoice(productChoice)) {
-                    Product choosedProduct = printService.getProductFromUserInput(
-                            productChoice,
-                            nonExtraProducts,
-                            scanner);
-                    if (choosedProduct == null) {
-                        printService.printWriteChoiceOrEnd();
-                        printService.printPossibleProducts(nonExtraProducts);
-                        productChoice = scanner.nextLine();
-                        continue;
-                    }
-                    printService.printProductNameForCustomer(choosedProduct.getName());
+    public static void main(String[] args) throws IOException {
+        String eventLogDirectory = System.getProperty(EVENT_LOG_DIRECTORY_PROPERTY);
+        RingBufferEventLog eventLog = eventLogDirectory != null
+                ? new RingBufferEventLog(Path.of(eventLogDirectory))
+                : null;
+        CustomerService customerService = new CustomerService(new HashMap<>());
+        ProductService productService = new ProductService();
+        String orderArchiveDirectory = System.getProperty(ORDER_ARCHIVE_DIRECTORY_PROPERTY);
+        ColumnarArchiveWriter orderArchive = orderArchiveDirectory != null
+                ? new ColumnarArchiveWriter(
+                        Path.of(orderArchiveDirectory), productService.getProducts(), Clock.systemDefaultZone())
+                : null;
+        Duration idleTimeout = Duration.ofSeconds(
+                Long.getLong(SESSION_IDLE_TIMEOUT_PROPERTY, DEFAULT_SESSION_IDLE_TIMEOUT_SECONDS));
+        OrderIdempotencyGuard idempotencyGuard = new OrderIdempotencyGuard(ORDER_ID_WINDOW, EXPECTED_ORDERS_PER_WINDOW);
+        HashedTimingWheel timingWheel = new HashedTimingWheel(Duration.ofSeconds(1), 512, Clock.systemUTC());
 
-                    if (choosedProduct.getProductType() == ProductType.BEVERAGE) {
-                        customer.getCustomerStampCard().increaseBeverageCount();
-                        isOrderedBeverage = true;
-                    }
-
-                    if (choosedProduct.getProductType() == ProductType.SNACK) {
-                        isOrderedSnack = true;
-                    }
+        try (Scanner scanner = new Scanner(System.in)) {
+            PrintService printService = new PrintService(productService, scanner);
 
-                    customerOrderList.add(choosedProduct);
-                    if (choosedProduct.getClass() == CoffeeProduct.class) {
-                        printService.printExtraChoiceMessage();
-                        List<Product> extraProducts = printService.printAndGetProductsListByPredicate(
-                                productService,
-                                products,
-                                p -> p.getProductType() == ProductType.EXTRA);
-                        String extraChoice = scanner.nextLine();
-                        Product chosenExtraProduct = printService.getProductFromUserInput(
-                                extraChoice,
-                                extraProducts,
-                                scanner);
-                        printService.printProductNameForCustomer(chosenExtraProduct.getName());
-                        customerOrderList.add(chosenExtraProduct);
-                    }
-                    printService.printWriteChoiceOrEnd();
-                    printService.printPossibleProducts(nonExtraProducts);
-                    productChoice = scanner.nextLine();
+            Supplier<OrderSession> sessionFactory = () -> {
+                OrderSession session = new OrderSession(
+                        customerService,
+                        productService,
+                        printService,
+                        System.out::print);
+                session.setEventLog(eventLog != null ? eventLog : EventLog.NONE);
+                session.setIdempotencyGuard(idempotencyGuard);
+                if (orderArchive != null) {
+                    session.addOrderCompletedListener(orderArchive);
                 }
+                return session;
+            };
+            SessionManager sessionManager = new SessionManager(timingWheel, Clock.systemUTC(), idleTimeout, 1);
+            sessionManager.setRenewalSessionFactory(terminalId -> sessionFactory.get());
+            sessionManager.open(CONSOLE_TERMINAL_ID, sessionFactory.get());
+            timingWheel.start();
 
-                boolean isEligibleForFreeExtra = isOrderedBeverage && isOrderedSnack;
-                printService.printReceipt(
-                        customerOrderList,
-                        customer.getCustomerStampCard(),
-                        isEligibleForFreeExtra);
-                printService.affirmateToEndProgram();
+            while (scanner.hasNextLine()) {
+                Optional<OrderSession.State> state = sessionManager.onInput(CONSOLE_TERMINAL_ID, scanner.nextLine());
+                if (state.isPresent() && state.get() == OrderSession.State.EXITED) {
+                    break;
+                }
+            }
+        } finally {
+            timingWheel.close();
+            if (orderArchive != null) {
+                orderArchive.close();
+            }
+            if (eventLog != null) {
+                eventLog.close();
             }
         }
     }
-}
\ No newline at end of file
+}
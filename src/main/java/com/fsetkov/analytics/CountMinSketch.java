@@ -0,0 +1,108 @@
+package com.fsetkov.analytics;
+
+import com.fsetkov.util.Hashing;
+
+/**
+ * Count-Min sketch estimating the frequency of keys in fixed memory.
+ * <p>
+ * Every key is counted in one cell of each of the {@code depth} rows; the estimate is the smallest of these cells.
+ * The estimate never undercounts, and it overcounts by at most {@code e / width} of the total count with
+ * probability {@code 1 - e^-depth}. Sketches of the same dimensions are merged cell by cell. A sketch is not
+ * thread-safe.
+ */
+public class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final long[] counts;
+    private long totalCount;
+
+    /**
+     * Constructs a new empty CountMinSketch.
+     *
+     * @param width the number of cells per row
+     * @param depth the number of rows
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("Width and depth must be positive, but were " + width + " and " + depth);
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counts = new long[width * depth];
+    }
+
+    /**
+     * Adds occurrences of a key.
+     *
+     * @param key   the key
+     * @param count the number of occurrences, not negative
+     */
+    public void add(String key, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative, but was " + count);
+        }
+        long hash = Hashing.hash64(key);
+        for (int row = 0; row < depth; row++) {
+            counts[row * width + column(hash, row)] += count;
+        }
+        totalCount += count;
+    }
+
+    /**
+     * Estimates the number of occurrences of a key.
+     *
+     * @param key the key
+     * @return the estimated count, never lower than the exact count
+     */
+    public long estimate(String key) {
+        long hash = Hashing.hash64(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts[row * width + column(hash, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Merges another sketch into this one, so this sketch counts the occurrences of both.
+     *
+     * @param other the sketch to merge, of the same dimensions
+     */
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge sketches of different dimensions");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+    }
+
+    /**
+     * Creates an independent copy of the sketch.
+     *
+     * @return the copy
+     */
+    public CountMinSketch copy() {
+        CountMinSketch copy = new CountMinSketch(width, depth);
+        System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+        copy.totalCount = totalCount;
+        return copy;
+    }
+
+    /**
+     * Retrieves the sum of all added occurrences.
+     *
+     * @return the total count
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    private int column(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return Math.floorMod(h1 + row * h2, width);
+    }
+}
@@ -0,0 +1,117 @@
+package com.fsetkov.analytics;
+
+import com.fsetkov.util.Hashing;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct keys in fixed memory.
+ * <p>
+ * A sketch of precision {@code p} keeps {@code 2^p} one-byte registers and has a standard error of about
+ * {@code 1.04 / sqrt(2^p)}, e.g. 1.6% with 4 KB at precision 12. Sketches of the same precision are merged
+ * register by register, so the sketches of several tills or stores combine into the count of their union.
+ * A sketch is not thread-safe.
+ */
+public class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Constructs a new empty HyperLogLog.
+     *
+     * @param precision the number of hash bits selecting a register, from 4 to 16
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION
+                                               + " and " + MAX_PRECISION + ", but was " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Adds a key to the sketch.
+     *
+     * @param key the key
+     */
+    public void add(String key) {
+        addHash(Hashing.hash64(key));
+    }
+
+    /**
+     * Adds the 64-bit hash of a key to the sketch.
+     *
+     * @param hash the hash
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Estimates the number of distinct keys added to the sketch.
+     *
+     * @return the estimated count
+     */
+    public long estimate() {
+        int registerCount = registers.length;
+        double sum = 0;
+        int zeroRegisters = 0;
+        for (byte register : registers) {
+            sum += 1d / (1L << register);
+            if (register == 0) {
+                zeroRegisters++;
+            }
+        }
+
+        double alpha = 0.7213 / (1 + 1.079 / registerCount);
+        double estimate = alpha * registerCount * registerCount / sum;
+        if (estimate <= 2.5 * registerCount && zeroRegisters > 0) {
+            estimate = registerCount * Math.log((double) registerCount / zeroRegisters);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Merges another sketch into this one, so this sketch counts the union of both.
+     *
+     * @param other the sketch to merge, of the same precision
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of precision " + precision
+                                               + " and " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Creates an independent copy of the sketch.
+     *
+     * @return the copy
+     */
+    public HyperLogLog copy() {
+        HyperLogLog copy = new HyperLogLog(precision);
+        System.arraycopy(registers, 0, copy.registers, 0, registers.length);
+        return copy;
+    }
+
+    /**
+     * Retrieves the precision of the sketch.
+     *
+     * @return the number of hash bits selecting a register
+     */
+    public int getPrecision() {
+        return precision;
+    }
+}
@@ -0,0 +1,172 @@
+package com.fsetkov.analytics;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.ProductType;
+import com.fsetkov.service.CustomerVisitListener;
+import com.fsetkov.session.OrderCompletedListener;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Streaming visit analytics of one till, kept in fixed memory.
+ * <p>
+ * Registered as the {@link CustomerVisitListener} of a {@link com.fsetkov.service.CustomerService} and as an
+ * {@link OrderCompletedListener} of the order sessions, it counts the distinct visitors per day and store with
+ * {@link HyperLogLog}s and estimates the visits and beverages of every member with {@link CountMinSketch}es.
+ * Only the last {@link #RETAINED_DAYS} days are kept. The analytics of several tills and stores are combined
+ * with {@link #merge(VisitAnalytics)}. All methods are synchronized, so one instance can serve several sessions.
+ */
+public class VisitAnalytics implements CustomerVisitListener, OrderCompletedListener {
+
+    public static final int RETAINED_DAYS = 31;
+    public static final int DEFAULT_PRECISION = 12;
+    public static final int DEFAULT_SKETCH_WIDTH = 2048;
+    public static final int DEFAULT_SKETCH_DEPTH = 4;
+
+    private final String storeId;
+    private final Clock clock;
+    private final int precision;
+    private final NavigableMap<LocalDate, Map<String, HyperLogLog>> dailyVisitors = new TreeMap<>();
+    private final CountMinSketch visits;
+    private final CountMinSketch beverages;
+
+    /**
+     * Constructs new VisitAnalytics with the default sketch dimensions.
+     *
+     * @param storeId the store of the till
+     * @param clock   the clock giving the day of a visit
+     */
+    public VisitAnalytics(String storeId, Clock clock) {
+        this(storeId, clock, DEFAULT_PRECISION, DEFAULT_SKETCH_WIDTH, DEFAULT_SKETCH_DEPTH);
+    }
+
+    /**
+     * Constructs new VisitAnalytics.
+     *
+     * @param storeId     the store of the till
+     * @param clock       the clock giving the day of a visit
+     * @param precision   the precision of the distinct visitor sketches
+     * @param sketchWidth the width of the frequency sketches
+     * @param sketchDepth the depth of the frequency sketches
+     */
+    public VisitAnalytics(String storeId, Clock clock, int precision, int sketchWidth, int sketchDepth) {
+        this.storeId = storeId;
+        this.clock = clock;
+        this.precision = precision;
+        this.visits = new CountMinSketch(sketchWidth, sketchDepth);
+        this.beverages = new CountMinSketch(sketchWidth, sketchDepth);
+    }
+
+    @Override
+    public synchronized void onCustomerVisit(Customer customer) {
+        visitorsOf(LocalDate.now(clock), storeId).add(customer.getUsername());
+        visits.add(customer.getUsername(), 1);
+    }
+
+    @Override
+    public synchronized void onOrderCompleted(Customer customer, List<Product> orderedProducts) {
+        long beverageCount = orderedProducts.stream()
+                .filter(p -> p.getProductType() == ProductType.BEVERAGE)
+                .count();
+        beverages.add(customer.getUsername(), beverageCount);
+    }
+
+    /**
+     * Estimates the number of distinct visitors of a store on a day.
+     *
+     * @param storeId the store
+     * @param day     the day
+     * @return the estimated number of distinct visitors
+     */
+    public synchronized long estimateUniqueVisitors(String storeId, LocalDate day) {
+        HyperLogLog visitors = dailyVisitors.getOrDefault(day, Map.of()).get(storeId);
+        return visitors == null ? 0 : visitors.estimate();
+    }
+
+    /**
+     * Estimates the number of distinct visitors of all stores on a day; a customer visiting two stores counts once.
+     *
+     * @param day the day
+     * @return the estimated number of distinct visitors
+     */
+    public synchronized long estimateUniqueVisitors(LocalDate day) {
+        HyperLogLog union = new HyperLogLog(precision);
+        dailyVisitors.getOrDefault(day, Map.of()).values().forEach(union::merge);
+        return union.estimate();
+    }
+
+    /**
+     * Estimates the number of visits of a member.
+     *
+     * @param username the username of the member
+     * @return the estimated number of visits, never lower than the exact number
+     */
+    public synchronized long estimateVisits(String username) {
+        return visits.estimate(username);
+    }
+
+    /**
+     * Estimates the number of beverages bought by a member.
+     *
+     * @param username the username of the member
+     * @return the estimated number of beverages, never lower than the exact number
+     */
+    public synchronized long estimateBeverages(String username) {
+        return beverages.estimate(username);
+    }
+
+    /**
+     * Flags a member whose stamps accrue faster than plausible, i.e. who bought more beverages per visit than allowed.
+     *
+     * @param username              the username of the member
+     * @param maxBeveragesPerVisit  the plausible number of beverages per visit
+     * @return {@code true} if the estimated beverages exceed the estimated visits times the allowed number
+     */
+    public synchronized boolean isAbnormalStampAccrual(String username, int maxBeveragesPerVisit) {
+        return beverages.estimate(username) > visits.estimate(username) * maxBeveragesPerVisit;
+    }
+
+    /**
+     * Merges the analytics of another till or store into these analytics.
+     *
+     * @param other the analytics to merge, of the same sketch dimensions
+     */
+    public void merge(VisitAnalytics other) {
+        Map<LocalDate, Map<String, HyperLogLog>> otherDailyVisitors = new HashMap<>();
+        CountMinSketch otherVisits;
+        CountMinSketch otherBeverages;
+        synchronized (other) {
+            other.dailyVisitors.forEach((day, stores) -> {
+                Map<String, HyperLogLog> copies = new HashMap<>();
+                stores.forEach((store, visitors) -> copies.put(store, visitors.copy()));
+                otherDailyVisitors.put(day, copies);
+            });
+            otherVisits = other.visits.copy();
+            otherBeverages = other.beverages.copy();
+        }
+
+        synchronized (this) {
+            otherDailyVisitors.forEach((day, stores) ->
+                    stores.forEach((store, visitors) -> visitorsOf(day, store).merge(visitors)));
+            visits.merge(otherVisits);
+            beverages.merge(otherBeverages);
+        }
+    }
+
+    private HyperLogLog visitorsOf(LocalDate day, String store) {
+        HyperLogLog visitors = dailyVisitors
+                .computeIfAbsent(day, d -> new HashMap<>())
+                .computeIfAbsent(store, s -> new HyperLogLog(precision));
+        while (dailyVisitors.size() > RETAINED_DAYS) {
+            dailyVisitors.pollFirstEntry();
+        }
+        return visitors;
+    }
+}
@@ -0,0 +1,23 @@
+package com.fsetkov.archive;
+
+/**
+ * Columns of a {@link ColumnarArchive}, stored separately in every segment with the encoding suiting their values.
+ */
+public enum ArchiveColumn {
+    PRODUCT_ID(ColumnEncoding.VARINT),
+    PRODUCT_TYPE(ColumnEncoding.RUN_LENGTH),
+    PRICE(ColumnEncoding.VARINT),
+    FREE(ColumnEncoding.RUN_LENGTH),
+    CUSTOMER_ID(ColumnEncoding.RUN_LENGTH),
+    TIMESTAMP(ColumnEncoding.DELTA);
+
+    private final ColumnEncoding encoding;
+
+    ArchiveColumn(ColumnEncoding encoding) {
+        this.encoding = encoding;
+    }
+
+    ColumnEncoding getEncoding() {
+        return encoding;
+    }
+}
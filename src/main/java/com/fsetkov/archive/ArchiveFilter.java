@@ -0,0 +1,47 @@
+package com.fsetkov.archive;
+
+import com.fsetkov.models.ProductType;
+
+import java.time.Instant;
+
+/**
+ * Conjunction of conditions selecting order lines of a {@link ColumnarArchive}; a {@code null} component matches
+ * every line. Filters are built from {@link #ALL}, e.g.
+ * {@code ArchiveFilter.ALL.withProductType(ProductType.BEVERAGE).withFree(true).between(from, to)}.
+ *
+ * @param productType the type of the product
+ * @param productName the name of the product
+ * @param username    the username of the customer
+ * @param free        whether the product was given away for free
+ * @param from        the earliest time of the order, inclusive
+ * @param to          the latest time of the order, exclusive
+ */
+public record ArchiveFilter(ProductType productType,
+                            String productName,
+                            String username,
+                            Boolean free,
+                            Instant from,
+                            Instant to) {
+
+    public static final ArchiveFilter ALL = new ArchiveFilter(null, null, null, null, null, null);
+
+    public ArchiveFilter withProductType(ProductType productType) {
+        return new ArchiveFilter(productType, productName, username, free, from, to);
+    }
+
+    public ArchiveFilter withProductName(String productName) {
+        return new ArchiveFilter(productType, productName, username, free, from, to);
+    }
+
+    public ArchiveFilter withUsername(String username) {
+        return new ArchiveFilter(productType, productName, username, free, from, to);
+    }
+
+    public ArchiveFilter withFree(boolean free) {
+        return new ArchiveFilter(productType, productName, username, free, from, to);
+    }
+
+    public ArchiveFilter between(Instant from, Instant to) {
+        return new ArchiveFilter(productType, productName, username, free, from, to);
+    }
+}
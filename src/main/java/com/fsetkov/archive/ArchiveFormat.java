@@ -0,0 +1,26 @@
+package com.fsetkov.archive;
+
+/**
+ * Binary format of the segment files of a {@link ColumnarArchive}.
+ * <p>
+ * A segment holds the order lines of many completed orders, one row per line. It starts with a big-endian header:
+ * <ul>
+ *     <li>{@link #MAGIC}, {@link #VERSION}, int row count, long lowest and long highest epoch millis</li>
+ *     <li>the product dictionary: int count, then per product id an unsigned short length and the UTF-8 name</li>
+ *     <li>the customer dictionary: int count, then per customer id an unsigned short length and the UTF-8 name</li>
+ *     <li>the column table: per {@link ArchiveColumn}, byte encoding ordinal, int offset and int length of the data
+ *     relative to the end of the header</li>
+ * </ul>
+ * followed by the compressed data of the columns.
+ */
+final class ArchiveFormat {
+
+    static final int MAGIC = 0x4353_4152;
+    static final short VERSION = 1;
+    static final String FILE_NAME_PATTERN = "orders-%05d.col";
+    static final String FILE_GLOB = "orders-*.col";
+
+    private ArchiveFormat() {
+        // Private constructor to prevent instantiation
+    }
+}
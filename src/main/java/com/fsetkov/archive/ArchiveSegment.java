@@ -0,0 +1,209 @@
+package com.fsetkov.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One memory-mapped segment file of a {@link ColumnarArchive}.
+ * <p>
+ * Only the header is read when the segment is opened. A scan decodes just the columns its filter and aggregation
+ * need, straight from the mapped file, and narrows a selection of row numbers column by column. Segments whose
+ * time range lies outside the filter are skipped without decoding anything. A segment is immutable and can be
+ * scanned by several threads at once.
+ */
+final class ArchiveSegment {
+
+    private final Path file;
+    private final ByteBuffer data;
+    private final int rowCount;
+    private final long lowestTimestamp;
+    private final long highestTimestamp;
+    private final String[] productNames;
+    private final String[] usernames;
+    private final Map<ArchiveColumn, ColumnEncoding> encodings = new EnumMap<>(ArchiveColumn.class);
+    private final Map<ArchiveColumn, Integer> offsets = new EnumMap<>(ArchiveColumn.class);
+
+    private ArchiveSegment(Path file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        if (buffer.getInt() != ArchiveFormat.MAGIC || buffer.getShort() != ArchiveFormat.VERSION) {
+            throw new IOException(file + " is not an order archive of version " + ArchiveFormat.VERSION);
+        }
+        rowCount = buffer.getInt();
+        lowestTimestamp = buffer.getLong();
+        highestTimestamp = buffer.getLong();
+        productNames = readNames(buffer);
+        usernames = readNames(buffer);
+        ColumnEncoding[] allEncodings = ColumnEncoding.values();
+        for (ArchiveColumn column : ArchiveColumn.values()) {
+            encodings.put(column, allEncodings[buffer.get()]);
+            offsets.put(column, buffer.getInt());
+            buffer.getInt();
+        }
+        this.data = buffer.slice();
+    }
+
+    /**
+     * Maps a segment file into memory and reads its header.
+     *
+     * @param file the segment file
+     * @return the segment
+     * @throws IOException if the file cannot be mapped or is not a segment
+     */
+    static ArchiveSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ArchiveSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt order archive " + file, e);
+        }
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Selects the rows matching a filter.
+     *
+     * @param filter the filter
+     * @param rows   receives the ascending numbers of the matching rows, at least {@link #getRowCount()} long
+     * @return the number of matching rows
+     */
+    int select(ArchiveFilter filter, int[] rows) {
+        if (filter.from() != null && highestTimestamp < filter.from().toEpochMilli()
+                || filter.to() != null && lowestTimestamp >= filter.to().toEpochMilli()) {
+            return 0;
+        }
+        int productId = filter.productName() == null ? -1 : indexOf(productNames, filter.productName());
+        int customerId = filter.username() == null ? -1 : indexOf(usernames, filter.username());
+        if (filter.productName() != null && productId < 0 || filter.username() != null && customerId < 0) {
+            return 0;
+        }
+
+        for (int i = 0; i < rowCount; i++) {
+            rows[i] = i;
+        }
+        int count = rowCount;
+        if (filter.productType() != null) {
+            count = retainEqual(ArchiveColumn.PRODUCT_TYPE, filter.productType().ordinal(), rows, count);
+        }
+        if (filter.free() != null) {
+            count = retainEqual(ArchiveColumn.FREE, filter.free() ? 1 : 0, rows, count);
+        }
+        if (productId >= 0) {
+            count = retainEqual(ArchiveColumn.PRODUCT_ID, productId, rows, count);
+        }
+        if (customerId >= 0) {
+            count = retainEqual(ArchiveColumn.CUSTOMER_ID, customerId, rows, count);
+        }
+        if (filter.from() != null || filter.to() != null) {
+            long from = filter.from() == null ? Long.MIN_VALUE : filter.from().toEpochMilli();
+            long to = filter.to() == null ? Long.MAX_VALUE : filter.to().toEpochMilli();
+            long[] timestamps = decode(ArchiveColumn.TIMESTAMP);
+            int retained = 0;
+            for (int i = 0; i < count; i++) {
+                long timestamp = timestamps[rows[i]];
+                if (timestamp >= from && timestamp < to) {
+                    rows[retained++] = rows[i];
+                }
+            }
+            count = retained;
+        }
+        return count;
+    }
+
+    /**
+     * Sums a column over selected rows.
+     *
+     * @param column the column
+     * @param rows   the selected rows
+     * @param count  the number of selected rows
+     * @return the sum of the values
+     */
+    long sum(ArchiveColumn column, int[] rows, int count) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] values = decode(column);
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[rows[i]];
+        }
+        return sum;
+    }
+
+    /**
+     * Counts selected rows per product.
+     *
+     * @param rows   the selected rows
+     * @param count  the number of selected rows
+     * @param counts receives the number of rows per product name
+     */
+    void countByProduct(int[] rows, int count, Map<String, Long> counts) {
+        if (count == 0) {
+            return;
+        }
+        long[] productIds = decode(ArchiveColumn.PRODUCT_ID);
+        long[] productCounts = new long[productNames.length];
+        for (int i = 0; i < count; i++) {
+            productCounts[(int) productIds[rows[i]]]++;
+        }
+        for (int productId = 0; productId < productCounts.length; productId++) {
+            if (productCounts[productId] > 0) {
+                counts.merge(productNames[productId], productCounts[productId], Long::sum);
+            }
+        }
+    }
+
+    /**
+     * Decodes all values of a column from the mapped file.
+     *
+     * @param column the column
+     * @return the values in row order
+     */
+    long[] decode(ArchiveColumn column) {
+        long[] values = new long[rowCount];
+        encodings.get(column).decode(data.duplicate().position(offsets.get(column)), rowCount, values);
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+
+    private int retainEqual(ArchiveColumn column, long expected, int[] rows, int count) {
+        long[] values = decode(column);
+        int retained = 0;
+        for (int i = 0; i < count; i++) {
+            if (values[rows[i]] == expected) {
+                rows[retained++] = rows[i];
+            }
+        }
+        return retained;
+    }
+
+    private static String[] readNames(ByteBuffer buffer) {
+        String[] names = new String[buffer.getInt()];
+        for (int i = 0; i < names.length; i++) {
+            byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(bytes);
+            names[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
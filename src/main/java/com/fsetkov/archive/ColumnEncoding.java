@@ -0,0 +1,124 @@
+package com.fsetkov.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Compressions of a column of long values. All values are zig-zag encoded into variable-length integers of
+ * seven bits per byte, so small positive and negative numbers take one byte.
+ */
+enum ColumnEncoding {
+
+    /**
+     * Every value on its own, e.g. the product ids and the prices.
+     */
+    VARINT {
+        @Override
+        void encode(long[] values, int count, ByteArrayOutputStream out) {
+            for (int i = 0; i < count; i++) {
+                writeVarint(values[i], out);
+            }
+        }
+
+        @Override
+        void decode(ByteBuffer in, int count, long[] values) {
+            for (int i = 0; i < count; i++) {
+                values[i] = readVarint(in);
+            }
+        }
+    },
+
+    /**
+     * The difference to the previous value, e.g. the ascending timestamps.
+     */
+    DELTA {
+        @Override
+        void encode(long[] values, int count, ByteArrayOutputStream out) {
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                writeVarint(values[i] - previous, out);
+                previous = values[i];
+            }
+        }
+
+        @Override
+        void decode(ByteBuffer in, int count, long[] values) {
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                previous += readVarint(in);
+                values[i] = previous;
+            }
+        }
+    },
+
+    /**
+     * Pairs of a value and the number of its repetitions, e.g. the customer of all lines of an order or the rare
+     * free flags.
+     */
+    RUN_LENGTH {
+        @Override
+        void encode(long[] values, int count, ByteArrayOutputStream out) {
+            int start = 0;
+            while (start < count) {
+                int end = start + 1;
+                while (end < count && values[end] == values[start]) {
+                    end++;
+                }
+                writeVarint(values[start], out);
+                writeVarint(end - start, out);
+                start = end;
+            }
+        }
+
+        @Override
+        void decode(ByteBuffer in, int count, long[] values) {
+            int position = 0;
+            while (position < count) {
+                long value = readVarint(in);
+                int end = position + (int) readVarint(in);
+                while (position < end) {
+                    values[position++] = value;
+                }
+            }
+        }
+    };
+
+    /**
+     * Appends the compressed values to a stream.
+     *
+     * @param values the values
+     * @param count  the number of values to encode
+     * @param out    the stream
+     */
+    abstract void encode(long[] values, int count, ByteArrayOutputStream out);
+
+    /**
+     * Reads compressed values from a buffer.
+     *
+     * @param in     the buffer positioned at the start of the column
+     * @param count  the number of values to decode
+     * @param values receives the values
+     */
+    abstract void decode(ByteBuffer in, int count, long[] values);
+
+    private static void writeVarint(long value, ByteArrayOutputStream out) {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            out.write((int) (zigZag & 0x7F) | 0x80);
+            zigZag >>>= 7;
+        }
+        out.write((int) zigZag);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long zigZag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            zigZag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+}
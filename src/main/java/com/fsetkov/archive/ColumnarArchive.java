@@ -0,0 +1,107 @@
+package com.fsetkov.archive;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only view of the order lines archived by a {@link ColumnarArchiveWriter}, answering analytical queries
+ * such as "how many free beverages were redeemed last quarter":
+ * <pre>{@code
+ * archive.count(ArchiveFilter.ALL.withProductType(ProductType.BEVERAGE).withFree(true).between(from, to))
+ * }</pre>
+ * The archive memory-maps the segment files present when it is opened; segments written later are not seen.
+ * Queries scan only the columns they need and can run on several threads at once.
+ */
+public class ColumnarArchive {
+
+    private final List<ArchiveSegment> segments;
+    private final int largestSegmentRowCount;
+
+    private ColumnarArchive(List<ArchiveSegment> segments) {
+        this.segments = List.copyOf(segments);
+        this.largestSegmentRowCount = segments.stream().mapToInt(ArchiveSegment::getRowCount).max().orElse(0);
+    }
+
+    /**
+     * Opens the segments of an archive directory.
+     *
+     * @param directory the directory of the segment files
+     * @return the archive, empty if the directory holds no segments
+     * @throws IOException if a segment cannot be mapped or is not a segment
+     */
+    public static ColumnarArchive open(Path directory) throws IOException {
+        List<ArchiveSegment> segments = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, ArchiveFormat.FILE_GLOB)) {
+                for (Path file : files) {
+                    segments.add(ArchiveSegment.open(file));
+                }
+            }
+        }
+        return new ColumnarArchive(segments);
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Retrieves the number of archived order lines.
+     *
+     * @return the number of rows of all segments
+     */
+    public long getRowCount() {
+        return segments.stream().mapToLong(ArchiveSegment::getRowCount).sum();
+    }
+
+    /**
+     * Counts the order lines matching a filter.
+     *
+     * @param filter the filter
+     * @return the number of matching lines
+     */
+    public long count(ArchiveFilter filter) {
+        int[] rows = new int[largestSegmentRowCount];
+        long count = 0;
+        for (ArchiveSegment segment : segments) {
+            count += segment.select(filter, rows);
+        }
+        return count;
+    }
+
+    /**
+     * Sums the paid prices of the order lines matching a filter.
+     *
+     * @param filter the filter
+     * @return the revenue of the matching lines in minor units
+     */
+    public long sumPrice(ArchiveFilter filter) {
+        int[] rows = new int[largestSegmentRowCount];
+        long sum = 0;
+        for (ArchiveSegment segment : segments) {
+            sum += segment.sum(ArchiveColumn.PRICE, rows, segment.select(filter, rows));
+        }
+        return sum;
+    }
+
+    /**
+     * Counts the order lines matching a filter per product.
+     *
+     * @param filter the filter
+     * @return the number of matching lines by product name, without the products having none
+     */
+    public Map<String, Long> countByProduct(ArchiveFilter filter) {
+        int[] rows = new int[largestSegmentRowCount];
+        Map<String, Long> counts = new HashMap<>();
+        for (ArchiveSegment segment : segments) {
+            segment.countByProduct(rows, segment.select(filter, rows), counts);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,346 @@
+package com.fsetkov.archive;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.Product;
+import com.fsetkov.service.PricingService;
+import com.fsetkov.session.OrderCompletedListener;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Archives the lines of the completed orders into the segment files of a {@link ColumnarArchive}.
+ * <p>
+ * Registered as an {@link OrderCompletedListener}, the writer collects one row per ordered product: the catalog
+ * index of the product, its type, the paid price in minor units, whether it was given away for free, the customer
+ * and the time of the order. Every {@code rowsPerSegment} rows the columns are compressed and written to a new
+ * segment; the last rows are written when the writer is flushed or closed. A segment file is replaced atomically,
+ * so readers never see a partial one. All methods are synchronized, so one writer can serve several sessions.
+ * <p>
+ * So that a crash or restart of the till does not lose the open segment, a daemon thread checkpoints its rows to
+ * the segment file every {@code checkpointInterval}. A checkpoint rewrites the same file, so it does not fragment
+ * the archive into small segments, and forces it to the disk; it never runs on the thread completing an order. A
+ * bulk import, which can simply be rerun, passes a zero interval to write every segment once. As a listener the
+ * writer never throws: an order that cannot be archived, e.g. because of an I/O error or a product added to the
+ * catalog after the writer was created, is counted by {@link #getFailedOrderCount()} and the checkout carries on.
+ */
+public class ColumnarArchiveWriter implements OrderCompletedListener, Closeable {
+
+    public static final int DEFAULT_ROWS_PER_SEGMENT = 1 << 16;
+    public static final Duration DEFAULT_CHECKPOINT_INTERVAL = Duration.ofSeconds(5);
+
+    private final Path directory;
+    private final List<Product> catalog;
+    private final Map<String, Integer> productIds = new HashMap<>();
+    private final Clock clock;
+    private final int rowsPerSegment;
+    private final Map<ArchiveColumn, long[]> columns = new EnumMap<>(ArchiveColumn.class);
+    private final Map<String, Integer> customerIds = new HashMap<>();
+    private final ScheduledExecutorService checkpointScheduler;
+    private final LongAdder failedOrders = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+    private int rowCount;
+    private int checkpointedRowCount;
+    private int nextSegment;
+
+    /**
+     * Constructs a new ColumnarArchiveWriter with the default segment size.
+     *
+     * @param directory the directory of the segment files
+     * @param catalog   the catalog whose indexes are the archived product ids
+     * @param clock     the clock giving the time of an order
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public ColumnarArchiveWriter(Path directory, List<Product> catalog, Clock clock) throws IOException {
+        this(directory, catalog, clock, DEFAULT_ROWS_PER_SEGMENT);
+    }
+
+    /**
+     * Constructs a new ColumnarArchiveWriter appending segments after the ones already in the directory.
+     *
+     * @param directory      the directory of the segment files
+     * @param catalog        the catalog whose indexes are the archived product ids
+     * @param clock          the clock giving the time of an order
+     * @param rowsPerSegment the number of order lines per segment file
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public ColumnarArchiveWriter(Path directory, List<Product> catalog, Clock clock, int rowsPerSegment)
+            throws IOException {
+        this(directory, catalog, clock, rowsPerSegment, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Constructs a new ColumnarArchiveWriter checkpointing the open segment periodically.
+     *
+     * @param directory          the directory of the segment files
+     * @param catalog            the catalog whose indexes are the archived product ids
+     * @param clock              the clock giving the time of an order
+     * @param rowsPerSegment     the number of order lines per segment file
+     * @param checkpointInterval the period of the checkpoints of new rows, zero to write only full segments
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public ColumnarArchiveWriter(Path directory,
+                                 List<Product> catalog,
+                                 Clock clock,
+                                 int rowsPerSegment,
+                                 Duration checkpointInterval) throws IOException {
+        if (rowsPerSegment <= 0) {
+            throw new IllegalArgumentException("Rows per segment must be positive: " + rowsPerSegment);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.catalog = List.copyOf(catalog);
+        for (int i = 0; i < this.catalog.size(); i++) {
+            productIds.putIfAbsent(this.catalog.get(i).getName(), i);
+        }
+        this.clock = clock;
+        this.rowsPerSegment = rowsPerSegment;
+        for (ArchiveColumn column : ArchiveColumn.values()) {
+            columns.put(column, new long[Math.min(rowsPerSegment, 1024)]);
+        }
+        while (Files.exists(segmentFile(nextSegment))) {
+            nextSegment++;
+        }
+        if (checkpointInterval.isZero()) {
+            this.checkpointScheduler = null;
+        } else {
+            this.checkpointScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "order-archive-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long periodNanos = checkpointInterval.toNanos();
+            checkpointScheduler.scheduleWithFixedDelay(
+                    this::checkpointQuietly, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Archives the lines of a completed order. Failures are counted instead of thrown, because the order is
+     * already paid and its receipt printed.
+     *
+     * @param customer        the customer of the order
+     * @param orderedProducts the priced products of the order
+     */
+    @Override
+    public void onOrderCompleted(Customer customer, List<Product> orderedProducts) {
+        try {
+            append(customer.getUsername(), orderedProducts, clock.millis());
+        } catch (IOException | RuntimeException e) {
+            failedOrders.increment();
+        }
+    }
+
+    /**
+     * Retrieves the number of completed orders that could not be archived, wholly or in part.
+     *
+     * @return the number of failed orders
+     */
+    public long getFailedOrderCount() {
+        return failedOrders.sum();
+    }
+
+    /**
+     * Retrieves the number of segment writes and checkpoints that failed; their rows are kept and written again.
+     *
+     * @return the number of failed writes
+     */
+    public long getFailedWriteCount() {
+        return failedWrites.sum();
+    }
+
+    /**
+     * Archives the lines of an order, e.g. of an order imported from the text receipts.
+     *
+     * @param username        the username of the customer
+     * @param orderedProducts the priced products of the order, including the chosen extras
+     * @param epochMillis     the time of the order
+     * @throws IOException              if a full segment cannot be written
+     * @throws IllegalArgumentException if a product is not in the catalog
+     */
+    public synchronized void append(String username, List<Product> orderedProducts, long epochMillis)
+            throws IOException {
+        int[] orderProductIds = new int[orderedProducts.size()];
+        for (int i = 0; i < orderProductIds.length; i++) {
+            Integer productId = productIds.get(orderedProducts.get(i).getName());
+            if (productId == null) {
+                throw new IllegalArgumentException(
+                        "Product '" + orderedProducts.get(i).getName() + "' is not in the catalog");
+            }
+            orderProductIds[i] = productId;
+        }
+
+        Integer customerId = null;
+        for (int i = 0; i < orderProductIds.length; i++) {
+            if (rowCount == rowsPerSegment) {
+                // The segment could not be written when it became full
+                flush();
+            }
+            if (customerId == null || rowCount == 0) {
+                customerId = customerIds.computeIfAbsent(username, u -> customerIds.size());
+            }
+            Product product = orderedProducts.get(i);
+            int productId = orderProductIds[i];
+            long price = PricingService.toMinorUnits(product.getPrice());
+            boolean isFree = price == 0 && PricingService.toMinorUnits(catalog.get(productId).getPrice()) > 0;
+
+            ensureCapacity();
+            columns.get(ArchiveColumn.PRODUCT_ID)[rowCount] = productId;
+            columns.get(ArchiveColumn.PRODUCT_TYPE)[rowCount] = product.getProductType().ordinal();
+            columns.get(ArchiveColumn.PRICE)[rowCount] = price;
+            columns.get(ArchiveColumn.FREE)[rowCount] = isFree ? 1 : 0;
+            columns.get(ArchiveColumn.CUSTOMER_ID)[rowCount] = customerId;
+            columns.get(ArchiveColumn.TIMESTAMP)[rowCount] = epochMillis;
+            rowCount++;
+            if (rowCount == rowsPerSegment) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Writes the collected rows to a new segment file.
+     *
+     * @throws IOException if the segment cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        if (rowCount == 0) {
+            return;
+        }
+        writeSegmentFile();
+        nextSegment++;
+        rowCount = 0;
+        checkpointedRowCount = 0;
+        customerIds.clear();
+    }
+
+    /**
+     * Writes the rows of the open segment to its segment file without closing the segment; later rows are added
+     * to the same file by the next checkpoint or flush.
+     *
+     * @throws IOException if the segment cannot be written
+     */
+    public synchronized void checkpoint() throws IOException {
+        if (rowCount == checkpointedRowCount) {
+            return;
+        }
+        writeSegmentFile();
+        checkpointedRowCount = rowCount;
+    }
+
+    /**
+     * Writes the pending rows and stops the checkpoints.
+     *
+     * @throws IOException if the segment cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (checkpointScheduler != null) {
+            checkpointScheduler.shutdownNow();
+        }
+        flush();
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (IOException | RuntimeException e) {
+            // The rows are kept and written by the next checkpoint
+        }
+    }
+
+    private void writeSegmentFile() throws IOException {
+        Path file = segmentFile(nextSegment);
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeSegment(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                channel.force(true);
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            failedWrites.increment();
+            throw e;
+        }
+    }
+
+    private Path segmentFile(int segment) {
+        return directory.resolve(String.format(ArchiveFormat.FILE_NAME_PATTERN, segment));
+    }
+
+    private void writeSegment(OutputStream target) throws IOException {
+        long[] timestamps = columns.get(ArchiveColumn.TIMESTAMP);
+        long lowestTimestamp = Long.MAX_VALUE;
+        long highestTimestamp = Long.MIN_VALUE;
+        for (int i = 0; i < rowCount; i++) {
+            lowestTimestamp = Math.min(lowestTimestamp, timestamps[i]);
+            highestTimestamp = Math.max(highestTimestamp, timestamps[i]);
+        }
+
+        String[] customers = new String[customerIds.size()];
+        customerIds.forEach((username, id) -> customers[id] = username);
+
+        DataOutputStream out = new DataOutputStream(target);
+        out.writeInt(ArchiveFormat.MAGIC);
+        out.writeShort(ArchiveFormat.VERSION);
+        out.writeInt(rowCount);
+        out.writeLong(lowestTimestamp);
+        out.writeLong(highestTimestamp);
+        out.writeInt(catalog.size());
+        for (Product product : catalog) {
+            writeName(product.getName(), out);
+        }
+        out.writeInt(customers.length);
+        for (String username : customers) {
+            writeName(username, out);
+        }
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream(rowCount * 4);
+        for (ArchiveColumn column : ArchiveColumn.values()) {
+            int offset = data.size();
+            column.getEncoding().encode(columns.get(column), rowCount, data);
+            out.writeByte(column.getEncoding().ordinal());
+            out.writeInt(offset);
+            out.writeInt(data.size() - offset);
+        }
+        data.writeTo(out);
+        out.flush();
+    }
+
+    private static void writeName(String name, DataOutputStream out) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private void ensureCapacity() {
+        long[] productIdColumn = columns.get(ArchiveColumn.PRODUCT_ID);
+        if (rowCount < productIdColumn.length) {
+            return;
+        }
+        int capacity = Math.min(rowsPerSegment, productIdColumn.length * 2);
+        columns.replaceAll((column, values) -> Arrays.copyOf(values, capacity));
+    }
+}
@@ -0,0 +1,22 @@
+package com.fsetkov.eventlog;
+
+import java.time.Instant;
+
+/**
+ * Event read back from a log file by the {@link EventLogDecoder}.
+ *
+ * @param time      the time the event was logged
+ * @param type      the type of the event
+ * @param thread    the index of the logging thread
+ * @param sessionId the id of the session
+ * @param value     the value of the event
+ * @param symbol    the text of the value if it is a symbol, otherwise {@code null}
+ */
+public record DecodedEvent(Instant time, EventType type, int thread, long sessionId, long value, String symbol) {
+
+    @Override
+    public String toString() {
+        return time + " thread=" + thread + " session=" + sessionId + " " + type + " "
+               + (symbol != null ? symbol : String.valueOf(value));
+    }
+}
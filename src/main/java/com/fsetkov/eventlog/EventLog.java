@@ -0,0 +1,41 @@
+package com.fsetkov.eventlog;
+
+/**
+ * Structured log of session events.
+ * <p>
+ * Events are primitive: a type, the id of the session and one {@code long} value, so logging never allocates.
+ * Strings that recur, such as product names, are registered once as symbols and logged by their id.
+ */
+public interface EventLog {
+
+    /**
+     * Event log discarding all events.
+     */
+    EventLog NONE = new EventLog() {
+        @Override
+        public void log(EventType type, long sessionId, long value) {
+        }
+
+        @Override
+        public int symbol(String text) {
+            return 0;
+        }
+    };
+
+    /**
+     * Logs an event.
+     *
+     * @param type      the type of the event
+     * @param sessionId the id of the session
+     * @param value     the value of the event, see {@link EventType}
+     */
+    void log(EventType type, long sessionId, long value);
+
+    /**
+     * Retrieves the id of a recurring string, registering it on first use.
+     *
+     * @param text the string
+     * @return the symbol id
+     */
+    int symbol(String text);
+}
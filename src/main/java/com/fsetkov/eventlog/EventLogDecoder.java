@@ -0,0 +1,106 @@
+package com.fsetkov.eventlog;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Tool decoding the binary files of a {@link RingBufferEventLog} into readable lines.
+ * <p>
+ * Usage: {@code java com.fsetkov.eventlog.EventLogDecoder <log file or directory>...}; the files of a directory
+ * are decoded in the order they were written. Events of different threads appear in the order they were
+ * drained, which is not necessarily the order of their times.
+ */
+public final class EventLogDecoder {
+
+    private EventLogDecoder() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: EventLogDecoder <log file or directory>...");
+            System.exit(2);
+        }
+        for (String arg : args) {
+            for (Path file : logFiles(Path.of(arg))) {
+                decode(file, System.out::println);
+            }
+        }
+    }
+
+    /**
+     * Lists the log files of a directory in the order they were written, or the file itself.
+     *
+     * @param path a log file or a log directory
+     * @return the log files
+     * @throws IOException if the directory cannot be listed
+     */
+    public static List<Path> logFiles(Path path) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(path)) {
+            files.add(path);
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, EventLogFormat.FILE_GLOB)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        return files;
+    }
+
+    /**
+     * Decodes the events of one log file.
+     *
+     * @param file     the log file
+     * @param consumer receives the events in the order of the file
+     * @throws IOException if the file cannot be read or is not an event log
+     */
+    public static void decode(Path file, Consumer<DecodedEvent> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != EventLogFormat.MAGIC || in.readShort() != EventLogFormat.VERSION) {
+                throw new IOException(file + " is not an event log of version " + EventLogFormat.VERSION);
+            }
+
+            Map<Integer, String> symbols = new HashMap<>();
+            while (true) {
+                int tag = in.read();
+                if (tag < 0) {
+                    return;
+                }
+                try {
+                    if (tag == EventLogFormat.SYMBOL_TAG) {
+                        int id = in.readInt();
+                        byte[] bytes = new byte[in.readUnsignedShort()];
+                        in.readFully(bytes);
+                        symbols.put(id, new String(bytes, StandardCharsets.UTF_8));
+                    } else if (tag == EventLogFormat.EVENT_TAG) {
+                        Instant time = Instant.ofEpochMilli(in.readLong());
+                        EventType type = EventType.ofOrdinal(in.readInt());
+                        int thread = in.readInt();
+                        long sessionId = in.readLong();
+                        long value = in.readLong();
+                        String symbol = type.isSymbolValue() ? symbols.get((int) value) : null;
+                        consumer.accept(new DecodedEvent(time, type, thread, sessionId, value, symbol));
+                    } else {
+                        throw new IOException("Unknown record tag " + tag + " in " + file);
+                    }
+                } catch (EOFException e) {
+                    // The last record was cut off while the log was being written
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.fsetkov.eventlog;
+
+/**
+ * Binary format of the event log files.
+ * <p>
+ * A file starts with {@link #MAGIC} and {@link #VERSION}, followed by tagged records in big-endian order:
+ * <ul>
+ *     <li>symbol: {@link #SYMBOL_TAG}, int id, unsigned short length, UTF-8 bytes of the text</li>
+ *     <li>event: {@link #EVENT_TAG}, long epoch millis, int type ordinal, int thread, long session id,
+ *     long value</li>
+ * </ul>
+ * Every file repeats the symbols known when it was started, so each file decodes on its own.
+ */
+final class EventLogFormat {
+
+    static final int MAGIC = 0x4353_4556;
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = Integer.BYTES + Short.BYTES;
+    static final byte SYMBOL_TAG = 1;
+    static final byte EVENT_TAG = 2;
+    static final int EVENT_BYTES = 1 + Long.BYTES + Integer.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES;
+    static final String FILE_NAME_PATTERN = "events-%05d.log";
+    static final String FILE_GLOB = "events-*.log";
+
+    private EventLogFormat() {
+        // Private constructor to prevent instantiation
+    }
+}
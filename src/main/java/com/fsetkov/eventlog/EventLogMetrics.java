@@ -0,0 +1,13 @@
+package com.fsetkov.eventlog;
+
+/**
+ * Snapshot of the counters of a {@link RingBufferEventLog}.
+ *
+ * @param written the number of events written to the log files
+ * @param dropped the number of events dropped because the ring buffer of their thread was full
+ * @param files   the number of log files created
+ * @param threads the number of threads that logged events
+ * @param buffers the number of ring buffers currently held, one per logging thread that is alive or not yet drained
+ */
+public record EventLogMetrics(long written, long dropped, int files, int threads, int buffers) {
+}
@@ -0,0 +1,84 @@
+package com.fsetkov.eventlog;
+
+/**
+ * Types of the events written to the {@link EventLog} by the order sessions.
+ */
+public enum EventType {
+
+    /**
+     * A session greeted its first customer; the value is unused.
+     */
+    SESSION_STARTED(false),
+
+    /**
+     * A customer gave their name; the value is the 64-bit hash of the username.
+     */
+    CUSTOMER_IDENTIFIED(false),
+
+    /**
+     * A product was added to the order; the value is the symbol of the product name.
+     */
+    ITEM_ADDED(true),
+
+    /**
+     * A chosen product was sold out; the value is the symbol of the product name.
+     */
+    ITEM_SOLD_OUT(true),
+
+    /**
+     * An input could not be resolved; the value is the ordinal of the session state.
+     */
+    INVALID_INPUT(false),
+
+    /**
+     * A receipt was rendered; the value is the total in minor currency units.
+     */
+    RECEIPT_RENDERED(false),
+
+    /**
+     * An open order was cancelled; the value is the number of released products.
+     */
+    ORDER_CANCELLED(false),
+
+    /**
+     * The session ended the program; the value is unused.
+     */
+    SESSION_EXITED(false),
+
+    /**
+     * A product was refused because the order already held the maximum number of lines; the value is the maximum.
+     */
+    ORDER_LINE_LIMIT_REACHED(false),
+
+    /**
+     * An idle session was expired; the value is the number of released products.
+     */
+    SESSION_EXPIRED(false);
+
+    private static final EventType[] VALUES = values();
+
+    private final boolean isSymbolValue;
+
+    EventType(boolean isSymbolValue) {
+        this.isSymbolValue = isSymbolValue;
+    }
+
+    /**
+     * Checks whether the value of the event is a symbol registered with {@link EventLog#symbol(String)}.
+     *
+     * @return {@code true} if the value is a symbol; {@code false} if it is a number
+     */
+    public boolean isSymbolValue() {
+        return isSymbolValue;
+    }
+
+    /**
+     * Retrieves the event type of an ordinal without allocating.
+     *
+     * @param ordinal the ordinal
+     * @return the event type
+     */
+    public static EventType ofOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
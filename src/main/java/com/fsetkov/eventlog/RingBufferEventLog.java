@@ -0,0 +1,334 @@
+package com.fsetkov.eventlog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link EventLog} writing binary records into per-thread ring buffers, drained to rolling files by a background
+ * thread.
+ * <p>
+ * Each logging thread owns a single-producer ring buffer of primitive slots, so logging an event is a handful of
+ * array stores and one ordered write, without locks or allocation. When the buffer of a thread is full, the event
+ * is dropped and counted rather than stalling the checkout. The drainer thread copies the buffers into log files
+ * in the {@link EventLogFormat}, starting a new file when the current one reaches its size limit. Logs are read
+ * back with {@link EventLogDecoder}.
+ * <p>
+ * A buffer refers to its thread only weakly. Once the thread has died and its buffer is drained, the drainer drops
+ * the buffer, so executors replacing their threads do not pin a buffer per thread they ever ran.
+ */
+public class RingBufferEventLog implements EventLog, AutoCloseable {
+
+    public static final int DEFAULT_BUFFER_EVENTS = 4096;
+    public static final long DEFAULT_MAX_FILE_BYTES = 16L * 1024 * 1024;
+
+    private static final int SLOT_LONGS = 4;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int bufferEvents;
+    private final ThreadLocal<ThreadBuffer> threadBuffer = ThreadLocal.withInitial(this::registerThreadBuffer);
+    private final List<ThreadBuffer> threadBuffers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger threadIndexes = new AtomicInteger();
+    private final Map<String, Integer> symbols = new ConcurrentHashMap<>();
+    private final Queue<String> pendingSymbols = new ConcurrentLinkedQueue<>();
+    private final Thread drainer;
+
+    private final List<String> drainedSymbols = new ArrayList<>();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(64 * 1024);
+    private FileChannel channel;
+    private long fileBytes;
+    private boolean isRolling;
+    private int nextFileIndex;
+    private volatile long written;
+    private volatile long retiredDropped;
+    private volatile int files;
+    private volatile IOException failure;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new RingBufferEventLog with the default buffer and file sizes and starts its drainer thread.
+     *
+     * @param directory the directory of the log files
+     * @throws IOException if the directory or the first log file cannot be created
+     */
+    public RingBufferEventLog(Path directory) throws IOException {
+        this(directory, DEFAULT_BUFFER_EVENTS, DEFAULT_MAX_FILE_BYTES);
+    }
+
+    /**
+     * Constructs a new RingBufferEventLog and starts its drainer thread.
+     *
+     * @param directory    the directory of the log files
+     * @param bufferEvents the number of events each thread can buffer, rounded up to a power of two
+     * @param maxFileBytes the size at which a new log file is started
+     * @throws IOException if the directory or the first log file cannot be created
+     */
+    public RingBufferEventLog(Path directory, int bufferEvents, long maxFileBytes) throws IOException {
+        if (bufferEvents < 1 || maxFileBytes < EventLogFormat.HEADER_BYTES + EventLogFormat.EVENT_BYTES) {
+            throw new IllegalArgumentException("Buffer and file sizes are too small");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxFileBytes = maxFileBytes;
+        this.bufferEvents = Integer.bitCount(bufferEvents) == 1 ? bufferEvents : Integer.highestOneBit(bufferEvents) << 1;
+        while (Files.exists(directory.resolve(String.format(EventLogFormat.FILE_NAME_PATTERN, nextFileIndex)))) {
+            nextFileIndex++;
+        }
+        rollFile();
+
+        this.drainer = new Thread(this::runDrainer, "event-log-drainer");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    @Override
+    public void log(EventType type, long sessionId, long value) {
+        threadBuffer.get().offer(System.currentTimeMillis(), type.ordinal(), sessionId, value);
+    }
+
+    @Override
+    public int symbol(String text) {
+        Integer id = symbols.get(text);
+        if (id != null) {
+            return id;
+        }
+        synchronized (symbols) {
+            id = symbols.get(text);
+            if (id == null) {
+                id = symbols.size();
+                pendingSymbols.add(text);
+                symbols.put(text, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Retrieves a snapshot of the log counters.
+     *
+     * @return the metrics
+     */
+    public EventLogMetrics getMetrics() {
+        List<ThreadBuffer> buffers = threadBuffers;
+        long dropped = retiredDropped;
+        for (ThreadBuffer buffer : buffers) {
+            dropped += buffer.dropped;
+        }
+        return new EventLogMetrics(written, dropped, files, threadIndexes.get(), buffers.size());
+    }
+
+    /**
+     * Stops the drainer after it wrote all buffered events and closes the log file.
+     *
+     * @throws IOException if writing the log failed
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private ThreadBuffer registerThreadBuffer() {
+        ThreadBuffer buffer = new ThreadBuffer(bufferEvents, threadIndexes.getAndIncrement(), Thread.currentThread());
+        threadBuffers.add(buffer);
+        return buffer;
+    }
+
+    private void runDrainer() {
+        try {
+            boolean isRunning;
+            do {
+                isRunning = running;
+                if (drain() == 0 && isRunning) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } while (isRunning);
+        } catch (IOException e) {
+            failure = e;
+        } catch (UncheckedIOException e) {
+            failure = e.getCause();
+        }
+    }
+
+    /**
+     * Writes the pending symbols and the published events of all threads. The heads of the buffers are read
+     * before the symbols, so every symbol referenced by a drained event is written before the event. The buffers
+     * of threads found dead before their heads were read hold no further events and are dropped once drained.
+     *
+     * @return the number of written events
+     * @throws IOException if the log file cannot be written
+     */
+    private int drain() throws IOException {
+        List<ThreadBuffer> buffers = threadBuffers;
+        long[] heads = new long[buffers.size()];
+        boolean[] isOwnerDead = new boolean[heads.length];
+        boolean hasDeadOwner = false;
+        for (int i = 0; i < heads.length; i++) {
+            isOwnerDead[i] = buffers.get(i).isOwnerDead();
+            hasDeadOwner |= isOwnerDead[i];
+            heads[i] = buffers.get(i).head.get();
+        }
+
+        String symbol;
+        while ((symbol = pendingSymbols.poll()) != null) {
+            drainedSymbols.add(symbol);
+            putSymbol(drainedSymbols.size() - 1, symbol);
+        }
+
+        int drained = 0;
+        for (int i = 0; i < heads.length; i++) {
+            ThreadBuffer buffer = buffers.get(i);
+            long[] slots = buffer.slots;
+            for (long sequence = buffer.tail.get(); sequence < heads[i]; sequence++) {
+                int base = (int) (sequence & buffer.mask) * SLOT_LONGS;
+                ensureRoom(EventLogFormat.EVENT_BYTES);
+                writeBuffer.put(EventLogFormat.EVENT_TAG)
+                        .putLong(slots[base])
+                        .putInt((int) (slots[base + 1] >>> 32))
+                        .putInt((int) slots[base + 1])
+                        .putLong(slots[base + 2])
+                        .putLong(slots[base + 3]);
+                fileBytes += EventLogFormat.EVENT_BYTES;
+                drained++;
+            }
+            buffer.tail.lazySet(heads[i]);
+        }
+        flush();
+        written += drained;
+        if (hasDeadOwner) {
+            retireBuffers(buffers, isOwnerDead);
+        }
+        return drained;
+    }
+
+    private void retireBuffers(List<ThreadBuffer> buffers, boolean[] isOwnerDead) {
+        List<ThreadBuffer> retired = new ArrayList<>();
+        long dropped = 0;
+        for (int i = 0; i < isOwnerDead.length; i++) {
+            if (isOwnerDead[i]) {
+                retired.add(buffers.get(i));
+                dropped += buffers.get(i).dropped;
+            }
+        }
+        retiredDropped += dropped;
+        threadBuffers.removeAll(retired);
+    }
+
+    private void putSymbol(int id, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int recordBytes = 1 + Integer.BYTES + Short.BYTES + bytes.length;
+        ensureRoom(recordBytes);
+        writeBuffer.put(EventLogFormat.SYMBOL_TAG).putInt(id).putShort((short) bytes.length).put(bytes);
+        fileBytes += recordBytes;
+    }
+
+    private void ensureRoom(int recordBytes) throws IOException {
+        if (!isRolling && fileBytes + recordBytes > maxFileBytes && fileBytes > EventLogFormat.HEADER_BYTES) {
+            flush();
+            rollFile();
+        }
+        if (writeBuffer.remaining() < recordBytes) {
+            flush();
+        }
+    }
+
+    private void rollFile() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        Path file = directory.resolve(String.format(EventLogFormat.FILE_NAME_PATTERN, nextFileIndex++));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        files++;
+        fileBytes = EventLogFormat.HEADER_BYTES;
+        writeBuffer.putInt(EventLogFormat.MAGIC).putShort(EventLogFormat.VERSION);
+        isRolling = true;
+        try {
+            for (int id = 0; id < drainedSymbols.size(); id++) {
+                putSymbol(id, drainedSymbols.get(id));
+            }
+        } finally {
+            isRolling = false;
+        }
+    }
+
+    private void flush() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            channel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    /**
+     * Single-producer ring buffer of one logging thread. Each event takes {@link #SLOT_LONGS} slots: the time,
+     * the type and thread, the session and the value.
+     */
+    private static final class ThreadBuffer {
+
+        private final long[] slots;
+        private final int mask;
+        private final int capacity;
+        private final long threadIndex;
+        private final WeakReference<Thread> owner;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long dropped;
+
+        private ThreadBuffer(int capacity, int threadIndex, Thread owner) {
+            this.slots = new long[capacity * SLOT_LONGS];
+            this.mask = capacity - 1;
+            this.capacity = capacity;
+            this.threadIndex = threadIndex;
+            this.owner = new WeakReference<>(owner);
+        }
+
+        /**
+         * Checks whether the owning thread has terminated; all its events are then visible to the caller.
+         */
+        private boolean isOwnerDead() {
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+
+        private void offer(long time, int type, long sessionId, long value) {
+            long sequence = head.getPlain();
+            if (sequence - tail.get() == capacity) {
+                dropped++;
+                return;
+            }
+            int base = (int) (sequence & mask) * SLOT_LONGS;
+            slots[base] = time;
+            slots[base + 1] = (long) type << 32 | threadIndex;
+            slots[base + 2] = sessionId;
+            slots[base + 3] = value;
+            head.lazySet(sequence + 1);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.fsetkov.loyalty;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.LoyaltyTier;
+import com.fsetkov.repository.CustomerShard;
+import com.fsetkov.repository.ShardedCustomerRegistry;
+import com.fsetkov.service.CustomerService;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Nightly batch over all members of a {@link CustomerService}: expires the stamps of members who did not visit
+ * within the stamp validity, computes the {@link LoyaltyTier}s from the visit history and emits a
+ * {@link MemberStatement} per member.
+ * <p>
+ * The members are partitioned by splitting a spliterator over them into halves until a partition holds at most
+ * {@code partitionSize} members, and the partitions are processed by a fork/join pool. The statements are streamed
+ * to the sink instead of being collected. How the members are walked depends on the map holding the customers:
+ * <ul>
+ *     <li>a {@link ShardedCustomerRegistry} is walked shard by shard, each {@link CustomerShard} over a snapshot of
+ *     its members taken under the lock of the shard, so lookups are blocked only while a shard is copied;</li>
+ *     <li>a {@link ConcurrentMap} is walked directly, its weakly consistent spliterator only narrowing ranges of the
+ *     map's table;</li>
+ *     <li>any other map is walked over a snapshot of its members and must not be modified during the copy.</li>
+ * </ul>
+ * Members added during a run may or may not be processed, and so may members moved by a shard added during a run.
+ * Stamp expiry is atomic with respect to the visits recorded at the tills; see
+ * {@link Customer#expireStampsIfAbsentSince(LocalDate)}.
+ */
+public class LoyaltyBatchJob {
+
+    public static final Period DEFAULT_STAMP_VALIDITY = Period.ofYears(1);
+    public static final int DEFAULT_PARTITION_SIZE = 4_096;
+
+    private final ForkJoinPool pool;
+    private final Clock clock;
+    private final Period stampValidity;
+    private final int partitionSize;
+    private final Consumer<MemberStatement> statementSink;
+
+    /**
+     * Constructs a new LoyaltyBatchJob with the default stamp validity and partition size.
+     *
+     * @param pool          the pool processing the partitions
+     * @param clock         the clock giving the day of the run
+     * @param statementSink receives the statements, from several threads at once
+     */
+    public LoyaltyBatchJob(ForkJoinPool pool, Clock clock, Consumer<MemberStatement> statementSink) {
+        this(pool, clock, DEFAULT_STAMP_VALIDITY, DEFAULT_PARTITION_SIZE, statementSink);
+    }
+
+    /**
+     * Constructs a new LoyaltyBatchJob.
+     *
+     * @param pool          the pool processing the partitions
+     * @param clock         the clock giving the day of the run
+     * @param stampValidity the time without a visit after which the stamps expire
+     * @param partitionSize the number of members processed by one task
+     * @param statementSink receives the statements, from several threads at once
+     */
+    public LoyaltyBatchJob(ForkJoinPool pool,
+                           Clock clock,
+                           Period stampValidity,
+                           int partitionSize,
+                           Consumer<MemberStatement> statementSink) {
+        if (partitionSize <= 0) {
+            throw new IllegalArgumentException("Partition size must be positive, but was " + partitionSize);
+        }
+        this.pool = pool;
+        this.clock = clock;
+        this.stampValidity = stampValidity;
+        this.partitionSize = partitionSize;
+        this.statementSink = statementSink;
+    }
+
+    /**
+     * Runs the job over all members of a customer service.
+     *
+     * @param customerService the customer service
+     * @return the summary of the run
+     */
+    public LoyaltyBatchResult run(CustomerService customerService) {
+        long start = System.nanoTime();
+        Run run = new Run(LocalDate.now(clock));
+        Map<String, Customer> customers = customerService.customers();
+        if (customers instanceof ShardedCustomerRegistry registry) {
+            List<ForkJoinTask<Void>> shardTasks = new ArrayList<>();
+            for (CustomerShard shard : registry.getShards()) {
+                shardTasks.add(pool.submit(new ShardTask(run, shard)));
+            }
+            shardTasks.forEach(ForkJoinTask::join);
+        } else if (customers instanceof ConcurrentMap) {
+            pool.invoke(new PartitionTask(run, customers.values().spliterator()));
+        } else {
+            pool.invoke(new PartitionTask(run, List.copyOf(customers.values()).spliterator()));
+        }
+
+        Map<LoyaltyTier, Long> tierCounts = new EnumMap<>(LoyaltyTier.class);
+        for (LoyaltyTier tier : LoyaltyTier.values()) {
+            tierCounts.put(tier, run.tierCounts.get(tier).sum());
+        }
+        return new LoyaltyBatchResult(
+                run.members.sum(),
+                run.expiredCards.sum(),
+                run.expiredStamps.sum(),
+                tierCounts,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Processes one member.
+     */
+    private void process(Customer customer, Run run) {
+        int expiredStamps = customer.expireStampsIfAbsentSince(run.stampCutoff);
+        int visits = customer.getVisitHistory().countVisits(run.day, LoyaltyTier.QUALIFYING_MONTHS);
+        LoyaltyTier tier = LoyaltyTier.forVisits(visits);
+        customer.setLoyaltyTier(tier);
+
+        statementSink.accept(new MemberStatement(
+                customer.getUsername(),
+                tier,
+                visits,
+                customer.getVisitHistory().getLastVisit(),
+                customer.getCustomerStampCard().getNumberOfBeveragesBought(),
+                expiredStamps));
+
+        run.members.increment();
+        run.tierCounts.get(tier).increment();
+        if (expiredStamps > 0) {
+            run.expiredCards.increment();
+            run.expiredStamps.add(expiredStamps);
+        }
+    }
+
+    /**
+     * Day and counters of one run.
+     */
+    private final class Run {
+
+        private final LocalDate day;
+        private final LocalDate stampCutoff;
+        private final LongAdder members = new LongAdder();
+        private final LongAdder expiredCards = new LongAdder();
+        private final LongAdder expiredStamps = new LongAdder();
+        private final Map<LoyaltyTier, LongAdder> tierCounts = new EnumMap<>(LoyaltyTier.class);
+
+        private Run(LocalDate day) {
+            this.day = day;
+            this.stampCutoff = day.minus(stampValidity);
+            for (LoyaltyTier tier : LoyaltyTier.values()) {
+                tierCounts.put(tier, new LongAdder());
+            }
+        }
+    }
+
+    /**
+     * Copies the members of one shard and processes them as a partition.
+     */
+    private final class ShardTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+        private final CustomerShard shard;
+
+        private ShardTask(Run run, CustomerShard shard) {
+            this.run = run;
+            this.shard = shard;
+        }
+
+        @Override
+        protected void compute() {
+            List<Customer> members = new ArrayList<>(shard.size());
+            shard.forEach((username, customer) -> members.add(customer));
+            new PartitionTask(run, members.spliterator()).invoke();
+        }
+    }
+
+    /**
+     * Splits a partition of the members in halves until it is small enough, then processes it.
+     */
+    private final class PartitionTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+        private final Spliterator<Customer> members;
+
+        private PartitionTask(Run run, Spliterator<Customer> members) {
+            this.run = run;
+            this.members = members;
+        }
+
+        @Override
+        protected void compute() {
+            Spliterator<Customer> half = members.estimateSize() > partitionSize ? members.trySplit() : null;
+            if (half != null) {
+                invokeAll(new PartitionTask(run, half), new PartitionTask(run, members));
+            } else {
+                members.forEachRemaining(customer -> process(customer, run));
+            }
+        }
+    }
+}
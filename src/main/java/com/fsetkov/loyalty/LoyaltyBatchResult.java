@@ -0,0 +1,34 @@
+package com.fsetkov.loyalty;
+
+import com.fsetkov.models.LoyaltyTier;
+
+import java.util.Map;
+
+/**
+ * Summary of one run of the {@link LoyaltyBatchJob}.
+ *
+ * @param members       the number of processed members
+ * @param expiredCards  the number of stamp cards whose stamps expired
+ * @param expiredStamps the number of expired stamps
+ * @param tierCounts    the number of members per tier
+ * @param elapsedNanos  the duration of the run
+ */
+public record LoyaltyBatchResult(long members,
+                                 long expiredCards,
+                                 long expiredStamps,
+                                 Map<LoyaltyTier, Long> tierCounts,
+                                 long elapsedNanos) {
+
+    public LoyaltyBatchResult {
+        tierCounts = Map.copyOf(tierCounts);
+    }
+
+    /**
+     * Retrieves the throughput of the run.
+     *
+     * @return the processed members per second
+     */
+    public double membersPerSecond() {
+        return elapsedNanos == 0 ? 0 : members * 1e9 / elapsedNanos;
+    }
+}
@@ -0,0 +1,23 @@
+package com.fsetkov.loyalty;
+
+import com.fsetkov.models.LoyaltyTier;
+
+import java.time.LocalDate;
+
+/**
+ * Periodic loyalty statement of one member, emitted by the {@link LoyaltyBatchJob}.
+ *
+ * @param username      the username of the member
+ * @param tier          the tier computed from the visits of the qualifying months
+ * @param visits        the visits of the qualifying months
+ * @param lastVisit     the day of the latest visit, or {@code null} if none was recorded
+ * @param stamps        the stamps on the card after expiry
+ * @param expiredStamps the stamps removed because the member did not visit for too long
+ */
+public record MemberStatement(String username,
+                              LoyaltyTier tier,
+                              int visits,
+                              LocalDate lastVisit,
+                              int stamps,
+                              int expiredStamps) {
+}
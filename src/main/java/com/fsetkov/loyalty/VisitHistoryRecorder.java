@@ -0,0 +1,30 @@
+package com.fsetkov.loyalty;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.service.CustomerVisitListener;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * Records every customer lookup at a till as a visit in the customer's {@link com.fsetkov.models.VisitHistory},
+ * which the {@link LoyaltyBatchJob} reads to compute the tiers and to expire stale stamps.
+ */
+public class VisitHistoryRecorder implements CustomerVisitListener {
+
+    private final Clock clock;
+
+    /**
+     * Constructs a new VisitHistoryRecorder.
+     *
+     * @param clock the clock giving the day of a visit
+     */
+    public VisitHistoryRecorder(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public void onCustomerVisit(Customer customer) {
+        customer.getVisitHistory().recordVisit(LocalDate.now(clock));
+    }
+}
@@ -1,8 +1,13 @@
 package com.fsetkov.models;
 
+import java.time.LocalDate;
+
 public class Customer {
     private final String username;
     private final CustomerStampCard customerStampCard;
+    private final VisitHistory visitHistory = new VisitHistory();
+    private volatile LoyaltyTier loyaltyTier = LoyaltyTier.BRONZE;
+    private volatile PrepaidAccount prepaidAccount;
 
     public Customer(String username) {
         this.username = username;
@@ -16,4 +21,42 @@ public class Customer {
     public CustomerStampCard getCustomerStampCard() {
         return customerStampCard;
     }
+
+    public PrepaidAccount getPrepaidAccount() {
+        return prepaidAccount;
+    }
+
+    public void setPrepaidAccount(PrepaidAccount prepaidAccount) {
+        this.prepaidAccount = prepaidAccount;
+    }
+
+    public VisitHistory getVisitHistory() {
+        return visitHistory;
+    }
+
+    public LoyaltyTier getLoyaltyTier() {
+        return loyaltyTier;
+    }
+
+    public void setLoyaltyTier(LoyaltyTier loyaltyTier) {
+        this.loyaltyTier = loyaltyTier;
+    }
+
+    /**
+     * Removes the stamps of a customer who has not visited since a day. The check and the removal are atomic with
+     * respect to {@link VisitHistory#recordVisit(LocalDate)}, so the stamps of a visit recorded meanwhile are kept.
+     * Customers without recorded visits, e.g. loaded from a persisted registry, keep their stamps.
+     *
+     * @param cutoff the earliest day of a visit keeping the stamps
+     * @return the number of removed stamps
+     */
+    public int expireStampsIfAbsentSince(LocalDate cutoff) {
+        synchronized (visitHistory) {
+            LocalDate lastVisit = visitHistory.getLastVisit();
+            if (lastVisit == null || !lastVisit.isBefore(cutoff)) {
+                return 0;
+            }
+            return customerStampCard.expireStamps();
+        }
+    }
 }
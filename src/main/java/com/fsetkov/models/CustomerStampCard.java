@@ -3,7 +3,7 @@ package com.fsetkov.models;
 public class CustomerStampCard {
     private Integer numberOfBeveragesBought;
 
-    public Integer getNumberOfBeveragesBought() {
+    public synchronized Integer getNumberOfBeveragesBought() {
         return numberOfBeveragesBought;
     }
 
@@ -11,18 +11,33 @@ public class CustomerStampCard {
         numberOfBeveragesBought = 0;
     }
 
-    public void increaseBeverageCount() {
+    public synchronized void increaseBeverageCount() {
         numberOfBeveragesBought += 1;
     }
 
-    public int getNumberOfFreeBeverages() {
+    public synchronized void increaseBeverageCount(long count) {
+        numberOfBeveragesBought = Math.toIntExact(numberOfBeveragesBought + count);
+    }
+
+    public synchronized int getNumberOfFreeBeverages() {
         int freeBeverages = numberOfBeveragesBought / 5;
         numberOfBeveragesBought %= 5; // Update the count to reflect the used free beverages
         return freeBeverages;
     }
 
 
-    public void setNumberOfBeveragesBought(Integer numberOfBeveragesBought) {
+    public synchronized void setNumberOfBeveragesBought(Integer numberOfBeveragesBought) {
         this.numberOfBeveragesBought = numberOfBeveragesBought;
     }
+
+    /**
+     * Removes all stamps of the card, e.g. when the customer has not visited for too long.
+     *
+     * @return the number of removed stamps
+     */
+    public synchronized int expireStamps() {
+        int expired = numberOfBeveragesBought;
+        numberOfBeveragesBought = 0;
+        return expired;
+    }
 }
@@ -0,0 +1,38 @@
+package com.fsetkov.models;
+
+/**
+ * Loyalty tiers of the members, earned by the visits of the last {@link #QUALIFYING_MONTHS} calendar months.
+ */
+public enum LoyaltyTier {
+    BRONZE(0),
+    SILVER(8),
+    GOLD(24);
+
+    public static final int QUALIFYING_MONTHS = 3;
+
+    private final int minVisits;
+
+    LoyaltyTier(int minVisits) {
+        this.minVisits = minVisits;
+    }
+
+    public int getMinVisits() {
+        return minVisits;
+    }
+
+    /**
+     * Retrieves the highest tier reached by a number of visits.
+     *
+     * @param visits the visits of the qualifying months
+     * @return the tier
+     */
+    public static LoyaltyTier forVisits(int visits) {
+        LoyaltyTier[] tiers = values();
+        for (int i = tiers.length - 1; i > 0; i--) {
+            if (visits >= tiers[i].minVisits) {
+                return tiers[i];
+            }
+        }
+        return BRONZE;
+    }
+}
@@ -0,0 +1,89 @@
+package com.fsetkov.models;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepaid balance or gift card, held in minor currency units (centimes).
+ * <p>
+ * Debits and top-ups are lock-free: a debit is a compare-and-set loop that only succeeds while the balance
+ * covers the amount, so an account shared by many members, such as a corporate card, is never overdrawn and
+ * never loses an update, however many tills charge it at once.
+ */
+public class PrepaidAccount {
+
+    /**
+     * Result of {@link #tryDebit(long)} when the balance does not cover the amount.
+     */
+    public static final long INSUFFICIENT_BALANCE = -1;
+
+    private final String accountId;
+    private final AtomicLong balance;
+
+    /**
+     * Constructs a new PrepaidAccount.
+     *
+     * @param accountId      the id of the account, e.g. the gift card number
+     * @param initialBalance the initial balance in minor currency units
+     */
+    public PrepaidAccount(String accountId, long initialBalance) {
+        requireNotNegative(initialBalance);
+        this.accountId = accountId;
+        this.balance = new AtomicLong(initialBalance);
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * Retrieves the current balance.
+     *
+     * @return the balance in minor currency units
+     */
+    public long getBalance() {
+        return balance.get();
+    }
+
+    /**
+     * Adds money to the account.
+     *
+     * @param amount the amount in minor currency units
+     * @return the new balance
+     */
+    public long topUp(long amount) {
+        requireNotNegative(amount);
+        while (true) {
+            long current = balance.get();
+            long updated = Math.addExact(current, amount);
+            if (balance.compareAndSet(current, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    /**
+     * Charges the account if the balance covers the amount.
+     *
+     * @param amount the amount in minor currency units
+     * @return the balance left by this debit, or {@link #INSUFFICIENT_BALANCE} if the balance is too low
+     */
+    public long tryDebit(long amount) {
+        requireNotNegative(amount);
+        while (true) {
+            long current = balance.get();
+            if (current < amount) {
+                return INSUFFICIENT_BALANCE;
+            }
+            long updated = current - amount;
+            if (balance.compareAndSet(current, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    private static void requireNotNegative(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount must not be negative, but was " + amount);
+        }
+    }
+}
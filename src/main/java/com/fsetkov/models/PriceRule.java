@@ -0,0 +1,134 @@
+package com.fsetkov.models;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Time window in which a product, or every product of a type, is sold at a reduced price.
+ * <p>
+ * The window starts at {@code from} and ends before {@code to} on each of the given days. A window whose end
+ * is not after its start runs past midnight into the next day; a window whose end equals its start lasts
+ * a whole day.
+ *
+ * @param productName    the name of the reduced product, or {@code null} if the rule targets a product type
+ * @param productType    the type of the reduced products, or {@code null} if the rule targets a product
+ * @param days           the days on which the window starts
+ * @param from           the start of the window
+ * @param to             the end of the window
+ * @param percentOff     the price reduction in percent, from 0 to 100
+ */
+public record PriceRule(String productName,
+                        ProductType productType,
+                        Set<DayOfWeek> days,
+                        LocalTime from,
+                        LocalTime to,
+                        int percentOff) {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    public PriceRule {
+        if ((productName == null) == (productType == null)) {
+            throw new IllegalArgumentException("A price rule targets either a product or a product type");
+        }
+        if (percentOff < 0 || percentOff > 100) {
+            throw new IllegalArgumentException("Percent off must be between 0 and 100, but was " + percentOff);
+        }
+        days = days.isEmpty() ? EnumSet.noneOf(DayOfWeek.class) : EnumSet.copyOf(days);
+    }
+
+    /**
+     * Creates a rule reducing the price of one product.
+     *
+     * @param productName the name of the product
+     * @param days        the days on which the window starts
+     * @param from        the start of the window
+     * @param to          the end of the window
+     * @param percentOff  the price reduction in percent
+     * @return the rule
+     */
+    public static PriceRule forProduct(String productName, Set<DayOfWeek> days,
+                                       LocalTime from, LocalTime to, int percentOff) {
+        return new PriceRule(productName, null, days, from, to, percentOff);
+    }
+
+    /**
+     * Creates a rule reducing the price of every product of a type.
+     *
+     * @param productType the type of the products
+     * @param days        the days on which the window starts
+     * @param from        the start of the window
+     * @param to          the end of the window
+     * @param percentOff  the price reduction in percent
+     * @return the rule
+     */
+    public static PriceRule forProductType(ProductType productType, Set<DayOfWeek> days,
+                                           LocalTime from, LocalTime to, int percentOff) {
+        return new PriceRule(null, productType, days, from, to, percentOff);
+    }
+
+    /**
+     * Checks whether the rule reduces the price of a product.
+     *
+     * @param product the product
+     * @return {@code true} if the rule targets the product or its type; {@code false} otherwise
+     */
+    public boolean appliesTo(Product product) {
+        return productName != null
+                ? productName.equals(product.getName())
+                : productType == product.getProductType();
+    }
+
+    /**
+     * Checks whether the window of the rule is open at a minute of the week.
+     *
+     * @param minuteOfWeek the minute of the week, where 0 is Monday 00:00
+     * @return {@code true} if the window is open; {@code false} otherwise
+     */
+    public boolean isActiveAt(int minuteOfWeek) {
+        for (DayOfWeek day : days) {
+            int start = startMinuteOfWeek(day);
+            int minutesSinceStart = Math.floorMod(minuteOfWeek - start, MINUTES_PER_WEEK);
+            if (minutesSinceStart < durationMinutes()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the minute of the week at which the window opens on a day.
+     *
+     * @param day the day
+     * @return the minute of the week, where 0 is Monday 00:00
+     */
+    public int startMinuteOfWeek(DayOfWeek day) {
+        return (day.getValue() - 1) * MINUTES_PER_DAY + minuteOfDay(from);
+    }
+
+    /**
+     * Retrieves the length of the window.
+     *
+     * @return the length of the window in minutes, from 1 to a whole day
+     */
+    public int durationMinutes() {
+        int duration = Math.floorMod(minuteOfDay(to) - minuteOfDay(from), MINUTES_PER_DAY);
+        return duration == 0 ? MINUTES_PER_DAY : duration;
+    }
+
+    /**
+     * Applies the reduction to a price.
+     *
+     * @param price the price in minor currency units
+     * @return the reduced price in minor currency units, rounded half up
+     */
+    public long apply(long price) {
+        return (price * (100 - percentOff) + 50) / 100;
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+}
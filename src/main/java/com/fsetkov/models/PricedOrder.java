@@ -0,0 +1,24 @@
+package com.fsetkov.models;
+
+/**
+ * Result of pricing a {@link QuantityOrder}. All amounts are in minor currency units (centimes).
+ *
+ * @param subtotal             the price of all ordered units before discounts
+ * @param discount             the price of the units given for free
+ * @param freeBeverages        the number of beverages given for free
+ * @param isFreeExtraApplied   whether an extra was given for free
+ */
+public record PricedOrder(long subtotal,
+                          long discount,
+                          long freeBeverages,
+                          boolean isFreeExtraApplied) {
+
+    /**
+     * Retrieves the amount to pay.
+     *
+     * @return the subtotal minus the discount, in minor currency units
+     */
+    public long total() {
+        return subtotal - discount;
+    }
+}
@@ -11,6 +11,12 @@ public abstract class Product {
         this.price = 0d;
     }
 
+    public Product copyWithPrice(Double price) {
+        Product product = copy();
+        product.price = price;
+        return product;
+    }
+
     public Product(String name, ProductType productType, Double price) {
         this.name = name;
         this.productType = productType;
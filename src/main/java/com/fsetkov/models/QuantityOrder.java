@@ -0,0 +1,110 @@
+package com.fsetkov.models;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Order storing a quantity per catalog item instead of one {@link Product} per unit.
+ * <p>
+ * Large orders, such as corporate catering, take constant memory per catalog item regardless of the number
+ * of ordered units. Catalog items are addressed by their index in the catalog the order was created for.
+ * Every order carries an id, which a till sends again when it retries a submission.
+ */
+public class QuantityOrder {
+
+    private final String orderId;
+    private final List<Product> catalog;
+    private final long[] quantities;
+
+    /**
+     * Constructs a new empty QuantityOrder with a random order id.
+     *
+     * @param catalog the catalog the order refers to
+     */
+    public QuantityOrder(List<Product> catalog) {
+        this(UUID.randomUUID().toString(), catalog);
+    }
+
+    /**
+     * Constructs a new empty QuantityOrder.
+     *
+     * @param orderId the id of the order, unique across all tills
+     * @param catalog the catalog the order refers to
+     */
+    public QuantityOrder(String orderId, List<Product> catalog) {
+        this.orderId = orderId;
+        this.catalog = List.copyOf(catalog);
+        this.quantities = new long[catalog.size()];
+    }
+
+    /**
+     * Adds units of a catalog item to the order.
+     *
+     * @param catalogIndex the index of the item in the catalog
+     * @param quantity     the number of units to add
+     */
+    public void add(int catalogIndex, long quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity must not be negative, but was " + quantity);
+        }
+        quantities[catalogIndex] += quantity;
+    }
+
+    /**
+     * Adds units of a product to the order.
+     *
+     * @param product  the product, which must be an item of the catalog
+     * @param quantity the number of units to add
+     */
+    public void add(Product product, long quantity) {
+        int catalogIndex = catalog.indexOf(product);
+        if (catalogIndex < 0) {
+            throw new IllegalArgumentException("Product is not in the catalog: " + product.getName());
+        }
+        add(catalogIndex, quantity);
+    }
+
+    /**
+     * Retrieves the ordered quantity of a catalog item.
+     *
+     * @param catalogIndex the index of the item in the catalog
+     * @return the number of ordered units
+     */
+    public long getQuantity(int catalogIndex) {
+        return quantities[catalogIndex];
+    }
+
+    /**
+     * Retrieves the ordered quantity of all catalog items of a type.
+     *
+     * @param productType the type of the products
+     * @return the number of ordered units
+     */
+    public long getQuantity(ProductType productType) {
+        long quantity = 0;
+        for (int i = 0; i < quantities.length; i++) {
+            if (catalog.get(i).getProductType() == productType) {
+                quantity += quantities[i];
+            }
+        }
+        return quantity;
+    }
+
+    /**
+     * Retrieves the id of the order, which a till sends again when it retries a submission.
+     *
+     * @return the order id
+     */
+    public String getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Retrieves the catalog the order refers to.
+     *
+     * @return the catalog
+     */
+    public List<Product> getCatalog() {
+        return catalog;
+    }
+}
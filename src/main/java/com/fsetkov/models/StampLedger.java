@@ -0,0 +1,148 @@
+package com.fsetkov.models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Convergent, mergeable stamp count of one customer, replicated across the tills and the central registry.
+ * <p>
+ * The ledger is a PN-counter: every replica counts the stamps it gave and the free beverages it redeemed in its own
+ * grow-only entries, and the balance is the sum of the stamps minus {@link #STAMPS_PER_FREE_BEVERAGE} stamps per
+ * redeemed beverage. Merging takes the maximum of every entry, so replicas converge whatever the order, the number
+ * and the duplication of the merges.
+ * <p>
+ * To never redeem a stamp twice while replicas are partitioned, redemption is escrowed: a replica may only redeem
+ * the stamps it owns, which are the stamps it gave plus the stamps other replicas transferred to it minus the stamps
+ * it transferred away or redeemed. Only the owner transfers its stamps, so the owned stamps of all replicas never
+ * add up to more than the balance. A ledger is not thread-safe.
+ */
+public class StampLedger {
+
+    public static final int STAMPS_PER_FREE_BEVERAGE = 5;
+
+    private final Map<String, Long> stamps = new HashMap<>();
+    private final Map<String, Long> redemptions = new HashMap<>();
+    private final Map<Transfer, Long> transfers = new HashMap<>();
+
+    /**
+     * Gives stamps to the customer at a replica.
+     *
+     * @param replicaId the replica giving the stamps
+     * @param count     the number of stamps, e.g. the number of bought beverages
+     */
+    public void stamp(String replicaId, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Stamps must not be negative, but were " + count);
+        }
+        stamps.merge(replicaId, count, Long::sum);
+    }
+
+    /**
+     * Redeems free beverages from the stamps owned by a replica.
+     *
+     * @param replicaId    the redeeming replica
+     * @param maxBeverages the maximal number of free beverages to redeem
+     * @return the number of redeemed free beverages
+     */
+    public long redeem(String replicaId, long maxBeverages) {
+        long beverages = Math.min(maxBeverages, getOwnedStamps(replicaId) / STAMPS_PER_FREE_BEVERAGE);
+        if (beverages > 0) {
+            redemptions.merge(replicaId, beverages, Long::sum);
+        }
+        return beverages;
+    }
+
+    /**
+     * Transfers stamps owned by a replica to another replica, which may then redeem them.
+     *
+     * @param fromReplicaId the owning replica; only it may call this method
+     * @param toReplicaId   the receiving replica
+     * @param count         the number of stamps to transfer
+     * @throws IllegalArgumentException if the replica owns fewer stamps
+     */
+    public void transfer(String fromReplicaId, String toReplicaId, long count) {
+        if (count < 0 || count > getOwnedStamps(fromReplicaId)) {
+            throw new IllegalArgumentException("Replica " + fromReplicaId + " cannot transfer " + count
+                                               + " of its " + getOwnedStamps(fromReplicaId) + " stamps");
+        }
+        if (count > 0 && !fromReplicaId.equals(toReplicaId)) {
+            transfers.merge(new Transfer(fromReplicaId, toReplicaId), count, Long::sum);
+        }
+    }
+
+    /**
+     * Retrieves the stamps a replica may redeem or transfer.
+     *
+     * @param replicaId the replica
+     * @return the number of stamps owned by the replica
+     */
+    public long getOwnedStamps(String replicaId) {
+        long owned = stamps.getOrDefault(replicaId, 0L)
+                     - redemptions.getOrDefault(replicaId, 0L) * STAMPS_PER_FREE_BEVERAGE;
+        for (Map.Entry<Transfer, Long> transfer : transfers.entrySet()) {
+            if (transfer.getKey().to().equals(replicaId)) {
+                owned += transfer.getValue();
+            }
+            if (transfer.getKey().from().equals(replicaId)) {
+                owned -= transfer.getValue();
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * Retrieves the stamps not redeemed yet, as far as this replica knows.
+     *
+     * @return all given stamps minus the stamps of all redeemed beverages
+     */
+    public long getBalance() {
+        return getStampCount() - getRedeemedBeverageCount() * STAMPS_PER_FREE_BEVERAGE;
+    }
+
+    public long getStampCount() {
+        return stamps.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public long getRedeemedBeverageCount() {
+        return redemptions.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Merges the state of another replica of the ledger into this one.
+     *
+     * @param other the other replica's ledger
+     * @return {@code true} if this ledger changed
+     */
+    public boolean merge(StampLedger other) {
+        boolean isChanged = mergeEntries(stamps, other.stamps);
+        isChanged |= mergeEntries(redemptions, other.redemptions);
+        isChanged |= mergeEntries(transfers, other.transfers);
+        return isChanged;
+    }
+
+    /**
+     * Copies the ledger, e.g. to ship it to another replica.
+     *
+     * @return an independent copy
+     */
+    public StampLedger copy() {
+        StampLedger copy = new StampLedger();
+        copy.merge(this);
+        return copy;
+    }
+
+    private static <K> boolean mergeEntries(Map<K, Long> entries, Map<K, Long> otherEntries) {
+        boolean isChanged = false;
+        for (Map.Entry<K, Long> entry : otherEntries.entrySet()) {
+            Long value = entries.get(entry.getKey());
+            if (value == null || value < entry.getValue()) {
+                entries.put(entry.getKey(), entry.getValue());
+                isChanged = true;
+            }
+        }
+        return isChanged;
+    }
+
+    private record Transfer(String from, String to) {
+    }
+}
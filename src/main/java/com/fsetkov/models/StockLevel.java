@@ -0,0 +1,146 @@
+package com.fsetkov.models;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free stock counter of one product.
+ * <p>
+ * The available and the reserved units are packed into one {@link AtomicLong}, so every operation moves units
+ * between both counters with a single compare-and-set. A reservation takes a unit off the shelf for an open
+ * order; committing it sells the unit, releasing it puts the unit back.
+ */
+public class StockLevel {
+
+    private static final long UNITS_MASK = 0xFFFF_FFFFL;
+
+    private final AtomicLong state;
+
+    /**
+     * Constructs a new StockLevel.
+     *
+     * @param availableUnits the number of units on the shelf
+     */
+    public StockLevel(int availableUnits) {
+        if (availableUnits < 0) {
+            throw new IllegalArgumentException("Stock must not be negative, but was " + availableUnits);
+        }
+        this.state = new AtomicLong(pack(availableUnits, 0));
+    }
+
+    /**
+     * Reserves units for an open order if enough units are available.
+     *
+     * @param units the number of units to reserve
+     * @return {@code true} if the units were reserved; {@code false} if not enough units are available
+     */
+    public boolean tryReserve(int units) {
+        while (true) {
+            long current = state.get();
+            int available = available(current);
+            if (available < units) {
+                return false;
+            }
+            if (state.compareAndSet(current, pack(available - units, reserved(current) + units))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Sells reserved units.
+     *
+     * @param units the number of reserved units to sell
+     */
+    public void commit(int units) {
+        update(0, -units);
+    }
+
+    /**
+     * Puts reserved units back on the shelf.
+     *
+     * @param units the number of reserved units to release
+     */
+    public void release(int units) {
+        update(units, -units);
+    }
+
+    /**
+     * Puts new units on the shelf.
+     *
+     * @param units the number of delivered units
+     */
+    public void restock(int units) {
+        update(units, 0);
+    }
+
+    /**
+     * Sets the number of units on the shelf, e.g. after a stock count, keeping the units reserved by open orders.
+     *
+     * @param availableUnits the number of units on the shelf
+     */
+    public void setAvailableUnits(int availableUnits) {
+        if (availableUnits < 0) {
+            throw new IllegalArgumentException("Stock must not be negative, but was " + availableUnits);
+        }
+        while (true) {
+            long current = state.get();
+            if (state.compareAndSet(current, pack(availableUnits, reserved(current)))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of units that can still be reserved.
+     *
+     * @return the number of available units
+     */
+    public int getAvailableUnits() {
+        return available(state.get());
+    }
+
+    /**
+     * Retrieves the number of units reserved by open orders.
+     *
+     * @return the number of reserved units
+     */
+    public int getReservedUnits() {
+        return reserved(state.get());
+    }
+
+    /**
+     * Checks whether no unit can be reserved any more.
+     *
+     * @return {@code true} if no unit is available; {@code false} otherwise
+     */
+    public boolean isSoldOut() {
+        return available(state.get()) == 0;
+    }
+
+    private void update(int availableDelta, int reservedDelta) {
+        while (true) {
+            long current = state.get();
+            long available = (long) available(current) + availableDelta;
+            long reserved = (long) reserved(current) + reservedDelta;
+            if (reserved < 0 || available > Integer.MAX_VALUE) {
+                throw new IllegalStateException(
+                        "Invalid stock change: " + availableDelta + " available, " + reservedDelta + " reserved");
+            }
+            if (state.compareAndSet(current, pack((int) available, (int) reserved))) {
+                return;
+            }
+        }
+    }
+
+    private static long pack(int available, int reserved) {
+        return ((long) available << 32) | (reserved & UNITS_MASK);
+    }
+
+    private static int available(long state) {
+        return (int) (state >>> 32);
+    }
+
+    private static int reserved(long state) {
+        return (int) (state & UNITS_MASK);
+    }
+}
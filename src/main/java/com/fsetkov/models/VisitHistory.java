@@ -0,0 +1,111 @@
+package com.fsetkov.models;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Visits of a customer per calendar month over the last {@link #RETAINED_MONTHS} months, kept in fixed memory.
+ * All methods are synchronized, so visits can be recorded by the tills while a batch job reads the history.
+ */
+public class VisitHistory {
+
+    public static final int RETAINED_MONTHS = 12;
+
+    private final int[] monthlyVisits = new int[RETAINED_MONTHS];
+    private long latestMonth = Long.MIN_VALUE;
+    private LocalDate lastVisit;
+
+    /**
+     * Records a visit; visits older than the retained months are ignored.
+     *
+     * @param day the day of the visit
+     */
+    public synchronized void recordVisit(LocalDate day) {
+        long month = monthOf(day);
+        if (month > latestMonth) {
+            long clearedMonths = lastVisit == null ? RETAINED_MONTHS : Math.min(RETAINED_MONTHS, month - latestMonth);
+            for (long cleared = month - clearedMonths + 1; cleared <= month; cleared++) {
+                monthlyVisits[bucketOf(cleared)] = 0;
+            }
+            latestMonth = month;
+        } else if (month <= latestMonth - RETAINED_MONTHS) {
+            return;
+        }
+        monthlyVisits[bucketOf(month)]++;
+        if (lastVisit == null || day.isAfter(lastVisit)) {
+            lastVisit = day;
+        }
+    }
+
+    /**
+     * Retrieves the day of the latest visit.
+     *
+     * @return the day, or {@code null} if no visit was recorded
+     */
+    public synchronized LocalDate getLastVisit() {
+        return lastVisit;
+    }
+
+    /**
+     * Counts the visits of the calendar months up to and including the month of a day.
+     *
+     * @param asOf   a day of the last counted month
+     * @param months the number of counted months, at most {@link #RETAINED_MONTHS}
+     * @return the number of visits
+     */
+    public synchronized int countVisits(LocalDate asOf, int months) {
+        long lastMonth = Math.min(monthOf(asOf), latestMonth);
+        long firstMonth = Math.max(monthOf(asOf) - months + 1, latestMonth - RETAINED_MONTHS + 1);
+        int visits = 0;
+        for (long month = firstMonth; month <= lastMonth; month++) {
+            visits += monthlyVisits[bucketOf(month)];
+        }
+        return visits;
+    }
+
+    /**
+     * Retrieves the visits of the retained months, oldest first, ending with the month of the latest visit.
+     *
+     * @return the monthly visits
+     */
+    public synchronized int[] getMonthlyVisits() {
+        int[] visits = new int[RETAINED_MONTHS];
+        if (lastVisit != null) {
+            for (int i = 0; i < RETAINED_MONTHS; i++) {
+                visits[i] = monthlyVisits[bucketOf(latestMonth - RETAINED_MONTHS + 1 + i)];
+            }
+        }
+        return visits;
+    }
+
+    /**
+     * Replaces the history by one read back from {@link #getLastVisit()} and {@link #getMonthlyVisits()}.
+     *
+     * @param lastVisit     the day of the latest visit, or {@code null} if no visit was recorded
+     * @param monthlyVisits the visits of the retained months, oldest first
+     */
+    public synchronized void restore(LocalDate lastVisit, int[] monthlyVisits) {
+        if (monthlyVisits.length != RETAINED_MONTHS) {
+            throw new IllegalArgumentException(
+                    "Expected " + RETAINED_MONTHS + " months, but got " + monthlyVisits.length);
+        }
+        this.lastVisit = lastVisit;
+        if (lastVisit == null) {
+            latestMonth = Long.MIN_VALUE;
+            Arrays.fill(this.monthlyVisits, 0);
+            return;
+        }
+        latestMonth = monthOf(lastVisit);
+        for (int i = 0; i < RETAINED_MONTHS; i++) {
+            this.monthlyVisits[bucketOf(latestMonth - RETAINED_MONTHS + 1 + i)] = monthlyVisits[i];
+        }
+    }
+
+    private static long monthOf(LocalDate day) {
+        return day.getYear() * 12L + day.getMonthValue() - 1;
+    }
+
+    private static int bucketOf(long month) {
+        return (int) Math.floorMod(month, (long) RETAINED_MONTHS);
+    }
+}
@@ -0,0 +1,18 @@
+package com.fsetkov.preparation;
+
+import java.time.LocalTime;
+import java.util.Map;
+
+/**
+ * Booked pickup slot of a pre-order.
+ *
+ * @param bookingNumber the unique number of the booking
+ * @param customerName  the name of the customer who pre-ordered
+ * @param pickupTime    the start of the booked pickup slot
+ * @param stationDemand the number of products each station prepares for the order in the slot
+ */
+public record PickupBooking(long bookingNumber,
+                            String customerName,
+                            LocalTime pickupTime,
+                            Map<Station, Integer> stationDemand) {
+}
@@ -0,0 +1,209 @@
+package com.fsetkov.preparation;
+
+import com.fsetkov.models.Product;
+import com.fsetkov.util.Constants;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Assigns pre-orders to capacity-limited pickup slots of one business day.
+ * <p>
+ * The day from opening to closing time is split into slots of equal length; every station prepares at most
+ * a fixed number of products per slot. The products of an order are routed to the stations preparing them, see
+ * {@link Station#forProduct}, and the order is booked into the first slot at or after the requested pickup time in
+ * which every station it needs still has room, so that the whole order is ready at once. Every station keeps its remaining capacities in a lock-free
+ * {@link SlotCapacityIndex}, so finding and booking a slot takes O(log n) steps per station, and tills and the
+ * mobile ordering backend book concurrently without a common lock. A booking gives its capacity back only once,
+ * however often it is cancelled, e.g. by a client retrying the cancellation.
+ */
+public class PickupSlotScheduler {
+
+    private static final Station[] STATIONS = Station.values();
+
+    private final LocalTime openingTime;
+    private final long slotSeconds;
+    private final int slotCount;
+    private final Map<Station, SlotCapacityIndex> stationIndexes = new EnumMap<>(Station.class);
+    private final AtomicLong bookingNumbers = new AtomicLong();
+    private final Set<Long> cancelledBookingNumbers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructs a new PickupSlotScheduler.
+     *
+     * @param openingTime     the start of the first pickup slot
+     * @param closingTime     the end of the last pickup slot
+     * @param slotLength      the length of one pickup slot
+     * @param capacityPerSlot the number of products each station prepares per slot; stations without an entry
+     *                        accept no pre-orders
+     */
+    public PickupSlotScheduler(LocalTime openingTime,
+                               LocalTime closingTime,
+                               Duration slotLength,
+                               Map<Station, Integer> capacityPerSlot) {
+        if (slotLength.getSeconds() <= 0) {
+            throw new IllegalArgumentException("Slot length must be at least one second");
+        }
+        if (!closingTime.isAfter(openingTime)) {
+            throw new IllegalArgumentException("Closing time must be after opening time");
+        }
+        this.openingTime = openingTime;
+        this.slotSeconds = slotLength.getSeconds();
+        this.slotCount = (int) (Duration.between(openingTime, closingTime).getSeconds() / slotSeconds);
+        for (Station station : STATIONS) {
+            int capacity = capacityPerSlot.getOrDefault(station, 0);
+            if (capacity < 0) {
+                throw new IllegalArgumentException("Capacity of " + station + " must not be negative");
+            }
+            stationIndexes.put(station, new SlotCapacityIndex(slotCount, capacity));
+        }
+    }
+
+    /**
+     * Books an order into the first slot at or after the requested pickup time in which every station preparing
+     * the order has room for its products. The "No extra" choice does not need any preparation and is skipped.
+     *
+     * @param customerName    the name of the customer
+     * @param orderedProducts the products of the order
+     * @param requestedPickup the earliest pickup time wanted by the customer
+     * @return the booking, or an empty optional if no slot before closing time has room for the order
+     */
+    public Optional<PickupBooking> book(String customerName, List<Product> orderedProducts, LocalTime requestedPickup) {
+        int[] demand = new int[STATIONS.length];
+        for (Product product : orderedProducts) {
+            if (!Constants.NO_EXTRA_NAME.equals(product.getName())) {
+                demand[Station.forProduct(product).ordinal()]++;
+            }
+        }
+
+        int slot = firstSlotAt(requestedPickup);
+        while (slot < slotCount) {
+            int fittingSlot = findCommonSlot(slot, demand);
+            if (fittingSlot < 0) {
+                return Optional.empty();
+            }
+            if (tryReserveAll(fittingSlot, demand)) {
+                return Optional.of(new PickupBooking(
+                        bookingNumbers.incrementAndGet(),
+                        customerName,
+                        slotStart(fittingSlot),
+                        toStationDemand(demand)));
+            }
+            slot = fittingSlot;
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Cancels a booking and gives its capacity back to the slot, unless the booking was already cancelled.
+     *
+     * @param booking the booking to cancel, made by this scheduler
+     * @return {@code true} if the booking was cancelled; {@code false} if it had been cancelled before
+     */
+    public boolean cancel(PickupBooking booking) {
+        if (booking.bookingNumber() <= 0 || booking.bookingNumber() > bookingNumbers.get()) {
+            throw new IllegalArgumentException("Booking " + booking.bookingNumber() + " was not made by this scheduler");
+        }
+        int slot = firstSlotAt(booking.pickupTime());
+        if (slot >= slotCount || !slotStart(slot).equals(booking.pickupTime())) {
+            throw new IllegalArgumentException("No pickup slot starts at " + booking.pickupTime());
+        }
+        if (!cancelledBookingNumbers.add(booking.bookingNumber())) {
+            return false;
+        }
+        booking.stationDemand().forEach((station, units) -> stationIndexes.get(station).release(slot, units));
+        return true;
+    }
+
+    /**
+     * Retrieves the number of products a station can still prepare in the slot containing the given time.
+     *
+     * @param station the station
+     * @param time    a time within the slot
+     * @return the remaining capacity, or {@code 0} if the time is outside the opening hours
+     */
+    public int getRemainingCapacity(Station station, LocalTime time) {
+        if (time.isBefore(openingTime)) {
+            return 0;
+        }
+        long slot = Duration.between(openingTime, time).getSeconds() / slotSeconds;
+        return slot < slotCount ? stationIndexes.get(station).remaining((int) slot) : 0;
+    }
+
+    /**
+     * Retrieves the number of pickup slots of the day.
+     *
+     * @return the number of slots
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    private int findCommonSlot(int fromSlot, int[] demand) {
+        int slot = fromSlot;
+        boolean isCommon = false;
+        while (!isCommon) {
+            isCommon = true;
+            for (Station station : STATIONS) {
+                int units = demand[station.ordinal()];
+                if (units == 0) {
+                    continue;
+                }
+                int fittingSlot = stationIndexes.get(station).findFirst(slot, units);
+                if (fittingSlot < 0) {
+                    return -1;
+                }
+                if (fittingSlot != slot) {
+                    slot = fittingSlot;
+                    isCommon = false;
+                }
+            }
+        }
+        return slot;
+    }
+
+    private boolean tryReserveAll(int slot, int[] demand) {
+        for (int i = 0; i < STATIONS.length; i++) {
+            if (demand[i] == 0 || stationIndexes.get(STATIONS[i]).tryReserve(slot, demand[i])) {
+                continue;
+            }
+            for (int j = 0; j < i; j++) {
+                if (demand[j] > 0) {
+                    stationIndexes.get(STATIONS[j]).release(slot, demand[j]);
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private int firstSlotAt(LocalTime time) {
+        if (!time.isAfter(openingTime)) {
+            return 0;
+        }
+        long seconds = Duration.between(openingTime, time).getSeconds();
+        long slot = (seconds + slotSeconds - 1) / slotSeconds;
+        return slot < slotCount ? (int) slot : slotCount;
+    }
+
+    private LocalTime slotStart(int slot) {
+        return openingTime.plusSeconds(slot * slotSeconds);
+    }
+
+    private static Map<Station, Integer> toStationDemand(int[] demand) {
+        Map<Station, Integer> stationDemand = new EnumMap<>(Station.class);
+        for (Station station : STATIONS) {
+            if (demand[station.ordinal()] > 0) {
+                stationDemand.put(station, demand[station.ordinal()]);
+            }
+        }
+        return stationDemand;
+    }
+}
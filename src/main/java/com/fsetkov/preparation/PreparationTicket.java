@@ -0,0 +1,21 @@
+package com.fsetkov.preparation;
+
+import com.fsetkov.models.ProductType;
+
+/**
+ * Ticket asking a station to prepare one ordered product.
+ *
+ * @param ticketNumber  the unique number of the ticket
+ * @param customerName  the name of the customer who ordered the product
+ * @param productName   the name of the product to prepare
+ * @param productType   the type of the product
+ * @param station       the station preparing the product
+ * @param enqueuedNanos the {@link System#nanoTime()} when the ticket was queued
+ */
+public record PreparationTicket(long ticketNumber,
+                                String customerName,
+                                String productName,
+                                ProductType productType,
+                                Station station,
+                                long enqueuedNanos) {
+}
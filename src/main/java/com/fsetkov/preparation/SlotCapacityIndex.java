@@ -0,0 +1,148 @@
+package com.fsetkov.preparation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free index of the remaining capacity of the pickup slots of one station.
+ * <p>
+ * The index is a segment tree of maxima: the leaves hold the remaining capacity of the slots and are the source
+ * of truth, every inner node holds the largest remaining capacity below it. Finding the first slot from a given
+ * one that fits a demand climbs from that leaf and descends into the first sibling holding enough capacity, so
+ * it visits O(log n) nodes. Every node is one {@code long} packing a write version and the capacity; a
+ * reservation takes capacity off the leaf with a compare-and-set, then refreshes the ancestors bottom-up with
+ * compare-and-sets that bump the version, so a refresh computed from stale children always fails and retries.
+ * The refresh stops at the first ancestor whose maximum does not change.
+ * <p>
+ * While a refresh is in flight an inner node may be out of date; the search then descends into a subtree that
+ * turns out to be full and continues after it, or skips a slot freed a moment ago. The leaves are never
+ * overbooked.
+ */
+final class SlotCapacityIndex {
+
+    private static final long CAPACITY_MASK = 0xFFFF_FFFFL;
+
+    private final int slotCount;
+    private final int capacityPerSlot;
+    private final int leafCount;
+    private final AtomicLongArray nodes;
+
+    SlotCapacityIndex(int slotCount, int capacityPerSlot) {
+        this.slotCount = slotCount;
+        this.capacityPerSlot = capacityPerSlot;
+        this.leafCount = slotCount <= 1 ? 1 : Integer.highestOneBit(slotCount - 1) << 1;
+        this.nodes = new AtomicLongArray(2 * leafCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            nodes.set(leafCount + slot, capacityPerSlot);
+        }
+        for (int node = leafCount - 1; node >= 1; node--) {
+            nodes.set(node, Math.max(capacity(nodes.get(2 * node)), capacity(nodes.get(2 * node + 1))));
+        }
+    }
+
+    /**
+     * Finds the first slot at or after the given one whose remaining capacity fits the demand.
+     *
+     * @return the slot, or {@code -1} if no later slot fits the demand
+     */
+    int findFirst(int fromSlot, int demand) {
+        int from = fromSlot;
+        while (from < slotCount) {
+            int node = leafCount + from;
+            if (capacity(nodes.get(node)) >= demand) {
+                return from;
+            }
+            while (node > 1 && ((node & 1) == 1 || capacity(nodes.get(node + 1)) < demand)) {
+                node >>>= 1;
+            }
+            if (node == 1) {
+                return -1;
+            }
+            node++;
+            while (node < leafCount) {
+                if (capacity(nodes.get(2 * node)) >= demand) {
+                    node = 2 * node;
+                } else if (capacity(nodes.get(2 * node + 1)) >= demand) {
+                    node = 2 * node + 1;
+                } else {
+                    break;
+                }
+            }
+            if (node >= leafCount && capacity(nodes.get(node)) >= demand) {
+                return node - leafCount;
+            }
+            from = firstSlotAfter(node);
+        }
+        return -1;
+    }
+
+    /**
+     * Takes the demand off the remaining capacity of a slot if it fits.
+     *
+     * @return {@code true} if the capacity was reserved; {@code false} if the slot does not fit the demand
+     */
+    boolean tryReserve(int slot, int demand) {
+        int leaf = leafCount + slot;
+        while (true) {
+            long current = nodes.get(leaf);
+            int capacity = capacity(current);
+            if (capacity < demand) {
+                return false;
+            }
+            if (nodes.compareAndSet(leaf, current, pack(version(current) + 1, capacity - demand))) {
+                refreshAncestors(leaf);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives reserved capacity of a slot back, never raising it above the capacity per slot.
+     */
+    void release(int slot, int demand) {
+        int leaf = leafCount + slot;
+        while (true) {
+            long current = nodes.get(leaf);
+            int capacity = Math.min(capacityPerSlot, capacity(current) + demand);
+            if (nodes.compareAndSet(leaf, current, pack(version(current) + 1, capacity))) {
+                refreshAncestors(leaf);
+                return;
+            }
+        }
+    }
+
+    int remaining(int slot) {
+        return capacity(nodes.get(leafCount + slot));
+    }
+
+    private void refreshAncestors(int leaf) {
+        for (int node = leaf >>> 1; node >= 1; node >>>= 1) {
+            while (true) {
+                long current = nodes.get(node);
+                int capacity = Math.max(capacity(nodes.get(2 * node)), capacity(nodes.get(2 * node + 1)));
+                if (nodes.compareAndSet(node, current, pack(version(current) + 1, capacity))) {
+                    if (capacity == capacity(current)) {
+                        return;
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    private int firstSlotAfter(int node) {
+        int level = Integer.numberOfLeadingZeros(node) - Integer.numberOfLeadingZeros(leafCount);
+        return ((node + 1) << level) - leafCount;
+    }
+
+    private static int capacity(long node) {
+        return (int) (node & CAPACITY_MASK);
+    }
+
+    private static int version(long node) {
+        return (int) (node >>> 32);
+    }
+
+    private static long pack(int version, int capacity) {
+        return (long) version << 32 | capacity & CAPACITY_MASK;
+    }
+}
@@ -0,0 +1,31 @@
+package com.fsetkov.preparation;
+
+import com.fsetkov.models.CoffeeProduct;
+import com.fsetkov.models.Product;
+
+/**
+ * Preparation stations of the coffee shop.
+ */
+public enum Station {
+    ESPRESSO_BAR,
+    KITCHEN,
+    JUICE_BAR;
+
+    /**
+     * Retrieves the station preparing a product. Coffees and their extras are made at the espresso bar, the other
+     * beverages, such as the freshly squeezed orange juice, at the juice bar and snacks in the kitchen.
+     *
+     * @param product the product
+     * @return the station preparing the product
+     */
+    public static Station forProduct(Product product) {
+        if (product instanceof CoffeeProduct) {
+            return ESPRESSO_BAR;
+        }
+        return switch (product.getProductType()) {
+            case EXTRA -> ESPRESSO_BAR;
+            case BEVERAGE -> JUICE_BAR;
+            case SNACK -> KITCHEN;
+        };
+    }
+}
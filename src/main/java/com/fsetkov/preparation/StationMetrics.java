@@ -0,0 +1,26 @@
+package com.fsetkov.preparation;
+
+/**
+ * Snapshot of the queue counters of one station.
+ *
+ * @param station                  the station
+ * @param dispatched               the number of tickets queued for the station
+ * @param taken                    the number of tickets taken by the baristas of the station
+ * @param averageTimeInQueueNanos  the average time a taken ticket waited in the queue
+ * @param maxTimeInQueueNanos      the longest time a taken ticket waited in the queue
+ */
+public record StationMetrics(Station station,
+                             long dispatched,
+                             long taken,
+                             long averageTimeInQueueNanos,
+                             long maxTimeInQueueNanos) {
+
+    /**
+     * Retrieves the number of tickets waiting for the station.
+     *
+     * @return the number of waiting tickets
+     */
+    public long waiting() {
+        return dispatched - taken;
+    }
+}
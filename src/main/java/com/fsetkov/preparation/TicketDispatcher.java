@@ -0,0 +1,122 @@
+package com.fsetkov.preparation;
+
+import com.fsetkov.models.Product;
+import com.fsetkov.util.Constants;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Dispatches the products of completed orders as preparation tickets to the stations.
+ * <p>
+ * Every station has its own lock-free multi-producer queue ({@link ConcurrentLinkedQueue}), so several tills
+ * can dispatch and several baristas can take tickets without contending on a common lock. Products are
+ * routed to the station preparing them, see {@link Station#forProduct}.
+ */
+public class TicketDispatcher {
+
+    private final Map<Station, StationQueue> stationQueues = new EnumMap<>(Station.class);
+    private final AtomicLong ticketNumbers = new AtomicLong();
+    private final LongSupplier nanoClock;
+
+    /**
+     * Constructs a new TicketDispatcher using {@link System#nanoTime()} to measure the time in queue.
+     */
+    public TicketDispatcher() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * Constructs a new TicketDispatcher.
+     *
+     * @param nanoClock the clock used to measure the time in queue, in nanoseconds
+     */
+    public TicketDispatcher(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        for (Station station : Station.values()) {
+            stationQueues.put(station, new StationQueue());
+        }
+    }
+
+    /**
+     * Creates a ticket for every product of a completed order and queues it for its station.
+     * The "No extra" choice does not need any preparation and is skipped.
+     *
+     * @param customerName    the name of the customer
+     * @param orderedProducts the products of the order
+     * @return the queued tickets
+     */
+    public List<PreparationTicket> dispatch(String customerName, List<Product> orderedProducts) {
+        List<PreparationTicket> tickets = new ArrayList<>(orderedProducts.size());
+        long now = nanoClock.getAsLong();
+
+        for (Product product : orderedProducts) {
+            if (Constants.NO_EXTRA_NAME.equals(product.getName())) {
+                continue;
+            }
+            Station station = Station.forProduct(product);
+            PreparationTicket ticket = new PreparationTicket(
+                    ticketNumbers.incrementAndGet(),
+                    customerName,
+                    product.getName(),
+                    product.getProductType(),
+                    station,
+                    now);
+            StationQueue stationQueue = stationQueues.get(station);
+            stationQueue.tickets.offer(ticket);
+            stationQueue.dispatched.increment();
+            tickets.add(ticket);
+        }
+        return tickets;
+    }
+
+    /**
+     * Takes the oldest ticket of a station and records how long it waited.
+     *
+     * @param station the station of the barista
+     * @return the oldest ticket, or {@code null} if there is nothing to prepare
+     */
+    public PreparationTicket take(Station station) {
+        StationQueue stationQueue = stationQueues.get(station);
+        PreparationTicket ticket = stationQueue.tickets.poll();
+        if (ticket != null) {
+            long timeInQueue = nanoClock.getAsLong() - ticket.enqueuedNanos();
+            stationQueue.taken.increment();
+            stationQueue.totalTimeInQueue.add(timeInQueue);
+            stationQueue.maxTimeInQueue.accumulate(timeInQueue);
+        }
+        return ticket;
+    }
+
+    /**
+     * Takes a snapshot of the queue counters of a station.
+     *
+     * @param station the station
+     * @return the metrics of the station
+     */
+    public StationMetrics getMetrics(Station station) {
+        StationQueue stationQueue = stationQueues.get(station);
+        long taken = stationQueue.taken.sum();
+        return new StationMetrics(
+                station,
+                stationQueue.dispatched.sum(),
+                taken,
+                taken == 0 ? 0 : stationQueue.totalTimeInQueue.sum() / taken,
+                stationQueue.maxTimeInQueue.get());
+    }
+
+    private static final class StationQueue {
+        private final ConcurrentLinkedQueue<PreparationTicket> tickets = new ConcurrentLinkedQueue<>();
+        private final LongAdder dispatched = new LongAdder();
+        private final LongAdder taken = new LongAdder();
+        private final LongAdder totalTimeInQueue = new LongAdder();
+        private final LongAccumulator maxTimeInQueue = new LongAccumulator(Math::max, 0);
+    }
+}
@@ -0,0 +1,37 @@
+package com.fsetkov.promotion;
+
+/**
+ * Rules deciding whether an order gets its most expensive extra for free.
+ */
+public enum FreeExtraRule {
+
+    /**
+     * The current rule: the order contains a beverage and a snack.
+     */
+    BEVERAGE_AND_SNACK,
+
+    /**
+     * The order contains a beverage.
+     */
+    ANY_BEVERAGE,
+
+    /**
+     * Extras are never free.
+     */
+    NONE;
+
+    /**
+     * Checks whether an order is eligible for a free extra.
+     *
+     * @param beverages the number of beverages in the order
+     * @param snacks    the number of snacks in the order
+     * @return {@code true} if an extra of the order is free; {@code false} otherwise
+     */
+    public boolean isEligible(int beverages, int snacks) {
+        return switch (this) {
+            case BEVERAGE_AND_SNACK -> beverages > 0 && snacks > 0;
+            case ANY_BEVERAGE -> beverages > 0;
+            case NONE -> false;
+        };
+    }
+}
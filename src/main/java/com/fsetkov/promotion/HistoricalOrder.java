@@ -0,0 +1,41 @@
+package com.fsetkov.promotion;
+
+import com.fsetkov.models.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recorded order replayed by the {@link PromotionSimulator}.
+ *
+ * @param username the username of the customer
+ * @param products the ordered products, including the chosen extras
+ */
+public record HistoricalOrder(String username, List<Product> products) {
+
+    public HistoricalOrder {
+        products = List.copyOf(products);
+    }
+
+    /**
+     * Parses a recorded order line of the form {@code username,product name,product name,...}.
+     *
+     * @param line    the recorded line
+     * @param catalog the products by name
+     * @return the order
+     * @throws IllegalArgumentException if the line names a product not in the catalog
+     */
+    public static HistoricalOrder parse(String line, Map<String, Product> catalog) {
+        String[] fields = line.split(",");
+        List<Product> products = new ArrayList<>(fields.length - 1);
+        for (int i = 1; i < fields.length; i++) {
+            Product product = catalog.get(fields[i].trim());
+            if (product == null) {
+                throw new IllegalArgumentException("Unknown product '" + fields[i].trim() + "' in order: " + line);
+            }
+            products.add(product);
+        }
+        return new HistoricalOrder(fields[0].trim(), products);
+    }
+}
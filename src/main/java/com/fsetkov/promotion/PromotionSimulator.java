@@ -0,0 +1,217 @@
+package com.fsetkov.promotion;
+
+import com.fsetkov.models.Product;
+import com.fsetkov.models.ProductType;
+import com.fsetkov.service.PricingService;
+import com.fsetkov.util.Constants;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * What-if simulator replaying historical orders through alternative promotion settings.
+ * <p>
+ * The orders are read once, in one pass, and every order is evaluated for all variants together. Orders are
+ * spread over worker threads by customer, so each worker owns the stamp cards of its customers and replays
+ * their orders in their recorded order without any locking. A variant stamps the beverages of an order, redeems
+ * {@code stamps / stampsPerFreeBeverage} free beverages and applies its free extra rule, exactly like
+ * {@link com.fsetkov.models.CustomerStampCard} and
+ * {@link com.fsetkov.service.ProductService#applyFreeProducts(List, int, boolean)} do for the current promotion.
+ */
+public class PromotionSimulator {
+
+    private static final int BATCH_SIZE = 512;
+    private static final int QUEUED_BATCHES_PER_WORKER = 8;
+    private static final List<HistoricalOrder> END_OF_ORDERS = List.of();
+
+    private final List<PromotionVariant> variants;
+    private final int workersCount;
+
+    /**
+     * Constructs a new PromotionSimulator.
+     *
+     * @param variants     the variants to simulate; the first one is the baseline of the deltas
+     * @param workersCount the number of worker threads
+     */
+    public PromotionSimulator(List<PromotionVariant> variants, int workersCount) {
+        if (variants.isEmpty()) {
+            throw new IllegalArgumentException("At least one variant is required");
+        }
+        if (workersCount < 1) {
+            throw new IllegalArgumentException("Workers count must be positive, but was " + workersCount);
+        }
+        this.variants = List.copyOf(variants);
+        this.workersCount = workersCount;
+    }
+
+    /**
+     * Replays historical orders through all variants.
+     *
+     * @param orders the historical orders, in the order they were placed
+     * @return the result of every variant, in the order of the variants
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the workers
+     */
+    public List<VariantResult> simulate(Iterator<HistoricalOrder> orders) throws InterruptedException {
+        List<Worker> workers = new ArrayList<>(workersCount);
+        List<Thread> threads = new ArrayList<>(workersCount);
+        for (int i = 0; i < workersCount; i++) {
+            Worker worker = new Worker();
+            Thread thread = new Thread(worker, "promotion-simulator-" + i);
+            thread.setDaemon(true);
+            workers.add(worker);
+            threads.add(thread);
+            thread.start();
+        }
+
+        List<List<HistoricalOrder>> batches = new ArrayList<>(workersCount);
+        for (int i = 0; i < workersCount; i++) {
+            batches.add(new ArrayList<>(BATCH_SIZE));
+        }
+        try {
+            while (orders.hasNext()) {
+                HistoricalOrder order = orders.next();
+                int workerIndex = Math.floorMod(order.username().hashCode(), workersCount);
+                List<HistoricalOrder> batch = batches.get(workerIndex);
+                batch.add(order);
+                if (batch.size() == BATCH_SIZE) {
+                    workers.get(workerIndex).queue.put(batch);
+                    batches.set(workerIndex, new ArrayList<>(BATCH_SIZE));
+                }
+            }
+            for (int i = 0; i < workersCount; i++) {
+                if (!batches.get(i).isEmpty()) {
+                    workers.get(i).queue.put(batches.get(i));
+                }
+            }
+        } finally {
+            for (Worker worker : workers) {
+                worker.queue.put(END_OF_ORDERS);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        long[][] totals = new long[variants.size()][Worker.TOTALS];
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                throw new IllegalStateException("Simulation failed", worker.failure);
+            }
+            for (int v = 0; v < variants.size(); v++) {
+                for (int t = 0; t < Worker.TOTALS; t++) {
+                    totals[v][t] += worker.totals[v][t];
+                }
+            }
+        }
+
+        List<VariantResult> results = new ArrayList<>(variants.size());
+        long[] baseline = totals[0];
+        for (int v = 0; v < variants.size(); v++) {
+            long[] total = totals[v];
+            results.add(new VariantResult(
+                    variants.get(v),
+                    total[Worker.ORDERS],
+                    total[Worker.REVENUE],
+                    total[Worker.FREE_BEVERAGES],
+                    total[Worker.FREE_EXTRAS],
+                    total[Worker.REVENUE] - baseline[Worker.REVENUE],
+                    total[Worker.FREE_BEVERAGES] + total[Worker.FREE_EXTRAS]
+                    - baseline[Worker.FREE_BEVERAGES] - baseline[Worker.FREE_EXTRAS]));
+        }
+        return results;
+    }
+
+    /**
+     * Replays the orders of a share of the customers for all variants.
+     */
+    private final class Worker implements Runnable {
+
+        private static final int ORDERS = 0;
+        private static final int REVENUE = 1;
+        private static final int FREE_BEVERAGES = 2;
+        private static final int FREE_EXTRAS = 3;
+        private static final int TOTALS = 4;
+
+        private final BlockingQueue<List<HistoricalOrder>> queue =
+                new ArrayBlockingQueue<>(QUEUED_BATCHES_PER_WORKER);
+        private final Map<String, int[]> stampsByCustomer = new HashMap<>();
+        private final long[][] totals = new long[variants.size()][TOTALS];
+        private final Comparator<Product> comparator = Product.getProductTypeAndPriceComparator();
+        private volatile Throwable failure;
+
+        @Override
+        public void run() {
+            while (true) {
+                List<HistoricalOrder> batch;
+                try {
+                    batch = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = e;
+                    return;
+                }
+                if (batch == END_OF_ORDERS) {
+                    return;
+                }
+                if (failure == null) {
+                    try {
+                        batch.forEach(this::replay);
+                    } catch (RuntimeException e) {
+                        failure = e;
+                    }
+                }
+            }
+        }
+
+        private void replay(HistoricalOrder order) {
+            List<Product> products = new ArrayList<>(order.products());
+            products.sort(comparator);
+
+            long subtotal = 0;
+            int beverages = 0;
+            int snacks = 0;
+            long[] freeBeveragesDiscount = new long[products.size() + 1];
+            Product firstExtra = null;
+            for (Product product : products) {
+                long price = PricingService.toMinorUnits(product.getPrice());
+                subtotal += price;
+                if (product.getProductType() == ProductType.BEVERAGE) {
+                    beverages++;
+                    freeBeveragesDiscount[beverages] = freeBeveragesDiscount[beverages - 1] + price;
+                } else if (product.getProductType() == ProductType.SNACK) {
+                    snacks++;
+                } else if (firstExtra == null) {
+                    firstExtra = product;
+                }
+            }
+
+            int[] stamps = stampsByCustomer.computeIfAbsent(order.username(), u -> new int[variants.size()]);
+            for (int v = 0; v < stamps.length; v++) {
+                PromotionVariant variant = variants.get(v);
+                stamps[v] += beverages;
+                int freeBeverages = Math.min(stamps[v] / variant.stampsPerFreeBeverage(), beverages);
+                stamps[v] %= variant.stampsPerFreeBeverage();
+
+                long discount = freeBeveragesDiscount[freeBeverages];
+                boolean isFreeExtra = firstExtra != null
+                                      && !Constants.NO_EXTRA_NAME.equals(firstExtra.getName())
+                                      && variant.freeExtraRule().isEligible(beverages, snacks);
+                if (isFreeExtra) {
+                    discount += PricingService.toMinorUnits(firstExtra.getPrice());
+                }
+
+                long[] total = totals[v];
+                total[ORDERS]++;
+                total[REVENUE] += subtotal - discount;
+                total[FREE_BEVERAGES] += freeBeverages;
+                total[FREE_EXTRAS] += isFreeExtra ? 1 : 0;
+            }
+        }
+    }
+}
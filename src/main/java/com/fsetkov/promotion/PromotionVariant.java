@@ -0,0 +1,23 @@
+package com.fsetkov.promotion;
+
+/**
+ * Promotion settings replayed by the {@link PromotionSimulator}.
+ *
+ * @param name                  the name of the variant in the report
+ * @param stampsPerFreeBeverage the number of stamped beverages earning a free beverage
+ * @param freeExtraRule         the rule giving an extra for free
+ */
+public record PromotionVariant(String name, int stampsPerFreeBeverage, FreeExtraRule freeExtraRule) {
+
+    /**
+     * The promotion of the shop: every 5th beverage is free, and an extra is free with a beverage and a snack.
+     */
+    public static final PromotionVariant CURRENT = new PromotionVariant("current", 5, FreeExtraRule.BEVERAGE_AND_SNACK);
+
+    public PromotionVariant {
+        if (stampsPerFreeBeverage < 1) {
+            throw new IllegalArgumentException("Stamps per free beverage must be positive, but was "
+                                               + stampsPerFreeBeverage);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.fsetkov.promotion;
+
+/**
+ * Outcome of replaying the historical orders through one {@link PromotionVariant}. Amounts are in minor
+ * currency units (centimes); the deltas are relative to the baseline, the first variant of the simulation.
+ *
+ * @param variant         the variant
+ * @param orders          the number of replayed orders
+ * @param revenue         the amount paid by the customers
+ * @param freeBeverages   the number of beverages given for free
+ * @param freeExtras      the number of extras given for free
+ * @param revenueDelta    the revenue minus the revenue of the baseline
+ * @param redemptionDelta the free beverages and extras minus those of the baseline
+ */
+public record VariantResult(PromotionVariant variant,
+                            long orders,
+                            long revenue,
+                            long freeBeverages,
+                            long freeExtras,
+                            long revenueDelta,
+                            long redemptionDelta) {
+
+    /**
+     * Retrieves the number of redeemed promotions.
+     *
+     * @return the free beverages plus the free extras
+     */
+    public long redemptions() {
+        return freeBeverages + freeExtras;
+    }
+}
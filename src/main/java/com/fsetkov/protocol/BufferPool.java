@@ -0,0 +1,98 @@
+package com.fsetkov.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of equally sized byte buffers for the frames of the ordering protocol.
+ * <p>
+ * Connections take a buffer per batch and give it back when the batch is sent, so a busy server does not
+ * allocate a buffer per round trip. Direct buffers are handed to socket channels without an extra copy. At most
+ * a fixed number of idle buffers is kept; further returned buffers are left to the garbage collector.
+ * The pool is thread-safe.
+ */
+public class BufferPool {
+
+    private final int bufferSize;
+    private final int maxIdleBuffers;
+    private final boolean isDirect;
+    private final ConcurrentLinkedQueue<ByteBuffer> idleBuffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final LongAdder allocated = new LongAdder();
+
+    /**
+     * Constructs a new BufferPool.
+     *
+     * @param bufferSize     the capacity of every buffer in bytes
+     * @param maxIdleBuffers the maximum number of idle buffers kept for reuse
+     * @param isDirect       {@code true} to allocate direct buffers for channel I/O; {@code false} for heap buffers
+     */
+    public BufferPool(int bufferSize, int maxIdleBuffers, boolean isDirect) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.maxIdleBuffers = maxIdleBuffers;
+        this.isDirect = isDirect;
+    }
+
+    /**
+     * Takes a cleared buffer from the pool, allocating a new one if none is idle.
+     *
+     * @return the buffer
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = idleBuffers.poll();
+        if (buffer == null) {
+            allocated.increment();
+            return isDirect ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+        }
+        idleCount.decrementAndGet();
+        return buffer.clear();
+    }
+
+    /**
+     * Gives a buffer back to the pool. The buffer must not be used afterwards.
+     *
+     * @param buffer the buffer taken from this pool
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize || buffer.isDirect() != isDirect) {
+            throw new IllegalArgumentException("Buffer was not taken from this pool");
+        }
+        if (idleCount.incrementAndGet() > maxIdleBuffers) {
+            idleCount.decrementAndGet();
+            return;
+        }
+        idleBuffers.offer(buffer);
+    }
+
+    /**
+     * Retrieves the capacity of the buffers.
+     *
+     * @return the buffer size in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Retrieves the number of buffers allocated since the pool was created.
+     *
+     * @return the number of allocated buffers
+     */
+    public long getAllocatedCount() {
+        return allocated.sum();
+    }
+
+    /**
+     * Retrieves the number of idle buffers ready for reuse.
+     *
+     * @return the number of idle buffers
+     */
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+}
@@ -0,0 +1,75 @@
+package com.fsetkov.protocol;
+
+/**
+ * Reasons the ordering server refuses a request.
+ */
+public enum RejectionReason {
+
+    /**
+     * The frame has an unknown type or a body of the wrong length.
+     */
+    MALFORMED_REQUEST(1),
+
+    /**
+     * A product was added or an order ended before a customer was identified.
+     */
+    NO_OPEN_ORDER(2),
+
+    /**
+     * A customer was identified while the order of another customer was still open.
+     */
+    ORDER_ALREADY_OPEN(3),
+
+    /**
+     * The catalog id is unknown or names a product of the wrong type for the request.
+     */
+    UNKNOWN_PRODUCT(4),
+
+    /**
+     * An extra was added that does not follow a coffee.
+     */
+    EXTRA_WITHOUT_COFFEE(5),
+
+    /**
+     * The order already holds the maximum number of products.
+     */
+    ORDER_FULL(6),
+
+    /**
+     * The order id of the ended order was already checked out; the reservations of the resent order were released.
+     */
+    DUPLICATE_ORDER(7);
+
+    private static final RejectionReason[] BY_CODE = new RejectionReason[8];
+
+    static {
+        for (RejectionReason reason : values()) {
+            BY_CODE[reason.code] = reason;
+        }
+    }
+
+    private final int code;
+
+    RejectionReason(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Retrieves the code of the reason on the wire.
+     *
+     * @return the code
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Retrieves the reason with the given code.
+     *
+     * @param code the code on the wire
+     * @return the reason, or {@code null} if the code is unknown
+     */
+    public static RejectionReason ofCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
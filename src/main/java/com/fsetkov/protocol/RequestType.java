@@ -0,0 +1,60 @@
+package com.fsetkov.protocol;
+
+/**
+ * Requests a till sends to the ordering server, one per operation of the ordering dialog.
+ */
+public enum RequestType {
+
+    /**
+     * Opens an order for a customer; the body is the UTF-8 encoded username.
+     */
+    IDENTIFY_CUSTOMER(1),
+
+    /**
+     * Adds a beverage or snack to the open order; the body is its catalog id as an unsigned 16-bit integer.
+     */
+    ADD_PRODUCT(2),
+
+    /**
+     * Adds an extra to the coffee added last; the body is its catalog id as an unsigned 16-bit integer.
+     */
+    ADD_EXTRA(3),
+
+    /**
+     * Ends the open order and asks for the receipt; the body is the UTF-8 encoded order id chosen by the till.
+     */
+    END_ORDER(4);
+
+    private static final RequestType[] BY_CODE = new RequestType[5];
+
+    static {
+        for (RequestType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final int code;
+
+    RequestType(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Retrieves the code of the request type on the wire.
+     *
+     * @return the code
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Retrieves the request type with the given code.
+     *
+     * @param code the code on the wire
+     * @return the request type, or {@code null} if the code is unknown
+     */
+    public static RequestType ofCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,60 @@
+package com.fsetkov.protocol;
+
+/**
+ * Responses the ordering server sends back, one per request and in the order of the requests.
+ */
+public enum ResponseType {
+
+    /**
+     * The request was carried out; the body is empty.
+     */
+    ACCEPTED(1),
+
+    /**
+     * The product is sold out and was not added; the body is empty.
+     */
+    SOLD_OUT(2),
+
+    /**
+     * The request was refused; the body is the code of the {@link RejectionReason}.
+     */
+    REJECTED(3),
+
+    /**
+     * The order was ended; the body is the UTF-8 encoded receipt, empty if nothing was ordered.
+     */
+    RECEIPT(4);
+
+    private static final ResponseType[] BY_CODE = new ResponseType[5];
+
+    static {
+        for (ResponseType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final int code;
+
+    ResponseType(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Retrieves the code of the response type on the wire.
+     *
+     * @return the code
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Retrieves the response type with the given code.
+     *
+     * @param code the code on the wire
+     * @return the response type, or {@code null} if the code is unknown
+     */
+    public static ResponseType ofCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
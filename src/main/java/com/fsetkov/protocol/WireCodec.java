@@ -0,0 +1,202 @@
+package com.fsetkov.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encoder of the frames of the till-to-server ordering protocol.
+ * <p>
+ * Every frame is an unsigned 16-bit big-endian length, counting the bytes that follow it, a one-byte request or
+ * response type and the body; adding a product thus takes five bytes instead of a prompt round trip of the text
+ * dialog. The frames are written straight into the target buffer, the texts encoded as UTF-8 character by
+ * character without an intermediate array, so a till can encode a whole order into one pooled buffer and send
+ * it in one round trip. The frames are read back with {@link WireFrame}.
+ */
+public final class WireCodec {
+
+    /**
+     * Number of bytes of the length prefix.
+     */
+    public static final int LENGTH_BYTES = 2;
+
+    /**
+     * Largest number of bytes following the length prefix of one frame.
+     */
+    public static final int MAX_FRAME_LENGTH = 0xFFFF;
+
+    /**
+     * Largest catalog id that fits a frame.
+     */
+    public static final int MAX_CATALOG_ID = 0xFFFF;
+
+    private WireCodec() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Writes a request identifying the customer of a new order.
+     *
+     * @param out          the buffer receiving the frame
+     * @param customerName the username of the customer
+     */
+    public static void putIdentifyCustomer(ByteBuffer out, String customerName) {
+        putTextFrame(out, RequestType.IDENTIFY_CUSTOMER.getCode(), customerName);
+    }
+
+    /**
+     * Writes a request adding a beverage or snack to the open order.
+     *
+     * @param out       the buffer receiving the frame
+     * @param catalogId the index of the product in the catalog
+     */
+    public static void putAddProduct(ByteBuffer out, int catalogId) {
+        putCatalogIdFrame(out, RequestType.ADD_PRODUCT.getCode(), catalogId);
+    }
+
+    /**
+     * Writes a request adding an extra to the coffee added last.
+     *
+     * @param out       the buffer receiving the frame
+     * @param catalogId the index of the extra in the catalog
+     */
+    public static void putAddExtra(ByteBuffer out, int catalogId) {
+        putCatalogIdFrame(out, RequestType.ADD_EXTRA.getCode(), catalogId);
+    }
+
+    /**
+     * Writes a request ending the open order. The till sends the same order id again when it resends the order,
+     * so the server checks it out only once.
+     *
+     * @param out     the buffer receiving the frame
+     * @param orderId the id of the order, unique across all tills
+     */
+    public static void putEndOrder(ByteBuffer out, String orderId) {
+        if (orderId.isEmpty()) {
+            throw new IllegalArgumentException("Order id must not be empty");
+        }
+        putTextFrame(out, RequestType.END_ORDER.getCode(), orderId);
+    }
+
+    /**
+     * Writes a response without a body, i.e. {@link ResponseType#ACCEPTED} or {@link ResponseType#SOLD_OUT}.
+     *
+     * @param out  the buffer receiving the frame
+     * @param type the type of the response
+     */
+    public static void putResponse(ByteBuffer out, ResponseType type) {
+        out.putShort((short) 1).put((byte) type.getCode());
+    }
+
+    /**
+     * Writes a response refusing a request.
+     *
+     * @param out    the buffer receiving the frame
+     * @param reason the reason of the refusal
+     */
+    public static void putRejected(ByteBuffer out, RejectionReason reason) {
+        out.putShort((short) 2).put((byte) ResponseType.REJECTED.getCode()).put((byte) reason.getCode());
+    }
+
+    /**
+     * Writes a response carrying the receipt of an ended order.
+     *
+     * @param out     the buffer receiving the frame
+     * @param receipt the rendered receipt
+     */
+    public static void putReceipt(ByteBuffer out, String receipt) {
+        putTextFrame(out, ResponseType.RECEIPT.getCode(), receipt);
+    }
+
+    /**
+     * Computes the size of the frame carrying a text, to check the room left in a buffer before writing it.
+     *
+     * @param text the text
+     * @return the size of the frame in bytes, including the length prefix
+     */
+    public static int textFrameSize(CharSequence text) {
+        return LENGTH_BYTES + 1 + utf8Length(text);
+    }
+
+    private static void putCatalogIdFrame(ByteBuffer out, int type, int catalogId) {
+        if (catalogId < 0 || catalogId > MAX_CATALOG_ID) {
+            throw new IllegalArgumentException("Catalog id must be between 0 and " + MAX_CATALOG_ID + ": " + catalogId);
+        }
+        out.putShort((short) 3).put((byte) type).putShort((short) catalogId);
+    }
+
+    private static void putTextFrame(ByteBuffer out, int type, CharSequence text) {
+        int start = out.position();
+        out.position(start + LENGTH_BYTES);
+        out.put((byte) type);
+        int i = out.hasArray() ? putAsciiPrefix(out, text) : 0;
+        for (; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                out.put((byte) (0xF0 | codePoint >> 18))
+                        .put((byte) (0x80 | codePoint >> 12 & 0x3F))
+                        .put((byte) (0x80 | codePoint >> 6 & 0x3F))
+                        .put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+        }
+
+        int length = out.position() - start - LENGTH_BYTES;
+        if (length > MAX_FRAME_LENGTH) {
+            out.position(start);
+            throw new IllegalArgumentException("Text of " + length + " bytes does not fit a frame");
+        }
+        out.putShort(start, (short) length);
+    }
+
+    /**
+     * Copies the leading ASCII characters straight into the array of a heap buffer, which spares the bounds
+     * check of every {@link ByteBuffer#put(byte)}.
+     *
+     * @return the number of copied characters
+     */
+    private static int putAsciiPrefix(ByteBuffer out, CharSequence text) {
+        byte[] array = out.array();
+        int offset = out.arrayOffset() + out.position();
+        int count = Math.min(text.length(), out.remaining());
+        int i = 0;
+        while (i < count) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            array[offset + i] = (byte) c;
+            i++;
+        }
+        out.position(out.position() + i);
+        return i;
+    }
+
+    private static int utf8Length(CharSequence text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
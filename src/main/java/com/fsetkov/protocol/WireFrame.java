@@ -0,0 +1,118 @@
+package com.fsetkov.protocol;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable view of one frame of the ordering protocol inside a receive buffer.
+ * <p>
+ * {@link #next(ByteBuffer)} only reads the length prefix and the type and remembers where the body lies; the
+ * body is read in place by the accessors, so decoding a pipelined batch of requests copies nothing and allocates
+ * nothing but the texts asked for. A frame that has not been received completely is left in the buffer for the
+ * next read. The view is valid until the buffer is compacted or refilled.
+ */
+public final class WireFrame {
+
+    private ByteBuffer buffer;
+    private int type;
+    private int bodyOffset;
+    private int bodyLength;
+
+    /**
+     * Moves the view to the next complete frame of the buffer and advances the position of the buffer past it.
+     *
+     * @param in the receive buffer, positioned at the start of a frame
+     * @return {@code true} if a complete frame was read; {@code false} if the buffer holds only part of a frame
+     */
+    public boolean next(ByteBuffer in) {
+        int position = in.position();
+        if (in.limit() - position < WireCodec.LENGTH_BYTES) {
+            return false;
+        }
+        int length = Short.toUnsignedInt(in.getShort(position));
+        if (in.limit() - position - WireCodec.LENGTH_BYTES < length) {
+            return false;
+        }
+        buffer = in;
+        type = length == 0 ? 0 : Byte.toUnsignedInt(in.get(position + WireCodec.LENGTH_BYTES));
+        bodyOffset = position + WireCodec.LENGTH_BYTES + 1;
+        bodyLength = Math.max(0, length - 1);
+        in.position(position + WireCodec.LENGTH_BYTES + length);
+        return true;
+    }
+
+    /**
+     * Retrieves the type of the frame as a request.
+     *
+     * @return the request type, or {@code null} if the type code is unknown
+     */
+    public RequestType getRequestType() {
+        return RequestType.ofCode(type);
+    }
+
+    /**
+     * Retrieves the type of the frame as a response.
+     *
+     * @return the response type, or {@code null} if the type code is unknown
+     */
+    public ResponseType getResponseType() {
+        return ResponseType.ofCode(type);
+    }
+
+    /**
+     * Retrieves the number of bytes of the body.
+     *
+     * @return the body length
+     */
+    public int getBodyLength() {
+        return bodyLength;
+    }
+
+    /**
+     * Reads the body as a catalog id.
+     *
+     * @return the catalog id
+     */
+    public int getCatalogId() {
+        checkBodyLength(2);
+        return Short.toUnsignedInt(buffer.getShort(bodyOffset));
+    }
+
+    /**
+     * Reads the body as the reason of a refusal.
+     *
+     * @return the rejection reason, or {@code null} if the code is unknown
+     */
+    public RejectionReason getRejectionReason() {
+        checkBodyLength(1);
+        return RejectionReason.ofCode(Byte.toUnsignedInt(buffer.get(bodyOffset)));
+    }
+
+    /**
+     * Decodes the body as UTF-8 text.
+     *
+     * @return the text
+     */
+    public String getText() {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + bodyOffset, bodyLength, StandardCharsets.UTF_8);
+        }
+        return StandardCharsets.UTF_8.decode(getBody()).toString();
+    }
+
+    /**
+     * Retrieves a read-only view of the body sharing the receive buffer, e.g. to hand a receipt to a printer
+     * channel without copying it.
+     *
+     * @return the body
+     */
+    public ByteBuffer getBody() {
+        return buffer.slice(bodyOffset, bodyLength).asReadOnlyBuffer();
+    }
+
+    private void checkBodyLength(int expectedLength) {
+        if (bodyLength != expectedLength) {
+            throw new IllegalStateException("Frame body has " + bodyLength + " bytes, expected " + expectedLength);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.fsetkov.protocol;
+
+import com.fsetkov.models.CoffeeProduct;
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.ProductType;
+import com.fsetkov.service.CustomerService;
+import com.fsetkov.service.InventoryService;
+import com.fsetkov.service.OrderIdempotencyGuard;
+import com.fsetkov.service.PrintService;
+import com.fsetkov.service.ProductService;
+import com.fsetkov.session.OrderCheckout;
+import com.fsetkov.session.OrderCompletedListener;
+import com.fsetkov.session.OrderSession;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Server side of the ordering protocol for one till connection.
+ * <p>
+ * The handler carries out the operations of the {@link OrderSession} dialog without its prompts: it identifies
+ * the customer, reserves the products added by catalog id, accepts an extra only right after a coffee, and ends
+ * the order with the {@link OrderCheckout} shared with the dialog, answering with the receipt. Every END_ORDER
+ * request carries the order id chosen by the till; with an {@link OrderIdempotencyGuard}, an order resent with the
+ * same id, e.g. after a lost connection, is refused with {@link RejectionReason#DUPLICATE_ORDER} and its
+ * reservations are released, so the loyalty card is not stamped and the stock not committed twice. The till
+ * may pipeline any number of requests into one buffer; {@link #handle(ByteBuffer, ByteBuffer)} answers all
+ * complete requests in order into one response buffer, so a whole order takes a single round trip. An order
+ * holds no more products than its receipt can list in a single frame, so every checked out order is answered.
+ * Prepaid accounts are not charged; the till collects the payment. A handler is not thread-safe and serves one
+ * connection at a time.
+ */
+public class WireOrderHandler {
+
+    /**
+     * Smallest capacity of a response buffer, i.e. the size of the largest frame.
+     */
+    public static final int MIN_RESPONSE_BUFFER_SIZE = WireCodec.LENGTH_BYTES + WireCodec.MAX_FRAME_LENGTH;
+
+    private static final int MAX_SHORT_RESPONSE_SIZE = WireCodec.LENGTH_BYTES + 2;
+
+    private final CustomerService customerService;
+    private final List<Product> catalog;
+    private final InventoryService inventoryService;
+    private final OrderCheckout orderCheckout;
+    private final WireFrame request = new WireFrame();
+    private final int maxReceiptOrderLines;
+    private int maxOrderLines;
+
+    private Customer customer;
+    private List<Product> customerOrderList;
+    private boolean isExtraAllowed;
+    private String pendingReceipt;
+
+    /**
+     * Constructs a new WireOrderHandler.
+     *
+     * @param customerService the customer service used to look up the customers
+     * @param productService  the product service providing the catalog; the catalog ids are the indexes in it
+     * @param printService    the print service used to render the receipts
+     */
+    public WireOrderHandler(CustomerService customerService, ProductService productService, PrintService printService) {
+        this.customerService = customerService;
+        this.catalog = productService.getProducts();
+        this.inventoryService = productService.getInventoryService();
+        this.orderCheckout = new OrderCheckout(inventoryService, printService);
+        this.maxReceiptOrderLines = printService.maxReceiptRows(WireCodec.MAX_FRAME_LENGTH);
+        this.maxOrderLines = Math.min(OrderSession.DEFAULT_MAX_ORDER_LINES, maxReceiptOrderLines);
+    }
+
+    /**
+     * Registers a listener notified whenever a till ends a non-empty order.
+     *
+     * @param listener the listener to register
+     */
+    public void addOrderCompletedListener(OrderCompletedListener listener) {
+        orderCheckout.addOrderCompletedListener(listener);
+    }
+
+    /**
+     * Sets the guard checking out every order id only once, shared by all connections and sessions of the shop.
+     *
+     * @param idempotencyGuard the guard detecting resent orders
+     */
+    public void setIdempotencyGuard(OrderIdempotencyGuard idempotencyGuard) {
+        orderCheckout.setIdempotencyGuard(idempotencyGuard);
+    }
+
+    /**
+     * Retrieves the largest number of products of one order whose receipt still fits a single frame.
+     *
+     * @return the upper bound of {@link #setMaxOrderLines(int)}
+     */
+    public int getMaxReceiptOrderLines() {
+        return maxReceiptOrderLines;
+    }
+
+    /**
+     * Sets the maximum number of products of one order; further products are refused with
+     * {@link RejectionReason#ORDER_FULL}. The receipt of every order must fit a single frame, so the maximum is
+     * bounded by {@link #getMaxReceiptOrderLines()}.
+     *
+     * @param maxOrderLines the maximum number of products
+     */
+    public void setMaxOrderLines(int maxOrderLines) {
+        if (maxOrderLines <= 0) {
+            throw new IllegalArgumentException("Maximum order lines must be positive");
+        }
+        if (maxOrderLines > maxReceiptOrderLines) {
+            throw new IllegalArgumentException(
+                    "Maximum order lines must not exceed " + maxReceiptOrderLines + " to fit the receipt in a frame");
+        }
+        this.maxOrderLines = maxOrderLines;
+    }
+
+    /**
+     * Handles the complete requests of the receive buffer and writes one response per request. A request is
+     * left in the receive buffer if it has not been received completely or if the response buffer is full.
+     * A receipt that does not fit the room left in the response buffer is kept and written first by the next
+     * call, after the caller has sent the responses and cleared the buffer.
+     *
+     * @param requests  the receive buffer in read mode; its position is advanced past the handled requests
+     * @param responses the send buffer in write mode, with a capacity of at least {@link #MIN_RESPONSE_BUFFER_SIZE}
+     * @return the number of handled requests
+     */
+    public int handle(ByteBuffer requests, ByteBuffer responses) {
+        if (responses.capacity() < MIN_RESPONSE_BUFFER_SIZE) {
+            throw new IllegalArgumentException(
+                    "Response buffer must hold at least " + MIN_RESPONSE_BUFFER_SIZE + " bytes");
+        }
+        if (pendingReceipt != null) {
+            if (WireCodec.textFrameSize(pendingReceipt) > responses.remaining()) {
+                return 0;
+            }
+            WireCodec.putReceipt(responses, pendingReceipt);
+            pendingReceipt = null;
+        }
+
+        int handled = 0;
+        while (responses.remaining() >= MAX_SHORT_RESPONSE_SIZE && request.next(requests)) {
+            handleRequest(request.getRequestType(), responses);
+            handled++;
+            if (pendingReceipt != null) {
+                break;
+            }
+        }
+        return handled;
+    }
+
+    /**
+     * Checks whether a receipt waits for room in the response buffer.
+     *
+     * @return {@code true} if a receipt is pending; {@code false} otherwise
+     */
+    public boolean hasPendingResponse() {
+        return pendingReceipt != null;
+    }
+
+    /**
+     * Cancels the open order, if any, releasing the reserved products, e.g. when the connection is lost.
+     */
+    public void cancelOrder() {
+        if (customerOrderList != null) {
+            customerOrderList.forEach(inventoryService::release);
+        }
+        customer = null;
+        customerOrderList = null;
+        isExtraAllowed = false;
+    }
+
+    private void handleRequest(RequestType type, ByteBuffer responses) {
+        if (type == null) {
+            WireCodec.putRejected(responses, RejectionReason.MALFORMED_REQUEST);
+            return;
+        }
+        switch (type) {
+            case IDENTIFY_CUSTOMER -> onIdentifyCustomer(responses);
+            case ADD_PRODUCT -> onAddProduct(responses, false);
+            case ADD_EXTRA -> onAddProduct(responses, true);
+            case END_ORDER -> onEndOrder(responses);
+        }
+    }
+
+    private void onIdentifyCustomer(ByteBuffer responses) {
+        if (customerOrderList != null) {
+            WireCodec.putRejected(responses, RejectionReason.ORDER_ALREADY_OPEN);
+            return;
+        }
+        if (request.getBodyLength() == 0) {
+            WireCodec.putRejected(responses, RejectionReason.MALFORMED_REQUEST);
+            return;
+        }
+        customer = customerService.getCustomerByUsername(request.getText());
+        customerOrderList = new ArrayList<>();
+        WireCodec.putResponse(responses, ResponseType.ACCEPTED);
+    }
+
+    private void onAddProduct(ByteBuffer responses, boolean isExtra) {
+        if (request.getBodyLength() != 2) {
+            WireCodec.putRejected(responses, RejectionReason.MALFORMED_REQUEST);
+            return;
+        }
+        if (customerOrderList == null) {
+            WireCodec.putRejected(responses, RejectionReason.NO_OPEN_ORDER);
+            return;
+        }
+        int catalogId = request.getCatalogId();
+        if (catalogId >= catalog.size() || (catalog.get(catalogId).getProductType() == ProductType.EXTRA) != isExtra) {
+            WireCodec.putRejected(responses, RejectionReason.UNKNOWN_PRODUCT);
+            return;
+        }
+        if (isExtra && !isExtraAllowed) {
+            WireCodec.putRejected(responses, RejectionReason.EXTRA_WITHOUT_COFFEE);
+            return;
+        }
+        if (customerOrderList.size() >= maxOrderLines) {
+            WireCodec.putRejected(responses, RejectionReason.ORDER_FULL);
+            return;
+        }
+
+        Product product = catalog.get(catalogId).copy();
+        if (!inventoryService.reserve(product)) {
+            WireCodec.putResponse(responses, ResponseType.SOLD_OUT);
+            return;
+        }
+        customerOrderList.add(product);
+        isExtraAllowed = product.getClass() == CoffeeProduct.class;
+        WireCodec.putResponse(responses, ResponseType.ACCEPTED);
+    }
+
+    private void onEndOrder(ByteBuffer responses) {
+        if (request.getBodyLength() == 0) {
+            WireCodec.putRejected(responses, RejectionReason.MALFORMED_REQUEST);
+            return;
+        }
+        if (customerOrderList == null) {
+            WireCodec.putRejected(responses, RejectionReason.NO_OPEN_ORDER);
+            return;
+        }
+        Optional<String> receipt = orderCheckout.checkout(request.getText(), customer, customerOrderList);
+        if (receipt.isEmpty()) {
+            WireCodec.putRejected(responses, RejectionReason.DUPLICATE_ORDER);
+        } else if (WireCodec.textFrameSize(receipt.get()) <= responses.remaining()) {
+            WireCodec.putReceipt(responses, receipt.get());
+        } else {
+            pendingReceipt = receipt.get();
+        }
+
+        customer = null;
+        customerOrderList = null;
+        isExtraAllowed = false;
+    }
+}
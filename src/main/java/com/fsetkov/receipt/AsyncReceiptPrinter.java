@@ -0,0 +1,200 @@
+package com.fsetkov.receipt;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pipeline writing rendered receipts asynchronously.
+ * <p>
+ * The checkout thread renders a receipt and publishes it with {@link #submit(String)}; dedicated writer threads
+ * take receipts from a bounded {@link ReceiptRingBuffer} and do the I/O, so a slow printer or disk does not stall
+ * the next customer. What happens when the queue is full is configured by a {@link BackpressurePolicy}.
+ * A writer finding the queue empty polls it a few more times with short parks, which keeps the latency low
+ * during a rush, and then blocks until the checkout thread publishes the next receipt, so an idle till does not
+ * wake its writers thousands of times per second.
+ * The printer has a single producer: {@link #submit(String)} must be called by one checkout thread at a time.
+ */
+public class AsyncReceiptPrinter implements AutoCloseable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final int IDLE_PARKS_BEFORE_BLOCKING = 20;
+
+    private final ReceiptRingBuffer<String> ringBuffer;
+    private final ReceiptWriter receiptWriter;
+    private final BackpressurePolicy backpressurePolicy;
+    private final List<Thread> writerThreads = new ArrayList<>();
+    private final ReentrantLock idleLock = new ReentrantLock();
+    private final Condition receiptPublished = idleLock.newCondition();
+    private final AtomicInteger blockedWriters = new AtomicInteger();
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private long published;
+    private long dropped;
+    private long callerRuns;
+    private int maxQueueDepth;
+
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new AsyncReceiptPrinter and starts its writer threads.
+     *
+     * @param queueCapacity      the capacity of the receipt queue
+     * @param writerThreadsCount the number of writer threads
+     * @param backpressurePolicy the behaviour when the queue is full
+     * @param receiptWriter      the destination of the receipts
+     */
+    public AsyncReceiptPrinter(int queueCapacity,
+                               int writerThreadsCount,
+                               BackpressurePolicy backpressurePolicy,
+                               ReceiptWriter receiptWriter) {
+        this.ringBuffer = new ReceiptRingBuffer<>(queueCapacity);
+        this.receiptWriter = receiptWriter;
+        this.backpressurePolicy = backpressurePolicy;
+
+        for (int i = 0; i < writerThreadsCount; i++) {
+            Thread thread = new Thread(this::runWriter, "receipt-writer-" + i);
+            thread.setDaemon(true);
+            writerThreads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Publishes a rendered receipt for writing.
+     *
+     * @param receipt the rendered receipt
+     * @return {@code true} if the receipt was queued or written; {@code false} if it was dropped
+     */
+    public boolean submit(String receipt) {
+        if (receipt.isEmpty()) {
+            return true;
+        }
+        if (!running) {
+            throw new IllegalStateException("Receipt printer is closed");
+        }
+
+        boolean isPublished = ringBuffer.offer(receipt);
+        while (!isPublished) {
+            switch (backpressurePolicy) {
+                case DROP -> {
+                    dropped++;
+                    return false;
+                }
+                case CALLER_RUNS -> {
+                    callerRuns++;
+                    write(receipt);
+                    return true;
+                }
+                case BLOCK -> {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    isPublished = ringBuffer.offer(receipt);
+                }
+            }
+        }
+
+        published++;
+        maxQueueDepth = Math.max(maxQueueDepth, ringBuffer.size());
+        // Orders the publication before the check; a writer registers itself before checking the queue again
+        VarHandle.fullFence();
+        if (blockedWriters.get() > 0) {
+            wakeUpWriters();
+        }
+        return true;
+    }
+
+    /**
+     * Takes a snapshot of the pipeline counters. The producer side counters are exact when called from
+     * the checkout thread.
+     *
+     * @return the current metrics
+     */
+    public ReceiptPipelineMetrics getMetrics() {
+        return new ReceiptPipelineMetrics(
+                published,
+                written.sum(),
+                dropped,
+                callerRuns,
+                writeFailures.sum(),
+                ringBuffer.size(),
+                maxQueueDepth,
+                ringBuffer.capacity());
+    }
+
+    /**
+     * Stops accepting receipts, waits until the queued receipts are written and stops the writer threads.
+     */
+    @Override
+    public void close() {
+        running = false;
+        wakeUpWriters();
+        for (Thread thread : writerThreads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void runWriter() {
+        int idleParks = 0;
+        while (true) {
+            String receipt = ringBuffer.poll();
+            if (receipt != null) {
+                write(receipt);
+                idleParks = 0;
+            } else if (!running) {
+                if (ringBuffer.size() == 0) {
+                    return;
+                }
+            } else if (idleParks < IDLE_PARKS_BEFORE_BLOCKING) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                idleParks++;
+            } else {
+                awaitReceipt();
+                idleParks = 0;
+            }
+        }
+    }
+
+    private void awaitReceipt() {
+        idleLock.lock();
+        try {
+            blockedWriters.incrementAndGet();
+            while (running && ringBuffer.size() == 0) {
+                receiptPublished.awaitUninterruptibly();
+            }
+        } finally {
+            blockedWriters.decrementAndGet();
+            idleLock.unlock();
+        }
+    }
+
+    private void wakeUpWriters() {
+        idleLock.lock();
+        try {
+            receiptPublished.signalAll();
+        } finally {
+            idleLock.unlock();
+        }
+    }
+
+    private void write(String receipt) {
+        try {
+            receiptWriter.write(receipt);
+            written.increment();
+        } catch (IOException | RuntimeException e) {
+            writeFailures.increment();
+        }
+    }
+}
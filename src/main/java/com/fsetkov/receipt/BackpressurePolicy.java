@@ -0,0 +1,19 @@
+package com.fsetkov.receipt;
+
+/**
+ * Defines what the checkout thread does when the receipt queue is full.
+ */
+public enum BackpressurePolicy {
+    /**
+     * Wait until a writer thread frees a slot.
+     */
+    BLOCK,
+    /**
+     * Reject the receipt and count it as dropped.
+     */
+    DROP,
+    /**
+     * Write the receipt synchronously on the checkout thread.
+     */
+    CALLER_RUNS
+}
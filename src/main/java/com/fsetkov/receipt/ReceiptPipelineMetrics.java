@@ -0,0 +1,23 @@
+package com.fsetkov.receipt;
+
+/**
+ * Snapshot of the counters of an {@link AsyncReceiptPrinter}.
+ *
+ * @param published       the number of receipts published into the queue
+ * @param written         the number of receipts written by the writer threads or the caller
+ * @param dropped         the number of receipts rejected because the queue was full
+ * @param callerRuns      the number of receipts written on the checkout thread because the queue was full
+ * @param writeFailures   the number of receipts whose writing failed
+ * @param queueDepth      the number of receipts currently waiting in the queue
+ * @param maxQueueDepth   the highest queue depth observed by the checkout thread
+ * @param queueCapacity   the capacity of the queue
+ */
+public record ReceiptPipelineMetrics(long published,
+                                     long written,
+                                     long dropped,
+                                     long callerRuns,
+                                     long writeFailures,
+                                     int queueDepth,
+                                     int maxQueueDepth,
+                                     int queueCapacity) {
+}
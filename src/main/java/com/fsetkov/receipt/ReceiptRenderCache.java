@@ -0,0 +1,86 @@
+package com.fsetkov.receipt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded least-recently-used cache of rendered receipts.
+ * <p>
+ * Receipts are keyed by a {@link ReceiptSignature} of their sorted lines and discounted prices, so the few order shapes
+ * that make up most of the orders are formatted once and then served from the cache. A capacity of zero disables
+ * the cache. The cache is safe to use from many checkout threads; a receipt is rendered outside the lock, so two
+ * threads missing the same signature at once may both render it.
+ */
+public class ReceiptRenderCache {
+
+    private final int capacity;
+    private final Map<ReceiptSignature, String> receipts;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a new ReceiptRenderCache.
+     *
+     * @param capacity the maximal number of cached receipts, zero to disable the cache
+     */
+    public ReceiptRenderCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative, but was " + capacity);
+        }
+        this.capacity = capacity;
+        this.receipts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ReceiptSignature, String> eldest) {
+                boolean isEvicted = size() > ReceiptRenderCache.this.capacity;
+                if (isEvicted) {
+                    evictions.increment();
+                }
+                return isEvicted;
+            }
+        };
+    }
+
+    /**
+     * Retrieves the cached receipt of a signature, rendering and caching it on a miss.
+     *
+     * @param signature the signature of the receipt lines
+     * @param renderer  renders the receipt on a miss
+     * @return the rendered receipt
+     */
+    public String get(ReceiptSignature signature, Supplier<String> renderer) {
+        String receipt;
+        synchronized (receipts) {
+            receipt = receipts.get(signature);
+        }
+        if (receipt != null) {
+            hits.increment();
+            return receipt;
+        }
+
+        misses.increment();
+        receipt = renderer.get();
+        if (capacity > 0) {
+            synchronized (receipts) {
+                receipts.put(signature, receipt);
+            }
+        }
+        return receipt;
+    }
+
+    /**
+     * Retrieves a snapshot of the cache counters.
+     *
+     * @return the metrics
+     */
+    public ReceiptRenderCacheMetrics getMetrics() {
+        int size;
+        synchronized (receipts) {
+            size = receipts.size();
+        }
+        return new ReceiptRenderCacheMetrics(hits.sum(), misses.sum(), evictions.sum(), size, capacity);
+    }
+}
@@ -0,0 +1,27 @@
+package com.fsetkov.receipt;
+
+/**
+ * Snapshot of the counters of a {@link ReceiptRenderCache}.
+ *
+ * @param hits      the number of receipts served from the cache
+ * @param misses    the number of receipts rendered because their signature was not cached
+ * @param evictions the number of least recently used receipts removed to stay within the capacity
+ * @param size      the number of receipts currently cached
+ * @param capacity  the maximal number of cached receipts
+ */
+public record ReceiptRenderCacheMetrics(long hits,
+                                        long misses,
+                                        long evictions,
+                                        int size,
+                                        int capacity) {
+
+    /**
+     * Retrieves the share of receipts served from the cache.
+     *
+     * @return the hit rate between 0 and 1, or 0 if no receipt was requested yet
+     */
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
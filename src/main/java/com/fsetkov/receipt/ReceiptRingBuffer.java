@@ -0,0 +1,100 @@
+package com.fsetkov.receipt;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer with a single producer and multiple consumers.
+ * <p>
+ * Every slot carries a sequence number telling whether it is free for the producer or published for the
+ * consumers. The producer owns the tail and never contends; consumers claim elements by a compare-and-set
+ * of the head. {@link #offer(Object)} must only be called by one thread at a time.
+ *
+ * @param <E> the type of elements
+ */
+public class ReceiptRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Constructs a new ReceiptRingBuffer.
+     *
+     * @param capacity the capacity, rounded up to the next power of two; at least two slots are used, because
+     *                 with a single slot the free and the published sequence numbers would coincide
+     */
+    public ReceiptRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30, but was " + capacity);
+        }
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Publishes an element if there is a free slot. Must only be called by the producer thread.
+     *
+     * @param element the element to publish
+     * @return {@code true} if the element was published; {@code false} if the buffer is full
+     */
+    public boolean offer(E element) {
+        long position = tail.get();
+        int slot = (int) position & mask;
+        if (sequences.get(slot) != position) {
+            return false;
+        }
+        elements.lazySet(slot, element);
+        sequences.lazySet(slot, position + 1);
+        tail.lazySet(position + 1);
+        return true;
+    }
+
+    /**
+     * Takes the oldest published element. Can be called by any number of consumer threads.
+     *
+     * @return the oldest element, or {@code null} if the buffer is empty
+     */
+    public E poll() {
+        while (true) {
+            long position = head.get();
+            int slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence < position + 1) {
+                return null;
+            }
+            if (sequence == position + 1 && head.compareAndSet(position, position + 1)) {
+                E element = elements.get(slot);
+                elements.lazySet(slot, null);
+                sequences.lazySet(slot, position + mask + 1);
+                return element;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of published elements that were not taken yet.
+     *
+     * @return the current queue depth
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * Retrieves the number of slots.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
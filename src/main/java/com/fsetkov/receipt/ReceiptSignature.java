@@ -0,0 +1,78 @@
+package com.fsetkov.receipt;
+
+import com.fsetkov.models.Product;
+import com.fsetkov.service.PricingService;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cache key of a rendered receipt: the lines of a sorted and discounted buying list.
+ * <p>
+ * A signature holds a reference to the name of every line, shared with the catalog, and its price in minor
+ * currency units, so a cached receipt costs a few bytes per line instead of a copy of its text. Lookups compare
+ * a precomputed 64-bit hash first and verify the lines only when the hashes are equal.
+ */
+public final class ReceiptSignature {
+
+    private static final long HASH_MULTIPLIER = 0x9E37_79B9_7F4A_7C15L;
+
+    private final String[] names;
+    private final long[] prices;
+    private final long hash;
+
+    private ReceiptSignature(String[] names, long[] prices) {
+        this.names = names;
+        this.prices = prices;
+        long hash = names.length;
+        for (int i = 0; i < names.length; i++) {
+            hash = (hash ^ names[i].hashCode()) * HASH_MULTIPLIER;
+            hash = (hash ^ prices[i]) * HASH_MULTIPLIER;
+        }
+        this.hash = hash ^ hash >>> 32;
+    }
+
+    /**
+     * Builds the signature of a buying list.
+     *
+     * @param buyingList the sorted and discounted buying list
+     * @return the signature of the receipt
+     */
+    public static ReceiptSignature of(List<? extends Product> buyingList) {
+        String[] names = new String[buyingList.size()];
+        long[] prices = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Product product = buyingList.get(i);
+            names[i] = product.getName();
+            prices[i] = PricingService.toMinorUnits(product.getPrice());
+        }
+        return new ReceiptSignature(names, prices);
+    }
+
+    /**
+     * Retrieves the 64-bit hash of the lines.
+     *
+     * @return the hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ReceiptSignature signature)) {
+            return false;
+        }
+        return hash == signature.hash
+                && Arrays.equals(prices, signature.prices)
+                && Arrays.equals(names, signature.names);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) hash;
+    }
+}
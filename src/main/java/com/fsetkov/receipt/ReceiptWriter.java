@@ -0,0 +1,18 @@
+package com.fsetkov.receipt;
+
+import java.io.IOException;
+
+/**
+ * Destination of rendered receipts, such as a receipt printer or a file.
+ */
+@FunctionalInterface
+public interface ReceiptWriter {
+
+    /**
+     * Writes one rendered receipt.
+     *
+     * @param receipt the rendered receipt
+     * @throws IOException if the receipt could not be written
+     */
+    void write(String receipt) throws IOException;
+}
@@ -0,0 +1,87 @@
+package com.fsetkov.replication;
+
+import com.fsetkov.models.CustomerStampCard;
+
+/**
+ * Till keeping the stamp cards of the customers in its own {@link StampReplica}, so it keeps stamping and redeeming
+ * while the central registry is unreachable.
+ * <p>
+ * While connected, the till synchronizes with the registry around every checkout: it hands the stamps it gave over
+ * to the registry, and the registry transfers the stamps of the customer's free beverages to the till before the
+ * till redeems them. While disconnected, the till redeems only the stamps it gave during the outage, so no stamp is
+ * redeemed twice, and it ships its delta once it is reconnected. A till is not thread-safe.
+ */
+public class OfflineTill {
+
+    private final StampReplica replica;
+    private final StampReplica registry;
+    private boolean isConnected = true;
+
+    /**
+     * Constructs a new connected OfflineTill.
+     *
+     * @param tillId   the id of the till, unique among the tills and the registry
+     * @param registry the replica of the central registry
+     */
+    public OfflineTill(String tillId, StampReplica registry) {
+        this.replica = new StampReplica(tillId);
+        this.registry = registry;
+    }
+
+    /**
+     * Stamps the beverages of an order and redeems the free beverages the customer is entitled to.
+     *
+     * @param username  the username of the customer
+     * @param beverages the number of bought beverages
+     * @return the number of free beverages, as {@link CustomerStampCard#getNumberOfFreeBeverages()}
+     */
+    public long checkout(String username, long beverages) {
+        replica.stamp(username, beverages);
+        if (!isConnected) {
+            return replica.redeem(username, Long.MAX_VALUE);
+        }
+
+        synchronize();
+        registry.transferRedeemable(username, replica.getReplicaId());
+        replica.merge(registry.getReplicaId(), registry.takeDelta(replica.getReplicaId()));
+        long freeBeverages = replica.redeem(username, Long.MAX_VALUE);
+        synchronize();
+        return freeBeverages;
+    }
+
+    /**
+     * Simulates a network outage between the till and the registry.
+     */
+    public void disconnect() {
+        isConnected = false;
+    }
+
+    /**
+     * Ends a network outage and ships the stamps given and redeemed in the meantime.
+     */
+    public void reconnect() {
+        isConnected = true;
+        synchronize();
+    }
+
+    /**
+     * Exchanges the changed ledgers with the registry, after handing the stamps owned by the till over to it.
+     * Does nothing while disconnected.
+     */
+    public void synchronize() {
+        if (!isConnected) {
+            return;
+        }
+        replica.transferAll(registry.getReplicaId());
+        registry.merge(replica.getReplicaId(), replica.takeDelta(registry.getReplicaId()));
+        replica.merge(registry.getReplicaId(), registry.takeDelta(replica.getReplicaId()));
+    }
+
+    public boolean isConnected() {
+        return isConnected;
+    }
+
+    public StampReplica getReplica() {
+        return replica;
+    }
+}
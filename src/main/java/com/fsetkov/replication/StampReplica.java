@@ -0,0 +1,184 @@
+package com.fsetkov.replication;
+
+import com.fsetkov.models.StampLedger;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replica of the {@link StampLedger}s of all customers held by a till or by the central registry.
+ * <p>
+ * The replica remembers per peer which ledgers changed since it last sent a delta to that peer, so a synchronization
+ * ships only the ledgers of the customers served in between instead of the whole registry. The first delta for a
+ * peer holds every ledger. Deltas are copies and may be merged in any order, any number of times. All methods are
+ * synchronized, so several tills may synchronize with one registry replica at once.
+ */
+public class StampReplica {
+
+    private final String replicaId;
+    private final Map<String, StampLedger> ledgers = new HashMap<>();
+    private final Map<String, Set<String>> changedUsernamesByPeer = new HashMap<>();
+    private final Set<String> usernamesWithOwnedStamps = new HashSet<>();
+
+    /**
+     * Constructs a new empty StampReplica.
+     *
+     * @param replicaId the id of the replica, unique among the tills and the registry
+     */
+    public StampReplica(String replicaId) {
+        this.replicaId = replicaId;
+    }
+
+    public String getReplicaId() {
+        return replicaId;
+    }
+
+    /**
+     * Gives stamps to a customer at this replica.
+     *
+     * @param username the username of the customer
+     * @param count    the number of stamps
+     */
+    public synchronized void stamp(String username, long count) {
+        ledgerOf(username).stamp(replicaId, count);
+        usernamesWithOwnedStamps.add(username);
+        markChanged(username, null);
+    }
+
+    /**
+     * Redeems free beverages of a customer from the stamps owned by this replica.
+     *
+     * @param username     the username of the customer
+     * @param maxBeverages the maximal number of free beverages
+     * @return the number of redeemed free beverages
+     */
+    public synchronized long redeem(String username, long maxBeverages) {
+        long beverages = ledgerOf(username).redeem(replicaId, maxBeverages);
+        if (beverages > 0) {
+            markChanged(username, null);
+        }
+        return beverages;
+    }
+
+    /**
+     * Transfers the stamps of a customer owned by this replica to another replica.
+     *
+     * @param username    the username of the customer
+     * @param toReplicaId the receiving replica
+     * @param count       the number of stamps
+     * @throws IllegalArgumentException if this replica owns fewer stamps
+     */
+    public synchronized void transfer(String username, String toReplicaId, long count) {
+        ledgerOf(username).transfer(replicaId, toReplicaId, count);
+        markChanged(username, null);
+    }
+
+    /**
+     * Transfers the stamps of a customer's free beverages owned by this replica to another replica, e.g. the registry
+     * granting the beverages to the till serving the customer. The stamps short of a free beverage stay.
+     *
+     * @param username    the username of the customer
+     * @param toReplicaId the receiving replica
+     * @return the number of transferred stamps, a multiple of {@link StampLedger#STAMPS_PER_FREE_BEVERAGE}
+     */
+    public synchronized long transferRedeemable(String username, String toReplicaId) {
+        StampLedger ledger = ledgerOf(username);
+        long owned = ledger.getOwnedStamps(replicaId);
+        long redeemable = owned - owned % StampLedger.STAMPS_PER_FREE_BEVERAGE;
+        if (redeemable > 0) {
+            ledger.transfer(replicaId, toReplicaId, redeemable);
+            markChanged(username, null);
+        }
+        return redeemable;
+    }
+
+    /**
+     * Transfers all stamps owned by this replica to another replica, e.g. a till handing its stamps to the registry.
+     *
+     * @param toReplicaId the receiving replica
+     */
+    public synchronized void transferAll(String toReplicaId) {
+        for (String username : usernamesWithOwnedStamps) {
+            StampLedger ledger = ledgers.get(username);
+            long owned = ledger.getOwnedStamps(replicaId);
+            if (owned > 0) {
+                ledger.transfer(replicaId, toReplicaId, owned);
+                markChanged(username, null);
+            }
+        }
+        usernamesWithOwnedStamps.clear();
+    }
+
+    /**
+     * Retrieves the stamps of a customer not redeemed yet, as far as this replica knows.
+     *
+     * @param username the username of the customer
+     * @return the balance of the customer's ledger
+     */
+    public synchronized long getBalance(String username) {
+        StampLedger ledger = ledgers.get(username);
+        return ledger == null ? 0 : ledger.getBalance();
+    }
+
+    /**
+     * Retrieves the stamps of a customer this replica may redeem.
+     *
+     * @param username the username of the customer
+     * @return the stamps owned by this replica
+     */
+    public synchronized long getOwnedStamps(String username) {
+        StampLedger ledger = ledgers.get(username);
+        return ledger == null ? 0 : ledger.getOwnedStamps(replicaId);
+    }
+
+    /**
+     * Takes copies of the ledgers changed since the last delta for a peer.
+     *
+     * @param peerId the replica the delta is sent to
+     * @return the changed ledgers by username
+     */
+    public synchronized Map<String, StampLedger> takeDelta(String peerId) {
+        Set<String> changedUsernames = changedUsernamesByPeer.get(peerId);
+        if (changedUsernames == null) {
+            changedUsernames = new HashSet<>(ledgers.keySet());
+        }
+        Map<String, StampLedger> delta = new HashMap<>();
+        for (String username : changedUsernames) {
+            delta.put(username, ledgers.get(username).copy());
+        }
+        changedUsernamesByPeer.put(peerId, new HashSet<>());
+        return delta;
+    }
+
+    /**
+     * Merges a delta received from a peer.
+     *
+     * @param peerId the replica the delta came from
+     * @param delta  the changed ledgers by username
+     */
+    public synchronized void merge(String peerId, Map<String, StampLedger> delta) {
+        delta.forEach((username, ledger) -> {
+            StampLedger merged = ledgerOf(username);
+            if (merged.merge(ledger)) {
+                if (merged.getOwnedStamps(replicaId) > 0) {
+                    usernamesWithOwnedStamps.add(username);
+                }
+                markChanged(username, peerId);
+            }
+        });
+    }
+
+    private StampLedger ledgerOf(String username) {
+        return ledgers.computeIfAbsent(username, u -> new StampLedger());
+    }
+
+    private void markChanged(String username, String exceptPeerId) {
+        changedUsernamesByPeer.forEach((peerId, changedUsernames) -> {
+            if (!peerId.equals(exceptPeerId)) {
+                changedUsernames.add(username);
+            }
+        });
+    }
+}
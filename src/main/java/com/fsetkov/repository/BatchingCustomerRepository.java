@@ -0,0 +1,175 @@
+package com.fsetkov.repository;
+
+import com.fsetkov.models.Customer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Repository coalescing concurrent lookups into batched requests to another repository.
+ * <p>
+ * Lookups are collected into a batch that is sent when it reaches the maximal size or when the oldest lookup
+ * has waited for the maximal delay, whichever comes first. Concurrent lookups of the same username share one
+ * pending request, so a username is requested at most once per round-trip. Once the repository is closed,
+ * new lookups fail immediately with an {@link IllegalStateException}.
+ */
+public class BatchingCustomerRepository implements CustomerRepository, AutoCloseable {
+
+    private final CustomerRepository delegate;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, CompletableFuture<Customer>> pendingLookups = new ConcurrentHashMap<>();
+
+    private final Object batchLock = new Object();
+    private List<String> batch = new ArrayList<>();
+    private long batchGeneration;
+    private boolean closed;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * Constructs a new BatchingCustomerRepository.
+     *
+     * @param delegate     the repository receiving the batched requests
+     * @param maxBatchSize the maximal number of usernames in one request
+     * @param maxDelay     the maximal time a lookup waits for its batch to fill
+     */
+    public BatchingCustomerRepository(CustomerRepository delegate, int maxBatchSize, Duration maxDelay) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive, but was " + maxBatchSize);
+        }
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "customer-lookup-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Customer> findByUsername(String username) {
+        lookups.increment();
+        CompletableFuture<Customer> lookup = new CompletableFuture<>();
+        CompletableFuture<Customer> pendingLookup = pendingLookups.putIfAbsent(username, lookup);
+        if (pendingLookup != null) {
+            deduplicated.increment();
+            return pendingLookup;
+        }
+
+        List<String> fullBatch = null;
+        synchronized (batchLock) {
+            if (closed) {
+                pendingLookups.remove(username, lookup);
+                lookup.completeExceptionally(new IllegalStateException("Customer repository is closed"));
+                return lookup;
+            }
+            batch.add(username);
+            if (batch.size() >= maxBatchSize) {
+                fullBatch = takeBatch();
+            } else if (batch.size() == 1) {
+                long generation = batchGeneration;
+                scheduler.schedule(() -> flush(generation), maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (fullBatch != null) {
+            send(fullBatch);
+        }
+        return lookup;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Customer>> findAllByUsernames(Collection<String> usernames) {
+        Map<String, CompletableFuture<Customer>> customerLookups = new LinkedHashMap<>();
+        for (String username : usernames) {
+            customerLookups.computeIfAbsent(username, this::findByUsername);
+        }
+
+        return CompletableFuture.allOf(customerLookups.values().toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Map<String, Customer> customers = new LinkedHashMap<>();
+                    customerLookups.forEach((username, lookup) -> customers.put(username, lookup.join()));
+                    return customers;
+                });
+    }
+
+    /**
+     * Takes a snapshot of the lookup counters.
+     *
+     * @return the current metrics
+     */
+    public CustomerLookupMetrics getMetrics() {
+        return new CustomerLookupMetrics(lookups.sum(), deduplicated.sum(), batches.sum());
+    }
+
+    /**
+     * Sends the pending batch and stops the scheduler. Later lookups fail.
+     */
+    @Override
+    public void close() {
+        List<String> lastBatch;
+        synchronized (batchLock) {
+            closed = true;
+            lastBatch = takeBatch();
+        }
+        send(lastBatch);
+        scheduler.shutdown();
+    }
+
+    private void flush(long generation) {
+        List<String> dueBatch = null;
+        synchronized (batchLock) {
+            if (generation == batchGeneration) {
+                dueBatch = takeBatch();
+            }
+        }
+        if (dueBatch != null) {
+            send(dueBatch);
+        }
+    }
+
+    private List<String> takeBatch() {
+        List<String> takenBatch = batch;
+        batch = new ArrayList<>();
+        batchGeneration++;
+        return takenBatch;
+    }
+
+    private void send(List<String> usernames) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        batches.increment();
+        CompletableFuture<Map<String, Customer>> request;
+        try {
+            request = delegate.findAllByUsernames(usernames);
+        } catch (RuntimeException e) {
+            request = CompletableFuture.failedFuture(e);
+        }
+
+        request.whenComplete((customers, error) -> {
+            for (String username : usernames) {
+                CompletableFuture<Customer> lookup = pendingLookups.remove(username);
+                if (error != null) {
+                    lookup.completeExceptionally(error);
+                } else {
+                    lookup.complete(customers.get(username));
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,76 @@
+package com.fsetkov.repository;
+
+import com.fsetkov.util.Hashing;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring assigning keys to nodes.
+ * <p>
+ * Every node is placed on the ring at a number of virtual positions, and a key belongs to the first node
+ * clockwise from the hash of the key. Adding a node to a ring of N nodes therefore moves only about
+ * {@code 1 / (N + 1)} of the keys, all of them to the new node. The ring is not thread-safe.
+ *
+ * @param <N> the type of the nodes
+ */
+public class ConsistentHashRing<N> {
+
+    private final int virtualNodes;
+    private final NavigableMap<Long, N> ring = new TreeMap<>();
+    private final Map<String, N> nodes = new LinkedHashMap<>();
+
+    /**
+     * Constructs a new empty ConsistentHashRing.
+     *
+     * @param virtualNodes the number of ring positions of every node
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Virtual nodes must be positive, but was " + virtualNodes);
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Places a node on the ring.
+     *
+     * @param nodeId the unique id of the node, which determines its positions
+     * @param node   the node
+     */
+    public void addNode(String nodeId, N node) {
+        if (nodes.putIfAbsent(nodeId, node) != null) {
+            throw new IllegalArgumentException("Node " + nodeId + " is already on the ring");
+        }
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.putIfAbsent(Hashing.hash64(nodeId + "#" + i), node);
+        }
+    }
+
+    /**
+     * Finds the node a key belongs to.
+     *
+     * @param key the key
+     * @return the node
+     */
+    public N nodeFor(String key) {
+        if (ring.isEmpty()) {
+            throw new IllegalStateException("The ring has no nodes");
+        }
+        Map.Entry<Long, N> entry = ring.ceilingEntry(Hashing.hash64(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Retrieves the nodes on the ring.
+     *
+     * @return the nodes in the order they were added
+     */
+    public Collection<N> getNodes() {
+        return Collections.unmodifiableCollection(nodes.values());
+    }
+}
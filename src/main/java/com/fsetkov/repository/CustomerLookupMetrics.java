@@ -0,0 +1,11 @@
+package com.fsetkov.repository;
+
+/**
+ * Snapshot of the counters of a {@link BatchingCustomerRepository}.
+ *
+ * @param lookups      the number of requested usernames
+ * @param deduplicated the number of lookups joined to a pending request for the same username
+ * @param batches      the number of batched requests sent to the underlying repository
+ */
+public record CustomerLookupMetrics(long lookups, long deduplicated, long batches) {
+}
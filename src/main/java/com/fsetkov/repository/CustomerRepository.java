@@ -0,0 +1,33 @@
+package com.fsetkov.repository;
+
+import com.fsetkov.models.Customer;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous store of customers and their loyalty data.
+ * <p>
+ * Like {@link com.fsetkov.service.CustomerService#getCustomerByUsername(String)}, a lookup of an unknown
+ * username registers a new customer. Implementations may have real latency, e.g. a central loyalty database,
+ * so every lookup returns a {@link CompletableFuture}.
+ */
+public interface CustomerRepository {
+
+    /**
+     * Looks up a customer by their username.
+     *
+     * @param username the username of the customer
+     * @return a future completed with the customer associated with the given username
+     */
+    CompletableFuture<Customer> findByUsername(String username);
+
+    /**
+     * Looks up several customers in one request.
+     *
+     * @param usernames the usernames of the customers
+     * @return a future completed with the customers keyed by their usernames
+     */
+    CompletableFuture<Map<String, Customer>> findAllByUsernames(Collection<String> usernames);
+}
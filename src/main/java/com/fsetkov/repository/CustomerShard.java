@@ -0,0 +1,321 @@
+package com.fsetkov.repository;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.LoyaltyTier;
+import com.fsetkov.models.PrepaidAccount;
+import com.fsetkov.models.VisitHistory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * One partition of a {@link ShardedCustomerRegistry}.
+ * <p>
+ * A shard holds its customers behind its own lock, so lookups on different shards never contend, and it
+ * persists its customers to its own file. The file has one tab-separated line per customer holding the username,
+ * the beverages bought, the loyalty tier, the day of the last visit, the visits of the retained months and the id
+ * and balance of the linked prepaid account, and is replaced atomically. Lines holding only the username and the
+ * beverages bought, written before the other fields were added, are still read.
+ */
+public class CustomerShard {
+
+    private static final char FIELD_SEPARATOR = '\t';
+    private static final int FIELDS = 7;
+    private static final int LEGACY_FIELDS = 2;
+
+    private final String shardId;
+    private final Map<String, Customer> customers = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Constructs a new empty CustomerShard.
+     *
+     * @param shardId the unique id of the shard
+     */
+    public CustomerShard(String shardId) {
+        this.shardId = shardId;
+    }
+
+    public String getShardId() {
+        return shardId;
+    }
+
+    /**
+     * Retrieves a customer of the shard.
+     *
+     * @param username the username of the customer
+     * @return the customer, or {@code null} if the shard does not hold the customer
+     */
+    public Customer get(String username) {
+        lock.lock();
+        try {
+            return customers.get(username);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores a customer in the shard unless the shard already holds one with the username.
+     *
+     * @param username the username of the customer
+     * @param customer the customer
+     * @return the customer already held, or {@code null} if the given customer was stored
+     */
+    public Customer putIfAbsent(String username, Customer customer) {
+        lock.lock();
+        try {
+            return customers.putIfAbsent(username, customer);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves a customer of the shard, creating and storing it while holding the lock of the shard if it is
+     * missing, so concurrent callers all get the same customer.
+     *
+     * @param username        the username of the customer
+     * @param mappingFunction creates the missing customer
+     * @return the held or the created customer
+     */
+    public Customer computeIfAbsent(String username, Function<? super String, ? extends Customer> mappingFunction) {
+        lock.lock();
+        try {
+            return customers.computeIfAbsent(username, mappingFunction);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores a customer in the shard.
+     *
+     * @param username the username of the customer
+     * @param customer the customer
+     * @return the previous customer with the username, or {@code null}
+     */
+    public Customer put(String username, Customer customer) {
+        lock.lock();
+        try {
+            return customers.put(username, customer);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a customer from the shard.
+     *
+     * @param username the username of the customer
+     * @return the removed customer, or {@code null}
+     */
+    public Customer remove(String username) {
+        lock.lock();
+        try {
+            return customers.remove(username);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the number of customers in the shard.
+     *
+     * @return the number of customers
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return customers.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Calls an action for every customer while holding the lock of the shard.
+     *
+     * @param action the action
+     */
+    public void forEach(BiConsumer<String, Customer> action) {
+        lock.lock();
+        try {
+            customers.forEach(action);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the customers matching a condition to another shard.
+     *
+     * @param target    the shard receiving the customers
+     * @param condition the condition on the username and the customer
+     * @return the number of moved customers
+     */
+    public int moveTo(CustomerShard target, BiPredicate<String, Customer> condition) {
+        Map<String, Customer> moved = new HashMap<>();
+        lock.lock();
+        try {
+            customers.entrySet().removeIf(entry -> {
+                if (condition.test(entry.getKey(), entry.getValue())) {
+                    moved.put(entry.getKey(), entry.getValue());
+                    return true;
+                }
+                return false;
+            });
+        } finally {
+            lock.unlock();
+        }
+        target.lock.lock();
+        try {
+            target.customers.putAll(moved);
+        } finally {
+            target.lock.unlock();
+        }
+        return moved.size();
+    }
+
+    /**
+     * Writes the customers of the shard to a file.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    public void persist(Path file) throws IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        lock.lock();
+        try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+            for (Customer customer : customers.values()) {
+                writer.write(formatCustomer(customer));
+                writer.newLine();
+            }
+        } finally {
+            lock.unlock();
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads customers from a file written by {@link #persist(Path)} into the shard.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be read
+     */
+    public void load(Path file) throws IOException {
+        load(file, new HashMap<>());
+    }
+
+    /**
+     * Reads customers from a file written by {@link #persist(Path)} into the shard, linking the customers to
+     * the prepaid accounts already read from other files. An account shared by several customers is written with
+     * each of them; it is restored once, with the lowest written balance, so a charge made while the shards were
+     * written is never refunded.
+     *
+     * @param file     the file
+     * @param accounts the prepaid accounts read so far by id, extended by the accounts of the file
+     * @throws IOException if the file cannot be read
+     */
+    public void load(Path file, Map<String, PrepaidAccount> accounts) throws IOException {
+        Map<String, Customer> loaded = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Customer customer = parseCustomer(line, accounts);
+                if (customer == null) {
+                    throw new IOException("Malformed customer line in " + file + ": " + line);
+                }
+                loaded.put(customer.getUsername(), customer);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed customer data in " + file, e);
+        }
+        lock.lock();
+        try {
+            customers.putAll(loaded);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String formatCustomer(Customer customer) {
+        VisitHistory visitHistory = customer.getVisitHistory();
+        LocalDate lastVisit;
+        int[] monthlyVisits;
+        synchronized (visitHistory) {
+            lastVisit = visitHistory.getLastVisit();
+            monthlyVisits = visitHistory.getMonthlyVisits();
+        }
+        PrepaidAccount account = customer.getPrepaidAccount();
+
+        StringBuilder line = new StringBuilder(64)
+                .append(customer.getUsername()).append(FIELD_SEPARATOR)
+                .append(customer.getCustomerStampCard().getNumberOfBeveragesBought()).append(FIELD_SEPARATOR)
+                .append(customer.getLoyaltyTier().name()).append(FIELD_SEPARATOR)
+                .append(lastVisit == null ? "" : lastVisit.toString()).append(FIELD_SEPARATOR);
+        for (int i = 0; i < monthlyVisits.length; i++) {
+            line.append(i == 0 ? "" : ",").append(monthlyVisits[i]);
+        }
+        line.append(FIELD_SEPARATOR);
+        if (account != null) {
+            line.append(account.getAccountId()).append(FIELD_SEPARATOR).append(account.getBalance());
+        } else {
+            line.append(FIELD_SEPARATOR);
+        }
+        return line.toString();
+    }
+
+    private static Customer parseCustomer(String line, Map<String, PrepaidAccount> accounts) {
+        String[] fields = line.split(String.valueOf(FIELD_SEPARATOR), -1);
+        if (fields.length == LEGACY_FIELDS) {
+            Customer customer = new Customer(fields[0]);
+            customer.getCustomerStampCard().setNumberOfBeveragesBought(Integer.parseInt(fields[1]));
+            return customer;
+        }
+        if (fields.length < FIELDS) {
+            return null;
+        }
+
+        // The username is the only field that may contain the separator
+        int first = fields.length - FIELDS + 1;
+        Customer customer = new Customer(String.join(String.valueOf(FIELD_SEPARATOR),
+                Arrays.copyOfRange(fields, 0, first)));
+        customer.getCustomerStampCard().setNumberOfBeveragesBought(Integer.parseInt(fields[first]));
+        customer.setLoyaltyTier(LoyaltyTier.valueOf(fields[first + 1]));
+        String[] visits = fields[first + 3].split(",");
+        int[] monthlyVisits = new int[visits.length];
+        for (int i = 0; i < visits.length; i++) {
+            monthlyVisits[i] = Integer.parseInt(visits[i]);
+        }
+        customer.getVisitHistory().restore(
+                fields[first + 2].isEmpty() ? null : LocalDate.parse(fields[first + 2]), monthlyVisits);
+
+        String accountId = fields[first + 4];
+        if (!accountId.isEmpty()) {
+            long balance = Long.parseLong(fields[first + 5]);
+            PrepaidAccount account = accounts.get(accountId);
+            if (account == null) {
+                account = new PrepaidAccount(accountId, balance);
+                accounts.put(accountId, account);
+            } else if (balance < account.getBalance()) {
+                account.tryDebit(account.getBalance() - balance);
+            }
+            customer.setPrepaidAccount(account);
+        }
+        return customer;
+    }
+}
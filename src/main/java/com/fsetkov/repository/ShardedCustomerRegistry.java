@@ -0,0 +1,217 @@
+package com.fsetkov.repository;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.PrepaidAccount;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Customer registry partitioned into {@link CustomerShard}s by consistent hashing of the username.
+ * <p>
+ * The registry is a {@link Map}, so it can back a {@link com.fsetkov.service.CustomerService} in place of a single
+ * global map. Each lookup locks only the shard of the username. Adding a shard moves only the customers the
+ * {@link ConsistentHashRing} assigns to the new shard, about {@code 1 / N} of them; lookups wait while the shards
+ * are rebalanced. {@link #putIfAbsent(String, Customer)} and {@link #computeIfAbsent(String, Function)} are atomic
+ * under the lock of the shard, so two tills creating the same new member get the same customer. Iterating over
+ * the registry walks a snapshot of all shards.
+ */
+public class ShardedCustomerRegistry extends AbstractMap<String, Customer> {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+    private static final String SHARD_FILE_SUFFIX = ".customers";
+
+    private final ConsistentHashRing<CustomerShard> ring;
+    private final ReadWriteLock topologyLock = new ReentrantReadWriteLock();
+
+    /**
+     * Constructs a new registry with empty shards named {@code shard-0} to {@code shard-(N-1)}.
+     *
+     * @param shardCount the number of shards
+     */
+    public ShardedCustomerRegistry(int shardCount) {
+        this(DEFAULT_VIRTUAL_NODES, createShards(shardCount));
+    }
+
+    /**
+     * Constructs a new registry over the given shards.
+     *
+     * @param virtualNodes the number of ring positions of every shard
+     * @param shards       the shards, which must be empty
+     */
+    public ShardedCustomerRegistry(int virtualNodes, Collection<CustomerShard> shards) {
+        this.ring = new ConsistentHashRing<>(virtualNodes);
+        for (CustomerShard shard : shards) {
+            ring.addNode(shard.getShardId(), shard);
+        }
+    }
+
+    /**
+     * Adds a shard and moves to it the customers it is now responsible for.
+     *
+     * @param shard the new, empty shard
+     * @return the number of moved customers
+     */
+    public int addShard(CustomerShard shard) {
+        topologyLock.writeLock().lock();
+        try {
+            List<CustomerShard> existingShards = new ArrayList<>(ring.getNodes());
+            ring.addNode(shard.getShardId(), shard);
+            int moved = 0;
+            for (CustomerShard existingShard : existingShards) {
+                moved += existingShard.moveTo(shard, (username, customer) -> ring.nodeFor(username) == shard);
+            }
+            return moved;
+        } finally {
+            topologyLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the shards of the registry.
+     *
+     * @return the shards in the order they were added
+     */
+    public List<CustomerShard> getShards() {
+        topologyLock.readLock().lock();
+        try {
+            return List.copyOf(ring.getNodes());
+        } finally {
+            topologyLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Customer get(Object key) {
+        if (!(key instanceof String username)) {
+            return null;
+        }
+        topologyLock.readLock().lock();
+        try {
+            return ring.nodeFor(username).get(username);
+        } finally {
+            topologyLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Customer put(String username, Customer customer) {
+        topologyLock.readLock().lock();
+        try {
+            return ring.nodeFor(username).put(username, customer);
+        } finally {
+            topologyLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Customer putIfAbsent(String username, Customer customer) {
+        topologyLock.readLock().lock();
+        try {
+            return ring.nodeFor(username).putIfAbsent(username, customer);
+        } finally {
+            topologyLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Customer computeIfAbsent(String username, Function<? super String, ? extends Customer> mappingFunction) {
+        topologyLock.readLock().lock();
+        try {
+            return ring.nodeFor(username).computeIfAbsent(username, mappingFunction);
+        } finally {
+            topologyLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Customer remove(Object key) {
+        if (!(key instanceof String username)) {
+            return null;
+        }
+        topologyLock.readLock().lock();
+        try {
+            return ring.nodeFor(username).remove(username);
+        } finally {
+            topologyLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (CustomerShard shard : getShards()) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, Customer>> entrySet() {
+        Map<String, Customer> snapshot = new HashMap<>();
+        for (CustomerShard shard : getShards()) {
+            shard.forEach(snapshot::put);
+        }
+        return Set.copyOf(snapshot.entrySet());
+    }
+
+    /**
+     * Writes every shard to its own file {@code <shard id>.customers} in a directory.
+     *
+     * @param directory the directory
+     * @throws IOException if a shard cannot be written
+     */
+    public void persist(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (CustomerShard shard : getShards()) {
+            shard.persist(directory.resolve(shard.getShardId() + SHARD_FILE_SUFFIX));
+        }
+    }
+
+    /**
+     * Loads all shard files of a directory. Every customer is routed to the shard now responsible for it, so
+     * files written before shards were added are loaded correctly. Customers sharing a prepaid account are linked
+     * to one restored account, whichever files they are written in.
+     *
+     * @param directory the directory
+     * @throws IOException if a shard file cannot be read
+     */
+    public void load(Path directory) throws IOException {
+        Map<String, PrepaidAccount> accounts = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SHARD_FILE_SUFFIX)) {
+            for (Path file : files) {
+                CustomerShard loadedShard = new CustomerShard(file.getFileName().toString());
+                loadedShard.load(file, accounts);
+                loadedShard.forEach(this::put);
+            }
+        }
+    }
+
+    private static List<CustomerShard> createShards(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive, but was " + shardCount);
+        }
+        List<CustomerShard> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new CustomerShard("shard-" + i));
+        }
+        return shards;
+    }
+}
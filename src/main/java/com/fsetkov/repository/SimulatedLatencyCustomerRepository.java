@@ -0,0 +1,68 @@
+package com.fsetkov.repository;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.service.CustomerService;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for a remote customer store, backed by a {@link CustomerService}.
+ * <p>
+ * Every request completes after a fixed latency, simulating one round-trip to a central loyalty database,
+ * and the number of round-trips is counted. Intended for tests and benchmarks.
+ */
+public class SimulatedLatencyCustomerRepository implements CustomerRepository {
+
+    private final CustomerService customerService;
+    private final Executor delayedExecutor;
+    private final AtomicLong roundTrips = new AtomicLong();
+
+    /**
+     * Constructs a new SimulatedLatencyCustomerRepository.
+     *
+     * @param customerService the customer service holding the customers
+     * @param latency         the latency of one request
+     */
+    public SimulatedLatencyCustomerRepository(CustomerService customerService, Duration latency) {
+        this.customerService = customerService;
+        this.delayedExecutor = CompletableFuture.delayedExecutor(latency.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public CompletableFuture<Customer> findByUsername(String username) {
+        return findAllByUsernames(List.of(username)).thenApply(customers -> customers.get(username));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Customer>> findAllByUsernames(Collection<String> usernames) {
+        roundTrips.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> lookUp(usernames), delayedExecutor);
+    }
+
+    /**
+     * Retrieves the number of requests sent to the store.
+     *
+     * @return the number of round-trips
+     */
+    public long getRoundTrips() {
+        return roundTrips.get();
+    }
+
+    private Map<String, Customer> lookUp(Collection<String> usernames) {
+        Map<String, Customer> customers = new LinkedHashMap<>();
+        synchronized (customerService) {
+            for (String username : usernames) {
+                customers.put(username, customerService.getCustomerByUsername(username));
+            }
+        }
+        return customers;
+    }
+}
@@ -3,37 +3,36 @@ package com.fsetkov.service;
 import com.fsetkov.models.Customer;
 
 import java.util.Map;
-import java.util.Optional;
 
 /**
  * Service class for managing customers.
- * This class provides methods to retrieve and add customers by their username.
+ * This class provides methods to retrieve and add customers by their username. Every lookup is reported to
+ * the {@link CustomerVisitListener}.
  */
-public record CustomerService(Map<String, Customer> customers) {
+public record CustomerService(Map<String, Customer> customers, CustomerVisitListener visitListener) {
 
     /**
-     * Retrieves a customer by their username.
-     * If the customer does not exist, a new customer is created and added to the map.
+     * Constructs a new CustomerService that does not report visits.
      *
-     * @param username the username of the customer to retrieve
-     * @return the customer associated with the given username
+     * @param customers the customers by username
      */
-    public Customer getCustomerByUsername(String username) {
-        return Optional.ofNullable(customers.get(username))
-                .orElse(addCustomer(username));
+    public CustomerService(Map<String, Customer> customers) {
+        this(customers, CustomerVisitListener.NONE);
     }
 
     /**
-     * Adds a new customer with the given username to the map.
-     * This method is private and is used internally by {@link #getCustomerByUsername(String)}.
+     * Retrieves a customer by their username.
+     * If the customer does not exist, a new customer is created and added to the map. The creation is atomic for
+     * maps with an atomic {@link Map#computeIfAbsent}, such as a {@link java.util.concurrent.ConcurrentHashMap} or
+     * a {@link com.fsetkov.repository.ShardedCustomerRegistry}, so two tills greeting the same new customer at once
+     * share one customer and no stamp is lost.
      *
-     * @param username the username of the new customer
-     * @return the newly created customer
+     * @param username the username of the customer to retrieve
+     * @return the customer associated with the given username
      */
-    private Customer addCustomer(String username) {
-        Customer customer = new Customer(username);
-        customers.put(username, customer);
-
+    public Customer getCustomerByUsername(String username) {
+        Customer customer = customers.computeIfAbsent(username, Customer::new);
+        visitListener.onCustomerVisit(customer);
         return customer;
     }
 }
@@ -0,0 +1,36 @@
+package com.fsetkov.service;
+
+import com.fsetkov.models.Customer;
+
+/**
+ * Listener notified by the {@link CustomerService} whenever a customer is looked up at a till.
+ */
+@FunctionalInterface
+public interface CustomerVisitListener {
+
+    /**
+     * Listener ignoring all visits.
+     */
+    CustomerVisitListener NONE = customer -> {
+    };
+
+    /**
+     * Called after a customer was looked up or created.
+     *
+     * @param customer the visiting customer
+     */
+    void onCustomerVisit(Customer customer);
+
+    /**
+     * Combines this listener with another one notified after it.
+     *
+     * @param next the listener notified second
+     * @return the combined listener
+     */
+    default CustomerVisitListener andThen(CustomerVisitListener next) {
+        return customer -> {
+            onCustomerVisit(customer);
+            next.onCustomerVisit(customer);
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package com.fsetkov.service;
+
+import com.fsetkov.models.Product;
+import com.fsetkov.models.StockLevel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class tracking the stock of products.
+ * <p>
+ * Stock is tracked per product name; products without a stock level, such as the extras, are never sold out.
+ * All operations are lock-free and safe to call from many tills at once. An open order reserves its units,
+ * a completed order commits them and an abandoned order releases them.
+ */
+public class InventoryService {
+
+    private final Map<String, StockLevel> stockLevels = new ConcurrentHashMap<>();
+
+    /**
+     * Sets the available stock of a product. The units reserved by open orders are kept, so these orders can still
+     * be committed or released.
+     *
+     * @param productName    the name of the product
+     * @param availableUnits the number of units on the shelf
+     */
+    public void setStock(String productName, int availableUnits) {
+        StockLevel stockLevel = stockLevels.putIfAbsent(productName, new StockLevel(availableUnits));
+        if (stockLevel != null) {
+            stockLevel.setAvailableUnits(availableUnits);
+        }
+    }
+
+    /**
+     * Retrieves the stock level of a product.
+     *
+     * @param productName the name of the product
+     * @return the stock level, or {@code null} if the stock of the product is not tracked
+     */
+    public StockLevel getStockLevel(String productName) {
+        return stockLevels.get(productName);
+    }
+
+    /**
+     * Checks in constant time whether a product can still be ordered.
+     *
+     * @param product the product
+     * @return {@code true} if the product is not tracked or has available units; {@code false} if it is sold out
+     */
+    public boolean isAvailable(Product product) {
+        StockLevel stockLevel = stockLevels.get(product.getName());
+        return stockLevel == null || !stockLevel.isSoldOut();
+    }
+
+    /**
+     * Reserves one unit of a product for an open order.
+     *
+     * @param product the product
+     * @return {@code true} if the unit was reserved or the product is not tracked; {@code false} if it is sold out
+     */
+    public boolean reserve(Product product) {
+        StockLevel stockLevel = stockLevels.get(product.getName());
+        return stockLevel == null || stockLevel.tryReserve(1);
+    }
+
+    /**
+     * Sells a unit reserved by {@link #reserve(Product)}.
+     *
+     * @param product the product
+     */
+    public void commit(Product product) {
+        StockLevel stockLevel = stockLevels.get(product.getName());
+        if (stockLevel != null) {
+            stockLevel.commit(1);
+        }
+    }
+
+    /**
+     * Puts a unit reserved by {@link #reserve(Product)} back on the shelf.
+     *
+     * @param product the product
+     */
+    public void release(Product product) {
+        StockLevel stockLevel = stockLevels.get(product.getName());
+        if (stockLevel != null) {
+            stockLevel.release(1);
+        }
+    }
+}
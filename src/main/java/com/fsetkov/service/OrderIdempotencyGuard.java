@@ -0,0 +1,220 @@
+package com.fsetkov.service;
+
+import com.fsetkov.util.Hashing;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detects orders submitted again with the same order id, e.g. by a till retrying after a timeout.
+ * <p>
+ * Order ids are remembered for at least one window and at most two: the guard keeps a current and a previous
+ * generation, and starts a new generation when the current one is a window old. Every generation has a Bloom
+ * filter in front of an exact set of its ids. A new id sets at least one bit of the current filter that was not
+ * set before and misses the filter of the previous generation; such an id is accepted by setting the bits with
+ * compare-and-set and queueing it for the exact set, without a lock and without an exact lookup. Only when the
+ * filters report the id as possibly seen, the queued ids are moved into the exact sets under the lock of the guard
+ * and the id is looked up there, which tells a duplicate from a false positive of the filters.
+ * <p>
+ * Two submissions of one id racing within the few nanoseconds it takes to set its bits may both be accepted;
+ * a retry after the original submission returned is always detected.
+ */
+public class OrderIdempotencyGuard {
+
+    public static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private final Clock clock;
+    private final long windowMillis;
+    private final int bitCount;
+    private final int hashCount;
+    private final long startNanos = System.nanoTime();
+    private volatile Generations generations;
+
+    private final LongAdder submissions = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder exactLookups = new LongAdder();
+
+    /**
+     * Constructs a new OrderIdempotencyGuard with the default false positive probability and the system clock.
+     *
+     * @param window                  the time an order id is remembered at least
+     * @param expectedOrdersPerWindow the number of orders expected within one window
+     */
+    public OrderIdempotencyGuard(Duration window, int expectedOrdersPerWindow) {
+        this(window, expectedOrdersPerWindow, DEFAULT_FALSE_POSITIVE_PROBABILITY, Clock.systemUTC());
+    }
+
+    /**
+     * Constructs a new OrderIdempotencyGuard.
+     *
+     * @param window                   the time an order id is remembered at least
+     * @param expectedOrdersPerWindow  the number of orders expected within one window
+     * @param falsePositiveProbability the probability of a new id taking the locked path at the expected load
+     * @param clock                    the clock measuring the windows
+     */
+    public OrderIdempotencyGuard(Duration window,
+                                 int expectedOrdersPerWindow,
+                                 double falsePositiveProbability,
+                                 Clock clock) {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be positive, but was " + window);
+        }
+        if (expectedOrdersPerWindow <= 0) {
+            throw new IllegalArgumentException("Expected orders must be positive, but was " + expectedOrdersPerWindow);
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("False positive probability must be between 0 and 1, but was "
+                                               + falsePositiveProbability);
+        }
+        this.clock = clock;
+        this.windowMillis = window.toMillis();
+        double optimalBits = -expectedOrdersPerWindow * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2));
+        long bits = Math.max(Long.SIZE, (long) Math.ceil(optimalBits));
+        this.bitCount = bits >= 1 << 30 ? 1 << 30 : Integer.highestOneBit((int) bits - 1) << 1;
+        this.hashCount = Math.max(1, (int) Math.ceil(-Math.log(falsePositiveProbability) / Math.log(2)));
+        long now = clock.millis();
+        this.generations = new Generations(newGeneration(now), newGeneration(now - windowMillis));
+    }
+
+    /**
+     * Accepts an order id seen for the first time within the window.
+     *
+     * @param orderId the id of the submitted order
+     * @return {@code true} if the order is new and must be processed, {@code false} if it is a duplicate
+     */
+    public boolean tryAccept(String orderId) {
+        submissions.increment();
+        long hash = Hashing.hash64(orderId);
+        Generations snapshot = generations;
+        long now = clock.millis();
+        if (now >= snapshot.current.expiresAt) {
+            snapshot = rotate(now);
+        }
+
+        int word = (int) (hash >>> 34) & (bitCount / Long.SIZE - 1);
+        long mask = bitMask(hash);
+        boolean isPossiblySeen = snapshot.current.testAndSet(word, mask);
+        if (!isPossiblySeen && !snapshot.previous.mightContain(word, mask)) {
+            snapshot.current.pendingIds.offer(orderId);
+            return true;
+        }
+        return tryAcceptExactly(orderId);
+    }
+
+    /**
+     * Retrieves a snapshot of the guard counters.
+     *
+     * @return the metrics
+     */
+    public OrderIdempotencyMetrics getMetrics() {
+        return new OrderIdempotencyMetrics(
+                submissions.sum(),
+                duplicates.sum(),
+                falsePositives.sum(),
+                exactLookups.sum(),
+                System.nanoTime() - startNanos,
+                bitCount,
+                hashCount);
+    }
+
+    /**
+     * Picks the bits of an id within one 64-bit word of the filter, so an id is checked and set with a single
+     * memory access and a single compare-and-set.
+     */
+    private long bitMask(long hash) {
+        int first = (int) hash;
+        int second = (int) (hash >>> 16) | 1;
+        long mask = 0;
+        for (int i = 0; i < hashCount; i++) {
+            mask |= 1L << (first + i * second);
+        }
+        return mask;
+    }
+
+    private synchronized boolean tryAcceptExactly(String orderId) {
+        exactLookups.increment();
+        Generations snapshot = generations;
+        snapshot.current.drainPendingIds();
+        snapshot.previous.drainPendingIds();
+        if (snapshot.current.recentIds.contains(orderId) || snapshot.previous.recentIds.contains(orderId)) {
+            duplicates.increment();
+            return false;
+        }
+        falsePositives.increment();
+        snapshot.current.recentIds.add(orderId);
+        return true;
+    }
+
+    private synchronized Generations rotate(long now) {
+        Generations snapshot = generations;
+        if (now < snapshot.current.expiresAt) {
+            return snapshot;
+        }
+        Generation previous = now < snapshot.current.expiresAt + windowMillis
+                ? snapshot.current
+                : newGeneration(now - windowMillis);
+        snapshot = new Generations(newGeneration(now), previous);
+        generations = snapshot;
+        return snapshot;
+    }
+
+    private Generation newGeneration(long startMillis) {
+        return new Generation(new AtomicLongArray(bitCount / Long.SIZE), startMillis + windowMillis);
+    }
+
+    private record Generations(Generation current, Generation previous) {
+    }
+
+    /**
+     * The Bloom filter and the exact set of the ids submitted within one window.
+     */
+    private static final class Generation {
+
+        private final AtomicLongArray words;
+        private final long expiresAt;
+        private final Queue<String> pendingIds = new ConcurrentLinkedQueue<>();
+        private final Set<String> recentIds = new HashSet<>();
+
+        private Generation(AtomicLongArray words, long expiresAt) {
+            this.words = words;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * Sets the bits of an id with a single compare-and-set.
+         *
+         * @return {@code true} if all bits were already set
+         */
+        private boolean testAndSet(int word, long mask) {
+            long value;
+            do {
+                value = words.get(word);
+                if ((value & mask) == mask) {
+                    return true;
+                }
+            } while (!words.compareAndSet(word, value, value | mask));
+            return false;
+        }
+
+        private boolean mightContain(int word, long mask) {
+            return (words.get(word) & mask) == mask;
+        }
+
+        /**
+         * Moves the ids accepted without a lock into the exact set; called under the lock of the guard.
+         */
+        private void drainPendingIds() {
+            String orderId;
+            while ((orderId = pendingIds.poll()) != null) {
+                recentIds.add(orderId);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.fsetkov.service;
+
+/**
+ * Snapshot of the counters of an {@link OrderIdempotencyGuard}.
+ *
+ * @param submissions    the number of submitted order ids
+ * @param duplicates     the number of ids rejected because they were submitted before within the window
+ * @param falsePositives the number of new ids the Bloom filters reported as possibly seen
+ * @param exactLookups   the number of ids looked up in the exact sets under the lock of the guard
+ * @param elapsedNanos   the time since the guard was created
+ * @param bitCount       the number of bits of the Bloom filter of one generation
+ * @param hashCount      the number of bits set per id
+ */
+public record OrderIdempotencyMetrics(long submissions,
+                                      long duplicates,
+                                      long falsePositives,
+                                      long exactLookups,
+                                      long elapsedNanos,
+                                      int bitCount,
+                                      int hashCount) {
+
+    /**
+     * Retrieves the share of new ids that took the locked path although they were not seen before.
+     *
+     * @return the false positive rate between 0 and 1, or 0 if no new id was submitted yet
+     */
+    public double falsePositiveRate() {
+        long newIds = submissions - duplicates;
+        return newIds == 0 ? 0 : (double) falsePositives / newIds;
+    }
+
+    /**
+     * Retrieves the average number of submissions per second since the guard was created.
+     *
+     * @return the throughput
+     */
+    public double submissionsPerSecond() {
+        return elapsedNanos == 0 ? 0 : submissions * 1e9 / elapsedNanos;
+    }
+}
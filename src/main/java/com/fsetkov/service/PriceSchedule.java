@@ -0,0 +1,138 @@
+package com.fsetkov.service;
+
+import com.fsetkov.models.PriceRule;
+import com.fsetkov.models.Product;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static com.fsetkov.models.PriceRule.MINUTES_PER_DAY;
+import static com.fsetkov.models.PriceRule.MINUTES_PER_WEEK;
+
+/**
+ * Price rules of a catalog compiled into a minute-of-week lookup table.
+ * <p>
+ * The week is cut at every start and end of a rule window into bands in which the same rules are active.
+ * Each band stores the price of every catalog product, and each minute of the week stores its band, so looking
+ * up a scheduled price takes two array reads however many rules overlap. When several rules reduce the same
+ * product at the same time, the lowest price wins. A schedule is immutable; changed rules are compiled into
+ * a new schedule.
+ */
+public final class PriceSchedule {
+
+    private final Map<String, Integer> productIndexes;
+    private final short[] minuteBands;
+    private final long[][] bandPrices;
+
+    private PriceSchedule(Map<String, Integer> productIndexes, short[] minuteBands, long[][] bandPrices) {
+        this.productIndexes = productIndexes;
+        this.minuteBands = minuteBands;
+        this.bandPrices = bandPrices;
+    }
+
+    /**
+     * Compiles price rules for a catalog.
+     *
+     * @param catalog the products whose prices are scheduled
+     * @param rules   the price rules
+     * @return the compiled schedule
+     */
+    public static PriceSchedule compile(List<Product> catalog, List<PriceRule> rules) {
+        Map<String, Integer> productIndexes = new HashMap<>();
+        for (int i = 0; i < catalog.size(); i++) {
+            productIndexes.putIfAbsent(catalog.get(i).getName(), i);
+        }
+
+        TreeSet<Integer> boundaries = new TreeSet<>();
+        boundaries.add(0);
+        for (PriceRule rule : rules) {
+            for (DayOfWeek day : rule.days()) {
+                int start = rule.startMinuteOfWeek(day);
+                boundaries.add(start);
+                boundaries.add((start + rule.durationMinutes()) % MINUTES_PER_WEEK);
+            }
+        }
+
+        short[] minuteBands = new short[MINUTES_PER_WEEK];
+        Map<List<Long>, Short> bands = new HashMap<>();
+        List<long[]> bandPrices = new ArrayList<>();
+        for (int start : boundaries) {
+            Integer next = boundaries.higher(start);
+            int end = next != null ? next : MINUTES_PER_WEEK;
+
+            long[] prices = pricesAt(catalog, rules, start);
+            List<Long> key = new ArrayList<>(prices.length);
+            for (long price : prices) {
+                key.add(price);
+            }
+            Short band = bands.get(key);
+            if (band == null) {
+                if (bandPrices.size() > Short.MAX_VALUE) {
+                    throw new IllegalArgumentException("Too many distinct price bands: " + bandPrices.size());
+                }
+                band = (short) bandPrices.size();
+                bands.put(key, band);
+                bandPrices.add(prices);
+            }
+            for (int minute = start; minute < end; minute++) {
+                minuteBands[minute] = band;
+            }
+        }
+
+        return new PriceSchedule(productIndexes, minuteBands, bandPrices.toArray(long[][]::new));
+    }
+
+    /**
+     * Retrieves the scheduled price of a product.
+     *
+     * @param product      the product
+     * @param minuteOfWeek the minute of the week, where 0 is Monday 00:00
+     * @return the price in minor currency units, or the current price of the product if it is not in the catalog
+     */
+    public long getPrice(Product product, int minuteOfWeek) {
+        Integer productIndex = productIndexes.get(product.getName());
+        if (productIndex == null) {
+            return PricingService.toMinorUnits(product.getPrice());
+        }
+        return bandPrices[minuteBands[minuteOfWeek]][productIndex];
+    }
+
+    /**
+     * Retrieves the number of distinct price bands of the week.
+     *
+     * @return the number of bands
+     */
+    public int getBandCount() {
+        return bandPrices.length;
+    }
+
+    /**
+     * Converts a date and time to a minute of the week.
+     *
+     * @param time the date and time
+     * @return the minute of the week, where 0 is Monday 00:00
+     */
+    public static int minuteOfWeek(LocalDateTime time) {
+        return (time.getDayOfWeek().getValue() - 1) * MINUTES_PER_DAY + time.getHour() * 60 + time.getMinute();
+    }
+
+    private static long[] pricesAt(List<Product> catalog, List<PriceRule> rules, int minuteOfWeek) {
+        long[] prices = new long[catalog.size()];
+        for (int i = 0; i < prices.length; i++) {
+            Product product = catalog.get(i);
+            long price = PricingService.toMinorUnits(product.getPrice());
+            for (PriceRule rule : rules) {
+                if (rule.appliesTo(product) && rule.isActiveAt(minuteOfWeek)) {
+                    price = Math.min(price, rule.apply(PricingService.toMinorUnits(product.getPrice())));
+                }
+            }
+            prices[i] = price;
+        }
+        return prices;
+    }
+}
@@ -0,0 +1,156 @@
+package com.fsetkov.service;
+
+import com.fsetkov.models.CustomerStampCard;
+import com.fsetkov.models.PricedOrder;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.ProductType;
+import com.fsetkov.models.QuantityOrder;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * Service class pricing {@link QuantityOrder}s arithmetically.
+ * <p>
+ * The discounts are the same as in {@link ProductService#applyFreeProducts(List, int, boolean)}: the receipt
+ * is sorted by {@link Product#getProductTypeAndPriceComparator()}, the first N beverages are free and, if the
+ * customer is eligible, the first extra is free. Instead of sorting the units of an order, the catalog is
+ * sorted once and the discounts are taken from the quantities, so pricing takes time proportional to the
+ * size of the catalog, not to the number of ordered units.
+ * <p>
+ * Orders submitted by the tills go through {@link #submit(QuantityOrder, CustomerStampCard)}, which checks out
+ * every order id only once within the window of the {@link OrderIdempotencyGuard} of the service.
+ */
+public class PricingService {
+
+    private final List<Product> catalog;
+    private final int[] pricingOrder;
+    private final long[] unitPrices;
+    private final OrderIdempotencyGuard idempotencyGuard;
+
+    /**
+     * Constructs a new PricingService for a catalog, checking out every submitted order.
+     *
+     * @param catalog the catalog of the priced orders
+     */
+    public PricingService(List<Product> catalog) {
+        this(catalog, null);
+    }
+
+    /**
+     * Constructs a new PricingService for a catalog, checking out submitted orders only once.
+     *
+     * @param catalog          the catalog of the priced orders
+     * @param idempotencyGuard the guard detecting resubmitted orders, or {@code null} to check out every submission
+     */
+    public PricingService(List<Product> catalog, OrderIdempotencyGuard idempotencyGuard) {
+        this.idempotencyGuard = idempotencyGuard;
+        this.catalog = List.copyOf(catalog);
+        Comparator<Product> comparator = Product.getProductTypeAndPriceComparator();
+        this.pricingOrder = IntStream.range(0, catalog.size())
+                .boxed()
+                .sorted((a, b) -> comparator.compare(catalog.get(a), catalog.get(b)))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.unitPrices = catalog.stream().mapToLong(p -> toMinorUnits(p.getPrice())).toArray();
+    }
+
+    /**
+     * Prices an order with the given discounts.
+     *
+     * @param order                  the order to price, created for the catalog of this service
+     * @param freeBeveragesCount     the number of free beverages to apply
+     * @param isEligibleForFreeExtra {@code true} if the customer is eligible for a free extra; {@code false} otherwise
+     * @return the priced order
+     */
+    public PricedOrder price(QuantityOrder order, long freeBeveragesCount, boolean isEligibleForFreeExtra) {
+        if (!catalog.equals(order.getCatalog())) {
+            throw new IllegalArgumentException("Order was created for a different catalog");
+        }
+
+        long subtotal = 0;
+        long discount = 0;
+        long remainingFreeBeverages = Math.max(0, freeBeveragesCount);
+        boolean isFreeExtraApplied = false;
+
+        for (int catalogIndex : pricingOrder) {
+            long quantity = order.getQuantity(catalogIndex);
+            if (quantity == 0) {
+                continue;
+            }
+            long unitPrice = unitPrices[catalogIndex];
+            subtotal += quantity * unitPrice;
+
+            ProductType productType = catalog.get(catalogIndex).getProductType();
+            if (productType == ProductType.BEVERAGE && remainingFreeBeverages > 0) {
+                long freeUnits = Math.min(quantity, remainingFreeBeverages);
+                remainingFreeBeverages -= freeUnits;
+                discount += freeUnits * unitPrice;
+            } else if (productType == ProductType.EXTRA && isEligibleForFreeExtra && !isFreeExtraApplied) {
+                isFreeExtraApplied = true;
+                discount += unitPrice;
+            }
+        }
+
+        long freeBeverages = Math.max(0, freeBeveragesCount) - remainingFreeBeverages;
+        return new PricedOrder(subtotal, discount, freeBeverages, isFreeExtraApplied);
+    }
+
+    /**
+     * Checks out an order for a customer: stamps the beverages on the stamp card, redeems the free beverages
+     * and applies the free extra when the order contains both a beverage and a snack.
+     *
+     * @param order     the order to check out
+     * @param stampCard the customer's stamp card
+     * @return the priced order
+     */
+    public PricedOrder checkout(QuantityOrder order, CustomerStampCard stampCard) {
+        boolean isEligibleForFreeExtra = stampOrder(
+                stampCard,
+                order.getQuantity(ProductType.BEVERAGE),
+                order.getQuantity(ProductType.SNACK));
+        return price(order, stampCard.getNumberOfFreeBeverages(), isEligibleForFreeExtra);
+    }
+
+    /**
+     * Stamps the beverages of a checked out order on the stamp card and tells whether the order earns the free
+     * extra, which takes both a beverage and a snack. Every checkout, of a {@link QuantityOrder}, of an order
+     * ended at a till or of a member of a group order, applies this rule.
+     *
+     * @param stampCard the customer's stamp card
+     * @param beverages the number of ordered beverages
+     * @param snacks    the number of ordered snacks
+     * @return {@code true} if the customer is eligible for a free extra; {@code false} otherwise
+     */
+    public static boolean stampOrder(CustomerStampCard stampCard, long beverages, long snacks) {
+        stampCard.increaseBeverageCount(beverages);
+        return beverages > 0 && snacks > 0;
+    }
+
+    /**
+     * Checks out an order submitted by a till, unless an order with the same id was submitted before, so a retried
+     * submission does not stamp the beverages twice.
+     *
+     * @param order     the submitted order
+     * @param stampCard the customer's stamp card
+     * @return the priced order, or empty if the order is a duplicate and was not checked out again
+     */
+    public Optional<PricedOrder> submit(QuantityOrder order, CustomerStampCard stampCard) {
+        if (idempotencyGuard != null && !idempotencyGuard.tryAccept(order.getOrderId())) {
+            return Optional.empty();
+        }
+        return Optional.of(checkout(order, stampCard));
+    }
+
+    /**
+     * Converts a price to minor currency units.
+     *
+     * @param price the price in CHF
+     * @return the price in centimes
+     */
+    public static long toMinorUnits(double price) {
+        return Math.round(price * 100);
+    }
+}
@@ -1,10 +1,15 @@
 package com.fsetkov.service;
 
-import com.fsetkov.exception.ExitException;
 import com.fsetkov.models.CustomerStampCard;
 import com.fsetkov.models.Product;
+import com.fsetkov.receipt.ReceiptRenderCache;
+import com.fsetkov.receipt.ReceiptSignature;
+import com.fsetkov.util.ChoiceParser;
 import com.fsetkov.util.Constants;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Scanner;
@@ -15,19 +20,14 @@ import static java.lang.System.lineSeparator;
 
 /**
  * Service class for printing messages.
- * This class provides methods to print various messages to the console.
+ * This class provides methods to print various messages to the console. Every message can also be rendered
+ * to a string, which is used by callers that deliver the output themselves, such as
+ * {@link com.fsetkov.session.OrderSession}.
  */
 public class PrintService {
 
     private static final String HELLO_MESSAGE_AND_ASK_CUSTOMER_NAME_MESSAGE =
-            "Hello at our coffee shop, what is your name?";
-    private static final String HELLO_CUSTOMER_NAME_MESSAGE_TEMPLATE =
-            format("Hello %%s%s", ls());
-    private static final String WRITE_CHOICE_OR_END_TEMPLATE = format(
-            "Write your choice number,%swhen you finish write '%%s'%s",
-            ls(), ls());
-    private static final String EXTRA_CHOICE_MESSAGE_TEMPLATE = format(
-            "You can choose additional extra for your choice%s", ls());
+            "Hello at our coffee shop, what is your name?".concat(lineSeparator());
     public static final String RECEIPT_TEMPLATE = String.join(System.lineSeparator(),
             Constants.DIVIDER_LINE,
             "Description of Goods:",
@@ -36,11 +36,30 @@ public class PrintService {
             "Total: %2$.2f CHF",
             Constants.DIVIDER_LINE,
             "");
-    private static final String RECEIPT_ROW_TEMPLATE =
-            format("%%2d. %%2$-30s | %%3$.2f %%4$3s%s", ls());
+    private static final String INVALID_CHOICE_MESSAGE =
+            "Invalid choice. Please enter a valid product index or write 'end'";
+    private static final String SESSION_EXPIRED_MESSAGE =
+            "Your order was cancelled because the terminal was left idle";
+    private static final String DUPLICATE_ORDER_MESSAGE =
+            "This order was already placed and is not charged again";
+
+    /**
+     * Number of distinct receipts kept by the default {@link ReceiptRenderCache}.
+     */
+    public static final int DEFAULT_RECEIPT_CACHE_CAPACITY = 256;
+
+    /**
+     * Highest price of a receipt row assumed by {@link #maxReceiptRows(int)}.
+     */
+    public static final double MAX_RECEIPT_ROW_PRICE = 99_999.99;
+
+    private static final int MAX_RECEIPT_ROW_INDEX = 99_999;
+    private static final double MAX_RECEIPT_TOTAL = 999_999_999.99;
 
     private final ProductService productService;
     private final Scanner scanner;
+    private final Clock clock;
+    private final ReceiptRenderCache receiptRenderCache;
 
     /**
      * Constructs a new PrintService with the specified ProductService and Scanner.
@@ -49,15 +68,70 @@ public class PrintService {
      * @param scanner        the scanner used for reading user input
      */
     public PrintService(ProductService productService, Scanner scanner) {
+        this(productService, scanner, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructs a new PrintService whose receipts are priced by the price schedule at the time of the clock.
+     *
+     * @param productService the product service used for managing products
+     * @param scanner        the scanner used for reading user input
+     * @param clock          the clock giving the time of a purchase
+     */
+    public PrintService(ProductService productService, Scanner scanner, Clock clock) {
+        this(productService, scanner, clock, new ReceiptRenderCache(DEFAULT_RECEIPT_CACHE_CAPACITY));
+    }
+
+    /**
+     * Constructs a new PrintService serving repeated receipts from the given cache.
+     *
+     * @param productService     the product service used for managing products
+     * @param scanner            the scanner used for reading user input
+     * @param clock              the clock giving the time of a purchase
+     * @param receiptRenderCache the cache of rendered receipts
+     */
+    public PrintService(ProductService productService,
+                        Scanner scanner,
+                        Clock clock,
+                        ReceiptRenderCache receiptRenderCache) {
         this.productService = productService;
         this.scanner = scanner;
+        this.clock = clock;
+        this.receiptRenderCache = receiptRenderCache;
+    }
+
+    /**
+     * Retrieves the cache of rendered receipts, e.g. to read its hit rate.
+     *
+     * @return the receipt render cache
+     */
+    public ReceiptRenderCache getReceiptRenderCache() {
+        return receiptRenderCache;
+    }
+
+    /**
+     * Constructs a new PrintService that only renders messages and never reads user input.
+     *
+     * @param productService the product service used for managing products
+     */
+    public PrintService(ProductService productService) {
+        this(productService, null);
     }
 
     /**
      * Prints a welcome message and asks the customer for their name.
      */
     public void printHelloMessageAndAskCustomerNameMessage() {
-        System.out.println(HELLO_MESSAGE_AND_ASK_CUSTOMER_NAME_MESSAGE);
+        System.out.print(renderHelloMessageAndAskCustomerNameMessage());
+    }
+
+    /**
+     * Renders a welcome message asking the customer for their name.
+     *
+     * @return the rendered message
+     */
+    public String renderHelloMessageAndAskCustomerNameMessage() {
+        return HELLO_MESSAGE_AND_ASK_CUSTOMER_NAME_MESSAGE;
     }
 
     /**
@@ -66,15 +140,33 @@ public class PrintService {
      * @param customerName the name of the customer
      */
     public void printHelloCustomerMessage(String customerName) {
-        System.out.printf(HELLO_CUSTOMER_NAME_MESSAGE_TEMPLATE, customerName);
+        System.out.print(renderHelloCustomerMessage(customerName));
+    }
+
+    /**
+     * Renders a personalized welcome message for the customer.
+     *
+     * @param customerName the name of the customer
+     * @return the rendered message
+     */
+    public String renderHelloCustomerMessage(String customerName) {
+        return format(MessageTemplates.HELLO_CUSTOMER_NAME_MESSAGE_TEMPLATE, customerName);
     }
 
     /**
      * Prints a message prompting the customer to write their choice or end the selection.
      */
     public void printWriteChoiceOrEnd() {
-        System.out.printf(WRITE_CHOICE_OR_END_TEMPLATE,
-                Constants.END_CUSTOMER_CHOICE_OPTION);
+        System.out.print(renderWriteChoiceOrEnd());
+    }
+
+    /**
+     * Renders a message prompting the customer to write their choice or end the selection.
+     *
+     * @return the rendered message
+     */
+    public String renderWriteChoiceOrEnd() {
+        return format(MessageTemplates.WRITE_CHOICE_OR_END_TEMPLATE, Constants.END_CUSTOMER_CHOICE_OPTION);
     }
 
     /**
@@ -83,16 +175,28 @@ public class PrintService {
      * @param products the collection of products to display
      */
     public void printPossibleProducts(Collection<Product> products) {
+        System.out.print(renderPossibleProducts(products));
+    }
+
+    /**
+     * Renders a list of possible products for the customer to choose from, priced by the price schedule of
+     * the catalog at the current time, as the receipt will charge them.
+     *
+     * @param products the collection of products to display
+     * @return the rendered list
+     */
+    public String renderPossibleProducts(Collection<Product> products) {
         StringBuilder stringBuilder = new StringBuilder();
         int index = 1;
+        LocalDateTime now = LocalDateTime.now(clock);
 
         for (Product product : products) {
             stringBuilder.append(format(
                     "%2d. %-30s | %4.2f " + Constants.CURRENCY_NAME + System.lineSeparator(),
-                    index++, product.getName(), product.getPrice()));
+                    index++, product.getName(), productService.getScheduledPrice(product, now)));
         }
 
-        System.out.println(stringBuilder);
+        return stringBuilder.append(ls()).toString();
     }
 
     /**
@@ -105,23 +209,52 @@ public class PrintService {
     public void printReceipt(List<Product> buyingList,
                              CustomerStampCard stampCard,
                              boolean isEligibleForFreeExtra) {
+        System.out.print(renderReceipt(buyingList, stampCard, isEligibleForFreeExtra));
+    }
+
+    /**
+     * Renders a receipt for the customer's purchase, including any applicable discounts.
+     * <p>
+     * The products are priced by the price schedule of the catalog at the current time, then the buying list
+     * is sorted and the discounts are applied to it, exactly as in
+     * {@link #printReceipt(List, CustomerStampCard, boolean)}.
+     *
+     * @param buyingList             the list of products the customer is buying
+     * @param stampCard              the customer's stamp card
+     * @param isEligibleForFreeExtra whether the customer is eligible for a free extra product
+     * @return the rendered receipt, or an empty string if the buying list is empty
+     */
+    public String renderReceipt(List<Product> buyingList,
+                                CustomerStampCard stampCard,
+                                boolean isEligibleForFreeExtra) {
         if (buyingList.isEmpty()) {
-            return;
+            return "";
         }
 
-        StringBuilder receiptBuilder = new StringBuilder();
-        int index = 1;
-
+        productService.applyPriceSchedule(buyingList, LocalDateTime.now(clock));
         buyingList.sort(Product.getProductTypeAndPriceComparator());
         productService.applyFreeProducts(
                 buyingList,
                 stampCard.getNumberOfFreeBeverages(),
                 isEligibleForFreeExtra);
 
+        return receiptRenderCache.get(ReceiptSignature.of(buyingList), () -> formatReceipt(buyingList));
+    }
+
+    /**
+     * Formats the lines and the total of a receipt.
+     *
+     * @param buyingList the sorted and discounted buying list
+     * @return the rendered receipt
+     */
+    private static String formatReceipt(List<Product> buyingList) {
+        StringBuilder receiptBuilder = new StringBuilder();
+        int index = 1;
+
         for (Product product : buyingList) {
             if (!Constants.NO_EXTRA_NAME.equals(product.getName())) {
                 receiptBuilder.append(format(
-                        RECEIPT_ROW_TEMPLATE,
+                        MessageTemplates.RECEIPT_ROW_TEMPLATE,
                         index++,
                         product.getName(),
                         product.getPrice(),
@@ -130,27 +263,82 @@ public class PrintService {
         }
 
         double finalPrice = buyingList.stream().mapToDouble(Product::getPrice).sum();
-        System.out.printf(RECEIPT_TEMPLATE, receiptBuilder, finalPrice);
+        return format(RECEIPT_TEMPLATE, receiptBuilder, finalPrice);
+    }
+
+    /**
+     * Computes how many rows a receipt can hold without exceeding a length, so that a channel limiting the size of
+     * a message can refuse further products before the order is checked out. Every row is assumed to carry the
+     * longest name of the catalog and a price of at most {@link #MAX_RECEIPT_ROW_PRICE}.
+     *
+     * @param maxReceiptBytes the maximum length of a receipt in UTF-8 bytes
+     * @return the maximum number of rows, zero if not even an empty receipt fits
+     */
+    public int maxReceiptRows(int maxReceiptBytes) {
+        String longestName = "";
+        for (Product product : productService.getProducts()) {
+            if (utf8Length(product.getName()) > utf8Length(longestName)) {
+                longestName = product.getName();
+            }
+        }
+        int rowBytes = utf8Length(format(
+                MessageTemplates.RECEIPT_ROW_TEMPLATE,
+                MAX_RECEIPT_ROW_INDEX,
+                longestName,
+                MAX_RECEIPT_ROW_PRICE,
+                Constants.CURRENCY_NAME));
+        int frameBytes = utf8Length(format(RECEIPT_TEMPLATE, "", MAX_RECEIPT_TOTAL));
+        return Math.max(0, (maxReceiptBytes - frameBytes) / rowBytes);
+    }
+
+    private static int utf8Length(String text) {
+        return text.getBytes(StandardCharsets.UTF_8).length;
     }
 
     /**
      * Prompts the user to confirm if they want to end the program.
-     * If the user types 'exit', the program will terminate.
+     *
+     * @return {@code true} if the user typed 'exit' and the program should terminate; {@code false} otherwise
      */
-    public void affirmateToEndProgram() {
-        System.out.printf("Do you want to end program? If yes print '%s', " +
-                          "if no press ENTER" + ls(), Constants.EXIT_PROGRAM_CHOICE);
+    public boolean affirmateToEndProgram() {
+        System.out.print(renderAffirmationToEndProgram());
         String choice = scanner.nextLine();
-        if (choice.equals(Constants.EXIT_PROGRAM_CHOICE)) {
-            throw new ExitException("End program");
-        }
+        return isExitProgramChoice(choice);
+    }
+
+    /**
+     * Renders the question whether the user wants to end the program.
+     *
+     * @return the rendered message
+     */
+    public String renderAffirmationToEndProgram() {
+        return format(MessageTemplates.AFFIRMATION_TO_END_PROGRAM_TEMPLATE, Constants.EXIT_PROGRAM_CHOICE);
+    }
+
+    /**
+     * Checks if the user's answer requests the end of the program.
+     *
+     * @param choice the answer of the user
+     * @return {@code true} if the answer is equal to the exit option; {@code false} otherwise
+     */
+    public boolean isExitProgramChoice(String choice) {
+        return Constants.EXIT_PROGRAM_CHOICE.equals(choice);
     }
 
     /**
      * Prints a message prompting the customer to choose an additional extra product.
      */
     public void printExtraChoiceMessage() {
-        System.out.printf(EXTRA_CHOICE_MESSAGE_TEMPLATE);
+        System.out.print(renderExtraChoiceMessage());
+    }
+
+    /**
+     * Renders a message prompting the customer to choose an additional extra product.
+     *
+     * @return the rendered message
+     */
+    public String renderExtraChoiceMessage() {
+        return MessageTemplates.EXTRA_CHOICE_MESSAGE_TEMPLATE;
     }
 
     /**
@@ -158,7 +346,9 @@ public class PrintService {
      * <p>
      * This method prompts the user to enter a product choice and attempts to retrieve the corresponding product
      * from the provided list of products. If the input is invalid, the user is prompted to enter a valid
-     * product index or to write 'end' to terminate the selection process.
+     * product index or to write 'end' to terminate the selection process. The input is resolved by
+     * {@link #resolveProductIndex(String, List)}, so products can also be chosen by name and invalid
+     * choices are handled without throwing exceptions.
      *
      * @param <T>           the type of product, which must extend the {@link Product} class
      * @param productChoice the initial product choice made by the user
@@ -169,20 +359,121 @@ public class PrintService {
     public <T extends Product> T getProductFromUserInput(String productChoice,
                                                          List<T> products,
                                                          Scanner scanner) {
-        T choosedProduct = null;
-        while (choosedProduct == null) {
-            try {
-                int productIndex = getCorrectIndex(productChoice);
-                choosedProduct = (T) products.get(productIndex).copy();
-            } catch (IndexOutOfBoundsException | NumberFormatException e) {
-                System.out.println("Invalid choice. Please enter a valid product index or write 'end'");
-                productChoice = scanner.nextLine();
-                if (isCustomerEndHisChoice(productChoice)) {
-                    break;
+        int productIndex = resolveProductIndex(productChoice, products);
+        while (productIndex == ChoiceParser.INVALID_CHOICE) {
+            System.out.print(renderInvalidChoiceMessage());
+            productChoice = scanner.nextLine();
+            productIndex = resolveProductIndex(productChoice, products);
+        }
+        if (productIndex == ChoiceParser.END_OF_CHOICE) {
+            return null;
+        }
+        return (T) products.get(productIndex).copy();
+    }
+
+    /**
+     * Renders the message shown when the chosen product was sold out in the meantime.
+     *
+     * @param name the name of the chosen product
+     * @return the rendered message
+     */
+    public String renderSoldOutMessage(String name) {
+        return format(MessageTemplates.SOLD_OUT_MESSAGE_TEMPLATE, name);
+    }
+
+    /**
+     * Renders the message confirming that a receipt total was charged to a prepaid account.
+     *
+     * @param accountId the id of the prepaid account
+     * @param amount    the charged amount in minor currency units
+     * @param balance   the remaining balance in minor currency units
+     * @return the rendered message
+     */
+    public String renderPrepaidChargedMessage(String accountId, long amount, long balance) {
+        return format(MessageTemplates.PREPAID_CHARGED_MESSAGE_TEMPLATE,
+                amount / 100d, Constants.CURRENCY_NAME, accountId, balance / 100d, Constants.CURRENCY_NAME);
+    }
+
+    /**
+     * Renders the message shown when a prepaid account does not cover a receipt total.
+     *
+     * @param accountId the id of the prepaid account
+     * @param amount    the receipt total in minor currency units
+     * @param balance   the balance in minor currency units
+     * @return the rendered message
+     */
+    public String renderPrepaidInsufficientBalanceMessage(String accountId, long amount, long balance) {
+        return format(MessageTemplates.PREPAID_INSUFFICIENT_BALANCE_MESSAGE_TEMPLATE,
+                accountId, balance / 100d, Constants.CURRENCY_NAME, amount / 100d, Constants.CURRENCY_NAME);
+    }
+
+    /**
+     * Renders the message shown when a product is refused because the order holds the maximum number of lines.
+     *
+     * @param maxOrderLines the maximum number of lines of an order
+     * @return the rendered message
+     */
+    public String renderOrderLineLimitMessage(int maxOrderLines) {
+        return format(MessageTemplates.ORDER_LINE_LIMIT_MESSAGE_TEMPLATE,
+                maxOrderLines, Constants.END_CUSTOMER_CHOICE_OPTION);
+    }
+
+    /**
+     * Renders the message shown when an order is ended again after it was already checked out.
+     *
+     * @return the rendered message
+     */
+    public String renderDuplicateOrderMessage() {
+        return DUPLICATE_ORDER_MESSAGE + ls();
+    }
+
+    /**
+     * Renders the message shown when an idle session is expired and its open order cancelled.
+     *
+     * @return the rendered message
+     */
+    public String renderSessionExpiredMessage() {
+        return SESSION_EXPIRED_MESSAGE + ls();
+    }
+
+    /**
+     * Renders the message shown when the customer's choice cannot be resolved.
+     *
+     * @return the rendered message
+     */
+    public String renderInvalidChoiceMessage() {
+        return INVALID_CHOICE_MESSAGE + ls();
+    }
+
+    /**
+     * Resolves the customer's choice to an index in the list of offered products.
+     * <p>
+     * The choice is parsed as a product number first. A number out of the range of the offered products is
+     * invalid; any other text is looked up as a product name, which succeeds when exactly one of the offered
+     * products matches the typed text.
+     *
+     * @param choice   the choice made by the customer
+     * @param products the list of offered products
+     * @return the index of the chosen product, {@link ChoiceParser#END_OF_CHOICE} or {@link ChoiceParser#INVALID_CHOICE}
+     */
+    public int resolveProductIndex(String choice, List<? extends Product> products) {
+        int productIndex = ChoiceParser.parseChoice(choice, products.size());
+        if (productIndex != ChoiceParser.INVALID_CHOICE || choice == null || choice.isBlank()
+                || ChoiceParser.isNumber(choice)) {
+            return productIndex;
+        }
+
+        int matchedIndex = ChoiceParser.INVALID_CHOICE;
+        for (Product product : productService.findProductsByName(choice)) {
+            int index = products.indexOf(product);
+            if (index >= 0) {
+                if (matchedIndex != ChoiceParser.INVALID_CHOICE) {
+                    return ChoiceParser.INVALID_CHOICE;
                 }
+                matchedIndex = index;
             }
         }
-        return choosedProduct;
+        return matchedIndex;
     }
 
     /**
@@ -223,7 +514,17 @@ public class PrintService {
      * @param name the name of the chosen product
      */
     public void printProductNameForCustomer(String name) {
-        System.out.printf("You chose %s" + ls(), name);
+        System.out.print(renderProductNameForCustomer(name));
+    }
+
+    /**
+     * Renders a message indicating that the user has chosen a product with the given name.
+     *
+     * @param name the name of the chosen product
+     * @return the rendered message
+     */
+    public String renderProductNameForCustomer(String name) {
+        return format("You chose %s" + ls(), name);
     }
 
     /**
@@ -240,4 +541,31 @@ public class PrintService {
     private static String ls() {
         return lineSeparator();
     }
+
+    /**
+     * Message templates, built on first use rather than when the class is loaded, so that showing the first prompt
+     * does not pay for setting up {@link java.util.Formatter}.
+     */
+    private static final class MessageTemplates {
+
+        private static final String HELLO_CUSTOMER_NAME_MESSAGE_TEMPLATE =
+                format("Hello %%s%s", ls());
+        private static final String WRITE_CHOICE_OR_END_TEMPLATE = format(
+                "Write your choice number,%swhen you finish write '%%s'%s",
+                ls(), ls());
+        private static final String EXTRA_CHOICE_MESSAGE_TEMPLATE = format(
+                "You can choose additional extra for your choice%s", ls());
+        private static final String SOLD_OUT_MESSAGE_TEMPLATE = format(
+                "Sorry, %%s is sold out%s", ls());
+        private static final String ORDER_LINE_LIMIT_MESSAGE_TEMPLATE = format(
+                "Sorry, an order holds at most %%d products, write '%%s' to finish it%s", ls());
+        private static final String PREPAID_CHARGED_MESSAGE_TEMPLATE = format(
+                "Charged %%.2f %%s to prepaid account %%s, remaining balance %%.2f %%s%s", ls());
+        private static final String PREPAID_INSUFFICIENT_BALANCE_MESSAGE_TEMPLATE = format(
+                "Prepaid account %%s holds only %%.2f %%s, please pay %%.2f %%s at the till%s", ls());
+        private static final String AFFIRMATION_TO_END_PROGRAM_TEMPLATE = format(
+                "Do you want to end program? If yes print '%%s', if no press ENTER%s", ls());
+        private static final String RECEIPT_ROW_TEMPLATE =
+                format("%%2d. %%2$-30s | %%3$.2f %%4$3s%s", ls());
+    }
 }
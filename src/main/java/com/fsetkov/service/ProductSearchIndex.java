@@ -0,0 +1,180 @@
+package com.fsetkov.service;
+
+import com.fsetkov.models.Product;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trie based search index over product names.
+ * <p>
+ * Every product is indexed under each of its word suffixes, so "orange" finds "Freshly squeezed orange juice".
+ * Each node keeps the products of its whole subtree, which makes a prefix lookup proportional to the length of
+ * the typed input. Products can be added and removed one by one, so the index never has to be rebuilt when the
+ * catalog changes.
+ *
+ * @param <T> the type of indexed products
+ */
+public class ProductSearchIndex<T extends Product> {
+
+    private final Node<T> root = new Node<>();
+
+    /**
+     * Constructs a new empty ProductSearchIndex.
+     */
+    public ProductSearchIndex() {
+    }
+
+    /**
+     * Constructs a new ProductSearchIndex containing the given products.
+     *
+     * @param products the products to index
+     */
+    public ProductSearchIndex(Collection<? extends T> products) {
+        products.forEach(this::add);
+    }
+
+    /**
+     * Adds a product to the index.
+     *
+     * @param product the product to add
+     */
+    public void add(T product) {
+        String name = normalize(product.getName());
+        for (int start = 0; start < name.length(); start = nextWordStart(name, start)) {
+            Node<T> node = root;
+            node.products.add(product);
+            for (int i = start; i < name.length(); i++) {
+                node = node.children.computeIfAbsent(name.charAt(i), c -> new Node<>());
+                node.products.add(product);
+                if (i + 1 == name.length() || name.charAt(i + 1) == ' ') {
+                    node.terminalProducts.add(product);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a product from the index. Nodes that are no longer used are pruned.
+     *
+     * @param product the product to remove
+     */
+    public void remove(T product) {
+        String name = normalize(product.getName());
+        for (int start = 0; start < name.length(); start = nextWordStart(name, start)) {
+            root.products.remove(product);
+            remove(root, name, start, product);
+        }
+    }
+
+    /**
+     * Finds all products having a word sequence that starts with the given prefix.
+     * <p>
+     * The lookup walks the trie once, so it takes time proportional to the length of the prefix.
+     * The returned collection is a read-only view that reflects later changes of the index.
+     *
+     * @param prefix the typed prefix, compared case-insensitively
+     * @return the matching products in insertion order
+     */
+    public Collection<T> findByPrefix(String prefix) {
+        Node<T> node = root;
+        String normalized = normalize(prefix);
+        for (int i = 0; i < normalized.length() && node != null; i++) {
+            node = node.children.get(normalized.charAt(i));
+        }
+        return node == null ? Set.of() : Collections.unmodifiableSet(node.products);
+    }
+
+    /**
+     * Finds all products having a word or word sequence within the given edit distance of the term.
+     *
+     * @param term        the typed term, compared case-insensitively
+     * @param maxDistance the maximal Levenshtein distance between the term and a matching word sequence
+     * @return the matching products in insertion order
+     */
+    public Collection<T> findFuzzy(String term, int maxDistance) {
+        String normalized = normalize(term);
+        int[] firstRow = new int[normalized.length() + 1];
+        for (int i = 0; i < firstRow.length; i++) {
+            firstRow[i] = i;
+        }
+
+        Set<T> result = new LinkedHashSet<>();
+        for (Map.Entry<Character, Node<T>> child : root.children.entrySet()) {
+            collectFuzzy(child.getValue(), child.getKey(), normalized, firstRow, maxDistance, result);
+        }
+        return result;
+    }
+
+    /**
+     * Finds products by prefix and falls back to fuzzy matching when no name starts with the input.
+     *
+     * @param input       the typed input
+     * @param maxDistance the maximal edit distance for the fuzzy fallback
+     * @return the matching products
+     */
+    public Collection<T> search(String input, int maxDistance) {
+        Collection<T> byPrefix = findByPrefix(input);
+        return byPrefix.isEmpty() ? findFuzzy(input, maxDistance) : byPrefix;
+    }
+
+    private void collectFuzzy(Node<T> node,
+                              char letter,
+                              String term,
+                              int[] previousRow,
+                              int maxDistance,
+                              Set<T> result) {
+        int[] row = new int[previousRow.length];
+        row[0] = previousRow[0] + 1;
+        int rowMinimum = row[0];
+        for (int i = 1; i < row.length; i++) {
+            int substitutionCost = term.charAt(i - 1) == letter ? 0 : 1;
+            row[i] = Math.min(Math.min(row[i - 1] + 1, previousRow[i] + 1), previousRow[i - 1] + substitutionCost);
+            rowMinimum = Math.min(rowMinimum, row[i]);
+        }
+
+        if (row[row.length - 1] <= maxDistance) {
+            result.addAll(node.terminalProducts);
+        }
+        if (rowMinimum <= maxDistance) {
+            for (Map.Entry<Character, Node<T>> child : node.children.entrySet()) {
+                collectFuzzy(child.getValue(), child.getKey(), term, row, maxDistance, result);
+            }
+        }
+    }
+
+    private static <T> boolean remove(Node<T> node, String name, int position, T product) {
+        if (position < name.length()) {
+            char letter = name.charAt(position);
+            Node<T> child = node.children.get(letter);
+            if (child != null) {
+                child.products.remove(product);
+                child.terminalProducts.remove(product);
+                if (remove(child, name, position + 1, product)) {
+                    node.children.remove(letter);
+                }
+            }
+        }
+        return node.products.isEmpty() && node.children.isEmpty();
+    }
+
+    private static int nextWordStart(String name, int start) {
+        int space = name.indexOf(' ', start);
+        return space < 0 ? name.length() : space + 1;
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Node<T> {
+        private final Map<Character, Node<T>> children = new HashMap<>();
+        private final Set<T> products = new LinkedHashSet<>();
+        private final Set<T> terminalProducts = new LinkedHashSet<>();
+    }
+}
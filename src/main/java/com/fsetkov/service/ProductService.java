@@ -2,29 +2,61 @@ package com.fsetkov.service;
 
 import com.fsetkov.models.*;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.function.Predicate;
 
 import static com.fsetkov.util.Constants.NO_EXTRA_NAME;
 
 /**
  * Service class for managing products in the coffee shop application.
- * This class provides methods to initialize and retrieve products.
+ * This class provides methods to initialize and retrieve products. The name search index and the price schedule
+ * of the catalog are built on first use, so creating the service at startup only creates the catalog. Both are
+ * immutable once published: a catalog or price rule change builds a new index and drops the schedule while holding
+ * the lock of the service, and lookups read the published versions without locking.
  */
 public class ProductService {
 
+    /**
+     * Maximal edit distance used when a typed product name does not match any name prefix.
+     */
+    public static final int MAX_NAME_SEARCH_DISTANCE = 2;
+
+    /**
+     * Shortest typed name matched with edits; shorter names must match a name prefix or a whole word exactly,
+     * as a single edit would turn e.g. "on" or "x" into "no".
+     */
+    public static final int MIN_FUZZY_NAME_LENGTH = 4;
+
     private final List<Product> products;
+    private volatile ProductSearchIndex<Product> productSearchIndex;
+    private final InventoryService inventoryService;
+    private List<PriceRule> priceRules = List.of();
+    private volatile PriceSchedule priceSchedule;
 
     /**
      * Constructs a new ProductService and initializes the list of products.
      */
     public ProductService() {
-        this.products = initProducts();
+        this(initProducts());
     }
 
     public ProductService(List<Product> products) {
+        this(products, new InventoryService());
+    }
+
+    /**
+     * Constructs a new ProductService whose menus hide the products sold out in the given inventory.
+     *
+     * @param products         the catalog
+     * @param inventoryService the inventory tracking the stock of the products
+     */
+    public ProductService(List<Product> products, InventoryService inventoryService) {
         this.products = products;
+        this.inventoryService = inventoryService;
     }
 
     /**
@@ -36,6 +68,152 @@ public class ProductService {
         return products;
     }
 
+    /**
+     * Retrieves the inventory tracking the stock of the products.
+     *
+     * @return the inventory service
+     */
+    public InventoryService getInventoryService() {
+        return inventoryService;
+    }
+
+    /**
+     * Adds a product to the catalog and publishes a name search index containing it.
+     *
+     * @param product the product to add
+     */
+    public synchronized void addProduct(Product product) {
+        products.add(product);
+        onCatalogChanged();
+    }
+
+    /**
+     * Removes a product from the catalog and publishes a name search index without it.
+     *
+     * @param product the product to remove
+     */
+    public synchronized void removeProduct(Product product) {
+        if (products.remove(product)) {
+            onCatalogChanged();
+        }
+    }
+
+    /**
+     * Replaces the happy-hour and time-of-day price rules and compiles them into a new {@link PriceSchedule}.
+     *
+     * @param priceRules the price rules of the catalog
+     */
+    public synchronized void setPriceRules(List<PriceRule> priceRules) {
+        this.priceRules = List.copyOf(priceRules);
+        this.priceSchedule = PriceSchedule.compile(products, this.priceRules);
+    }
+
+    /**
+     * Retrieves the compiled price schedule of the catalog. A missing schedule is compiled while holding the lock
+     * of the service, so a compile never races a catalog or price rule change and publishes a stale schedule.
+     *
+     * @return the price schedule
+     */
+    public PriceSchedule getPriceSchedule() {
+        PriceSchedule schedule = priceSchedule;
+        if (schedule == null) {
+            synchronized (this) {
+                schedule = priceSchedule;
+                if (schedule == null) {
+                    schedule = PriceSchedule.compile(products, priceRules);
+                    priceSchedule = schedule;
+                }
+            }
+        }
+        return schedule;
+    }
+
+    /**
+     * Replaces every product in the buying list whose scheduled price at the given time differs from its price
+     * by a copy carrying the scheduled price; the replaced products are left unchanged.
+     *
+     * @param buyingList the list of products the customer is buying
+     * @param time       the time of the purchase
+     */
+    public void applyPriceSchedule(List<Product> buyingList, LocalDateTime time) {
+        PriceSchedule schedule = getPriceSchedule();
+        int minuteOfWeek = PriceSchedule.minuteOfWeek(time);
+        for (ListIterator<Product> iterator = buyingList.listIterator(); iterator.hasNext(); ) {
+            Product product = iterator.next();
+            long scheduledPrice = schedule.getPrice(product, minuteOfWeek);
+            if (scheduledPrice != PricingService.toMinorUnits(product.getPrice())) {
+                iterator.set(product.copyWithPrice(scheduledPrice / 100d));
+            }
+        }
+    }
+
+    /**
+     * Retrieves the price of a product scheduled at the given time, as shown on the menu and charged on
+     * the receipt.
+     *
+     * @param product the product
+     * @param time    the time
+     * @return the scheduled price
+     */
+    public double getScheduledPrice(Product product, LocalDateTime time) {
+        return getPriceSchedule().getPrice(product, PriceSchedule.minuteOfWeek(time)) / 100d;
+    }
+
+    /**
+     * Finds catalog products by a typed name, e.g. "med" or "orange".
+     * <p>
+     * Names starting with the typed text are preferred; when there is none, names within
+     * {@link #maxNameSearchDistance(String)} edits of the typed text are returned.
+     *
+     * @param name the typed name
+     * @return the matching catalog products
+     */
+    public Collection<Product> findProductsByName(String name) {
+        return productSearchIndex().search(name, maxNameSearchDistance(name));
+    }
+
+    /**
+     * Computes the edit distance allowed for a typed name: none below {@link #MIN_FUZZY_NAME_LENGTH} characters,
+     * then one edit per three characters up to {@link #MAX_NAME_SEARCH_DISTANCE}.
+     *
+     * @param name the typed name
+     * @return the maximal edit distance between the typed name and a matching product name
+     */
+    public static int maxNameSearchDistance(String name) {
+        int length = name.strip().length();
+        return length < MIN_FUZZY_NAME_LENGTH ? 0 : Math.min(MAX_NAME_SEARCH_DISTANCE, length / 3);
+    }
+
+    /**
+     * Retrieves the name search index, building it on the first name search.
+     *
+     * @return the name search index of the catalog
+     */
+    private ProductSearchIndex<Product> productSearchIndex() {
+        ProductSearchIndex<Product> index = productSearchIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = productSearchIndex;
+                if (index == null) {
+                    index = new ProductSearchIndex<>(products);
+                    productSearchIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Publishes a new name search index, if one was built, and drops the price schedule after a catalog change.
+     * Must be called while holding the lock of the service.
+     */
+    private void onCatalogChanged() {
+        if (productSearchIndex != null) {
+            productSearchIndex = new ProductSearchIndex<>(products);
+        }
+        priceSchedule = null;
+    }
+
     /**
      * Makes the first product in the buying list that matches the given predicate free.
      *
@@ -49,14 +227,18 @@ public class ProductService {
 
     /**
      * Retrieves a sublist of products that match the given predicate.
+     * Sold-out products are left out; the stock check takes constant time per product.
      *
      * @param products         the list of products to filter
      * @param productPredicate the predicate to match the products
-     * @return the sublist of products that match the predicate
+     * @return the sublist of available products that match the predicate
      */
     public List<Product> getSublistByProductTypePredicate(List<Product> products,
                                                           Predicate<Product> productPredicate) {
-        return products.stream().filter(productPredicate).toList();
+        return products.stream()
+                .filter(productPredicate)
+                .filter(inventoryService::isAvailable)
+                .toList();
     }
 
     /**
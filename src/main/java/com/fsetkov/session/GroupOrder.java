@@ -0,0 +1,161 @@
+package com.fsetkov.session;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.Product;
+import com.fsetkov.service.CustomerService;
+import com.fsetkov.service.InventoryService;
+import com.fsetkov.service.OrderIdempotencyGuard;
+import com.fsetkov.service.PrintService;
+import com.fsetkov.service.ProductService;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Order of a group of named customers placed in one session, e.g. an office ordering together.
+ * <p>
+ * Every member keeps their own loyalty card and has an order id of their own. At checkout the bill is split: every
+ * member is checked out in parallel by the {@link OrderCheckout} shared with the sessions, exactly as if each member
+ * had ordered in a session of their own, so the member's card is stamped, the order completed listeners are
+ * notified and a separate receipt is rendered per member. A group order is filled by one thread; only the
+ * checkout runs in parallel.
+ * <p>
+ * Every added product is reserved in the {@link InventoryService} of the catalog and refused if it is sold out.
+ * The reservations of a member are committed by the checkout of the member and released if the group order is
+ * cancelled or, with an {@link OrderIdempotencyGuard}, if the member's order id was already checked out.
+ */
+public class GroupOrder {
+
+    private final CustomerService customerService;
+    private final InventoryService inventoryService;
+    private final OrderCheckout orderCheckout;
+    private final Map<String, MemberOrder> memberOrders = new LinkedHashMap<>();
+
+    /**
+     * Constructs a new empty GroupOrder.
+     *
+     * @param customerService the customer service providing the loyalty cards of the members
+     * @param productService  the product service whose inventory holds the reservations
+     * @param printService    the print service used to render the receipts
+     */
+    public GroupOrder(CustomerService customerService, ProductService productService, PrintService printService) {
+        this.customerService = customerService;
+        this.inventoryService = productService.getInventoryService();
+        this.orderCheckout = new OrderCheckout(inventoryService, printService);
+    }
+
+    /**
+     * Sets the guard checking out every order id only once, shared by all sessions and connections of the shop.
+     *
+     * @param idempotencyGuard the guard detecting orders ended again
+     */
+    public void setIdempotencyGuard(OrderIdempotencyGuard idempotencyGuard) {
+        orderCheckout.setIdempotencyGuard(idempotencyGuard);
+    }
+
+    /**
+     * Registers a listener notified for every member checked out with a non-empty order. The listener may be
+     * notified from several threads at once.
+     *
+     * @param listener the listener to register
+     */
+    public void addOrderCompletedListener(OrderCompletedListener listener) {
+        orderCheckout.addOrderCompletedListener(listener);
+    }
+
+    /**
+     * Reserves a product and adds it to the order of a member. The member joins the group with their first
+     * product.
+     *
+     * @param customerName the name of the member
+     * @param product      the ordered product; a copy is stored
+     * @return {@code true} if the product was reserved and added; {@code false} if it is sold out
+     */
+    public boolean addProduct(String customerName, Product product) {
+        Product orderedProduct = product.copy();
+        if (!inventoryService.reserve(orderedProduct)) {
+            return false;
+        }
+        memberOrders.computeIfAbsent(
+                        customerName,
+                        name -> new MemberOrder(customerService.getCustomerByUsername(name)))
+                .products.add(orderedProduct);
+        return true;
+    }
+
+    /**
+     * Cancels the group order, releasing the reserved products of all members.
+     */
+    public void cancel() {
+        memberOrders.values().forEach(memberOrder -> memberOrder.products.forEach(inventoryService::release));
+        memberOrders.clear();
+    }
+
+    /**
+     * Retrieves the names of the members in the order they joined the group.
+     *
+     * @return the names of the members
+     */
+    public List<String> getCustomerNames() {
+        return List.copyOf(memberOrders.keySet());
+    }
+
+    /**
+     * Retrieves the order id of a member.
+     *
+     * @param customerName the name of the member
+     * @return the order id, or {@code null} if the customer is not a member of the group
+     */
+    public String getOrderId(String customerName) {
+        MemberOrder memberOrder = memberOrders.get(customerName);
+        return memberOrder != null ? memberOrder.orderId : null;
+    }
+
+    /**
+     * Checks out the group on the common fork/join pool.
+     *
+     * @return the receipt of every member, keyed by the member's name in the order they joined the group
+     */
+    public Map<String, String> checkout() {
+        return checkout(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Checks out the group, splitting the bill per member in parallel on the given executor.
+     *
+     * @param executor the executor computing the members' bills
+     * @return the receipt of every member, keyed by the member's name in the order they joined the group; a member
+     * whose order id was already checked out has no receipt
+     */
+    public Map<String, String> checkout(Executor executor) {
+        Map<String, CompletableFuture<Optional<String>>> receipts = new LinkedHashMap<>();
+        memberOrders.forEach((customerName, memberOrder) -> receipts.put(
+                customerName,
+                CompletableFuture.supplyAsync(
+                        () -> orderCheckout.checkout(memberOrder.orderId, memberOrder.customer, memberOrder.products),
+                        executor)));
+
+        Map<String, String> result = new LinkedHashMap<>();
+        receipts.forEach((customerName, receipt) ->
+                receipt.join().ifPresent(memberReceipt -> result.put(customerName, memberReceipt)));
+        memberOrders.clear();
+        return result;
+    }
+
+    private static final class MemberOrder {
+        private final String orderId = UUID.randomUUID().toString();
+        private final Customer customer;
+        private final List<Product> products = new ArrayList<>();
+
+        private MemberOrder(Customer customer) {
+            this.customer = customer;
+        }
+    }
+}
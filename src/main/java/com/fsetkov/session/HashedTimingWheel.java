@@ -0,0 +1,239 @@
+package com.fsetkov.session;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel running delayed tasks with a resolution of one tick.
+ * <p>
+ * The wheel is an array of buckets, one per tick; a task is linked into the bucket of its deadline tick modulo
+ * the wheel size, so scheduling and cancelling are O(1) however many timeouts are pending, and advancing by one
+ * tick only visits a single bucket. Deadlines further away than one revolution share the bucket with nearer
+ * ones and are skipped until their round comes. Thousands of idle timers thus cost one node each rather than a
+ * heap operation of a {@link java.util.concurrent.ScheduledExecutorService} or a thread per session.
+ * <p>
+ * The wheel is advanced either by calling {@link #advance()} or by the ticker thread started with
+ * {@link #start()}. The expired tasks run on the advancing thread, outside the lock of the wheel, so a task may
+ * schedule or cancel other timeouts. The wheel is thread-safe.
+ */
+public class HashedTimingWheel implements AutoCloseable {
+
+    private final Clock clock;
+    private final long tickMillis;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final long startMillis;
+
+    private long currentTick;
+    private int pendingCount;
+    private Thread ticker;
+
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new HashedTimingWheel.
+     *
+     * @param tickDuration  the duration of one tick, i.e. the resolution of the timeouts
+     * @param ticksPerWheel the number of buckets, rounded up to a power of two
+     * @param clock         the clock measuring the time
+     */
+    public HashedTimingWheel(Duration tickDuration, int ticksPerWheel, Clock clock) {
+        if (tickDuration.toMillis() <= 0) {
+            throw new IllegalArgumentException("Tick duration must be at least one millisecond");
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+            throw new IllegalArgumentException("Ticks per wheel must be between 1 and 2^30");
+        }
+        this.clock = clock;
+        this.tickMillis = tickDuration.toMillis();
+        this.buckets = new Timeout[ticksPerWheel <= 2 ? 2 : Integer.highestOneBit(ticksPerWheel - 1) << 1];
+        this.mask = buckets.length - 1;
+        this.startMillis = clock.millis();
+    }
+
+    /**
+     * Schedules a task to run once the delay has elapsed. The task runs on the first tick at or after its
+     * deadline, i.e. at most one tick late.
+     *
+     * @param task  the task to run
+     * @param delay the delay
+     * @return the handle cancelling the task
+     */
+    public Timeout schedule(Runnable task, Duration delay) {
+        if (!running) {
+            throw new IllegalStateException("Timing wheel is closed");
+        }
+        long deadlineMillis = clock.millis() + delay.toMillis() - startMillis;
+        long deadlineTick = (deadlineMillis + tickMillis - 1) / tickMillis;
+
+        Timeout timeout = new Timeout(task);
+        synchronized (this) {
+            timeout.deadlineTick = Math.max(deadlineTick, currentTick + 1);
+            link(timeout);
+        }
+        return timeout;
+    }
+
+    /**
+     * Advances the wheel to the current time of the clock and runs every task whose deadline has passed.
+     *
+     * @return the number of tasks run
+     */
+    public int advance() {
+        long targetTick = (clock.millis() - startMillis) / tickMillis;
+        List<Timeout> expired = null;
+
+        synchronized (this) {
+            if (targetTick <= currentTick) {
+                return 0;
+            }
+            long visitedBuckets = Math.min(targetTick - currentTick, buckets.length);
+            for (long tick = currentTick + 1; tick <= currentTick + visitedBuckets; tick++) {
+                Timeout timeout = buckets[(int) (tick & mask)];
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    if (timeout.deadlineTick <= targetTick) {
+                        unlink(timeout);
+                        timeout.isExpired = true;
+                        if (expired == null) {
+                            expired = new ArrayList<>();
+                        }
+                        expired.add(timeout);
+                    }
+                    timeout = next;
+                }
+            }
+            currentTick = targetTick;
+        }
+
+        if (expired == null) {
+            return 0;
+        }
+        for (Timeout timeout : expired) {
+            timeout.task.run();
+        }
+        return expired.size();
+    }
+
+    /**
+     * Starts a daemon thread advancing the wheel once per tick.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            throw new IllegalStateException("Timing wheel is already started");
+        }
+        ticker = new Thread(this::runTicker, "timing-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /**
+     * Retrieves the number of scheduled tasks that have neither run nor been cancelled.
+     *
+     * @return the number of pending timeouts
+     */
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Stops the ticker thread, if started. The pending tasks are discarded without running.
+     */
+    @Override
+    public void close() {
+        running = false;
+        Thread thread;
+        synchronized (this) {
+            thread = ticker;
+        }
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void runTicker() {
+        while (running) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(tickMillis));
+            advance();
+        }
+    }
+
+    private synchronized boolean cancel(Timeout timeout) {
+        if (timeout.isExpired || timeout.isCancelled) {
+            return false;
+        }
+        timeout.isCancelled = true;
+        unlink(timeout);
+        return true;
+    }
+
+    private void link(Timeout timeout) {
+        int bucket = (int) (timeout.deadlineTick & mask);
+        Timeout head = buckets[bucket];
+        timeout.next = head;
+        if (head != null) {
+            head.previous = timeout;
+        }
+        buckets[bucket] = timeout;
+        pendingCount++;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            buckets[(int) (timeout.deadlineTick & mask)] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+        pendingCount--;
+    }
+
+    /**
+     * Handle of a scheduled task, linked into the bucket of its deadline tick.
+     */
+    public final class Timeout {
+
+        private final Runnable task;
+        private long deadlineTick;
+        private Timeout previous;
+        private Timeout next;
+        private boolean isExpired;
+        private boolean isCancelled;
+
+        private Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * Cancels the task unless it has already run.
+         *
+         * @return {@code true} if the task was cancelled; {@code false} if it has already run or been cancelled
+         */
+        public boolean cancel() {
+            return HashedTimingWheel.this.cancel(this);
+        }
+
+        /**
+         * Checks whether the deadline of the task has passed and the task was handed over to run.
+         *
+         * @return {@code true} if the task has expired; {@code false} otherwise
+         */
+        public boolean isExpired() {
+            synchronized (HashedTimingWheel.this) {
+                return isExpired;
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.fsetkov.session;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.ProductType;
+import com.fsetkov.service.InventoryService;
+import com.fsetkov.service.OrderIdempotencyGuard;
+import com.fsetkov.service.PricingService;
+import com.fsetkov.service.PrintService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Checkout of an ended order, shared by the {@link OrderSession} dialog, the {@link GroupOrder} and the
+ * {@link com.fsetkov.protocol.WireOrderHandler}.
+ * <p>
+ * A checkout stamps the ordered beverages on the customer's card, commits the reserved products, renders the
+ * receipt and notifies the order completed listeners if the receipt is not empty. The stamps and the free extra
+ * follow {@link PricingService#stampOrder}, the same rule as the arithmetic checkout of a
+ * {@link com.fsetkov.models.QuantityOrder}. With an {@link OrderIdempotencyGuard}, every order id is checked out
+ * only once; an order ended again with the same id releases its reservations instead.
+ * <p>
+ * A checkout is configured by one thread before its first order; every session or connection has its own. The
+ * orders of a {@link GroupOrder} are checked out by one checkout from several threads, which is safe as long as
+ * the listeners are.
+ */
+public class OrderCheckout {
+
+    private final InventoryService inventoryService;
+    private final PrintService printService;
+    private final List<OrderCompletedListener> orderCompletedListeners = new ArrayList<>();
+    private OrderIdempotencyGuard idempotencyGuard;
+
+    /**
+     * Constructs a new OrderCheckout.
+     *
+     * @param inventoryService the inventory holding the reservations of the orders
+     * @param printService     the print service used to render the receipts
+     */
+    public OrderCheckout(InventoryService inventoryService, PrintService printService) {
+        this.inventoryService = inventoryService;
+        this.printService = printService;
+    }
+
+    /**
+     * Sets the guard checking out every order id only once, shared by all sessions and connections of the shop.
+     *
+     * @param idempotencyGuard the guard detecting orders ended again, or {@code null} to check out every order
+     */
+    public void setIdempotencyGuard(OrderIdempotencyGuard idempotencyGuard) {
+        this.idempotencyGuard = idempotencyGuard;
+    }
+
+    /**
+     * Registers a listener notified whenever a non-empty order is checked out.
+     *
+     * @param listener the listener to register
+     */
+    public void addOrderCompletedListener(OrderCompletedListener listener) {
+        orderCompletedListeners.add(listener);
+    }
+
+    /**
+     * Checks out an order, unless an order with the same id was checked out before.
+     *
+     * @param orderId         the id of the order
+     * @param customer        the customer who placed the order
+     * @param orderedProducts the reserved products of the order
+     * @return the rendered receipt, which is empty for an empty order, or an empty optional if the order is a
+     * duplicate and its reservations were released
+     */
+    public Optional<String> checkout(String orderId, Customer customer, List<Product> orderedProducts) {
+        if (idempotencyGuard != null && !idempotencyGuard.tryAccept(orderId)) {
+            orderedProducts.forEach(inventoryService::release);
+            return Optional.empty();
+        }
+
+        long beverages = 0;
+        long snacks = 0;
+        for (Product product : orderedProducts) {
+            if (product.getProductType() == ProductType.BEVERAGE) {
+                beverages++;
+            } else if (product.getProductType() == ProductType.SNACK) {
+                snacks++;
+            }
+            inventoryService.commit(product);
+        }
+        boolean isEligibleForFreeExtra = PricingService.stampOrder(customer.getCustomerStampCard(), beverages, snacks);
+
+        String receipt = printService.renderReceipt(
+                orderedProducts,
+                customer.getCustomerStampCard(),
+                isEligibleForFreeExtra);
+        if (!receipt.isEmpty()) {
+            List<Product> completedProducts = List.copyOf(orderedProducts);
+            for (OrderCompletedListener listener : orderCompletedListeners) {
+                listener.onOrderCompleted(customer, completedProducts);
+            }
+        }
+        return Optional.of(receipt);
+    }
+}
@@ -0,0 +1,22 @@
+package com.fsetkov.session;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.Product;
+
+import java.util.List;
+
+/**
+ * Listener notified by the {@link OrderCheckout} of an {@link OrderSession} or a till connection when a customer
+ * ends a non-empty order.
+ */
+@FunctionalInterface
+public interface OrderCompletedListener {
+
+    /**
+     * Called after the receipt of the order was rendered.
+     *
+     * @param customer        the customer who placed the order
+     * @param orderedProducts the ordered products, including the chosen extras
+     */
+    void onOrderCompleted(Customer customer, List<Product> orderedProducts);
+}
@@ -0,0 +1,409 @@
+package com.fsetkov.session;
+
+import com.fsetkov.eventlog.EventLog;
+import com.fsetkov.eventlog.EventType;
+import com.fsetkov.models.CoffeeProduct;
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.PrepaidAccount;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.ProductType;
+import com.fsetkov.service.CustomerService;
+import com.fsetkov.service.InventoryService;
+import com.fsetkov.service.OrderIdempotencyGuard;
+import com.fsetkov.service.PricingService;
+import com.fsetkov.service.PrintService;
+import com.fsetkov.service.ProductService;
+import com.fsetkov.util.ChoiceParser;
+import com.fsetkov.util.Hashing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Event driven ordering dialog of one till or kiosk.
+ * <p>
+ * The session is a state machine: every line typed by the customer is passed to {@link #onInput(String)},
+ * which updates the order and emits the answer to the output consumer without ever waiting for input.
+ * One thread can therefore drive any number of sessions. A session itself is not thread-safe and must be
+ * used by one thread at a time.
+ * <p>
+ * Every chosen product is reserved in the {@link InventoryService} of the catalog. The reservations are
+ * committed when the order ends and released when it is cancelled. If the customer holds a
+ * {@link PrepaidAccount}, the receipt total is charged to it when the order ends. An order holds at most
+ * {@link #setMaxOrderLines(int) a maximum number} of products, so that a runaway terminal cannot reserve the whole
+ * stock or grow the order without bound.
+ * <p>
+ * Every order gets an id when the customer gives their name and is checked out by an {@link OrderCheckout}. With an
+ * {@link OrderIdempotencyGuard}, an order whose id was already checked out is not stamped, committed or charged
+ * again; its reservations are released.
+ */
+public class OrderSession {
+
+    /**
+     * Default maximum number of products of one order.
+     */
+    public static final int DEFAULT_MAX_ORDER_LINES = 100;
+
+    private static final AtomicLong SESSION_IDS = new AtomicLong();
+
+    /**
+     * States of the ordering dialog.
+     */
+    public enum State {
+        AWAITING_CUSTOMER_NAME,
+        AWAITING_PRODUCT,
+        AWAITING_EXTRA,
+        AWAITING_EXIT_CONFIRMATION,
+        EXITED
+    }
+
+    private final CustomerService customerService;
+    private final ProductService productService;
+    private final InventoryService inventoryService;
+    private final PrintService printService;
+    private final Consumer<String> output;
+    private final Consumer<String> receiptOutput;
+    private final OrderCheckout orderCheckout;
+    private final long sessionId = SESSION_IDS.incrementAndGet();
+    private EventLog eventLog = EventLog.NONE;
+    private int maxOrderLines = DEFAULT_MAX_ORDER_LINES;
+
+    private State state = State.AWAITING_CUSTOMER_NAME;
+    private Customer customer;
+    private String orderId;
+    private List<Product> customerOrderList;
+    private List<Product> offeredProducts;
+
+    /**
+     * Constructs a new OrderSession.
+     *
+     * @param customerService the customer service used to look up the customers
+     * @param productService  the product service providing the catalog
+     * @param printService    the print service used to render the messages
+     * @param output          the consumer receiving everything the session emits
+     */
+    public OrderSession(CustomerService customerService,
+                        ProductService productService,
+                        PrintService printService,
+                        Consumer<String> output) {
+        this(customerService, productService, printService, output, output);
+    }
+
+    /**
+     * Constructs a new OrderSession delivering the rendered receipts separately from the dialog,
+     * e.g. to an {@link com.fsetkov.receipt.AsyncReceiptPrinter}.
+     *
+     * @param customerService the customer service used to look up the customers
+     * @param productService  the product service providing the catalog
+     * @param printService    the print service used to render the messages
+     * @param output          the consumer receiving the dialog messages
+     * @param receiptOutput   the consumer receiving the rendered receipts
+     */
+    public OrderSession(CustomerService customerService,
+                        ProductService productService,
+                        PrintService printService,
+                        Consumer<String> output,
+                        Consumer<String> receiptOutput) {
+        this.customerService = customerService;
+        this.productService = productService;
+        this.inventoryService = productService.getInventoryService();
+        this.printService = printService;
+        this.output = output;
+        this.receiptOutput = receiptOutput;
+        this.orderCheckout = new OrderCheckout(inventoryService, printService);
+    }
+
+    /**
+     * Starts the session by greeting and asking for the customer's name.
+     */
+    public void start() {
+        eventLog.log(EventType.SESSION_STARTED, sessionId, 0);
+        output.accept(printService.renderHelloMessageAndAskCustomerNameMessage());
+    }
+
+    /**
+     * Sets the log receiving the structured events of the session: its start, the customers, the added items,
+     * the invalid inputs, the receipts, the cancelled orders and the exit.
+     *
+     * @param eventLog the event log
+     */
+    public void setEventLog(EventLog eventLog) {
+        this.eventLog = eventLog;
+    }
+
+    /**
+     * Sets the guard checking out every order id only once, shared by all sessions of the shop.
+     *
+     * @param idempotencyGuard the guard detecting orders ended again
+     */
+    public void setIdempotencyGuard(OrderIdempotencyGuard idempotencyGuard) {
+        orderCheckout.setIdempotencyGuard(idempotencyGuard);
+    }
+
+    /**
+     * Sets the maximum number of products of one order; further products are refused until the order ends.
+     *
+     * @param maxOrderLines the maximum number of products
+     */
+    public void setMaxOrderLines(int maxOrderLines) {
+        if (maxOrderLines <= 0) {
+            throw new IllegalArgumentException("Maximum order lines must be positive");
+        }
+        this.maxOrderLines = maxOrderLines;
+    }
+
+    /**
+     * Retrieves the id identifying the session in the event log.
+     *
+     * @return the session id
+     */
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Retrieves the id of the open order.
+     *
+     * @return the order id, or {@code null} if no order is open
+     */
+    public String getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Registers a listener notified whenever a customer ends a non-empty order,
+     * e.g. a {@link com.fsetkov.preparation.TicketDispatcher} creating the preparation tickets.
+     *
+     * @param listener the listener to register
+     */
+    public void addOrderCompletedListener(OrderCompletedListener listener) {
+        orderCheckout.addOrderCompletedListener(listener);
+    }
+
+    /**
+     * Handles one line of input and emits the answer.
+     *
+     * @param input the line typed by the customer
+     * @return the state of the session after handling the input
+     */
+    public State onInput(String input) {
+        switch (state) {
+            case AWAITING_CUSTOMER_NAME -> onCustomerNamed(input);
+            case AWAITING_PRODUCT -> onProductChosen(input);
+            case AWAITING_EXTRA -> onExtraChosen(input);
+            case AWAITING_EXIT_CONFIRMATION -> onExitConfirmation(input);
+            case EXITED -> {
+                // Input after the exit is ignored
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Cancels the open order, if any: releases the reserved products and waits for the next customer
+     * without printing a receipt.
+     */
+    public void cancelOrder() {
+        if (customerOrderList == null) {
+            return;
+        }
+        customerOrderList.forEach(inventoryService::release);
+        eventLog.log(EventType.ORDER_CANCELLED, sessionId, customerOrderList.size());
+        customer = null;
+        orderId = null;
+        customerOrderList = null;
+        offeredProducts = null;
+        state = State.AWAITING_CUSTOMER_NAME;
+    }
+
+    /**
+     * Expires the idle session: cancels the open order, if any, releasing the reserved products, and ends
+     * the session. Input after the expiry is ignored.
+     *
+     * @return the number of released products
+     */
+    public int expire() {
+        int releasedProducts = 0;
+        if (customerOrderList != null) {
+            releasedProducts = customerOrderList.size();
+            customerOrderList.forEach(inventoryService::release);
+            output.accept(printService.renderSessionExpiredMessage());
+        }
+        eventLog.log(EventType.SESSION_EXPIRED, sessionId, releasedProducts);
+        customer = null;
+        orderId = null;
+        customerOrderList = null;
+        offeredProducts = null;
+        state = State.EXITED;
+        return releasedProducts;
+    }
+
+    /**
+     * Retrieves the current state of the session.
+     *
+     * @return the current state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Checks whether the user has ended the program.
+     *
+     * @return {@code true} if the session is in the {@link State#EXITED} state; {@code false} otherwise
+     */
+    public boolean isExited() {
+        return state == State.EXITED;
+    }
+
+    private void onCustomerNamed(String customerName) {
+        customer = customerService.getCustomerByUsername(customerName);
+        eventLog.log(EventType.CUSTOMER_IDENTIFIED, sessionId, Hashing.hash64(customerName));
+        orderId = UUID.randomUUID().toString();
+        customerOrderList = new ArrayList<>();
+
+        output.accept(printService.renderHelloCustomerMessage(customerName));
+        promptProductChoice();
+    }
+
+    private void onProductChosen(String productChoice) {
+        int productIndex = printService.resolveProductIndex(productChoice, offeredProducts);
+        if (productIndex == ChoiceParser.END_OF_CHOICE) {
+            endOrder();
+            return;
+        }
+        if (productIndex == ChoiceParser.INVALID_CHOICE) {
+            eventLog.log(EventType.INVALID_INPUT, sessionId, state.ordinal());
+            output.accept(printService.renderInvalidChoiceMessage());
+            return;
+        }
+
+        if (isOrderFull()) {
+            refuseOrderLine();
+            return;
+        }
+        Product chosenProduct = offeredProducts.get(productIndex).copy();
+        if (!reserve(chosenProduct)) {
+            promptProductChoice();
+            return;
+        }
+
+        if (chosenProduct.getClass() == CoffeeProduct.class) {
+            promptExtraChoice();
+            return;
+        }
+        promptProductChoice();
+    }
+
+    private void onExtraChosen(String extraChoice) {
+        int extraIndex = printService.resolveProductIndex(extraChoice, offeredProducts);
+        if (extraIndex == ChoiceParser.INVALID_CHOICE) {
+            eventLog.log(EventType.INVALID_INPUT, sessionId, state.ordinal());
+            output.accept(printService.renderInvalidChoiceMessage());
+            return;
+        }
+
+        if (extraIndex != ChoiceParser.END_OF_CHOICE && isOrderFull()) {
+            refuseOrderLine();
+        } else if (extraIndex != ChoiceParser.END_OF_CHOICE && !reserve(offeredProducts.get(extraIndex).copy())) {
+            promptExtraChoice();
+            return;
+        }
+        promptProductChoice();
+    }
+
+    private void onExitConfirmation(String choice) {
+        if (printService.isExitProgramChoice(choice)) {
+            eventLog.log(EventType.SESSION_EXITED, sessionId, 0);
+            state = State.EXITED;
+            return;
+        }
+        state = State.AWAITING_CUSTOMER_NAME;
+        start();
+    }
+
+    private void endOrder() {
+        Optional<String> receipt = orderCheckout.checkout(orderId, customer, customerOrderList);
+        if (receipt.isEmpty()) {
+            eventLog.log(EventType.ORDER_CANCELLED, sessionId, customerOrderList.size());
+            output.accept(printService.renderDuplicateOrderMessage());
+        } else if (!receipt.get().isEmpty()) {
+            receiptOutput.accept(receipt.get());
+            long total = receiptTotal();
+            eventLog.log(EventType.RECEIPT_RENDERED, sessionId, total);
+            PrepaidAccount prepaidAccount = customer.getPrepaidAccount();
+            if (prepaidAccount != null) {
+                chargePrepaidAccount(prepaidAccount, total);
+            }
+        }
+        output.accept(printService.renderAffirmationToEndProgram());
+
+        customer = null;
+        orderId = null;
+        customerOrderList = null;
+        offeredProducts = null;
+        state = State.AWAITING_EXIT_CONFIRMATION;
+    }
+
+    private long receiptTotal() {
+        long total = 0;
+        for (Product product : customerOrderList) {
+            total += PricingService.toMinorUnits(product.getPrice());
+        }
+        return total;
+    }
+
+    private void chargePrepaidAccount(PrepaidAccount prepaidAccount, long total) {
+        long remainingBalance = prepaidAccount.tryDebit(total);
+        if (remainingBalance != PrepaidAccount.INSUFFICIENT_BALANCE) {
+            output.accept(printService.renderPrepaidChargedMessage(
+                    prepaidAccount.getAccountId(), total, remainingBalance));
+        } else {
+            output.accept(printService.renderPrepaidInsufficientBalanceMessage(
+                    prepaidAccount.getAccountId(), total, prepaidAccount.getBalance()));
+        }
+    }
+
+    private boolean isOrderFull() {
+        return customerOrderList.size() >= maxOrderLines;
+    }
+
+    private void refuseOrderLine() {
+        eventLog.log(EventType.ORDER_LINE_LIMIT_REACHED, sessionId, maxOrderLines);
+        output.accept(printService.renderOrderLineLimitMessage(maxOrderLines));
+    }
+
+    private boolean reserve(Product chosenProduct) {
+        if (!inventoryService.reserve(chosenProduct)) {
+            eventLog.log(EventType.ITEM_SOLD_OUT, sessionId, eventLog.symbol(chosenProduct.getName()));
+            output.accept(printService.renderSoldOutMessage(chosenProduct.getName()));
+            return false;
+        }
+        eventLog.log(EventType.ITEM_ADDED, sessionId, eventLog.symbol(chosenProduct.getName()));
+        output.accept(printService.renderProductNameForCustomer(chosenProduct.getName()));
+        customerOrderList.add(chosenProduct);
+        return true;
+    }
+
+    private void promptProductChoice() {
+        output.accept(printService.renderWriteChoiceOrEnd());
+        offeredProducts = productService.getSublistByProductTypePredicate(
+                productService.getProducts(),
+                p -> p.getProductType() != ProductType.EXTRA);
+        output.accept(printService.renderPossibleProducts(offeredProducts));
+        state = State.AWAITING_PRODUCT;
+    }
+
+    private void promptExtraChoice() {
+        output.accept(printService.renderExtraChoiceMessage());
+        offeredProducts = productService.getSublistByProductTypePredicate(
+                productService.getProducts(),
+                p -> p.getProductType() == ProductType.EXTRA);
+        output.accept(printService.renderPossibleProducts(offeredProducts));
+        state = State.AWAITING_EXTRA;
+    }
+}
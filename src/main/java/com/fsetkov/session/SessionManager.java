@@ -0,0 +1,269 @@
+package com.fsetkov.session;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Registry of the {@link OrderSession}s of the terminals served by one process, enforcing an idle timeout and
+ * a maximum number of concurrent sessions.
+ * <p>
+ * Every open session has a single timeout on a shared {@link HashedTimingWheel}. An input only records its time;
+ * when the timeout fires for a session that has seen input since, the timeout is scheduled again for the rest of
+ * the idle period, so a busy terminal costs one wheel operation per idle period rather than one per input.
+ * A session idle for the whole period is expired: its open order is cancelled, releasing the reserved products,
+ * the session is removed and the expired session listeners are notified with the terminal id. With a
+ * {@link #setRenewalSessionFactory(Function) renewal session factory}, the expired session is replaced by a new
+ * session of the same terminal within the same critical section, so an input racing with the expiry is passed to the
+ * new session instead of finding the terminal without a session.
+ * <p>
+ * The manager is thread-safe. The input of one terminal and its expiry are serialized on the session, which
+ * therefore never sees two threads at once.
+ */
+public class SessionManager {
+
+    private final HashedTimingWheel timingWheel;
+    private final Clock clock;
+    private final Duration idleTimeout;
+    private final int maxSessions;
+    private final Map<String, ManagedSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger openSessions = new AtomicInteger();
+    private final List<Consumer<String>> sessionExpiredListeners = new ArrayList<>();
+    private volatile Function<String, OrderSession> renewalSessionFactory;
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder releasedProducts = new LongAdder();
+
+    /**
+     * Constructs a new SessionManager.
+     *
+     * @param timingWheel the timing wheel scheduling the idle timeouts; it must measure time with the same clock
+     * @param clock       the clock measuring the idle time
+     * @param idleTimeout the time without input after which a session is expired
+     * @param maxSessions the maximum number of concurrently open sessions
+     */
+    public SessionManager(HashedTimingWheel timingWheel, Clock clock, Duration idleTimeout, int maxSessions) {
+        if (idleTimeout.toMillis() <= 0) {
+            throw new IllegalArgumentException("Idle timeout must be at least one millisecond");
+        }
+        if (maxSessions <= 0) {
+            throw new IllegalArgumentException("Maximum sessions must be positive");
+        }
+        this.timingWheel = timingWheel;
+        this.clock = clock;
+        this.idleTimeout = idleTimeout;
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Registers a listener notified with the terminal id whenever a session is expired, e.g. to greet the next
+     * customer of the terminal. The listener runs on the thread advancing the timing wheel.
+     *
+     * @param listener the listener to register
+     */
+    public void addSessionExpiredListener(Consumer<String> listener) {
+        synchronized (sessionExpiredListeners) {
+            sessionExpiredListeners.add(listener);
+        }
+    }
+
+    /**
+     * Sets the factory of the session started in place of an expired session, e.g. greeting the next customer of a
+     * console. The factory is called with the terminal id on the thread advancing the timing wheel, while the input
+     * of the terminal waits; the renewed session counts as opened.
+     *
+     * @param renewalSessionFactory the factory, or {@code null} to leave the terminal without a session on expiry
+     */
+    public void setRenewalSessionFactory(Function<String, OrderSession> renewalSessionFactory) {
+        this.renewalSessionFactory = renewalSessionFactory;
+    }
+
+    /**
+     * Opens and starts a session for a terminal, unless the maximum number of concurrent sessions is reached.
+     *
+     * @param terminalId the id of the terminal
+     * @param session    the new session of the terminal
+     * @return {@code true} if the session was opened; {@code false} if it was refused
+     * @throws IllegalStateException if the terminal already has an open session
+     */
+    public boolean open(String terminalId, OrderSession session) {
+        int current;
+        do {
+            current = openSessions.get();
+            if (current >= maxSessions) {
+                rejected.increment();
+                return false;
+            }
+        } while (!openSessions.compareAndSet(current, current + 1));
+
+        ManagedSession managedSession = new ManagedSession(terminalId, session);
+        synchronized (managedSession) {
+            if (sessions.putIfAbsent(terminalId, managedSession) != null) {
+                openSessions.decrementAndGet();
+                throw new IllegalStateException("Terminal " + terminalId + " already has an open session");
+            }
+            start(managedSession);
+        }
+        return true;
+    }
+
+    /**
+     * Passes a line of input to the session of a terminal. A session that has exited is closed.
+     *
+     * @param terminalId the id of the terminal
+     * @param input      the line typed by the customer
+     * @return the state of the session after handling the input, or an empty optional if the terminal has no open
+     * session, e.g. because it was expired without renewal
+     */
+    public Optional<OrderSession.State> onInput(String terminalId, String input) {
+        while (true) {
+            ManagedSession managedSession = sessions.get(terminalId);
+            if (managedSession == null) {
+                return Optional.empty();
+            }
+            synchronized (managedSession) {
+                // A session is removed from the map in the critical section marking it removed, so the next
+                // lookup finds its renewal or no session at all
+                if (managedSession.isRemoved) {
+                    continue;
+                }
+                managedSession.lastInputMillis = clock.millis();
+                OrderSession.State state = managedSession.session.onInput(input);
+                if (state == OrderSession.State.EXITED) {
+                    remove(managedSession);
+                    closed.increment();
+                }
+                return Optional.of(state);
+            }
+        }
+    }
+
+    /**
+     * Closes the session of a terminal, cancelling its open order.
+     *
+     * @param terminalId the id of the terminal
+     * @return {@code true} if the terminal had an open session; {@code false} otherwise
+     */
+    public boolean close(String terminalId) {
+        ManagedSession managedSession = sessions.get(terminalId);
+        if (managedSession == null) {
+            return false;
+        }
+        synchronized (managedSession) {
+            if (managedSession.isRemoved) {
+                return false;
+            }
+            managedSession.session.cancelOrder();
+            remove(managedSession);
+            closed.increment();
+            return true;
+        }
+    }
+
+    /**
+     * Retrieves the number of currently open sessions.
+     *
+     * @return the number of open sessions
+     */
+    public int getOpenSessionCount() {
+        return openSessions.get();
+    }
+
+    /**
+     * Takes a snapshot of the session counters.
+     *
+     * @return the current metrics
+     */
+    public SessionMetrics getMetrics() {
+        return new SessionMetrics(
+                opened.sum(),
+                rejected.sum(),
+                closed.sum(),
+                expired.sum(),
+                releasedProducts.sum(),
+                openSessions.get());
+    }
+
+    private void start(ManagedSession managedSession) {
+        opened.increment();
+        managedSession.lastInputMillis = clock.millis();
+        managedSession.session.start();
+        managedSession.timeout = timingWheel.schedule(managedSession::onTimeout, idleTimeout);
+    }
+
+    /**
+     * Replaces an expired session by its renewal while holding the lock of the expired session.
+     */
+    private void renew(ManagedSession expiredSession, OrderSession session) {
+        ManagedSession renewedSession = new ManagedSession(expiredSession.terminalId, session);
+        synchronized (renewedSession) {
+            expiredSession.isRemoved = true;
+            sessions.replace(expiredSession.terminalId, expiredSession, renewedSession);
+            start(renewedSession);
+        }
+    }
+
+    private void remove(ManagedSession managedSession) {
+        managedSession.isRemoved = true;
+        managedSession.timeout.cancel();
+        sessions.remove(managedSession.terminalId, managedSession);
+        openSessions.decrementAndGet();
+    }
+
+    private void notifySessionExpired(String terminalId) {
+        List<Consumer<String>> listeners;
+        synchronized (sessionExpiredListeners) {
+            listeners = List.copyOf(sessionExpiredListeners);
+        }
+        for (Consumer<String> listener : listeners) {
+            listener.accept(terminalId);
+        }
+    }
+
+    private final class ManagedSession {
+
+        private final String terminalId;
+        private final OrderSession session;
+        private HashedTimingWheel.Timeout timeout;
+        private long lastInputMillis;
+        private boolean isRemoved;
+
+        private ManagedSession(String terminalId, OrderSession session) {
+            this.terminalId = terminalId;
+            this.session = session;
+        }
+
+        private void onTimeout() {
+            synchronized (this) {
+                if (isRemoved) {
+                    return;
+                }
+                long idleMillis = clock.millis() - lastInputMillis;
+                if (idleMillis < idleTimeout.toMillis()) {
+                    timeout = timingWheel.schedule(this::onTimeout, idleTimeout.minusMillis(idleMillis));
+                    return;
+                }
+                releasedProducts.add(session.expire());
+                expired.increment();
+                Function<String, OrderSession> sessionFactory = renewalSessionFactory;
+                if (sessionFactory != null) {
+                    renew(this, sessionFactory.apply(terminalId));
+                } else {
+                    remove(this);
+                }
+            }
+            notifySessionExpired(terminalId);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.fsetkov.session;
+
+/**
+ * Snapshot of the counters of a {@link SessionManager}.
+ *
+ * @param opened           the number of sessions opened
+ * @param rejected         the number of sessions refused because the maximum of concurrent sessions was reached
+ * @param closed           the number of sessions closed by the program or the customer
+ * @param expired          the number of sessions expired after the idle timeout
+ * @param releasedProducts the number of reserved products released by the expired sessions
+ * @param openSessions     the number of sessions currently open
+ */
+public record SessionMetrics(long opened,
+                             long rejected,
+                             long closed,
+                             long expired,
+                             long releasedProducts,
+                             int openSessions) {
+}
@@ -0,0 +1,94 @@
+package com.fsetkov.util;
+
+/**
+ * Utility class for resolving the raw text a customer types into a menu choice.
+ * <p>
+ * Unlike {@link Integer#parseInt(String)}, the parser never throws on user input. The result is either
+ * a zero-based index into the offered options or one of the negative result codes declared below,
+ * so a mistyped choice costs the same as a valid one.
+ */
+public final class ChoiceParser {
+
+    /**
+     * Result code returned when the customer finished the selection.
+     */
+    public static final int END_OF_CHOICE = -1;
+    /**
+     * Result code returned when the input is not a number or is out of the range of the offered options.
+     */
+    public static final int INVALID_CHOICE = -2;
+
+    private static final int MAX_DIGITS = 10;
+
+    private ChoiceParser() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Parses the customer's choice against a list of options.
+     *
+     * @param choice       the raw input of the customer, may be {@code null}
+     * @param optionsCount the number of offered options
+     * @return the zero-based index of the chosen option, {@link #END_OF_CHOICE} or {@link #INVALID_CHOICE}
+     */
+    public static int parseChoice(String choice, int optionsCount) {
+        if (choice == null) {
+            return INVALID_CHOICE;
+        }
+        if (Constants.END_CUSTOMER_CHOICE_OPTION.equals(choice)) {
+            return END_OF_CHOICE;
+        }
+
+        int length = choice.length();
+        int position = length > 0 && choice.charAt(0) == '+' ? 1 : 0;
+        if (position == length || length - position > MAX_DIGITS) {
+            return INVALID_CHOICE;
+        }
+
+        long number = 0;
+        for (; position < length; position++) {
+            int digit = choice.charAt(position) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID_CHOICE;
+            }
+            number = number * 10 + digit;
+        }
+
+        return number >= 1 && number <= optionsCount ? (int) number - 1 : INVALID_CHOICE;
+    }
+
+    /**
+     * Checks whether the customer typed a number, with an optional sign, rather than a product name.
+     * A number that does not resolve to an option is an invalid choice and must not be looked up as a name.
+     *
+     * @param choice the raw input of the customer, may be {@code null}
+     * @return {@code true} if the input consists of digits only; {@code false} otherwise
+     */
+    public static boolean isNumber(String choice) {
+        if (choice == null) {
+            return false;
+        }
+        int length = choice.length();
+        int position = length > 0 && (choice.charAt(0) == '+' || choice.charAt(0) == '-') ? 1 : 0;
+        if (position == length) {
+            return false;
+        }
+        for (; position < length; position++) {
+            char c = choice.charAt(position);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the given result code points to one of the offered options.
+     *
+     * @param result the result of {@link #parseChoice(String, int)}
+     * @return {@code true} if the result is an index of an option; {@code false} otherwise
+     */
+    public static boolean isIndex(int result) {
+        return result >= 0;
+    }
+}
@@ -0,0 +1,34 @@
+package com.fsetkov.util;
+
+/**
+ * 64-bit hashing of keys for the sketches and the hash rings of the application.
+ */
+public final class Hashing {
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF2_9CE4_8422_2325L;
+    private static final long FNV_PRIME = 0x0000_0100_0000_01B3L;
+
+    private Hashing() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Hashes a string to 64 well-mixed bits: FNV-1a over the characters, finished with the MurmurHash3 mixer.
+     *
+     * @param key the key to hash
+     * @return the hash
+     */
+    public static long hash64(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51_AFD7_ED55_8CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CE_B9FE_1A85_EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,6 +1,5 @@
 package com.fsetkov;
 
-import com.fsetkov.exception.ExitException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -68,11 +67,7 @@ class EntryPointTest {
             System.setOut(out);
 
             // when
-            try {
-                EntryPoint.main(null);
-            } catch (ExitException e) {
-                // Ignore the exception
-            }
+            EntryPoint.main(null);
 
             // then
             try (Scanner scanner = new Scanner(new FileInputStream(tempDir.resolve("output.txt").toFile()))) {
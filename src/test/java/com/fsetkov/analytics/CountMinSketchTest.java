@@ -0,0 +1,46 @@
+package com.fsetkov.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountMinSketchTest {
+
+    @Test
+    void shouldNeverUndercountAndStayWithinErrorBound() {
+        // given
+        CountMinSketch sketch = new CountMinSketch(2048, 4);
+        for (int i = 0; i < 20_000; i++) {
+            sketch.add("customer" + i, 1 + i % 5);
+        }
+
+        // when, then
+        long maxOvercount = (long) (Math.E / 2048 * sketch.getTotalCount());
+        int withinBound = 0;
+        for (int i = 0; i < 20_000; i++) {
+            long estimate = sketch.estimate("customer" + i);
+            assertTrue(estimate >= 1 + i % 5);
+            if (estimate <= 1 + i % 5 + maxOvercount) {
+                withinBound++;
+            }
+        }
+        assertTrue(withinBound > 19_000);
+    }
+
+    @Test
+    void shouldAddCountsWhenMerged() {
+        // given
+        CountMinSketch firstStore = new CountMinSketch(64, 3);
+        CountMinSketch secondStore = new CountMinSketch(64, 3);
+        firstStore.add("John", 3);
+        secondStore.add("John", 4);
+
+        // when
+        firstStore.merge(secondStore);
+
+        // then
+        assertEquals(7, firstStore.estimate("John"));
+        assertEquals(7, firstStore.getTotalCount());
+        assertEquals(4, secondStore.estimate("John"));
+    }
+}
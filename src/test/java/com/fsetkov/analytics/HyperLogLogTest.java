@@ -0,0 +1,49 @@
+package com.fsetkov.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 1_000, 100_000})
+    void shouldEstimateDistinctKeysWithinStandardError(int distinctKeys) {
+        // given
+        HyperLogLog sketch = new HyperLogLog(12);
+
+        // when
+        for (int repeat = 0; repeat < 3; repeat++) {
+            for (int i = 0; i < distinctKeys; i++) {
+                sketch.add("customer" + i);
+            }
+        }
+
+        // then
+        assertEquals(distinctKeys, sketch.estimate(), Math.max(1, distinctKeys * 0.05));
+    }
+
+    @Test
+    void shouldCountUnionWhenMerged() {
+        // given
+        HyperLogLog firstTill = new HyperLogLog(12);
+        HyperLogLog secondTill = new HyperLogLog(12);
+        for (int i = 0; i < 30_000; i++) {
+            firstTill.add("customer" + i);
+            secondTill.add("customer" + (i + 10_000));
+        }
+
+        // when
+        firstTill.merge(secondTill);
+
+        // then
+        assertEquals(40_000, firstTill.estimate(), 2_000);
+    }
+
+    @Test
+    void shouldRejectMergeOfDifferentPrecisions() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(10).merge(new HyperLogLog(12)));
+    }
+}
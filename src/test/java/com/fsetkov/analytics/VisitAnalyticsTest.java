@@ -0,0 +1,84 @@
+package com.fsetkov.analytics;
+
+import com.fsetkov.models.CoffeeProduct;
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.SnackProduct;
+import com.fsetkov.service.CustomerService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VisitAnalyticsTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+    private final Clock clock = Clock.fixed(Instant.parse("2024-03-01T10:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    void shouldCountDistinctVisitorsOfCustomerLookups() {
+        // given
+        VisitAnalytics analytics = new VisitAnalytics("Zurich", clock);
+        CustomerService customerService = new CustomerService(new HashMap<>(), analytics);
+
+        // when
+        for (int i = 0; i < 500; i++) {
+            customerService.getCustomerByUsername("customer" + i % 100);
+        }
+
+        // then
+        assertEquals(100, analytics.estimateUniqueVisitors("Zurich", DAY), 3);
+        assertEquals(0, analytics.estimateUniqueVisitors("Zurich", DAY.plusDays(1)));
+        assertTrue(analytics.estimateVisits("customer7") >= 5);
+    }
+
+    @Test
+    void shouldMergeTillsOfSeveralStores() {
+        // given
+        VisitAnalytics zurich = new VisitAnalytics("Zurich", clock);
+        VisitAnalytics basel = new VisitAnalytics("Basel", clock);
+        for (int i = 0; i < 1_000; i++) {
+            zurich.onCustomerVisit(new Customer("customer" + i));
+            basel.onCustomerVisit(new Customer("customer" + (i + 500)));
+        }
+
+        // when
+        zurich.merge(basel);
+
+        // then
+        assertEquals(1_000, zurich.estimateUniqueVisitors("Basel", DAY), 50);
+        assertEquals(1_500, zurich.estimateUniqueVisitors(DAY), 75);
+        assertTrue(zurich.estimateVisits("customer600") >= 2);
+    }
+
+    @Test
+    void shouldFlagAbnormalStampAccrual() {
+        // given
+        VisitAnalytics analytics = new VisitAnalytics("Zurich", clock);
+        Customer regular = new Customer("regular");
+        Customer suspicious = new Customer("suspicious");
+        List<Product> twoCoffees = List.of(
+                new CoffeeProduct("Small coffee", 2.55),
+                new CoffeeProduct("Small coffee", 2.55),
+                new SnackProduct("Bacon roll", 4.53));
+
+        // when
+        analytics.onCustomerVisit(regular);
+        analytics.onOrderCompleted(regular, twoCoffees);
+        analytics.onCustomerVisit(suspicious);
+        for (int i = 0; i < 5; i++) {
+            analytics.onOrderCompleted(suspicious, twoCoffees);
+        }
+
+        // then
+        assertEquals(2, analytics.estimateBeverages("regular"));
+        assertFalse(analytics.isAbnormalStampAccrual("regular", 3));
+        assertTrue(analytics.isAbnormalStampAccrual("suspicious", 3));
+    }
+}
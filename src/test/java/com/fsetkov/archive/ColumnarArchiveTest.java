@@ -0,0 +1,214 @@
+package com.fsetkov.archive;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.ProductType;
+import com.fsetkov.models.SnackProduct;
+import com.fsetkov.service.CustomerService;
+import com.fsetkov.service.PrintService;
+import com.fsetkov.service.ProductService;
+import com.fsetkov.session.OrderSession;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarArchiveTest {
+
+    private static final Instant JANUARY = Instant.parse("2024-01-15T08:00:00Z");
+    private static final Instant APRIL = Instant.parse("2024-04-01T00:00:00Z");
+    private static final Instant MAY = Instant.parse("2024-05-20T09:30:00Z");
+
+    private final ProductService productService = new ProductService();
+
+    @Test
+    void shouldArchiveLinesOfCompletedOrders(@TempDir Path directory) throws IOException {
+        // given
+        OrderSession session = new OrderSession(
+                new CustomerService(new HashMap<>()),
+                productService,
+                new PrintService(productService),
+                text -> {
+                });
+
+        // when
+        try (ColumnarArchiveWriter writer = new ColumnarArchiveWriter(
+                directory, productService.getProducts(), Clock.fixed(JANUARY, ZoneOffset.UTC))) {
+            session.addOrderCompletedListener(writer);
+            session.start();
+            for (String input : new String[]{"John", "2", "1", "5", "end", "exit"}) {
+                session.onInput(input);
+            }
+        }
+
+        // then
+        ColumnarArchive archive = ColumnarArchive.open(directory);
+        assertEquals(1, archive.getSegmentCount());
+        assertEquals(3, archive.count(ArchiveFilter.ALL));
+        assertEquals(758, archive.sumPrice(ArchiveFilter.ALL));
+        assertEquals(Map.of("Extra milk", 1L),
+                archive.countByProduct(ArchiveFilter.ALL.withFree(true)));
+        assertEquals(1, archive.count(ArchiveFilter.ALL.withUsername("John").withProductType(ProductType.SNACK)));
+        assertEquals(0, archive.count(ArchiveFilter.ALL.withUsername("Jane")));
+    }
+
+    @Test
+    void shouldFilterAndAggregateAcrossSegments(@TempDir Path directory) throws IOException {
+        // given
+        try (ColumnarArchiveWriter writer = new ColumnarArchiveWriter(
+                directory, productService.getProducts(), Clock.systemUTC(), 2)) {
+            writer.append("John", List.of(product("Small coffee", 2.55), product("Bacon roll", 4.53)),
+                    JANUARY.toEpochMilli());
+            writer.append("Jane", List.of(product("Big coffee", 0.0)), APRIL.toEpochMilli());
+            writer.append("John", List.of(product("Small coffee", 0.0), product("Extra milk", 0.0)),
+                    MAY.toEpochMilli());
+        }
+
+        // when
+        ColumnarArchive archive = ColumnarArchive.open(directory);
+        ArchiveFilter freeBeveragesOfSecondQuarter = ArchiveFilter.ALL
+                .withProductType(ProductType.BEVERAGE)
+                .withFree(true)
+                .between(APRIL, Instant.parse("2024-07-01T00:00:00Z"));
+
+        // then
+        assertEquals(3, archive.getSegmentCount());
+        assertEquals(5, archive.getRowCount());
+        assertEquals(2, archive.count(freeBeveragesOfSecondQuarter));
+        assertEquals(Map.of("Big coffee", 1L, "Small coffee", 1L), archive.countByProduct(freeBeveragesOfSecondQuarter));
+        assertEquals(0, archive.count(freeBeveragesOfSecondQuarter.withUsername("Nobody")));
+        assertEquals(1, archive.count(ArchiveFilter.ALL.withProductName("Small coffee").withFree(false)));
+        assertEquals(255 + 453, archive.sumPrice(ArchiveFilter.ALL.withUsername("John")));
+        assertEquals(0, archive.count(ArchiveFilter.ALL.between(JANUARY.plusSeconds(1), APRIL)));
+    }
+
+    @Test
+    void shouldAppendSegmentsAfterExistingOnes(@TempDir Path directory) throws IOException {
+        // given
+        try (ColumnarArchiveWriter writer = new ColumnarArchiveWriter(
+                directory, productService.getProducts(), Clock.systemUTC())) {
+            writer.append("John", List.of(product("Bacon roll", 4.53)), JANUARY.toEpochMilli());
+        }
+
+        // when
+        try (ColumnarArchiveWriter writer = new ColumnarArchiveWriter(
+                directory, productService.getProducts(), Clock.systemUTC())) {
+            writer.append("Jane", List.of(product("Bacon roll", 4.53)), MAY.toEpochMilli());
+        }
+
+        // then
+        ColumnarArchive archive = ColumnarArchive.open(directory);
+        assertEquals(2, archive.getSegmentCount());
+        assertEquals(Map.of("Bacon roll", 2L), archive.countByProduct(ArchiveFilter.ALL));
+    }
+
+    @Test
+    void shouldRejectProductsNotInCatalog(@TempDir Path directory) throws IOException {
+        // given
+        try (ColumnarArchiveWriter writer = new ColumnarArchiveWriter(
+                directory, productService.getProducts(), Clock.systemUTC())) {
+
+            // when / then
+            assertThrows(IllegalArgumentException.class,
+                    () -> writer.append("John", List.of(product("Tea", 2.0)), JANUARY.toEpochMilli()));
+        }
+    }
+
+    @Test
+    void shouldCountOrdersThatCannotBeArchivedWithoutFailingCheckout(@TempDir Path directory) throws IOException {
+        // given
+        try (ColumnarArchiveWriter writer = new ColumnarArchiveWriter(
+                directory, productService.getProducts(), Clock.systemUTC())) {
+
+            // when
+            writer.onOrderCompleted(new Customer("John"),
+                    List.of(product("Bacon roll", 4.53), product("Tea", 2.0)));
+            writer.onOrderCompleted(new Customer("Jane"), List.of(product("Bacon roll", 4.53)));
+
+            // then
+            assertEquals(1, writer.getFailedOrderCount());
+        }
+        assertEquals(Map.of("Bacon roll", 1L), ColumnarArchive.open(directory).countByProduct(ArchiveFilter.ALL));
+    }
+
+    @Test
+    void shouldLeaveCheckpointsOutOfTheCompletedOrders(@TempDir Path directory) throws IOException {
+        // given
+        ColumnarArchiveWriter writer = new ColumnarArchiveWriter(
+                directory, productService.getProducts(), Clock.systemUTC(), 1_000, Duration.ZERO);
+        writer.append("John", List.of(product("Small coffee", 2.55)), JANUARY.toEpochMilli());
+        writer.append("Jane", List.of(product("Bacon roll", 4.53)), JANUARY.toEpochMilli());
+        assertEquals(0, ColumnarArchive.open(directory).getSegmentCount());
+
+        // when
+        writer.checkpoint();
+        writer.append("Jane", List.of(product("Big coffee", 3.55)), JANUARY.toEpochMilli());
+
+        // then
+        ColumnarArchive afterCrash = ColumnarArchive.open(directory);
+        assertEquals(1, afterCrash.getSegmentCount());
+        assertEquals(2, afterCrash.count(ArchiveFilter.ALL));
+        writer.close();
+        ColumnarArchive afterClose = ColumnarArchive.open(directory);
+        assertEquals(1, afterClose.getSegmentCount());
+        assertEquals(3, afterClose.count(ArchiveFilter.ALL));
+    }
+
+    @Test
+    void shouldCheckpointOpenSegmentPeriodically(@TempDir Path directory) throws Exception {
+        // given
+        try (ColumnarArchiveWriter writer = new ColumnarArchiveWriter(directory, productService.getProducts(),
+                Clock.systemUTC(), 1_000, Duration.ofMillis(10))) {
+
+            // when
+            writer.append("John", List.of(product("Small coffee", 2.55)), JANUARY.toEpochMilli());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!Files.exists(directory.resolve(String.format(ArchiveFormat.FILE_NAME_PATTERN, 0)))
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+
+            // then
+            assertEquals(1, ColumnarArchive.open(directory).count(ArchiveFilter.ALL));
+        }
+    }
+
+    @Test
+    void shouldRoundTripEveryEncoding() {
+        // given
+        long[] values = {0, 0, 0, -1, 1, 300, 300, Long.MAX_VALUE, Long.MIN_VALUE, 42};
+
+        for (ColumnEncoding encoding : ColumnEncoding.values()) {
+            // when
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            encoding.encode(values, values.length, out);
+            long[] decoded = new long[values.length];
+            encoding.decode(ByteBuffer.wrap(out.toByteArray()), values.length, decoded);
+
+            // then
+            assertArrayEquals(values, decoded, encoding.name());
+        }
+    }
+
+    private Product product(String name, double price) {
+        return productService.getProducts().stream()
+                .filter(p -> p.getName().equals(name))
+                .findFirst()
+                .map(p -> p.copyWithPrice(price))
+                .orElseGet(() -> new SnackProduct(name, price));
+    }
+}
@@ -0,0 +1,77 @@
+package com.fsetkov.benchmark;
+
+import java.util.Locale;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Minimal benchmark harness used by the benchmarks in this package.
+ * <p>
+ * Benchmarks are plain {@code main} classes that are started with the {@code benchmark} Gradle task,
+ * e.g. {@code ./gradlew benchmark -Pbenchmark=ChoiceParserBenchmark}. Each measurement is warmed up first
+ * and the results of the measured operation are accumulated into a sink so the JIT cannot remove them.
+ */
+public final class BenchmarkHarness {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private static volatile long sink;
+
+    private BenchmarkHarness() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Measures the average time of an operation and prints it.
+     *
+     * @param name       the name of the measurement
+     * @param operations the number of operations in one round
+     * @param operation  the operation, receives the operation number and returns a value for the sink
+     * @return the average time of one operation in nanoseconds
+     */
+    public static double measure(String name, int operations, IntUnaryOperator operation) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runRound(operations, operation);
+        }
+
+        long bestNanos = Long.MAX_VALUE;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            bestNanos = Math.min(bestNanos, runRound(operations, operation));
+        }
+
+        double nanosPerOperation = (double) bestNanos / operations;
+        report(name, "%.1f ns/op", nanosPerOperation);
+        return nanosPerOperation;
+    }
+
+    /**
+     * Prints a benchmark result line.
+     *
+     * @param name   the name of the measurement
+     * @param format the format of the value
+     * @param args   the arguments of the format
+     */
+    public static void report(String name, String format, Object... args) {
+        System.out.printf(Locale.ROOT, "%-50s %s%n", name, String.format(Locale.ROOT, format, args));
+    }
+
+    /**
+     * Consumes a value so the computation producing it is not eliminated.
+     *
+     * @param value the value to consume
+     */
+    public static void consume(long value) {
+        sink += value;
+    }
+
+    private static long runRound(int operations, IntUnaryOperator operation) {
+        long accumulator = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            accumulator += operation.applyAsInt(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        consume(accumulator);
+        return elapsed;
+    }
+}
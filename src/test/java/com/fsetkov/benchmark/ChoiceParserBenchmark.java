@@ -0,0 +1,53 @@
+package com.fsetkov.benchmark;
+
+import com.fsetkov.util.ChoiceParser;
+
+import java.util.Random;
+
+/**
+ * Compares the exception-based choice parsing used before {@link ChoiceParser} with the result-code parser
+ * under growing rates of invalid input, as produced by kiosk touchscreens.
+ */
+public class ChoiceParserBenchmark {
+
+    private static final int OPTIONS_COUNT = 5;
+    private static final int INPUTS_COUNT = 1 << 16;
+    private static final String[] INVALID_INPUTS = {"", "a", "6", "0", "1 ", "12x", "-"};
+
+    public static void main(String[] args) {
+        for (int invalidPercent : new int[]{0, 10, 50, 90}) {
+            String[] inputs = generateInputs(invalidPercent);
+            BenchmarkHarness.measure(
+                    "exceptions, " + invalidPercent + "% invalid",
+                    INPUTS_COUNT,
+                    i -> parseWithExceptions(inputs[i]));
+            BenchmarkHarness.measure(
+                    "result codes, " + invalidPercent + "% invalid",
+                    INPUTS_COUNT,
+                    i -> ChoiceParser.parseChoice(inputs[i], OPTIONS_COUNT));
+        }
+    }
+
+    private static int parseWithExceptions(String input) {
+        try {
+            int index = Integer.parseInt(input) - 1;
+            if (index < 0 || index >= OPTIONS_COUNT) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return index;
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            return ChoiceParser.INVALID_CHOICE;
+        }
+    }
+
+    private static String[] generateInputs(int invalidPercent) {
+        Random random = new Random(42);
+        String[] inputs = new String[INPUTS_COUNT];
+        for (int i = 0; i < INPUTS_COUNT; i++) {
+            inputs[i] = random.nextInt(100) < invalidPercent
+                    ? INVALID_INPUTS[random.nextInt(INVALID_INPUTS.length)]
+                    : String.valueOf(1 + random.nextInt(OPTIONS_COUNT));
+        }
+        return inputs;
+    }
+}
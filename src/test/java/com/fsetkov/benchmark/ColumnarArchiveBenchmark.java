@@ -0,0 +1,119 @@
+package com.fsetkov.benchmark;
+
+import com.fsetkov.archive.ArchiveFilter;
+import com.fsetkov.archive.ColumnarArchive;
+import com.fsetkov.archive.ColumnarArchiveWriter;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.ProductType;
+import com.fsetkov.service.PricingService;
+import com.fsetkov.service.ProductService;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Archives a year of generated orders both as text lines and in the columnar archive and answers
+ * "how many free beverages were redeemed last quarter" from each.
+ */
+public class ColumnarArchiveBenchmark {
+
+    private static final int ORDERS = 1_000_000;
+    private static final int CUSTOMERS = 50_000;
+    private static final Instant YEAR_START = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant LAST_QUARTER = Instant.parse("2024-10-01T00:00:00Z");
+    private static final Instant YEAR_END = Instant.parse("2025-01-01T00:00:00Z");
+
+    public static void main(String[] args) throws IOException {
+        List<Product> catalog = new ProductService().getProducts();
+        Path directory = Files.createTempDirectory("archive-benchmark");
+        Path textFile = directory.resolve("receipts.txt");
+        Path archiveDirectory = directory.resolve("archive");
+
+        SplittableRandom random = new SplittableRandom(2024);
+        long millisPerOrder = (YEAR_END.toEpochMilli() - YEAR_START.toEpochMilli()) / ORDERS;
+        try (BufferedWriter text = Files.newBufferedWriter(textFile, StandardCharsets.UTF_8);
+             ColumnarArchiveWriter archive = new ColumnarArchiveWriter(archiveDirectory, catalog, Clock.systemUTC(),
+                     ColumnarArchiveWriter.DEFAULT_ROWS_PER_SEGMENT, Duration.ZERO)) {
+            for (int order = 0; order < ORDERS; order++) {
+                long timestamp = YEAR_START.toEpochMilli() + order * millisPerOrder;
+                String username = "customer" + random.nextInt(CUSTOMERS);
+                List<Product> products = new ArrayList<>();
+                for (int line = 1 + random.nextInt(3); line > 0; line--) {
+                    Product product = catalog.get(random.nextInt(catalog.size())).copy();
+                    if (random.nextInt(10) == 0) {
+                        product.makeFree();
+                    }
+                    products.add(product);
+                    text.write(String.format(Locale.ROOT, "%d\t%s\t%s\t%s\t%.2f%n", timestamp, username,
+                            product.getName(), product.getProductType(), product.getPrice()));
+                }
+                archive.append(username, products, timestamp);
+            }
+        }
+        BenchmarkHarness.report("text receipts", "%.1f MB", Files.size(textFile) / 1e6);
+        BenchmarkHarness.report("columnar archive", "%.1f MB", directorySize(archiveDirectory) / 1e6);
+
+        ColumnarArchive archive = ColumnarArchive.open(archiveDirectory);
+        ArchiveFilter freeBeveragesOfLastQuarter = ArchiveFilter.ALL
+                .withProductType(ProductType.BEVERAGE)
+                .withFree(true)
+                .between(LAST_QUARTER, YEAR_END);
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            long fromText = countFreeBeveragesOfLastQuarter(textFile);
+            long textNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long fromArchive = archive.count(freeBeveragesOfLastQuarter);
+            long archiveNanos = System.nanoTime() - start;
+
+            if (fromText != fromArchive) {
+                throw new IllegalStateException("Counts differ: " + fromText + " != " + fromArchive);
+            }
+            BenchmarkHarness.report("round " + (round + 1) + ", parsing text receipts", "%.1f ms", textNanos / 1e6);
+            BenchmarkHarness.report("round " + (round + 1) + ", scanning columnar archive", "%.1f ms (%d lines)",
+                    archiveNanos / 1e6, fromArchive);
+        }
+    }
+
+    private static long countFreeBeveragesOfLastQuarter(Path textFile) throws IOException {
+        long from = LAST_QUARTER.toEpochMilli();
+        long to = YEAR_END.toEpochMilli();
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(textFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                long timestamp = Long.parseLong(fields[0]);
+                if (timestamp >= from && timestamp < to
+                    && ProductType.valueOf(fields[3]) == ProductType.BEVERAGE
+                    && PricingService.toMinorUnits(Double.parseDouble(fields[4])) == 0) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static long directorySize(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            long size = 0;
+            for (Path file : (Iterable<Path>) files::iterator) {
+                size += Files.size(file);
+            }
+            return size;
+        }
+    }
+}
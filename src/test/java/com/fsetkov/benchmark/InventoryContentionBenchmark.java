@@ -0,0 +1,73 @@
+package com.fsetkov.benchmark;
+
+import com.fsetkov.models.Product;
+import com.fsetkov.models.SnackProduct;
+import com.fsetkov.service.InventoryService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lets many tills compete for the last units of one popular product and reports the reservation throughput
+ * of the lock-free stock counter, together with a check that no unit was oversold.
+ */
+public class InventoryContentionBenchmark {
+
+    private static final int UNITS = 5_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        Product baconRoll = new SnackProduct("Bacon roll", 4.53);
+        int maxTills = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        for (int round = 0; round < 2; round++) {
+            for (int tills = 1; tills <= maxTills; tills *= 2) {
+                InventoryService inventoryService = new InventoryService();
+                inventoryService.setStock(baconRoll.getName(), UNITS);
+                LongAdder sold = new LongAdder();
+                LongAdder rejected = new LongAdder();
+                CountDownLatch start = new CountDownLatch(1);
+
+                List<Thread> threads = new ArrayList<>();
+                for (int till = 0; till < tills; till++) {
+                    threads.add(new Thread(() -> {
+                        awaitQuietly(start);
+                        while (inventoryService.isAvailable(baconRoll)) {
+                            if (inventoryService.reserve(baconRoll)) {
+                                inventoryService.commit(baconRoll);
+                                sold.increment();
+                            } else {
+                                rejected.increment();
+                            }
+                        }
+                    }));
+                }
+                threads.forEach(Thread::start);
+
+                long begin = System.nanoTime();
+                start.countDown();
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                long elapsed = System.nanoTime() - begin;
+
+                if (sold.sum() != UNITS) {
+                    throw new IllegalStateException("Sold " + sold.sum() + " of " + UNITS + " units");
+                }
+                BenchmarkHarness.report(
+                        "round " + (round + 1) + ", " + tills + " tills, " + UNITS + " units",
+                        "%.1f M reservations/s, %d rejected at sell-out",
+                        UNITS * 1e3 / elapsed, rejected.sum());
+            }
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.fsetkov.benchmark;
+
+import com.fsetkov.loyalty.LoyaltyBatchJob;
+import com.fsetkov.loyalty.LoyaltyBatchResult;
+import com.fsetkov.models.Customer;
+import com.fsetkov.service.CustomerService;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs the nightly loyalty batch over a million members with one worker and with one worker per core.
+ */
+public class LoyaltyBatchBenchmark {
+
+    private static final int MEMBERS = 1_000_000;
+    private static final Instant NIGHT = Instant.parse("2024-06-30T02:00:00Z");
+
+    public static void main(String[] args) {
+        Map<String, Customer> customers = new ConcurrentHashMap<>(MEMBERS * 2);
+        SplittableRandom random = new SplittableRandom(2024);
+        LocalDate today = LocalDate.ofInstant(NIGHT, ZoneOffset.UTC);
+        for (int i = 0; i < MEMBERS; i++) {
+            Customer customer = new Customer("member" + i);
+            customer.getCustomerStampCard().setNumberOfBeveragesBought(random.nextInt(5));
+            for (int visit = random.nextInt(12); visit >= 0; visit--) {
+                customer.getVisitHistory().recordVisit(today.minusDays(random.nextInt(500)));
+            }
+            customers.put(customer.getUsername(), customer);
+        }
+        CustomerService customerService = new CustomerService(customers);
+        Clock clock = Clock.fixed(NIGHT, ZoneOffset.UTC);
+
+        int cores = Math.max(2, Runtime.getRuntime().availableProcessors());
+        for (int round = 0; round < 3; round++) {
+            for (int workers : new int[]{1, cores}) {
+                ForkJoinPool pool = new ForkJoinPool(workers);
+                LoyaltyBatchResult result = new LoyaltyBatchJob(pool, clock, statement -> BenchmarkHarness.consume(
+                        statement.stamps())).run(customerService);
+                pool.shutdown();
+                BenchmarkHarness.report("round " + (round + 1) + ", " + workers + " workers",
+                        "%.0f k members/s, %d cards expired", result.membersPerSecond() / 1e3, result.expiredCards());
+            }
+        }
+    }
+}
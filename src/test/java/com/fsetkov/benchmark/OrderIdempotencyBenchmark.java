@@ -0,0 +1,77 @@
+package com.fsetkov.benchmark;
+
+import com.fsetkov.service.OrderIdempotencyGuard;
+import com.fsetkov.service.OrderIdempotencyMetrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Submits distinct order ids with one retry in a thousand from one till thread and from one till thread per
+ * core, to the idempotency guard and, for comparison, to an exact set guarded by a lock.
+ */
+public class OrderIdempotencyBenchmark {
+
+    private static final int ORDERS = 1_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        String[] orderIds = new String[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            int order = i % 1000 == 999 ? i - 1 : i;
+            orderIds[i] = "till-" + (order % 32) + "/" + order;
+        }
+
+        int cores = Math.max(2, Runtime.getRuntime().availableProcessors());
+        for (int round = 0; round < 3; round++) {
+            for (int threads : new int[]{1, cores}) {
+                OrderIdempotencyGuard guard = new OrderIdempotencyGuard(Duration.ofHours(1), ORDERS);
+                measure("round " + (round + 1) + ", Bloom filter guard, " + threads + " threads",
+                        orderIds, threads, guard::tryAccept);
+                if (round == 2) {
+                    OrderIdempotencyMetrics metrics = guard.getMetrics();
+                    BenchmarkHarness.report("  false positive rate", "%.4f (%d bits, %d hashes)",
+                            metrics.falsePositiveRate(), metrics.bitCount(), metrics.hashCount());
+                    BenchmarkHarness.report("  locked exact lookups", "%d of %d submissions, %d duplicates",
+                            metrics.exactLookups(), metrics.submissions(), metrics.duplicates());
+                }
+
+                Set<String> exactIds = new HashSet<>();
+                measure("round " + (round + 1) + ", locked exact set, " + threads + " threads",
+                        orderIds, threads, orderId -> {
+                            synchronized (exactIds) {
+                                return exactIds.add(orderId);
+                            }
+                        });
+            }
+        }
+    }
+
+    private static void measure(String name, String[] orderIds, int threads, Predicate<String> guard)
+            throws InterruptedException {
+        List<Thread> tills = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            Thread till = new Thread(() -> {
+                long accepted = 0;
+                for (int i = first; i < orderIds.length; i += threads) {
+                    if (guard.test(orderIds[i])) {
+                        accepted++;
+                    }
+                }
+                BenchmarkHarness.consume(accepted);
+            });
+            till.start();
+            tills.add(till);
+        }
+        for (Thread till : tills) {
+            till.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        BenchmarkHarness.report(name, "%.0f k submissions/s", orderIds.length * 1e6 / elapsed);
+    }
+}
@@ -0,0 +1,53 @@
+package com.fsetkov.benchmark;
+
+import com.fsetkov.service.CustomerService;
+import com.fsetkov.service.PrintService;
+import com.fsetkov.service.ProductService;
+import com.fsetkov.session.OrderSession;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Drives thousands of interleaved {@link OrderSession}s from a single thread and reports how many complete
+ * customer sessions one core handles per second.
+ */
+public class OrderSessionBenchmark {
+
+    private static final int CONCURRENT_SESSIONS = 10_000;
+    private static final int ROUNDS = 5;
+    private static final String[] CUSTOMER_INPUTS = {"", "3", "1", "1", "3", "5", "4", "end", ""};
+
+    public static void main(String[] args) {
+        ProductService productService = new ProductService();
+        PrintService printService = new PrintService(productService);
+        CustomerService customerService = new CustomerService(new ConcurrentHashMap<>());
+        long[] emittedCharacters = new long[1];
+
+        for (int round = 0; round < ROUNDS; round++) {
+            OrderSession[] sessions = new OrderSession[CONCURRENT_SESSIONS];
+            long start = System.nanoTime();
+            for (int i = 0; i < sessions.length; i++) {
+                sessions[i] = new OrderSession(
+                        customerService,
+                        productService,
+                        printService,
+                        text -> emittedCharacters[0] += text.length());
+                sessions[i].start();
+            }
+
+            // Every session receives one line per pass, so the sessions are fully interleaved
+            for (int step = 0; step < CUSTOMER_INPUTS.length; step++) {
+                for (int i = 0; i < sessions.length; i++) {
+                    sessions[i].onInput(step == 0 ? "customer" + i : CUSTOMER_INPUTS[step]);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            BenchmarkHarness.report(
+                    "round " + (round + 1) + ", " + CONCURRENT_SESSIONS + " interleaved sessions",
+                    "%.0f sessions/s per core",
+                    CONCURRENT_SESSIONS * 1e9 / elapsed);
+        }
+        BenchmarkHarness.consume(emittedCharacters[0]);
+    }
+}
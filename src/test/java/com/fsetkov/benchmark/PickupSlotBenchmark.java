@@ -0,0 +1,167 @@
+package com.fsetkov.benchmark;
+
+import com.fsetkov.models.BeverageProduct;
+import com.fsetkov.models.CoffeeProduct;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.SnackProduct;
+import com.fsetkov.preparation.PickupBooking;
+import com.fsetkov.preparation.PickupSlotScheduler;
+import com.fsetkov.preparation.Station;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Books 100k mobile pre-orders into a busy morning, the requested pickup times clustered around 8am, from one
+ * booking thread and from one thread per core, into the pickup slot scheduler and, for comparison, into slots
+ * searched one by one under a lock. The morning is overbooked, so most orders are pushed past many full slots;
+ * the same capacity is split into one-minute and into ten-second slots.
+ */
+public class PickupSlotBenchmark {
+
+    private static final int ORDERS = 100_000;
+    private static final LocalTime OPENING_TIME = LocalTime.of(6, 0);
+    private static final LocalTime CLOSING_TIME = LocalTime.of(12, 0);
+    private static final int ESPRESSO_BAR_CAPACITY_PER_MINUTE = 900;
+    private static final int KITCHEN_CAPACITY_PER_MINUTE = 300;
+    private static final int JUICE_BAR_CAPACITY_PER_MINUTE = 120;
+
+    public static void main(String[] args) throws InterruptedException {
+        Product coffee = new CoffeeProduct("Large coffee", 3.55);
+        Product juice = new BeverageProduct("Freshly squeezed orange juice", 3.95);
+        Product baconRoll = new SnackProduct("Bacon roll", 4.53);
+        List<List<Product>> orderVariants = List.of(
+                List.of(coffee),
+                List.of(coffee, baconRoll),
+                List.of(coffee, coffee),
+                List.of(coffee, juice, baconRoll),
+                List.of(coffee, coffee, coffee, baconRoll, baconRoll));
+
+        Random random = new Random(42);
+        LocalTime[] requestedPickups = new LocalTime[ORDERS];
+        List<Product>[] orders = newOrderArray();
+        for (int i = 0; i < ORDERS; i++) {
+            long minutes = Math.round(120 + random.nextGaussian() * 30);
+            requestedPickups[i] = OPENING_TIME.plusMinutes(Math.max(0, Math.min(minutes, 359)));
+            orders[i] = orderVariants.get(random.nextInt(orderVariants.size()));
+        }
+
+        int cores = Math.max(2, Runtime.getRuntime().availableProcessors());
+        for (Duration slotLength : new Duration[]{Duration.ofMinutes(1), Duration.ofSeconds(10)}) {
+            long slotsPerMinute = 60 / slotLength.getSeconds();
+            Map<Station, Integer> capacityPerSlot = Map.of(
+                    Station.ESPRESSO_BAR, (int) (ESPRESSO_BAR_CAPACITY_PER_MINUTE / slotsPerMinute),
+                    Station.KITCHEN, (int) (KITCHEN_CAPACITY_PER_MINUTE / slotsPerMinute),
+                    Station.JUICE_BAR, (int) (JUICE_BAR_CAPACITY_PER_MINUTE / slotsPerMinute));
+            for (int round = 0; round < 5; round++) {
+                for (int threads : new int[]{1, cores}) {
+                    String name = "round " + (round + 1) + ", " + slotLength.getSeconds() + " s slots, ";
+                    PickupSlotScheduler scheduler = new PickupSlotScheduler(
+                            OPENING_TIME, CLOSING_TIME, slotLength, capacityPerSlot);
+                    measure(name + "slot index, " + threads + " threads",
+                            requestedPickups, orders, threads, scheduler::book);
+
+                    LinearSlotScheduler linearScheduler = new LinearSlotScheduler(slotLength, capacityPerSlot);
+                    measure(name + "locked scan, " + threads + " threads",
+                            requestedPickups, orders, threads, linearScheduler::book);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Product>[] newOrderArray() {
+        return new List[ORDERS];
+    }
+
+    private static void measure(String name,
+                                LocalTime[] requestedPickups,
+                                List<Product>[] orders,
+                                int threads,
+                                BookingFunction scheduler) throws InterruptedException {
+        LongAdder booked = new LongAdder();
+        LongAdder delayMinutes = new LongAdder();
+        List<Thread> bookingThreads = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            Thread bookingThread = new Thread(() -> {
+                for (int i = first; i < ORDERS; i += threads) {
+                    Optional<PickupBooking> booking = scheduler.book("Customer " + i, orders[i], requestedPickups[i]);
+                    if (booking.isPresent()) {
+                        booked.increment();
+                        delayMinutes.add(Duration.between(requestedPickups[i], booking.get().pickupTime()).toMinutes());
+                    }
+                }
+            });
+            bookingThread.start();
+            bookingThreads.add(bookingThread);
+        }
+        for (Thread bookingThread : bookingThreads) {
+            bookingThread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        BenchmarkHarness.report(name, "%.0f k bookings/s, %d booked, %.1f min average delay",
+                ORDERS * 1e6 / elapsed, booked.sum(), (double) delayMinutes.sum() / Math.max(1, booked.sum()));
+    }
+
+    @FunctionalInterface
+    private interface BookingFunction {
+        Optional<PickupBooking> book(String customerName, List<Product> products, LocalTime requestedPickup);
+    }
+
+    /**
+     * Baseline checking the slots one after another under a single lock.
+     */
+    private static final class LinearSlotScheduler {
+
+        private final long slotSeconds;
+        private final int[][] remaining;
+        private long bookingNumbers;
+
+        private LinearSlotScheduler(Duration slotLength, Map<Station, Integer> capacityPerSlot) {
+            slotSeconds = slotLength.getSeconds();
+            int slotCount = (int) (Duration.between(OPENING_TIME, CLOSING_TIME).getSeconds() / slotSeconds);
+            remaining = new int[Station.values().length][slotCount];
+            for (Station station : Station.values()) {
+                Arrays.fill(remaining[station.ordinal()], capacityPerSlot.get(station));
+            }
+        }
+
+        private synchronized Optional<PickupBooking> book(String customerName,
+                                                          List<Product> products,
+                                                          LocalTime requestedPickup) {
+            int[] demand = new int[Station.values().length];
+            for (Product product : products) {
+                demand[Station.forProduct(product).ordinal()]++;
+            }
+            int firstSlot = (int) (Duration.between(OPENING_TIME, requestedPickup).getSeconds() / slotSeconds);
+            for (int slot = firstSlot; slot < remaining[0].length; slot++) {
+                if (fits(slot, demand)) {
+                    for (int station = 0; station < demand.length; station++) {
+                        remaining[station][slot] -= demand[station];
+                    }
+                    return Optional.of(new PickupBooking(
+                            ++bookingNumbers, customerName, OPENING_TIME.plusSeconds(slot * slotSeconds), Map.of()));
+                }
+            }
+            return Optional.empty();
+        }
+
+        private boolean fits(int slot, int[] demand) {
+            for (int station = 0; station < demand.length; station++) {
+                if (remaining[station][slot] < demand[station]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.fsetkov.benchmark;
+
+import com.fsetkov.models.PrepaidAccount;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.LongPredicate;
+
+/**
+ * Lets many tills charge one shared corporate card and reports the checkout throughput of the lock-free
+ * {@link PrepaidAccount} next to the same account serialized through one lock.
+ */
+public class PrepaidAccountBenchmark {
+
+    private static final int CHECKOUTS_PER_TILL = 2_000_000;
+    private static final long AMOUNT = 305;
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxTills = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        for (int round = 0; round < 2; round++) {
+            for (int tills = 1; tills <= maxTills; tills *= 2) {
+                long initialBalance = AMOUNT * CHECKOUTS_PER_TILL * tills;
+
+                PrepaidAccount account = new PrepaidAccount("corporate", initialBalance);
+                run("round " + (round + 1) + ", lock-free, " + tills + " tills", tills,
+                        amount -> account.tryDebit(amount) != PrepaidAccount.INSUFFICIENT_BALANCE);
+                if (account.getBalance() != 0) {
+                    throw new IllegalStateException("Lost debits, balance is " + account.getBalance());
+                }
+
+                LockedAccount lockedAccount = new LockedAccount(initialBalance);
+                run("round " + (round + 1) + ", one lock, " + tills + " tills", tills, lockedAccount::tryDebit);
+            }
+        }
+    }
+
+    private static void run(String name, int tills, LongPredicate debit) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>(tills);
+        for (int till = 0; till < tills; till++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long charged = 0;
+                for (int checkout = 0; checkout < CHECKOUTS_PER_TILL; checkout++) {
+                    if (debit.test(AMOUNT)) {
+                        charged++;
+                    }
+                }
+                BenchmarkHarness.consume(charged);
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        BenchmarkHarness.report(name, "%.1f M checkouts/s", (double) CHECKOUTS_PER_TILL * tills * 1e3 / elapsed);
+    }
+
+    private static final class LockedAccount {
+
+        private long balance;
+
+        private LockedAccount(long balance) {
+            this.balance = balance;
+        }
+
+        private synchronized boolean tryDebit(long amount) {
+            if (balance < amount) {
+                return false;
+            }
+            balance -= amount;
+            return true;
+        }
+    }
+}
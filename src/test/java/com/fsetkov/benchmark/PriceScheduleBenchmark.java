@@ -0,0 +1,79 @@
+package com.fsetkov.benchmark;
+
+import com.fsetkov.models.PriceRule;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.ProductType;
+import com.fsetkov.service.PriceSchedule;
+import com.fsetkov.service.PricingService;
+import com.fsetkov.service.ProductService;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Prices every catalog product at a sequence of minutes of the week, by scanning all overlapping price rules
+ * and by a lookup in the compiled {@link PriceSchedule}, for a growing number of rules.
+ */
+public class PriceScheduleBenchmark {
+
+    private static final int OPERATIONS = 200_000;
+
+    public static void main(String[] args) {
+        List<Product> catalog = new ProductService().getProducts();
+        long[] basePrices = catalog.stream().mapToLong(p -> PricingService.toMinorUnits(p.getPrice())).toArray();
+
+        for (int ruleCount : new int[]{0, 12, 48, 192}) {
+            List<PriceRule> rules = randomRules(catalog, ruleCount);
+            PriceSchedule schedule = PriceSchedule.compile(catalog, rules);
+
+            BenchmarkHarness.measure("rule scanning, " + ruleCount + " rules", OPERATIONS, i -> {
+                int minute = (i * 7) % PriceRule.MINUTES_PER_WEEK;
+                long total = 0;
+                for (int p = 0; p < catalog.size(); p++) {
+                    Product product = catalog.get(p);
+                    long price = basePrices[p];
+                    for (PriceRule rule : rules) {
+                        if (rule.appliesTo(product) && rule.isActiveAt(minute)) {
+                            price = Math.min(price, rule.apply(basePrices[p]));
+                        }
+                    }
+                    total += price;
+                }
+                return (int) total;
+            });
+
+            BenchmarkHarness.measure("compiled schedule, " + ruleCount + " rules, "
+                                     + schedule.getBandCount() + " bands", OPERATIONS, i -> {
+                int minute = (i * 7) % PriceRule.MINUTES_PER_WEEK;
+                long total = 0;
+                for (Product product : catalog) {
+                    total += schedule.getPrice(product, minute);
+                }
+                return (int) total;
+            });
+        }
+    }
+
+    private static List<PriceRule> randomRules(List<Product> catalog, int count) {
+        Random random = new Random(7);
+        List<PriceRule> rules = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+            for (int d = 0; d < 3; d++) {
+                days.add(DayOfWeek.of(1 + random.nextInt(7)));
+            }
+            LocalTime from = LocalTime.of(6 + random.nextInt(14), random.nextInt(4) * 15);
+            LocalTime to = from.plusMinutes(30 + random.nextInt(8) * 15L);
+            int percentOff = 5 + random.nextInt(40);
+            rules.add(i % 3 == 0
+                    ? PriceRule.forProductType(ProductType.values()[random.nextInt(3)], days, from, to, percentOff)
+                    : PriceRule.forProduct(catalog.get(random.nextInt(catalog.size())).getName(), days, from, to, percentOff));
+        }
+        return rules;
+    }
+}
@@ -0,0 +1,51 @@
+package com.fsetkov.benchmark;
+
+import com.fsetkov.models.CustomerStampCard;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.QuantityOrder;
+import com.fsetkov.service.PricingService;
+import com.fsetkov.service.ProductService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prices a 10,000-cup catering order with one {@link Product} per unit, as the receipt does, and with a
+ * {@link QuantityOrder} priced arithmetically by {@link PricingService}.
+ */
+public class PricingBenchmark {
+
+    private static final int CUPS = 10_000;
+    private static final int OPERATIONS = 200;
+
+    public static void main(String[] args) {
+        ProductService productService = new ProductService();
+        List<Product> catalog = productService.getProducts();
+        Product mediumCoffee = catalog.get(1);
+        Product extraMilk = catalog.get(5);
+        Product baconRoll = catalog.get(4);
+        PricingService pricingService = new PricingService(catalog);
+
+        BenchmarkHarness.measure("product per unit, " + CUPS + " cups", OPERATIONS, i -> {
+            List<Product> buyingList = new ArrayList<>(2 * CUPS + 1);
+            for (int cup = 0; cup < CUPS; cup++) {
+                buyingList.add(mediumCoffee.copy());
+                buyingList.add(extraMilk.copy());
+            }
+            buyingList.add(baconRoll.copy());
+            CustomerStampCard stampCard = new CustomerStampCard();
+            stampCard.setNumberOfBeveragesBought(CUPS);
+            buyingList.sort(Product.getProductTypeAndPriceComparator());
+            productService.applyFreeProducts(buyingList, stampCard.getNumberOfFreeBeverages(), true);
+            return (int) buyingList.stream().mapToDouble(Product::getPrice).sum();
+        });
+
+        BenchmarkHarness.measure("quantity order, " + CUPS + " cups", OPERATIONS * 1_000, i -> {
+            QuantityOrder order = new QuantityOrder(catalog);
+            order.add(1, CUPS);
+            order.add(5, CUPS);
+            order.add(4, 1);
+            return (int) pricingService.checkout(order, new CustomerStampCard()).total();
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package com.fsetkov.benchmark;
+
+import com.fsetkov.models.Product;
+import com.fsetkov.promotion.FreeExtraRule;
+import com.fsetkov.promotion.HistoricalOrder;
+import com.fsetkov.promotion.PromotionSimulator;
+import com.fsetkov.promotion.PromotionVariant;
+import com.fsetkov.promotion.VariantResult;
+import com.fsetkov.service.ProductService;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Replays a year of generated orders through eight promotion variants, streaming the orders once, with one
+ * worker and with one worker per core.
+ */
+public class PromotionSimulatorBenchmark {
+
+    private static final int ORDERS = 2_000_000;
+    private static final int CUSTOMERS = 50_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        List<Product> catalog = new ProductService().getProducts();
+        List<PromotionVariant> variants = new ArrayList<>();
+        variants.add(PromotionVariant.CURRENT);
+        for (int stamps = 3; stamps <= 6; stamps++) {
+            variants.add(new PromotionVariant("every " + stamps + " free, any beverage", stamps,
+                    FreeExtraRule.ANY_BEVERAGE));
+        }
+        variants.add(new PromotionVariant("every 4 free", 4, FreeExtraRule.BEVERAGE_AND_SNACK));
+        variants.add(new PromotionVariant("every 6 free", 6, FreeExtraRule.BEVERAGE_AND_SNACK));
+        variants.add(new PromotionVariant("no free extra", 5, FreeExtraRule.NONE));
+
+        int cores = Math.max(2, Runtime.getRuntime().availableProcessors());
+        for (int round = 0; round < 2; round++) {
+            for (int workers : new int[]{1, cores}) {
+                long start = System.nanoTime();
+                List<VariantResult> results = new PromotionSimulator(variants, workers)
+                        .simulate(generatedOrders(catalog));
+                long elapsed = System.nanoTime() - start;
+                BenchmarkHarness.report("round " + (round + 1) + ", " + workers + " workers, " + variants.size()
+                                        + " variants", "%.0f k orders/s", ORDERS * 1e6 / elapsed);
+                if (round == 1 && workers == cores) {
+                    for (VariantResult result : results) {
+                        BenchmarkHarness.report("  " + result.variant().name(),
+                                "revenue %+.2f CHF, redemptions %+d",
+                                result.revenueDelta() / 100d, result.redemptionDelta());
+                    }
+                }
+            }
+        }
+    }
+
+    private static Iterator<HistoricalOrder> generatedOrders(List<Product> catalog) {
+        SplittableRandom random = new SplittableRandom(2024);
+        return new Iterator<>() {
+            private int generated;
+
+            @Override
+            public boolean hasNext() {
+                return generated < ORDERS;
+            }
+
+            @Override
+            public HistoricalOrder next() {
+                generated++;
+                int lines = 1 + random.nextInt(4);
+                List<Product> products = new ArrayList<>(lines);
+                for (int line = 0; line < lines; line++) {
+                    products.add(catalog.get(random.nextInt(catalog.size())));
+                }
+                return new HistoricalOrder("customer" + random.nextInt(CUSTOMERS), products);
+            }
+        };
+    }
+}
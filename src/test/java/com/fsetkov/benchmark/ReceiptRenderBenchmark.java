@@ -0,0 +1,46 @@
+package com.fsetkov.benchmark;
+
+import com.fsetkov.models.CustomerStampCard;
+import com.fsetkov.models.Product;
+import com.fsetkov.receipt.ReceiptRenderCache;
+import com.fsetkov.service.PrintService;
+import com.fsetkov.service.ProductService;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders a day of receipts made of a few common order shapes, with the receipt render cache disabled and
+ * with the default cache, and reports the hit rate of the cache.
+ */
+public class ReceiptRenderBenchmark {
+
+    private static final int OPERATIONS = 100_000;
+
+    public static void main(String[] args) {
+        ProductService productService = new ProductService();
+        List<Product> catalog = productService.getProducts();
+        List<List<Product>> shapes = List.of(
+                List.of(catalog.get(1), catalog.get(5)),
+                List.of(catalog.get(4), catalog.get(3)),
+                List.of(catalog.get(0)),
+                List.of(catalog.get(2), catalog.get(6), catalog.get(4)));
+
+        for (int capacity : new int[]{0, PrintService.DEFAULT_RECEIPT_CACHE_CAPACITY}) {
+            ReceiptRenderCache cache = new ReceiptRenderCache(capacity);
+            PrintService printService = new PrintService(productService, null, Clock.systemDefaultZone(), cache);
+
+            BenchmarkHarness.measure("receipt, cache capacity " + capacity, OPERATIONS, i -> {
+                List<Product> buyingList = new ArrayList<>();
+                for (Product product : shapes.get(i % shapes.size())) {
+                    buyingList.add(product.copy());
+                }
+                CustomerStampCard stampCard = new CustomerStampCard();
+                stampCard.setNumberOfBeveragesBought(i % 7);
+                return printService.renderReceipt(buyingList, stampCard, i % 3 == 0).length();
+            });
+            BenchmarkHarness.report("hit rate, cache capacity " + capacity, "%.3f", cache.getMetrics().hitRate());
+        }
+    }
+}
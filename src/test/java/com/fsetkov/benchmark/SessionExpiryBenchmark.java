@@ -0,0 +1,88 @@
+package com.fsetkov.benchmark;
+
+import com.fsetkov.session.HashedTimingWheel;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resets the idle timeout of one of many open sessions per operation, i.e. cancels its timeout and schedules a new
+ * one, on the hashed timing wheel and, for comparison, on a {@link ScheduledThreadPoolExecutor}; then measures
+ * expiring all sessions at once.
+ */
+public class SessionExpiryBenchmark {
+
+    private static final int SESSIONS = 100_000;
+    private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(5);
+    private static final Runnable EXPIRE = () -> BenchmarkHarness.consume(1);
+
+    public static void main(String[] args) {
+        HashedTimingWheel timingWheel = new HashedTimingWheel(Duration.ofSeconds(1), 512, Clock.systemUTC());
+        HashedTimingWheel.Timeout[] timeouts = new HashedTimingWheel.Timeout[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            timeouts[i] = timingWheel.schedule(EXPIRE, IDLE_TIMEOUT);
+        }
+        BenchmarkHarness.measure("timing wheel reset, " + SESSIONS + " sessions", SESSIONS, i -> {
+            timeouts[i].cancel();
+            timeouts[i] = timingWheel.schedule(EXPIRE, IDLE_TIMEOUT);
+            return i;
+        });
+
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        ScheduledFuture<?>[] futures = new ScheduledFuture<?>[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            futures[i] = executor.schedule(EXPIRE, IDLE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        BenchmarkHarness.measure("scheduled executor reset, " + SESSIONS + " sessions", SESSIONS, i -> {
+            futures[i].cancel(false);
+            futures[i] = executor.schedule(EXPIRE, IDLE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            return i;
+        });
+        executor.shutdownNow();
+
+        for (int round = 0; round < 5; round++) {
+            SettableClock clock = new SettableClock(Instant.now());
+            HashedTimingWheel expiringWheel = new HashedTimingWheel(Duration.ofSeconds(1), 512, clock);
+            for (int i = 0; i < SESSIONS; i++) {
+                expiringWheel.schedule(EXPIRE, IDLE_TIMEOUT.plusMillis(i % 60_000));
+            }
+            clock.instant = clock.instant.plus(IDLE_TIMEOUT).plusSeconds(60);
+            long start = System.nanoTime();
+            int expired = expiringWheel.advance();
+            long elapsed = System.nanoTime() - start;
+            BenchmarkHarness.report("round " + (round + 1) + ", expire " + expired + " sessions",
+                    "%.1f ms", elapsed / 1e6);
+        }
+    }
+
+    private static final class SettableClock extends Clock {
+
+        private Instant instant;
+
+        private SettableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.fsetkov.benchmark;
+
+import com.fsetkov.EntryPoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Starts the application in fresh JVMs and measures the time to the first prompt and to the first receipt,
+ * with the default JVM settings and in the fast-start mode of the {@code runFastStart} Gradle task: an AppCDS
+ * archive recorded by a training run, C1 only and the serial collector.
+ * <p>
+ * CDS only archives classes loaded from jar files, so the main classes are packed into a temporary jar when the
+ * benchmark runs from the class directories.
+ */
+public class StartupBenchmark {
+
+    private static final int RUNS = 10;
+    private static final String FIRST_PROMPT = "what is your name?";
+    private static final String FIRST_RECEIPT = "Total:";
+    private static final String TRAINING_SESSION = String.join(System.lineSeparator(),
+            "Training", "2", "1", "Bacon", "end", "",
+            "Training", "med", "end", "end", "exit", "");
+    private static final String FIRST_ORDER = String.join(System.lineSeparator(), "John", "2", "end", "end", "");
+    private static final List<String> FAST_START_JVM_ARGS =
+            List.of("-Xshare:auto", "-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC");
+
+    public static void main(String[] args) throws IOException, InterruptedException, URISyntaxException {
+        Path workDirectory = Files.createTempDirectory("startup-benchmark");
+        Path jar = applicationJar(workDirectory);
+        Path archive = workDirectory.resolve("coffee-shop.jsa");
+
+        Process training = start(jar, List.of("-XX:ArchiveClassesAtExit=" + archive));
+        try (OutputStream in = training.getOutputStream()) {
+            in.write(TRAINING_SESSION.getBytes(StandardCharsets.UTF_8));
+        }
+        training.getInputStream().transferTo(OutputStream.nullOutputStream());
+        if (training.waitFor() != 0 || !Files.exists(archive)) {
+            throw new IllegalStateException("Training run did not create the CDS archive");
+        }
+
+        List<String> fastStartArgs = new ArrayList<>();
+        fastStartArgs.add("-XX:SharedArchiveFile=" + archive);
+        fastStartArgs.addAll(FAST_START_JVM_ARGS);
+
+        measure("default JVM", jar, List.of());
+        measure("AppCDS archive only", jar, List.of("-XX:SharedArchiveFile=" + archive));
+        measure("fast-start mode", jar, fastStartArgs);
+    }
+
+    private static void measure(String name, Path jar, List<String> jvmArgs) throws IOException, InterruptedException {
+        long[] firstPrompt = new long[RUNS];
+        long[] firstReceipt = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            Process process = start(jar, jvmArgs);
+            InputStream out = process.getInputStream();
+            StringBuilder output = new StringBuilder();
+
+            awaitOutput(out, output, FIRST_PROMPT);
+            firstPrompt[run] = System.nanoTime() - start;
+            OutputStream in = process.getOutputStream();
+            in.write(FIRST_ORDER.getBytes(StandardCharsets.UTF_8));
+            in.flush();
+            awaitOutput(out, output, FIRST_RECEIPT);
+            firstReceipt[run] = System.nanoTime() - start;
+
+            in.write(("exit" + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+            in.close();
+            out.transferTo(OutputStream.nullOutputStream());
+            process.waitFor();
+        }
+        BenchmarkHarness.report(name + ", first prompt", "%.1f ms (median of %d)", median(firstPrompt) / 1e6, RUNS);
+        BenchmarkHarness.report(name + ", first receipt", "%.1f ms (median of %d)", median(firstReceipt) / 1e6, RUNS);
+    }
+
+    private static Process start(Path jar, List<String> jvmArgs) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(jar.toString());
+        command.add(EntryPoint.class.getName());
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+    private static void awaitOutput(InputStream out, StringBuilder output, String expected) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (output.indexOf(expected) < 0) {
+            int read = out.read(buffer);
+            if (read < 0) {
+                throw new IllegalStateException("Application ended before printing '" + expected + "'");
+            }
+            output.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static Path applicationJar(Path workDirectory) throws IOException, URISyntaxException {
+        Path location = Path.of(EntryPoint.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        if (!Files.isDirectory(location)) {
+            return location;
+        }
+        Path jar = workDirectory.resolve("coffee-shop.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+             Stream<Path> files = Files.walk(location)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                out.putNextEntry(new JarEntry(location.relativize(file).toString().replace('\\', '/')));
+                Files.copy(file, out);
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+}
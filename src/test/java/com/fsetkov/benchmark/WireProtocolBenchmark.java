@@ -0,0 +1,138 @@
+package com.fsetkov.benchmark;
+
+import com.fsetkov.protocol.BufferPool;
+import com.fsetkov.protocol.RequestType;
+import com.fsetkov.protocol.ResponseType;
+import com.fsetkov.protocol.WireCodec;
+import com.fsetkov.protocol.WireFrame;
+import com.fsetkov.protocol.WireOrderHandler;
+import com.fsetkov.service.CustomerService;
+import com.fsetkov.service.PrintService;
+import com.fsetkov.service.ProductService;
+import com.fsetkov.session.OrderSession;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * Encodes and decodes the requests and responses of one order, a coffee with an extra and a bacon roll, with
+ * the binary ordering protocol and, for comparison, with a text-line protocol carrying the same commands.
+ * Then compares the bytes and round trips of the order with those of the prompt-by-prompt text dialog of the
+ * {@link OrderSession} the tills use today.
+ */
+public class WireProtocolBenchmark {
+
+    private static final int ORDERS = 100_000;
+    private static final long WAN_ROUND_TRIP_MILLIS = 80;
+
+    public static void main(String[] args) {
+        String receipt = renderReceipt();
+        BufferPool pool = new BufferPool(WireOrderHandler.MIN_RESPONSE_BUFFER_SIZE, 4, false);
+        WireFrame frame = new WireFrame();
+
+        int[] binaryBytes = new int[1];
+        BenchmarkHarness.measure("binary protocol, one order", ORDERS, i -> {
+            ByteBuffer requests = pool.acquire();
+            WireCodec.putIdentifyCustomer(requests, "John");
+            WireCodec.putAddProduct(requests, 0);
+            WireCodec.putAddExtra(requests, 5);
+            WireCodec.putAddProduct(requests, 4);
+            WireCodec.putEndOrder(requests, "order-1");
+            requests.flip();
+
+            ByteBuffer responses = pool.acquire();
+            int checksum = 0;
+            while (frame.next(requests)) {
+                RequestType type = frame.getRequestType();
+                if (type == RequestType.IDENTIFY_CUSTOMER) {
+                    checksum += frame.getText().length();
+                } else if (type == RequestType.ADD_PRODUCT || type == RequestType.ADD_EXTRA) {
+                    checksum += frame.getCatalogId();
+                    WireCodec.putResponse(responses, ResponseType.ACCEPTED);
+                } else {
+                    WireCodec.putReceipt(responses, receipt);
+                }
+            }
+            binaryBytes[0] = requests.limit() + responses.position();
+            responses.flip();
+            while (frame.next(responses)) {
+                checksum += frame.getResponseType() == ResponseType.RECEIPT ? frame.getText().length() : 1;
+            }
+            pool.release(requests);
+            pool.release(responses);
+            return checksum;
+        });
+
+        int[] textBytes = new int[1];
+        BenchmarkHarness.measure("text-line protocol, one order", ORDERS, i -> {
+            byte[] requests = "IDENTIFY John\nADD 0\nEXTRA 5\nADD 4\nEND order-1\n".getBytes(StandardCharsets.UTF_8);
+
+            StringBuilder responses = new StringBuilder();
+            int checksum = 0;
+            for (String line : new String(requests, StandardCharsets.UTF_8).split("\n")) {
+                if (line.startsWith("IDENTIFY ")) {
+                    checksum += line.substring(9).length();
+                } else if (line.startsWith("ADD ") || line.startsWith("EXTRA ")) {
+                    checksum += Integer.parseInt(line.substring(line.indexOf(' ') + 1));
+                    responses.append("OK\n");
+                } else {
+                    responses.append("RECEIPT\n").append(receipt).append("\n.\n");
+                }
+            }
+            byte[] responseBytes = responses.toString().getBytes(StandardCharsets.UTF_8);
+            textBytes[0] = requests.length + responseBytes.length;
+            String[] lines = new String(responseBytes, StandardCharsets.UTF_8).split("\n");
+            for (String line : lines) {
+                checksum += line.length();
+            }
+            return checksum;
+        });
+
+        int dialogBytes = measureDialogBytes();
+        BenchmarkHarness.report("  binary protocol", "%d bytes, 1 round trip, %d ms at %d ms RTT",
+                binaryBytes[0], WAN_ROUND_TRIP_MILLIS, WAN_ROUND_TRIP_MILLIS);
+        BenchmarkHarness.report("  text-line protocol", "%d bytes, 1 round trip, %d ms at %d ms RTT",
+                textBytes[0], WAN_ROUND_TRIP_MILLIS, WAN_ROUND_TRIP_MILLIS);
+        BenchmarkHarness.report("  prompt-by-prompt text dialog", "%d bytes, 5 round trips, %d ms at %d ms RTT",
+                dialogBytes, 5 * WAN_ROUND_TRIP_MILLIS, WAN_ROUND_TRIP_MILLIS);
+        BenchmarkHarness.report("  buffers allocated by the pool", "%d", pool.getAllocatedCount());
+    }
+
+    private static String renderReceipt() {
+        ProductService productService = new ProductService();
+        WireOrderHandler handler = new WireOrderHandler(
+                new CustomerService(new HashMap<>()), productService, new PrintService(productService));
+        ByteBuffer requests = ByteBuffer.allocate(256);
+        WireCodec.putIdentifyCustomer(requests, "John");
+        WireCodec.putAddProduct(requests, 0);
+        WireCodec.putAddExtra(requests, 5);
+        WireCodec.putAddProduct(requests, 4);
+        WireCodec.putEndOrder(requests, "order-1");
+        requests.flip();
+        ByteBuffer responses = ByteBuffer.allocate(WireOrderHandler.MIN_RESPONSE_BUFFER_SIZE);
+        handler.handle(requests, responses);
+        responses.flip();
+        WireFrame frame = new WireFrame();
+        while (frame.next(responses)) {
+            if (frame.getResponseType() == ResponseType.RECEIPT) {
+                return frame.getText();
+            }
+        }
+        throw new IllegalStateException("No receipt");
+    }
+
+    private static int measureDialogBytes() {
+        StringBuilder output = new StringBuilder();
+        ProductService productService = new ProductService();
+        OrderSession session = new OrderSession(
+                new CustomerService(new HashMap<>()), productService, new PrintService(productService), output::append);
+        session.start();
+        int inputBytes = 0;
+        for (String input : new String[]{"John", "1", "2", "5", "end"}) {
+            session.onInput(input);
+            inputBytes += input.length() + 1;
+        }
+        return inputBytes + output.toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+}
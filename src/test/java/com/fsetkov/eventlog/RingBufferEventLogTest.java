@@ -0,0 +1,163 @@
+package com.fsetkov.eventlog;
+
+import com.fsetkov.service.CustomerService;
+import com.fsetkov.service.PrintService;
+import com.fsetkov.service.ProductService;
+import com.fsetkov.session.OrderSession;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferEventLogTest {
+
+    @Test
+    void shouldDecodeEventsOfOrderSession(@TempDir Path directory) throws IOException {
+        // given
+        ProductService productService = new ProductService();
+        OrderSession session = new OrderSession(
+                new CustomerService(new HashMap<>()),
+                productService,
+                new PrintService(productService),
+                text -> {
+                });
+
+        // when
+        try (RingBufferEventLog eventLog = new RingBufferEventLog(directory)) {
+            session.setEventLog(eventLog);
+            session.start();
+            for (String input : new String[]{"John", "2", "1", "x", "5", "end", "exit"}) {
+                session.onInput(input);
+            }
+        }
+
+        // then
+        List<DecodedEvent> events = decodeAll(directory);
+        assertEquals(List.of(
+                EventType.SESSION_STARTED,
+                EventType.CUSTOMER_IDENTIFIED,
+                EventType.ITEM_ADDED,
+                EventType.ITEM_ADDED,
+                EventType.INVALID_INPUT,
+                EventType.ITEM_ADDED,
+                EventType.RECEIPT_RENDERED,
+                EventType.SESSION_EXITED), events.stream().map(DecodedEvent::type).toList());
+        assertEquals("Medium coffee", events.get(2).symbol());
+        assertEquals("Extra milk", events.get(3).symbol());
+        assertEquals(OrderSession.State.AWAITING_PRODUCT.ordinal(), events.get(4).value());
+        assertEquals(758, events.get(6).value());
+        assertTrue(events.stream().allMatch(event -> event.sessionId() == session.getSessionId()));
+    }
+
+    @Test
+    void shouldRollFilesThatDecodeOnTheirOwn(@TempDir Path directory) throws IOException {
+        // given
+        int events = 1_000;
+
+        // when
+        try (RingBufferEventLog eventLog = new RingBufferEventLog(directory, 64, 4_096)) {
+            int symbol = eventLog.symbol("Bacon roll");
+            for (int i = 0; i < events; i++) {
+                eventLog.log(EventType.ITEM_ADDED, i, symbol);
+                if (i % 32 == 31) {
+                    while (eventLog.getMetrics().written() < i + 1) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }
+            assertTrue(eventLog.getMetrics().files() > 1);
+        }
+
+        // then
+        List<Path> files = EventLogDecoder.logFiles(directory);
+        assertTrue(files.size() > 1);
+        List<DecodedEvent> lastFileEvents = new ArrayList<>();
+        EventLogDecoder.decode(files.get(files.size() - 1), lastFileEvents::add);
+        assertFalse(lastFileEvents.isEmpty());
+        assertTrue(lastFileEvents.stream().allMatch(event -> "Bacon roll".equals(event.symbol())));
+        List<DecodedEvent> allEvents = decodeAll(directory);
+        assertEquals(events, allEvents.size());
+        assertEquals(events - 1, allEvents.get(events - 1).sessionId());
+    }
+
+    @Test
+    void shouldAccountForEveryEventOfConcurrentThreads(@TempDir Path directory)
+            throws IOException, InterruptedException {
+        // given
+        int threads = 4;
+        int eventsPerThread = 50_000;
+        EventLogMetrics metrics;
+
+        // when
+        try (RingBufferEventLog eventLog = new RingBufferEventLog(directory, 256, 1L << 30)) {
+            List<Thread> tills = new ArrayList<>();
+            for (int till = 0; till < threads; till++) {
+                long sessionId = till;
+                tills.add(new Thread(() -> {
+                    for (int i = 0; i < eventsPerThread; i++) {
+                        eventLog.log(EventType.INVALID_INPUT, sessionId, i);
+                    }
+                }));
+            }
+            tills.forEach(Thread::start);
+            for (Thread till : tills) {
+                till.join();
+            }
+            eventLog.close();
+            metrics = eventLog.getMetrics();
+        }
+
+        // then
+        assertEquals(threads, metrics.threads());
+        assertEquals((long) threads * eventsPerThread, metrics.written() + metrics.dropped());
+        assertEquals(metrics.written(), decodeAll(directory).size());
+    }
+
+    @Test
+    void shouldDropBuffersOfDeadThreadsOnceDrained(@TempDir Path directory) throws IOException, InterruptedException {
+        // given
+        int threads = 8;
+        int eventsPerThread = 10;
+
+        try (RingBufferEventLog eventLog = new RingBufferEventLog(directory, 64, 1L << 20)) {
+            eventLog.log(EventType.SESSION_STARTED, -1, 0);
+            for (int till = 0; till < threads; till++) {
+                long sessionId = till;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < eventsPerThread; i++) {
+                        eventLog.log(EventType.INVALID_INPUT, sessionId, i);
+                    }
+                });
+                thread.start();
+                thread.join();
+            }
+
+            // when
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (eventLog.getMetrics().buffers() > 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            EventLogMetrics metrics = eventLog.getMetrics();
+
+            // then
+            assertEquals(1, metrics.buffers());
+            assertEquals(threads + 1, metrics.threads());
+            assertEquals(threads * eventsPerThread + 1, metrics.written());
+        }
+        assertEquals(threads * eventsPerThread + 1, decodeAll(directory).size());
+    }
+
+    private static List<DecodedEvent> decodeAll(Path directory) throws IOException {
+        List<DecodedEvent> events = new ArrayList<>();
+        for (Path file : EventLogDecoder.logFiles(directory)) {
+            EventLogDecoder.decode(file, events::add);
+        }
+        return events;
+    }
+}
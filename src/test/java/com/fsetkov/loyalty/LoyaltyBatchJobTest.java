@@ -0,0 +1,159 @@
+package com.fsetkov.loyalty;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.LoyaltyTier;
+import com.fsetkov.repository.ShardedCustomerRegistry;
+import com.fsetkov.service.CustomerService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoyaltyBatchJobTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 30);
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-06-30T02:00:00Z"), ZoneOffset.UTC);
+
+    private final Map<String, Customer> customers = new ConcurrentHashMap<>();
+    private final CustomerService customerService = new CustomerService(customers);
+    private final Queue<MemberStatement> statements = new ConcurrentLinkedQueue<>();
+
+    @Test
+    void shouldExpireStaleStampsAndComputeTiers() {
+        // given
+        Customer regular = customerWithStamps("Regular", 3);
+        for (int day = 0; day < 30; day++) {
+            regular.getVisitHistory().recordVisit(TODAY.minusDays(day * 2L));
+        }
+        Customer occasional = customerWithStamps("Occasional", 4);
+        for (int week = 0; week < 10; week++) {
+            occasional.getVisitHistory().recordVisit(TODAY.minusWeeks(week));
+        }
+        Customer gone = customerWithStamps("Gone", 4);
+        gone.getVisitHistory().recordVisit(TODAY.minusYears(2));
+        Customer loaded = customerWithStamps("Loaded", 2);
+
+        // when
+        LoyaltyBatchResult result = new LoyaltyBatchJob(ForkJoinPool.commonPool(), CLOCK, statements::add)
+                .run(customerService);
+
+        // then
+        assertEquals(4, result.members());
+        assertEquals(1, result.expiredCards());
+        assertEquals(4, result.expiredStamps());
+        assertEquals(Map.of(LoyaltyTier.GOLD, 1L, LoyaltyTier.SILVER, 1L, LoyaltyTier.BRONZE, 2L),
+                result.tierCounts());
+        assertEquals(LoyaltyTier.GOLD, regular.getLoyaltyTier());
+        assertEquals(LoyaltyTier.SILVER, occasional.getLoyaltyTier());
+        assertEquals(0, gone.getCustomerStampCard().getNumberOfBeveragesBought());
+        assertEquals(2, loaded.getCustomerStampCard().getNumberOfBeveragesBought());
+        MemberStatement goneStatement = statements.stream()
+                .filter(statement -> statement.username().equals("Gone"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(new MemberStatement("Gone", LoyaltyTier.BRONZE, 0, TODAY.minusYears(2), 0, 4), goneStatement);
+    }
+
+    @Test
+    void shouldProcessEveryMemberOfManyPartitionsWhileCheckoutsGoOn() throws InterruptedException {
+        // given
+        CustomerService liveCustomerService = new CustomerService(customers, new VisitHistoryRecorder(CLOCK));
+        for (int i = 0; i < 20_000; i++) {
+            customerWithStamps("member" + i, 4).getVisitHistory().recordVisit(TODAY.minusYears(2));
+        }
+        AtomicBoolean isRunning = new AtomicBoolean(true);
+        Thread checkouts = new Thread(() -> {
+            for (int i = 0; isRunning.get(); i++) {
+                liveCustomerService.getCustomerByUsername("walk-in" + i % 5_000)
+                        .getCustomerStampCard()
+                        .increaseBeverageCount();
+                liveCustomerService.getCustomerByUsername("member" + i % 20_000)
+                        .getCustomerStampCard()
+                        .increaseBeverageCount();
+            }
+        });
+        checkouts.start();
+
+        // when
+        LoyaltyBatchResult result;
+        try {
+            result = new LoyaltyBatchJob(new ForkJoinPool(4), CLOCK, Period.ofYears(1), 64, statements::add)
+                    .run(customerService);
+        } finally {
+            isRunning.set(false);
+            checkouts.join();
+        }
+
+        // then
+        assertTrue(result.members() >= 20_000);
+        assertEquals(result.members(), statements.size());
+        assertEquals(statements.size(), statements.stream().map(MemberStatement::username).distinct().count());
+        for (Customer customer : customers.values()) {
+            if (TODAY.equals(customer.getVisitHistory().getLastVisit())) {
+                assertTrue(customer.getCustomerStampCard().getNumberOfBeveragesBought() > 0, customer.getUsername());
+            }
+        }
+    }
+
+    @Test
+    void shouldProcessEveryShardOfShardedRegistry() {
+        // given
+        ShardedCustomerRegistry registry = new ShardedCustomerRegistry(4);
+        for (int i = 0; i < 1_000; i++) {
+            Customer customer = new Customer("member" + i);
+            customer.getCustomerStampCard().setNumberOfBeveragesBought(4);
+            customer.getVisitHistory().recordVisit(TODAY.minusYears(2));
+            registry.put(customer.getUsername(), customer);
+        }
+
+        // when
+        LoyaltyBatchResult result = new LoyaltyBatchJob(new ForkJoinPool(4), CLOCK, Period.ofYears(1), 64,
+                statements::add)
+                .run(new CustomerService(registry));
+
+        // then
+        assertEquals(1_000, result.members());
+        assertEquals(1_000, result.expiredCards());
+        assertEquals(1_000, statements.stream().map(MemberStatement::username).distinct().count());
+        assertEquals(0, registry.get("member7").getCustomerStampCard().getNumberOfBeveragesBought());
+    }
+
+    @Test
+    void shouldProcessCustomersHeldInPlainMap() {
+        // given
+        Map<String, Customer> plainCustomers = new HashMap<>();
+        Customer gone = new Customer("Gone");
+        gone.getCustomerStampCard().setNumberOfBeveragesBought(4);
+        gone.getVisitHistory().recordVisit(TODAY.minusYears(2));
+        plainCustomers.put("Gone", gone);
+        plainCustomers.put("New", new Customer("New"));
+
+        // when
+        LoyaltyBatchResult result = new LoyaltyBatchJob(ForkJoinPool.commonPool(), CLOCK, statements::add)
+                .run(new CustomerService(plainCustomers));
+
+        // then
+        assertEquals(2, result.members());
+        assertEquals(4, result.expiredStamps());
+        assertEquals(0, gone.getCustomerStampCard().getNumberOfBeveragesBought());
+    }
+
+    private Customer customerWithStamps(String username, int stamps) {
+        Customer customer = new Customer(username);
+        customer.getCustomerStampCard().setNumberOfBeveragesBought(stamps);
+        customers.put(username, customer);
+        return customer;
+    }
+}
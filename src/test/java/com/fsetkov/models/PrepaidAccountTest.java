@@ -0,0 +1,83 @@
+package com.fsetkov.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrepaidAccountTest {
+
+    @Test
+    void shouldDebitOnlyWhileBalanceCoversAmount() {
+        // given
+        PrepaidAccount account = new PrepaidAccount("gift-1", 500);
+
+        // when
+        long firstBalance = account.tryDebit(305);
+        long secondBalance = account.tryDebit(305);
+
+        // then
+        assertEquals(195, firstBalance);
+        assertEquals(PrepaidAccount.INSUFFICIENT_BALANCE, secondBalance);
+        assertEquals(195, account.getBalance());
+        assertEquals(1_195, account.topUp(1_000));
+    }
+
+    @Test
+    void shouldRejectNegativeAmounts() {
+        PrepaidAccount account = new PrepaidAccount("gift-1", 500);
+
+        assertThrows(IllegalArgumentException.class, () -> account.tryDebit(-1));
+        assertThrows(IllegalArgumentException.class, () -> account.topUp(-1));
+        assertThrows(ArithmeticException.class, () -> account.topUp(Long.MAX_VALUE));
+    }
+
+    @Test
+    void shouldNeverOverdrawOrLoseUpdatesOfSharedCorporateCard() throws InterruptedException {
+        // given
+        PrepaidAccount corporateCard = new PrepaidAccount("corporate", 100_000);
+        AtomicLong debited = new AtomicLong();
+        AtomicLong toppedUp = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> tills = new ArrayList<>();
+        for (int till = 0; till < 8; till++) {
+            int tillNumber = till;
+            tills.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int checkout = 0; checkout < 50_000; checkout++) {
+                    if (tillNumber == 0 && checkout % 10 == 0) {
+                        corporateCard.topUp(1_000);
+                        toppedUp.addAndGet(1_000);
+                    }
+                    long amount = 255 + checkout % 300;
+                    long remainingBalance = corporateCard.tryDebit(amount);
+                    if (remainingBalance != PrepaidAccount.INSUFFICIENT_BALANCE) {
+                        debited.addAndGet(amount);
+                        assertTrue(remainingBalance >= 0);
+                    }
+                    assertTrue(corporateCard.getBalance() >= 0);
+                }
+            }));
+        }
+
+        // when
+        tills.forEach(Thread::start);
+        start.countDown();
+        for (Thread till : tills) {
+            till.join();
+        }
+
+        // then
+        assertTrue(corporateCard.getBalance() >= 0);
+        assertEquals(100_000 + toppedUp.get() - debited.get(), corporateCard.getBalance());
+    }
+}
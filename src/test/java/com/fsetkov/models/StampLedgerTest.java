@@ -0,0 +1,69 @@
+package com.fsetkov.models;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StampLedgerTest {
+
+    @Test
+    void shouldConvergeRegardlessOfMergeOrderAndRepetition() {
+        // given
+        StampLedger tillA = new StampLedger();
+        StampLedger tillB = new StampLedger();
+        StampLedger registry = new StampLedger();
+        tillA.stamp("A", 3);
+        tillB.stamp("B", 6);
+        tillB.redeem("B", 1);
+        registry.stamp("registry", 2);
+
+        // when
+        StampLedger forward = registry.copy();
+        forward.merge(tillA);
+        forward.merge(tillB);
+        StampLedger backward = tillB.copy();
+        backward.merge(tillA);
+        backward.merge(registry);
+        backward.merge(tillA);
+        backward.merge(backward.copy());
+
+        // then
+        for (StampLedger ledger : new StampLedger[]{forward, backward}) {
+            assertEquals(11, ledger.getStampCount());
+            assertEquals(1, ledger.getRedeemedBeverageCount());
+            assertEquals(6, ledger.getBalance());
+        }
+        assertFalse(forward.merge(backward));
+    }
+
+    @Test
+    void shouldRedeemOnlyOwnedStamps() {
+        // given
+        StampLedger ledger = new StampLedger();
+        ledger.stamp("A", 4);
+        ledger.stamp("B", 4);
+
+        // when
+        long redeemedBeforeTransfer = ledger.redeem("A", Long.MAX_VALUE);
+        ledger.transfer("B", "A", 4);
+        long redeemedAfterTransfer = ledger.redeem("A", Long.MAX_VALUE);
+
+        // then
+        assertEquals(0, redeemedBeforeTransfer);
+        assertEquals(1, redeemedAfterTransfer);
+        assertEquals(3, ledger.getOwnedStamps("A"));
+        assertEquals(0, ledger.getOwnedStamps("B"));
+        assertEquals(3, ledger.getBalance());
+    }
+
+    @Test
+    void shouldRejectTransferOfStampsNotOwned() {
+        // given
+        StampLedger ledger = new StampLedger();
+        ledger.stamp("A", 2);
+
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> ledger.transfer("A", "B", 3));
+        assertThrows(IllegalArgumentException.class, () -> ledger.transfer("B", "A", 1));
+    }
+}
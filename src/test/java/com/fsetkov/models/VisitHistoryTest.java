@@ -0,0 +1,45 @@
+package com.fsetkov.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VisitHistoryTest {
+
+    @Test
+    void shouldCountVisitsOfRecentMonths() {
+        // given
+        VisitHistory visitHistory = new VisitHistory();
+        visitHistory.recordVisit(LocalDate.of(2024, 1, 10));
+        visitHistory.recordVisit(LocalDate.of(2024, 3, 2));
+        visitHistory.recordVisit(LocalDate.of(2024, 3, 28));
+        visitHistory.recordVisit(LocalDate.of(2024, 4, 5));
+
+        // when
+        int lastQuarter = visitHistory.countVisits(LocalDate.of(2024, 4, 30), 3);
+        int lastMonth = visitHistory.countVisits(LocalDate.of(2024, 4, 30), 1);
+
+        // then
+        assertEquals(3, lastQuarter);
+        assertEquals(1, lastMonth);
+        assertEquals(LocalDate.of(2024, 4, 5), visitHistory.getLastVisit());
+    }
+
+    @Test
+    void shouldForgetMonthsBeyondRetention() {
+        // given
+        VisitHistory visitHistory = new VisitHistory();
+        visitHistory.recordVisit(LocalDate.of(2023, 1, 10));
+        visitHistory.recordVisit(LocalDate.of(2024, 1, 10));
+
+        // when
+        visitHistory.recordVisit(LocalDate.of(2022, 12, 24));
+        int lastYear = visitHistory.countVisits(LocalDate.of(2024, 1, 31), VisitHistory.RETAINED_MONTHS);
+
+        // then
+        assertEquals(1, lastYear);
+        assertEquals(LocalDate.of(2024, 1, 10), visitHistory.getLastVisit());
+    }
+}
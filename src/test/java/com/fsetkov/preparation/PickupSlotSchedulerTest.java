@@ -0,0 +1,198 @@
+package com.fsetkov.preparation;
+
+import com.fsetkov.models.BeverageProduct;
+import com.fsetkov.models.CoffeeProduct;
+import com.fsetkov.models.ExtraProduct;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.SnackProduct;
+import com.fsetkov.util.Constants;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PickupSlotSchedulerTest {
+
+    private static final LocalTime EIGHT = LocalTime.of(8, 0);
+
+    private final Product coffee = new CoffeeProduct("Large coffee", 3.55);
+    private final Product noExtra = new ExtraProduct(Constants.NO_EXTRA_NAME, 0.00);
+    private final Product baconRoll = new SnackProduct("Bacon roll", 4.53);
+
+    private final PickupSlotScheduler scheduler = new PickupSlotScheduler(
+            LocalTime.of(7, 0),
+            LocalTime.of(11, 0),
+            Duration.ofMinutes(5),
+            Map.of(Station.ESPRESSO_BAR, 4, Station.KITCHEN, 2));
+
+    @Test
+    void shouldBookRequestedSlotWhileItHasRoom() {
+        // when
+        Optional<PickupBooking> booking = scheduler.book("John", List.of(coffee, noExtra, baconRoll), EIGHT);
+
+        // then
+        assertTrue(booking.isPresent());
+        assertEquals(EIGHT, booking.get().pickupTime());
+        assertEquals(Map.of(Station.ESPRESSO_BAR, 1, Station.KITCHEN, 1), booking.get().stationDemand());
+        assertEquals(3, scheduler.getRemainingCapacity(Station.ESPRESSO_BAR, EIGHT));
+        assertEquals(1, scheduler.getRemainingCapacity(Station.KITCHEN, EIGHT.plusMinutes(4)));
+        assertEquals(48, scheduler.getSlotCount());
+    }
+
+    @Test
+    void shouldBookJuiceAtJuiceBarInsteadOfEspressoBar() {
+        // given
+        Product juice = new BeverageProduct("Freshly squeezed orange juice", 3.95);
+        PickupSlotScheduler juiceScheduler = new PickupSlotScheduler(
+                LocalTime.of(7, 0),
+                LocalTime.of(11, 0),
+                Duration.ofMinutes(5),
+                Map.of(Station.ESPRESSO_BAR, 4, Station.JUICE_BAR, 1));
+
+        // when
+        Optional<PickupBooking> first = juiceScheduler.book("John", List.of(coffee, juice), EIGHT);
+        Optional<PickupBooking> second = juiceScheduler.book("Jane", List.of(juice), EIGHT);
+
+        // then
+        assertEquals(Map.of(Station.ESPRESSO_BAR, 1, Station.JUICE_BAR, 1), first.orElseThrow().stationDemand());
+        assertEquals(EIGHT.plusMinutes(5), second.orElseThrow().pickupTime());
+        assertEquals(3, juiceScheduler.getRemainingCapacity(Station.ESPRESSO_BAR, EIGHT));
+    }
+
+    @Test
+    void shouldRoundRequestedTimeUpToNextSlot() {
+        // when
+        Optional<PickupBooking> booking = scheduler.book("John", List.of(coffee), LocalTime.of(8, 1));
+
+        // then
+        assertEquals(LocalTime.of(8, 5), booking.orElseThrow().pickupTime());
+    }
+
+    @Test
+    void shouldMoveOrderToFirstSlotWhereEveryStationHasRoom() {
+        // given
+        scheduler.book("John", List.of(coffee, coffee, coffee), EIGHT);
+        scheduler.book("Jane", List.of(baconRoll, baconRoll), EIGHT.plusMinutes(5));
+
+        // when
+        Optional<PickupBooking> booking = scheduler.book("Jack", List.of(coffee, coffee, baconRoll), EIGHT);
+
+        // then
+        assertEquals(EIGHT.plusMinutes(10), booking.orElseThrow().pickupTime());
+        assertEquals(1, scheduler.getRemainingCapacity(Station.ESPRESSO_BAR, EIGHT));
+    }
+
+    @Test
+    void shouldRefuseOrderWithoutSlotBeforeClosing() {
+        // when
+        Optional<PickupBooking> tooLarge = scheduler.book("John", List.of(baconRoll, baconRoll, baconRoll), EIGHT);
+        Optional<PickupBooking> tooLate = scheduler.book("Jane", List.of(coffee), LocalTime.of(10, 56));
+
+        // then
+        assertTrue(tooLarge.isEmpty());
+        assertTrue(tooLate.isEmpty());
+    }
+
+    @Test
+    void shouldGiveCapacityBackOnCancel() {
+        // given
+        PickupBooking booking = scheduler.book("John", List.of(coffee, coffee, coffee, coffee), EIGHT).orElseThrow();
+
+        // when
+        boolean isCancelled = scheduler.cancel(booking);
+
+        // then
+        assertTrue(isCancelled);
+        assertEquals(4, scheduler.getRemainingCapacity(Station.ESPRESSO_BAR, EIGHT));
+        assertEquals(EIGHT, scheduler.book("Jane", List.of(coffee), EIGHT).orElseThrow().pickupTime());
+    }
+
+    @Test
+    void shouldGiveCapacityBackOnlyOnceWhenCancelledTwice() {
+        // given
+        PickupBooking booking = scheduler.book("John", List.of(coffee, coffee), EIGHT).orElseThrow();
+        scheduler.book("Jane", List.of(coffee, coffee), EIGHT).orElseThrow();
+        scheduler.cancel(booking);
+
+        // when
+        boolean isCancelledAgain = scheduler.cancel(booking);
+
+        // then
+        assertFalse(isCancelledAgain);
+        assertEquals(2, scheduler.getRemainingCapacity(Station.ESPRESSO_BAR, EIGHT));
+    }
+
+    @Test
+    void shouldRejectCancellingBookingOfAnotherScheduler() {
+        // given
+        PickupBooking foreignBooking = new PickupBooking(7, "John", EIGHT, Map.of(Station.ESPRESSO_BAR, 4));
+
+        // when, then
+        assertThrows(IllegalArgumentException.class, () -> scheduler.cancel(foreignBooking));
+        assertEquals(4, scheduler.getRemainingCapacity(Station.ESPRESSO_BAR, EIGHT));
+    }
+
+    @Test
+    void shouldFillLaterSlotsInOrderOnceMorningIsBusy() {
+        // given
+        List<LocalTime> pickupTimes = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            pickupTimes.add(scheduler.book("Customer " + i, List.of(coffee, coffee), EIGHT).orElseThrow().pickupTime());
+        }
+
+        // then
+        for (int i = 0; i < 20; i++) {
+            assertEquals(EIGHT.plusMinutes(5L * (i / 2)), pickupTimes.get(i));
+        }
+    }
+
+    @Test
+    void shouldNeverOverbookUnderConcurrentBooking() throws InterruptedException {
+        // given
+        PickupSlotScheduler busyScheduler = new PickupSlotScheduler(
+                LocalTime.of(7, 0),
+                LocalTime.of(9, 0),
+                Duration.ofMinutes(2),
+                Map.of(Station.ESPRESSO_BAR, 50, Station.KITCHEN, 20));
+        AtomicInteger bookedBeverages = new AtomicInteger();
+        List<Thread> tills = new ArrayList<>();
+
+        // when
+        for (int t = 0; t < 4; t++) {
+            Thread till = new Thread(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    List<Product> order = i % 3 == 0 ? List.of(coffee, baconRoll) : List.of(coffee, coffee);
+                    Optional<PickupBooking> booking = busyScheduler.book("Customer", order, EIGHT);
+                    booking.ifPresent(b -> bookedBeverages.addAndGet(
+                            b.stationDemand().getOrDefault(Station.ESPRESSO_BAR, 0)));
+                }
+            });
+            till.start();
+            tills.add(till);
+        }
+        for (Thread till : tills) {
+            till.join();
+        }
+
+        // then
+        int remainingBeverages = 0;
+        for (int slot = 0; slot < busyScheduler.getSlotCount(); slot++) {
+            LocalTime slotStart = LocalTime.of(7, 0).plusMinutes(2L * slot);
+            int remaining = busyScheduler.getRemainingCapacity(Station.ESPRESSO_BAR, slotStart);
+            assertTrue(remaining >= 0);
+            assertTrue(busyScheduler.getRemainingCapacity(Station.KITCHEN, slotStart) >= 0);
+            remainingBeverages += remaining;
+        }
+        assertEquals(50 * busyScheduler.getSlotCount(), remainingBeverages + bookedBeverages.get());
+        assertEquals(0, busyScheduler.getRemainingCapacity(Station.ESPRESSO_BAR, LocalTime.of(8, 58)));
+    }
+}
@@ -0,0 +1,111 @@
+package com.fsetkov.preparation;
+
+import com.fsetkov.models.BeverageProduct;
+import com.fsetkov.models.CoffeeProduct;
+import com.fsetkov.models.ExtraProduct;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.SnackProduct;
+import com.fsetkov.util.Constants;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TicketDispatcherTest {
+
+    private final List<Product> order = List.of(
+            new CoffeeProduct("Big coffee", 3.55),
+            new ExtraProduct("Extra milk", 0.32),
+            new CoffeeProduct("Small coffee", 2.55),
+            new ExtraProduct(Constants.NO_EXTRA_NAME, 0.00),
+            new SnackProduct("Bacon roll", 4.53),
+            new BeverageProduct("Freshly squeezed orange juice", 3.95));
+
+    @Test
+    void shouldRouteCoffeeJuiceAndSnacksToTheirStations() {
+        // given
+        TicketDispatcher dispatcher = new TicketDispatcher();
+
+        // when
+        List<PreparationTicket> tickets = dispatcher.dispatch("John", order);
+
+        // then
+        assertEquals(5, tickets.size());
+        assertEquals(List.of("Big coffee", "Extra milk", "Small coffee"), takeAll(dispatcher, Station.ESPRESSO_BAR));
+        assertEquals(List.of("Freshly squeezed orange juice"), takeAll(dispatcher, Station.JUICE_BAR));
+        assertEquals(List.of("Bacon roll"), takeAll(dispatcher, Station.KITCHEN));
+        assertNull(dispatcher.take(Station.KITCHEN));
+    }
+
+    @Test
+    void shouldMeasureTimeInQueuePerStation() {
+        // given
+        AtomicLong clock = new AtomicLong(1_000);
+        TicketDispatcher dispatcher = new TicketDispatcher(clock::get);
+        dispatcher.dispatch("John", order);
+
+        // when
+        clock.addAndGet(500);
+        dispatcher.take(Station.ESPRESSO_BAR);
+        clock.addAndGet(1_000);
+        dispatcher.take(Station.ESPRESSO_BAR);
+        dispatcher.take(Station.KITCHEN);
+
+        // then
+        StationMetrics espressoBar = dispatcher.getMetrics(Station.ESPRESSO_BAR);
+        assertEquals(3, espressoBar.dispatched());
+        assertEquals(2, espressoBar.taken());
+        assertEquals(1, espressoBar.waiting());
+        assertEquals(1_000, espressoBar.averageTimeInQueueNanos());
+        assertEquals(1_500, espressoBar.maxTimeInQueueNanos());
+        assertEquals(1_500, dispatcher.getMetrics(Station.KITCHEN).maxTimeInQueueNanos());
+    }
+
+    @Test
+    void shouldNotLoseTicketsWithConcurrentTills() throws InterruptedException {
+        // given
+        TicketDispatcher dispatcher = new TicketDispatcher();
+        int tillsCount = 4;
+        int ordersPerTill = 2_000;
+        List<Thread> tills = new ArrayList<>();
+        for (int till = 0; till < tillsCount; till++) {
+            String tillName = "till" + till;
+            tills.add(new Thread(() -> {
+                for (int i = 0; i < ordersPerTill; i++) {
+                    dispatcher.dispatch(tillName, order);
+                }
+            }));
+        }
+
+        // when
+        tills.forEach(Thread::start);
+        Set<Long> ticketNumbers = new HashSet<>();
+        for (Thread till : tills) {
+            till.join();
+        }
+        for (Station station : Station.values()) {
+            PreparationTicket ticket;
+            while ((ticket = dispatcher.take(station)) != null) {
+                ticketNumbers.add(ticket.ticketNumber());
+            }
+        }
+
+        // then
+        assertEquals(tillsCount * ordersPerTill * 5, ticketNumbers.size());
+        assertEquals(tillsCount * ordersPerTill, dispatcher.getMetrics(Station.KITCHEN).taken());
+    }
+
+    private static List<String> takeAll(TicketDispatcher dispatcher, Station station) {
+        List<String> productNames = new ArrayList<>();
+        PreparationTicket ticket;
+        while ((ticket = dispatcher.take(station)) != null) {
+            productNames.add(ticket.productName());
+        }
+        return productNames;
+    }
+}
@@ -0,0 +1,126 @@
+package com.fsetkov.promotion;
+
+import com.fsetkov.models.CustomerStampCard;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.ProductType;
+import com.fsetkov.service.PricingService;
+import com.fsetkov.service.ProductService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromotionSimulatorTest {
+
+    private final ProductService productService = new ProductService();
+    private final Map<String, Product> catalog = productService.getProducts().stream()
+            .collect(Collectors.toMap(Product::getName, Function.identity()));
+
+    @Test
+    void shouldReplayCurrentPromotionLikeReceipts() throws InterruptedException {
+        // given
+        List<HistoricalOrder> orders = randomOrders(5_000);
+        long expectedRevenue = 0;
+        Map<String, CustomerStampCard> stampCards = new HashMap<>();
+        for (HistoricalOrder order : orders) {
+            List<Product> buyingList = new ArrayList<>();
+            order.products().forEach(product -> buyingList.add(product.copy()));
+            CustomerStampCard stampCard = stampCards.computeIfAbsent(order.username(), u -> new CustomerStampCard());
+            boolean isOrderedBeverage = false;
+            boolean isOrderedSnack = false;
+            for (Product product : buyingList) {
+                if (product.getProductType() == ProductType.BEVERAGE) {
+                    stampCard.increaseBeverageCount();
+                    isOrderedBeverage = true;
+                }
+                isOrderedSnack |= product.getProductType() == ProductType.SNACK;
+            }
+            buyingList.sort(Product.getProductTypeAndPriceComparator());
+            productService.applyFreeProducts(
+                    buyingList, stampCard.getNumberOfFreeBeverages(), isOrderedBeverage && isOrderedSnack);
+            for (Product product : buyingList) {
+                expectedRevenue += PricingService.toMinorUnits(product.getPrice());
+            }
+        }
+
+        // when
+        List<VariantResult> results = new PromotionSimulator(List.of(PromotionVariant.CURRENT), 4)
+                .simulate(orders.iterator());
+
+        // then
+        assertEquals(orders.size(), results.get(0).orders());
+        assertEquals(expectedRevenue, results.get(0).revenue());
+        assertEquals(0, results.get(0).revenueDelta());
+    }
+
+    @Test
+    void shouldReportDeltasAgainstBaseline() throws InterruptedException {
+        // given
+        List<HistoricalOrder> orders = randomOrders(5_000);
+        PromotionVariant everyFourth = new PromotionVariant("every 4th free", 4, FreeExtraRule.BEVERAGE_AND_SNACK);
+        PromotionVariant noFreeExtra = new PromotionVariant("no free extra", 5, FreeExtraRule.NONE);
+
+        // when
+        List<VariantResult> results = new PromotionSimulator(
+                List.of(PromotionVariant.CURRENT, everyFourth, noFreeExtra), 3).simulate(orders.iterator());
+
+        // then
+        VariantResult current = results.get(0);
+        assertTrue(results.get(1).freeBeverages() > current.freeBeverages());
+        assertTrue(results.get(1).revenueDelta() < 0);
+        assertEquals(results.get(1).redemptions() - current.redemptions(), results.get(1).redemptionDelta());
+        assertEquals(0, results.get(2).freeExtras());
+        assertEquals(-current.freeExtras(), results.get(2).redemptionDelta());
+        assertTrue(results.get(2).revenueDelta() > 0);
+    }
+
+    @Test
+    void shouldNotDependOnNumberOfWorkers() throws InterruptedException {
+        // given
+        List<HistoricalOrder> orders = randomOrders(20_000);
+        List<PromotionVariant> variants = List.of(
+                PromotionVariant.CURRENT,
+                new PromotionVariant("every 3rd free", 3, FreeExtraRule.ANY_BEVERAGE));
+
+        // when
+        List<VariantResult> sequential = new PromotionSimulator(variants, 1).simulate(orders.iterator());
+        List<VariantResult> parallel = new PromotionSimulator(variants, 8).simulate(orders.iterator());
+
+        // then
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void shouldParseRecordedOrderLine() {
+        // when
+        HistoricalOrder order = HistoricalOrder.parse("John,Medium coffee, Extra milk,Bacon roll", catalog);
+
+        // then
+        assertEquals("John", order.username());
+        assertEquals(List.of(catalog.get("Medium coffee"), catalog.get("Extra milk"), catalog.get("Bacon roll")),
+                order.products());
+        assertThrows(IllegalArgumentException.class, () -> HistoricalOrder.parse("John,Tea", catalog));
+    }
+
+    private List<HistoricalOrder> randomOrders(int count) {
+        Random random = new Random(11);
+        List<Product> products = productService.getProducts();
+        List<HistoricalOrder> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<Product> ordered = new ArrayList<>();
+            int lines = 1 + random.nextInt(4);
+            for (int line = 0; line < lines; line++) {
+                ordered.add(products.get(random.nextInt(products.size())));
+            }
+            orders.add(new HistoricalOrder("customer" + random.nextInt(300), ordered));
+        }
+        return orders;
+    }
+}
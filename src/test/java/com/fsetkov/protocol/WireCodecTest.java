@@ -0,0 +1,99 @@
+package com.fsetkov.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WireCodecTest {
+
+    @Test
+    void shouldEncodeCompactFrames() {
+        // given
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+
+        // when
+        WireCodec.putAddProduct(buffer, 300);
+        int addProductSize = buffer.position();
+        WireCodec.putEndOrder(buffer, "o-1");
+
+        // then
+        assertEquals(5, addProductSize);
+        assertEquals(11, buffer.position());
+        buffer.flip();
+        WireFrame frame = new WireFrame();
+        assertTrue(frame.next(buffer));
+        assertEquals(RequestType.ADD_PRODUCT, frame.getRequestType());
+        assertEquals(300, frame.getCatalogId());
+        assertTrue(frame.next(buffer));
+        assertEquals(RequestType.END_ORDER, frame.getRequestType());
+        assertEquals("o-1", frame.getText());
+        assertFalse(frame.next(buffer));
+    }
+
+    @Test
+    void shouldRoundTripTextInHeapAndDirectBuffers() {
+        // given
+        String name = "Zo\u00eb \u5496\u5561 \ud83d\ude00";
+
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(64), ByteBuffer.allocateDirect(64)}) {
+            // when
+            WireCodec.putIdentifyCustomer(buffer, name);
+            buffer.flip();
+            WireFrame frame = new WireFrame();
+
+            // then
+            assertEquals(WireCodec.textFrameSize(name), buffer.remaining());
+            assertEquals(name.getBytes(StandardCharsets.UTF_8).length + 3, buffer.remaining());
+            assertTrue(frame.next(buffer));
+            assertEquals(RequestType.IDENTIFY_CUSTOMER, frame.getRequestType());
+            assertEquals(name, frame.getText());
+            assertTrue(frame.getBody().isReadOnly());
+        }
+    }
+
+    @Test
+    void shouldNotConsumeIncompleteFrame() {
+        // given
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        WireCodec.putIdentifyCustomer(buffer, "John");
+        buffer.flip().limit(buffer.limit() - 1);
+        WireFrame frame = new WireFrame();
+
+        // when
+        boolean isComplete = frame.next(buffer);
+
+        // then
+        assertFalse(isComplete);
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void shouldRejectCatalogIdOutOfRange() {
+        // given
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+
+        // when, then
+        assertThrows(IllegalArgumentException.class, () -> WireCodec.putAddProduct(buffer, 70_000));
+    }
+
+    @Test
+    void shouldReuseReleasedBuffers() {
+        // given
+        BufferPool pool = new BufferPool(128, 2, false);
+        ByteBuffer first = pool.acquire();
+        first.putInt(42);
+
+        // when
+        pool.release(first);
+        ByteBuffer second = pool.acquire();
+
+        // then
+        assertSame(first, second);
+        assertEquals(0, second.position());
+        assertEquals(1, pool.getAllocatedCount());
+        assertThrows(IllegalArgumentException.class, () -> pool.release(ByteBuffer.allocate(64)));
+    }
+}
@@ -0,0 +1,258 @@
+package com.fsetkov.protocol;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.service.CustomerService;
+import com.fsetkov.service.InventoryService;
+import com.fsetkov.service.OrderIdempotencyGuard;
+import com.fsetkov.service.PrintService;
+import com.fsetkov.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WireOrderHandlerTest {
+
+    private static final int SMALL_COFFEE = 0;
+    private static final int ORANGE_JUICE = 3;
+    private static final int BACON_ROLL = 4;
+    private static final int EXTRA_MILK = 5;
+
+    private final Map<String, Customer> customers = new HashMap<>();
+    private final InventoryService inventoryService = new InventoryService();
+    private final ByteBuffer requests = ByteBuffer.allocate(1024);
+    private final ByteBuffer responses = ByteBuffer.allocate(WireOrderHandler.MIN_RESPONSE_BUFFER_SIZE);
+    private WireOrderHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        ProductService productService = new ProductService(new ProductService().getProducts(), inventoryService);
+        handler = new WireOrderHandler(new CustomerService(customers), productService, new PrintService(productService));
+    }
+
+    @Test
+    void shouldAnswerPipelinedOrderInOneRoundTrip() {
+        // given
+        WireCodec.putIdentifyCustomer(requests, "John");
+        WireCodec.putAddProduct(requests, SMALL_COFFEE);
+        WireCodec.putAddExtra(requests, EXTRA_MILK);
+        WireCodec.putAddProduct(requests, BACON_ROLL);
+        WireCodec.putEndOrder(requests, "order-1");
+        requests.flip();
+
+        // when
+        int handled = handler.handle(requests, responses);
+
+        // then
+        assertEquals(5, handled);
+        assertFalse(requests.hasRemaining());
+        List<WireFrameSnapshot> answers = readResponses();
+        assertEquals(5, answers.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(ResponseType.ACCEPTED, answers.get(i).type());
+        }
+        assertEquals(ResponseType.RECEIPT, answers.get(4).type());
+        assertTrue(answers.get(4).text().contains("Total: 7.08 CHF"));
+        assertEquals(1, customers.get("John").getCustomerStampCard().getNumberOfBeveragesBought());
+    }
+
+    @Test
+    void shouldRefuseResentOrderWithoutStampingOrCommittingAgain() {
+        // given
+        inventoryService.setStock("Bacon roll", 2);
+        handler.setIdempotencyGuard(new OrderIdempotencyGuard(Duration.ofMinutes(1), 100));
+        List<String> completedOrders = new ArrayList<>();
+        handler.addOrderCompletedListener((customer, products) -> completedOrders.add(customer.getUsername()));
+        for (int attempt = 0; attempt < 2; attempt++) {
+            WireCodec.putIdentifyCustomer(requests, "John");
+            WireCodec.putAddProduct(requests, SMALL_COFFEE);
+            WireCodec.putAddProduct(requests, BACON_ROLL);
+            WireCodec.putEndOrder(requests, "till-1/42");
+        }
+        requests.putShort((short) 1).put((byte) RequestType.END_ORDER.getCode());
+        requests.flip();
+
+        // when
+        int handled = handler.handle(requests, responses);
+
+        // then
+        assertEquals(9, handled);
+        List<WireFrameSnapshot> answers = readResponses();
+        assertEquals(ResponseType.RECEIPT, answers.get(3).type());
+        assertEquals(RejectionReason.DUPLICATE_ORDER, answers.get(7).reason());
+        assertEquals(RejectionReason.MALFORMED_REQUEST, answers.get(8).reason());
+        assertEquals(1, customers.get("John").getCustomerStampCard().getNumberOfBeveragesBought());
+        assertEquals(1, inventoryService.getStockLevel("Bacon roll").getAvailableUnits());
+        assertEquals(0, inventoryService.getStockLevel("Bacon roll").getReservedUnits());
+        assertEquals(List.of("John"), completedOrders);
+    }
+
+    @Test
+    void shouldLeavePartialFrameForNextRead() {
+        // given
+        WireCodec.putIdentifyCustomer(requests, "John");
+        WireCodec.putAddProduct(requests, SMALL_COFFEE);
+        requests.flip();
+        ByteBuffer firstPart = requests.duplicate().limit(requests.limit() - 1);
+
+        // when
+        int handledFirst = handler.handle(firstPart, responses);
+        requests.position(firstPart.position());
+        int handledRest = handler.handle(requests, responses);
+
+        // then
+        assertEquals(1, handledFirst);
+        assertEquals(1, handledRest);
+        assertEquals(List.of(ResponseType.ACCEPTED, ResponseType.ACCEPTED),
+                readResponses().stream().map(WireFrameSnapshot::type).toList());
+    }
+
+    @Test
+    void shouldRejectInvalidRequests() {
+        // given
+        WireCodec.putAddProduct(requests, SMALL_COFFEE);
+        WireCodec.putIdentifyCustomer(requests, "John");
+        WireCodec.putIdentifyCustomer(requests, "Jane");
+        WireCodec.putAddProduct(requests, EXTRA_MILK);
+        WireCodec.putAddExtra(requests, EXTRA_MILK);
+        WireCodec.putAddProduct(requests, 99);
+        requests.putShort((short) 1).put((byte) 42);
+        requests.flip();
+
+        // when
+        handler.handle(requests, responses);
+
+        // then
+        List<WireFrameSnapshot> answers = readResponses();
+        assertEquals(RejectionReason.NO_OPEN_ORDER, answers.get(0).reason());
+        assertEquals(ResponseType.ACCEPTED, answers.get(1).type());
+        assertEquals(RejectionReason.ORDER_ALREADY_OPEN, answers.get(2).reason());
+        assertEquals(RejectionReason.UNKNOWN_PRODUCT, answers.get(3).reason());
+        assertEquals(RejectionReason.EXTRA_WITHOUT_COFFEE, answers.get(4).reason());
+        assertEquals(RejectionReason.UNKNOWN_PRODUCT, answers.get(5).reason());
+        assertEquals(RejectionReason.MALFORMED_REQUEST, answers.get(6).reason());
+    }
+
+    @Test
+    void shouldReportSoldOutAndReleaseReservationsOnCancel() {
+        // given
+        inventoryService.setStock("Bacon roll", 1);
+        WireCodec.putIdentifyCustomer(requests, "John");
+        WireCodec.putAddProduct(requests, BACON_ROLL);
+        WireCodec.putAddProduct(requests, BACON_ROLL);
+        requests.flip();
+
+        // when
+        handler.handle(requests, responses);
+        handler.cancelOrder();
+
+        // then
+        assertEquals(List.of(ResponseType.ACCEPTED, ResponseType.ACCEPTED, ResponseType.SOLD_OUT),
+                readResponses().stream().map(WireFrameSnapshot::type).toList());
+        assertEquals(1, inventoryService.getStockLevel("Bacon roll").getAvailableUnits());
+        assertEquals(0, inventoryService.getStockLevel("Bacon roll").getReservedUnits());
+    }
+
+    @Test
+    void shouldRefuseProductsBeyondMaxOrderLines() {
+        // given
+        handler.setMaxOrderLines(1);
+        WireCodec.putIdentifyCustomer(requests, "John");
+        WireCodec.putAddProduct(requests, BACON_ROLL);
+        WireCodec.putAddProduct(requests, BACON_ROLL);
+        requests.flip();
+
+        // when
+        handler.handle(requests, responses);
+
+        // then
+        assertEquals(RejectionReason.ORDER_FULL, readResponses().get(2).reason());
+    }
+
+    @Test
+    void shouldRejectMaxOrderLinesWhoseReceiptExceedsFrame() {
+        // when, then
+        assertThrows(IllegalArgumentException.class,
+                () -> handler.setMaxOrderLines(handler.getMaxReceiptOrderLines() + 1));
+    }
+
+    @Test
+    void shouldAnswerLargestOrderWithReceiptInOneFrame() {
+        // given
+        int maxOrderLines = handler.getMaxReceiptOrderLines();
+        handler.setMaxOrderLines(maxOrderLines);
+        ByteBuffer largeRequests = ByteBuffer.allocate(WireOrderHandler.MIN_RESPONSE_BUFFER_SIZE);
+        WireCodec.putIdentifyCustomer(largeRequests, "John");
+        for (int i = 0; i <= maxOrderLines; i++) {
+            WireCodec.putAddProduct(largeRequests, ORANGE_JUICE);
+        }
+        WireCodec.putEndOrder(largeRequests, "order-1");
+        largeRequests.flip();
+
+        // when
+        int handled = handler.handle(largeRequests, responses);
+        List<WireFrameSnapshot> answers = readResponses();
+        responses.clear();
+        handled += handler.handle(largeRequests, responses);
+        answers.addAll(readResponses());
+
+        // then
+        assertEquals(maxOrderLines + 3, handled);
+        assertFalse(handler.hasPendingResponse());
+        assertEquals(RejectionReason.ORDER_FULL, answers.get(maxOrderLines + 1).reason());
+        WireFrameSnapshot receipt = answers.get(answers.size() - 1);
+        assertEquals(ResponseType.RECEIPT, receipt.type());
+        assertTrue(receipt.text().contains(maxOrderLines + ". Freshly squeezed orange juice"));
+    }
+
+    @Test
+    void shouldWriteReceiptWithoutRoomOnNextCall() {
+        // given
+        WireCodec.putIdentifyCustomer(requests, "John");
+        WireCodec.putAddProduct(requests, BACON_ROLL);
+        WireCodec.putEndOrder(requests, "order-1");
+        WireCodec.putIdentifyCustomer(requests, "Jane");
+        requests.flip();
+        responses.position(responses.capacity() - 20);
+
+        // when
+        int handledFirst = handler.handle(requests, responses);
+        boolean isPending = handler.hasPendingResponse();
+        responses.clear();
+        int handledRest = handler.handle(requests, responses);
+
+        // then
+        assertEquals(3, handledFirst);
+        assertTrue(isPending);
+        assertEquals(1, handledRest);
+        assertFalse(handler.hasPendingResponse());
+        List<WireFrameSnapshot> answers = readResponses();
+        assertEquals(ResponseType.RECEIPT, answers.get(0).type());
+        assertTrue(answers.get(0).text().contains("Bacon roll"));
+        assertEquals(ResponseType.ACCEPTED, answers.get(1).type());
+    }
+
+    private List<WireFrameSnapshot> readResponses() {
+        responses.flip();
+        WireFrame frame = new WireFrame();
+        List<WireFrameSnapshot> answers = new ArrayList<>();
+        while (frame.next(responses)) {
+            ResponseType type = frame.getResponseType();
+            answers.add(new WireFrameSnapshot(
+                    type,
+                    type == ResponseType.REJECTED ? frame.getRejectionReason() : null,
+                    type == ResponseType.RECEIPT ? frame.getText() : null));
+        }
+        return answers;
+    }
+
+    private record WireFrameSnapshot(ResponseType type, RejectionReason reason, String text) {
+    }
+}
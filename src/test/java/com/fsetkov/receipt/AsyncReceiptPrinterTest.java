@@ -0,0 +1,134 @@
+package com.fsetkov.receipt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncReceiptPrinterTest {
+
+    @Test
+    void shouldKeepFifoOrderInRingBuffer() {
+        // given
+        ReceiptRingBuffer<String> ringBuffer = new ReceiptRingBuffer<>(3);
+
+        // when
+        boolean[] offered = {ringBuffer.offer("a"), ringBuffer.offer("b"), ringBuffer.offer("c"),
+                ringBuffer.offer("d"), ringBuffer.offer("e")};
+
+        // then
+        assertEquals(4, ringBuffer.capacity());
+        assertArrayEquals(new Object[]{true, true, true, true, false},
+                new Object[]{offered[0], offered[1], offered[2], offered[3], offered[4]});
+        assertEquals(4, ringBuffer.size());
+        assertEquals("a", ringBuffer.poll());
+        assertEquals("b", ringBuffer.poll());
+        assertTrue(ringBuffer.offer("e"));
+        assertEquals("c", ringBuffer.poll());
+        assertEquals("d", ringBuffer.poll());
+        assertEquals("e", ringBuffer.poll());
+        assertNull(ringBuffer.poll());
+    }
+
+    @Test
+    void shouldWriteEveryReceiptExactlyOnceWithSeveralWriters() {
+        // given
+        Set<String> writtenReceipts = ConcurrentHashMap.newKeySet();
+        List<String> duplicates = Collections.synchronizedList(new ArrayList<>());
+        int receiptsCount = 20_000;
+
+        // when
+        try (AsyncReceiptPrinter printer = new AsyncReceiptPrinter(64, 4, BackpressurePolicy.BLOCK,
+                receipt -> {
+                    if (!writtenReceipts.add(receipt)) {
+                        duplicates.add(receipt);
+                    }
+                })) {
+            for (int i = 0; i < receiptsCount; i++) {
+                assertTrue(printer.submit("receipt " + i));
+            }
+            printer.close();
+
+            // then
+            ReceiptPipelineMetrics metrics = printer.getMetrics();
+            assertEquals(receiptsCount, metrics.published());
+            assertEquals(receiptsCount, metrics.written());
+            assertEquals(0, metrics.queueDepth());
+            assertTrue(metrics.maxQueueDepth() <= metrics.queueCapacity());
+        }
+        assertEquals(receiptsCount, writtenReceipts.size());
+        assertTrue(duplicates.isEmpty());
+    }
+
+    @Test
+    void shouldDropOrRunOnCallerWhenQueueIsFull() throws InterruptedException {
+        // given
+        CountDownLatch printerBlocked = new CountDownLatch(1);
+        CountDownLatch releasePrinter = new CountDownLatch(1);
+        Set<String> callerWritten = new HashSet<>();
+        Thread checkoutThread = Thread.currentThread();
+        ReceiptWriter blockingWriter = receipt -> {
+            if (Thread.currentThread() == checkoutThread) {
+                callerWritten.add(receipt);
+                return;
+            }
+            printerBlocked.countDown();
+            try {
+                releasePrinter.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        try (AsyncReceiptPrinter dropping = new AsyncReceiptPrinter(1, 1, BackpressurePolicy.DROP, blockingWriter);
+             AsyncReceiptPrinter callerRunning =
+                     new AsyncReceiptPrinter(1, 1, BackpressurePolicy.CALLER_RUNS, blockingWriter)) {
+            try {
+                // when
+                dropping.submit("first");
+                printerBlocked.await();
+                boolean isQueuedAccepted = dropping.submit("queued") && dropping.submit("queued again");
+                boolean isDroppedAccepted = dropping.submit("dropped");
+
+                callerRunning.submit("first");
+                callerRunning.submit("queued");
+                callerRunning.submit("queued again");
+                callerRunning.submit("caller");
+                callerRunning.submit("caller again");
+
+                // then
+                assertTrue(isQueuedAccepted);
+                assertFalse(isDroppedAccepted);
+                assertEquals(1, dropping.getMetrics().dropped());
+                assertTrue(callerRunning.getMetrics().callerRuns() >= 1);
+                assertTrue(callerWritten.contains("caller again"));
+            } finally {
+                releasePrinter.countDown();
+            }
+        }
+    }
+
+    @Test
+    void shouldWakeUpBlockedWriterWhenReceiptIsSubmitted() throws InterruptedException {
+        // given
+        CountDownLatch written = new CountDownLatch(1);
+        try (AsyncReceiptPrinter printer =
+                     new AsyncReceiptPrinter(4, 2, BackpressurePolicy.BLOCK, receipt -> written.countDown())) {
+            Thread.sleep(50);
+
+            // when
+            printer.submit("after idle");
+
+            // then
+            assertTrue(written.await(5, TimeUnit.SECONDS));
+        }
+    }
+}
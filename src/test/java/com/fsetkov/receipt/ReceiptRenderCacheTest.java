@@ -0,0 +1,79 @@
+package com.fsetkov.receipt;
+
+import com.fsetkov.models.CoffeeProduct;
+import com.fsetkov.models.SnackProduct;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceiptRenderCacheTest {
+
+    @Test
+    void shouldRenderOnlyOnMiss() {
+        // given
+        ReceiptRenderCache cache = new ReceiptRenderCache(4);
+        AtomicInteger renders = new AtomicInteger();
+
+        // when
+        String first = cache.get(signature("coffee"), () -> "receipt " + renders.incrementAndGet());
+        String second = cache.get(signature("coffee"), () -> "receipt " + renders.incrementAndGet());
+
+        // then
+        assertEquals("receipt 1", first);
+        assertEquals("receipt 1", second);
+        assertEquals(new ReceiptRenderCacheMetrics(1, 1, 0, 1, 4), cache.getMetrics());
+        assertEquals(0.5, cache.getMetrics().hitRate());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedReceipt() {
+        // given
+        ReceiptRenderCache cache = new ReceiptRenderCache(2);
+        cache.get(signature("a"), () -> "A");
+        cache.get(signature("b"), () -> "B");
+        cache.get(signature("a"), () -> "A2");
+
+        // when
+        cache.get(signature("c"), () -> "C");
+
+        // then
+        assertEquals("A", cache.get(signature("a"), () -> "A3"));
+        assertEquals("B2", cache.get(signature("b"), () -> "B2"));
+        assertEquals(2, cache.getMetrics().evictions());
+        assertEquals(2, cache.getMetrics().size());
+    }
+
+    @Test
+    void shouldNotCacheWithZeroCapacity() {
+        // given
+        ReceiptRenderCache cache = new ReceiptRenderCache(0);
+        cache.get(signature("a"), () -> "A");
+
+        // when
+        String receipt = cache.get(signature("a"), () -> "A2");
+
+        // then
+        assertEquals("A2", receipt);
+        assertEquals(new ReceiptRenderCacheMetrics(0, 2, 0, 0, 0), cache.getMetrics());
+    }
+
+    @Test
+    void shouldMatchSignaturesByLinesAndPrices() {
+        // given
+        ReceiptSignature coffee = ReceiptSignature.of(List.of(new CoffeeProduct("Small coffee", 2.55)));
+        ReceiptSignature sameCoffee = ReceiptSignature.of(List.of(new CoffeeProduct("Small coffee", 2.55)));
+        ReceiptSignature freeCoffee = ReceiptSignature.of(List.of(new CoffeeProduct("Small coffee", 0)));
+
+        // when, then
+        assertEquals(coffee, sameCoffee);
+        assertEquals(coffee.getHash(), sameCoffee.getHash());
+        assertNotEquals(coffee, freeCoffee);
+    }
+
+    private static ReceiptSignature signature(String name) {
+        return ReceiptSignature.of(List.of(new SnackProduct(name, 1.0)));
+    }
+}
@@ -0,0 +1,139 @@
+package com.fsetkov.replication;
+
+import com.fsetkov.models.StampLedger;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OfflineTillTest {
+
+    private final StampReplica registry = new StampReplica("registry");
+    private final OfflineTill tillA = new OfflineTill("till-A", registry);
+    private final OfflineTill tillB = new OfflineTill("till-B", registry);
+
+    @Test
+    void shouldRedeemStampsGivenAtOtherTillsWhileConnected() {
+        // when
+        long freeAtA = tillA.checkout("John", 3);
+        long freeAtB = tillB.checkout("John", 3);
+        tillA.synchronize();
+
+        // then
+        assertEquals(0, freeAtA);
+        assertEquals(1, freeAtB);
+        assertEquals(1, registry.getBalance("John"));
+        assertEquals(1, tillA.getReplica().getBalance("John"));
+        assertEquals(1, tillB.getReplica().getBalance("John"));
+    }
+
+    @Test
+    void shouldKeepStampsGivenDuringPartition() {
+        // given
+        tillA.disconnect();
+        tillB.disconnect();
+
+        // when
+        long freeAtA = tillA.checkout("John", 3);
+        long freeAtB = tillB.checkout("John", 3);
+        tillA.reconnect();
+        tillB.reconnect();
+        long freeAfterReconnect = tillA.checkout("John", 0);
+        tillB.synchronize();
+
+        // then
+        assertEquals(0, freeAtA);
+        assertEquals(0, freeAtB);
+        assertEquals(1, freeAfterReconnect);
+        assertEquals(1, registry.getBalance("John"));
+        assertEquals(1, tillB.getReplica().getBalance("John"));
+    }
+
+    @Test
+    void shouldNotRedeemStampsOfRegistryDuringPartition() {
+        // given
+        tillA.checkout("John", 4);
+        tillA.disconnect();
+        tillB.disconnect();
+
+        // when
+        long freeAtA = tillA.checkout("John", 1);
+        long freeAtB = tillB.checkout("John", 1);
+        long freeOfOfflineStamps = tillB.checkout("John", 5);
+        tillA.reconnect();
+        tillB.reconnect();
+        long freeAfterReconnect = tillA.checkout("John", 0);
+
+        // then
+        assertEquals(0, freeAtA);
+        assertEquals(0, freeAtB);
+        assertEquals(1, freeOfOfflineStamps);
+        assertEquals(1, freeAfterReconnect);
+        assertEquals(1, registry.getBalance("John"));
+    }
+
+    @Test
+    void shouldConvergeWithoutOverRedeemingUnderRandomPartitions() {
+        // given
+        List<OfflineTill> tills = List.of(tillA, tillB, new OfflineTill("till-C", registry));
+        List<String> customers = List.of("John", "Jane", "Joe");
+        Random random = new Random(46);
+        long stamps = 0;
+        long freeBeverages = 0;
+
+        // when
+        for (int step = 0; step < 2_000; step++) {
+            OfflineTill till = tills.get(random.nextInt(tills.size()));
+            int action = random.nextInt(10);
+            if (action == 0) {
+                till.disconnect();
+            } else if (action == 1) {
+                till.reconnect();
+            } else {
+                long beverages = random.nextInt(4);
+                stamps += beverages;
+                freeBeverages += till.checkout(customers.get(random.nextInt(customers.size())), beverages);
+            }
+        }
+        tills.forEach(OfflineTill::reconnect);
+        for (String customer : customers) {
+            freeBeverages += tillA.checkout(customer, 0);
+        }
+        tills.forEach(OfflineTill::synchronize);
+
+        // then
+        assertTrue(freeBeverages * StampLedger.STAMPS_PER_FREE_BEVERAGE <= stamps);
+        long balance = 0;
+        for (String customer : customers) {
+            long registryBalance = registry.getBalance(customer);
+            for (OfflineTill till : tills) {
+                assertEquals(registryBalance, till.getReplica().getBalance(customer), customer);
+            }
+            assertTrue(registryBalance < StampLedger.STAMPS_PER_FREE_BEVERAGE, customer);
+            balance += registryBalance;
+        }
+        assertEquals(stamps - freeBeverages * StampLedger.STAMPS_PER_FREE_BEVERAGE, balance);
+    }
+
+    @Test
+    void shouldShipOnlyChangedLedgers() {
+        // given
+        StampReplica till = new StampReplica("till-A");
+        for (int i = 0; i < 100; i++) {
+            till.stamp("customer" + i, 1);
+        }
+        registry.merge(till.getReplicaId(), till.takeDelta(registry.getReplicaId()));
+
+        // when
+        till.stamp("customer7", 2);
+        int deltaSize = till.takeDelta(registry.getReplicaId()).size();
+        int emptyDeltaSize = till.takeDelta(registry.getReplicaId()).size();
+
+        // then
+        assertEquals(1, deltaSize);
+        assertEquals(0, emptyDeltaSize);
+        assertEquals(100, registry.takeDelta("till-B").size());
+    }
+}
@@ -0,0 +1,158 @@
+package com.fsetkov.repository;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.service.CustomerService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingCustomerRepositoryTest {
+
+    private final Map<String, Customer> customers = new HashMap<>();
+    private final SimulatedLatencyCustomerRepository store = new SimulatedLatencyCustomerRepository(
+            new CustomerService(customers), Duration.ofMillis(20));
+
+    @Test
+    void shouldCoalesceConcurrentLookupsIntoBatches() throws Exception {
+        // given
+        int lookupsCount = 200;
+        ExecutorService tills = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Customer>> lookups = new ArrayList<>();
+
+        try (BatchingCustomerRepository repository =
+                     new BatchingCustomerRepository(store, 50, Duration.ofMillis(5))) {
+            // when
+            List<CompletableFuture<CompletableFuture<Customer>>> submitted = new ArrayList<>();
+            for (int i = 0; i < lookupsCount; i++) {
+                String username = "customer" + i;
+                submitted.add(CompletableFuture.supplyAsync(() -> {
+                    awaitQuietly(start);
+                    return repository.findByUsername(username);
+                }, tills));
+            }
+            start.countDown();
+            for (CompletableFuture<CompletableFuture<Customer>> future : submitted) {
+                lookups.add(future.get(5, TimeUnit.SECONDS));
+            }
+            for (int i = 0; i < lookupsCount; i++) {
+                assertEquals("customer" + i, lookups.get(i).get(5, TimeUnit.SECONDS).getUsername());
+            }
+
+            // then
+            assertTrue(store.getRoundTrips() < lookupsCount / 10,
+                    "Expected batched requests, but got " + store.getRoundTrips() + " round-trips");
+            assertEquals(store.getRoundTrips(), repository.getMetrics().batches());
+        } finally {
+            tills.shutdown();
+        }
+    }
+
+    @Test
+    void shouldDeduplicatePendingLookupsOfSameUsername() throws Exception {
+        try (BatchingCustomerRepository repository =
+                     new BatchingCustomerRepository(store, 10, Duration.ofMillis(10))) {
+            // when
+            CompletableFuture<Customer> first = repository.findByUsername("John");
+            CompletableFuture<Customer> second = repository.findByUsername("John");
+            Map<String, Customer> all = repository.findAllByUsernames(List.of("John", "Jane", "John"))
+                    .get(5, TimeUnit.SECONDS);
+
+            // then
+            assertSame(first, second);
+            assertSame(first.get(), all.get("John"));
+            assertEquals(2, all.size());
+            assertEquals(1, store.getRoundTrips());
+            assertEquals(new CustomerLookupMetrics(4, 2, 1), repository.getMetrics());
+        }
+    }
+
+    @Test
+    void shouldSendBatchWhenSizeLimitIsReached() throws Exception {
+        try (BatchingCustomerRepository repository =
+                     new BatchingCustomerRepository(store, 2, Duration.ofHours(1))) {
+            // when
+            CompletableFuture<Customer> first = repository.findByUsername("John");
+            CompletableFuture<Customer> second = repository.findByUsername("Jane");
+
+            // then
+            assertEquals("John", first.get(5, TimeUnit.SECONDS).getUsername());
+            assertEquals("Jane", second.get(5, TimeUnit.SECONDS).getUsername());
+            assertEquals(1, store.getRoundTrips());
+        }
+    }
+
+    @Test
+    void shouldSendBatchWhenDelayIsReached() throws Exception {
+        try (BatchingCustomerRepository repository =
+                     new BatchingCustomerRepository(store, 100, Duration.ofMillis(5))) {
+            // when
+            Customer customer = repository.findByUsername("John").get(5, TimeUnit.SECONDS);
+
+            // then
+            assertEquals("John", customer.getUsername());
+            assertSame(customers.get("John"), customer);
+        }
+    }
+
+    @Test
+    void shouldFailLookupsOfFailedBatch() {
+        // given
+        CustomerRepository failingStore = new CustomerRepository() {
+            @Override
+            public CompletableFuture<Customer> findByUsername(String username) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Store is down"));
+            }
+
+            @Override
+            public CompletableFuture<Map<String, Customer>> findAllByUsernames(Collection<String> usernames) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Store is down"));
+            }
+        };
+
+        try (BatchingCustomerRepository repository =
+                     new BatchingCustomerRepository(failingStore, 1, Duration.ofMillis(5))) {
+            // when
+            CompletableFuture<Customer> lookup = repository.findByUsername("John");
+
+            // then
+            assertTrue(lookup.isCompletedExceptionally());
+        }
+    }
+
+    @Test
+    void shouldFailLookupsAfterClose() {
+        // given
+        BatchingCustomerRepository repository = new BatchingCustomerRepository(store, 100, Duration.ofMillis(5));
+        repository.close();
+
+        // when
+        CompletableFuture<Customer> lookup = repository.findByUsername("John");
+        CompletableFuture<Customer> repeatedLookup = repository.findByUsername("John");
+
+        // then
+        assertTrue(lookup.isCompletedExceptionally());
+        assertTrue(repeatedLookup.isCompletedExceptionally());
+        assertNotSame(lookup, repeatedLookup);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.fsetkov.repository;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.LoyaltyTier;
+import com.fsetkov.models.PrepaidAccount;
+import com.fsetkov.service.CustomerService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedCustomerRegistryTest {
+
+    private static final int CUSTOMERS = 20_000;
+
+    @Test
+    void shouldSpreadCustomersOfCustomerServiceOverShards() {
+        // given
+        ShardedCustomerRegistry registry = new ShardedCustomerRegistry(4);
+        CustomerService customerService = new CustomerService(registry);
+
+        // when
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customerService.getCustomerByUsername("customer" + i);
+        }
+
+        // then
+        assertEquals(CUSTOMERS, registry.size());
+        for (CustomerShard shard : registry.getShards()) {
+            assertEquals(CUSTOMERS / 4.0, shard.size(), CUSTOMERS * 0.05);
+        }
+        assertSame(registry.get("customer42"), customerService.getCustomerByUsername("customer42"));
+    }
+
+    @Test
+    void shouldMoveOnlyShareOfNewShardWhenRebalancing() {
+        // given
+        ShardedCustomerRegistry registry = new ShardedCustomerRegistry(4);
+        Map<String, Customer> customers = new HashMap<>();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            Customer customer = new Customer("customer" + i);
+            customers.put(customer.getUsername(), customer);
+            registry.put(customer.getUsername(), customer);
+        }
+
+        // when
+        CustomerShard newShard = new CustomerShard("shard-4");
+        int moved = registry.addShard(newShard);
+
+        // then
+        assertEquals(newShard.size(), moved);
+        assertEquals(CUSTOMERS / 5.0, moved, CUSTOMERS * 0.05);
+        assertEquals(CUSTOMERS, registry.size());
+        customers.forEach((username, customer) -> assertSame(customer, registry.get(username)));
+    }
+
+    @Test
+    void shouldServeLookupsWhileShardsAreAdded() throws InterruptedException {
+        // given
+        ShardedCustomerRegistry registry = new ShardedCustomerRegistry(2);
+        for (int i = 0; i < CUSTOMERS; i++) {
+            registry.put("customer" + i, new Customer("customer" + i));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger misses = new AtomicInteger();
+        List<Thread> tills = new ArrayList<>();
+        for (int till = 0; till < 4; till++) {
+            int offset = till;
+            tills.add(new Thread(() -> {
+                for (int i = offset; running.get(); i += 4) {
+                    if (registry.get("customer" + i % CUSTOMERS) == null) {
+                        misses.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        tills.forEach(Thread::start);
+
+        // when
+        for (int shard = 2; shard < 8; shard++) {
+            registry.addShard(new CustomerShard("shard-" + shard));
+        }
+        running.set(false);
+        for (Thread till : tills) {
+            till.join();
+        }
+
+        // then
+        assertEquals(0, misses.get());
+        assertEquals(8, registry.getShards().size());
+        assertEquals(CUSTOMERS, registry.size());
+    }
+
+    @Test
+    void shouldPersistShardsAndLoadThemIntoNewTopology(@TempDir Path directory) throws IOException {
+        // given
+        ShardedCustomerRegistry registry = new ShardedCustomerRegistry(3);
+        for (int i = 0; i < 1_000; i++) {
+            Customer customer = new Customer("customer" + i);
+            customer.getCustomerStampCard().setNumberOfBeveragesBought(i % 5);
+            registry.put(customer.getUsername(), customer);
+        }
+
+        // when
+        registry.persist(directory);
+        ShardedCustomerRegistry restored = new ShardedCustomerRegistry(5);
+        restored.load(directory);
+
+        // then
+        try (var files = Files.list(directory)) {
+            assertEquals(3, files.count());
+        }
+        assertEquals(1_000, restored.size());
+        assertEquals(3, restored.get("customer8").getCustomerStampCard().getNumberOfBeveragesBought());
+    }
+
+    @Test
+    void shouldCreateNewMemberOnceWhenTillsGreetItAtOnce() throws InterruptedException {
+        // given
+        ShardedCustomerRegistry registry = new ShardedCustomerRegistry(4);
+        CustomerService customerService = new CustomerService(registry);
+        int tillsCount = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        Set<Customer> greeted = ConcurrentHashMap.newKeySet();
+        List<Thread> tills = new ArrayList<>();
+        for (int till = 0; till < tillsCount; till++) {
+            tills.add(new Thread(() -> {
+                awaitQuietly(start);
+                Customer customer = customerService.getCustomerByUsername("Jane");
+                customer.getCustomerStampCard().increaseBeverageCount();
+                greeted.add(customer);
+            }));
+        }
+        tills.forEach(Thread::start);
+
+        // when
+        start.countDown();
+        for (Thread till : tills) {
+            till.join();
+        }
+
+        // then
+        assertEquals(1, greeted.size());
+        assertEquals(tillsCount, registry.get("Jane").getCustomerStampCard().getNumberOfBeveragesBought());
+    }
+
+    @Test
+    void shouldPersistTierVisitsAndSharedPrepaidAccount(@TempDir Path directory) throws IOException {
+        // given
+        ShardedCustomerRegistry registry = new ShardedCustomerRegistry(3);
+        PrepaidAccount corporateCard = new PrepaidAccount("CARD-1", 5_000);
+        for (int i = 0; i < 100; i++) {
+            Customer customer = new Customer("customer" + i);
+            customer.setPrepaidAccount(corporateCard);
+            registry.put(customer.getUsername(), customer);
+        }
+        Customer member = registry.get("customer7");
+        member.setLoyaltyTier(LoyaltyTier.GOLD);
+        member.getVisitHistory().recordVisit(LocalDate.of(2024, 3, 2));
+        member.getVisitHistory().recordVisit(LocalDate.of(2024, 5, 20));
+        member.getVisitHistory().recordVisit(LocalDate.of(2024, 5, 21));
+        registry.put("walk-in", new Customer("walk-in"));
+
+        // when
+        registry.persist(directory);
+        ShardedCustomerRegistry restored = new ShardedCustomerRegistry(2);
+        restored.load(directory);
+
+        // then
+        Customer restoredMember = restored.get("customer7");
+        assertEquals(LoyaltyTier.GOLD, restoredMember.getLoyaltyTier());
+        assertEquals(LocalDate.of(2024, 5, 21), restoredMember.getVisitHistory().getLastVisit());
+        assertEquals(3, restoredMember.getVisitHistory().countVisits(LocalDate.of(2024, 5, 31), 3));
+        assertArrayEquals(member.getVisitHistory().getMonthlyVisits(),
+                restoredMember.getVisitHistory().getMonthlyVisits());
+        assertEquals(5_000, restoredMember.getPrepaidAccount().getBalance());
+        assertSame(restoredMember.getPrepaidAccount(), restored.get("customer99").getPrepaidAccount());
+        assertNull(restored.get("walk-in").getPrepaidAccount());
+        assertNull(restored.get("walk-in").getVisitHistory().getLastVisit());
+    }
+
+    @Test
+    void shouldLoadStampOnlyShardFiles(@TempDir Path directory) throws IOException {
+        // given
+        Files.writeString(directory.resolve("shard-0.customers"), "John\t4" + System.lineSeparator());
+        ShardedCustomerRegistry registry = new ShardedCustomerRegistry(2);
+
+        // when
+        registry.load(directory);
+
+        // then
+        assertEquals(4, registry.get("John").getCustomerStampCard().getNumberOfBeveragesBought());
+        assertEquals(LoyaltyTier.BRONZE, registry.get("John").getLoyaltyTier());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
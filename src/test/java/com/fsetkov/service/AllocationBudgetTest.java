@@ -0,0 +1,177 @@
+package com.fsetkov.service;
+
+import com.fsetkov.eventlog.EventType;
+import com.fsetkov.eventlog.RingBufferEventLog;
+import com.fsetkov.models.BeverageProduct;
+import com.fsetkov.models.CoffeeProduct;
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.CustomerStampCard;
+import com.fsetkov.models.ExtraProduct;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.SnackProduct;
+import com.fsetkov.session.OrderSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Allocation and time budgets of the checkout hot paths.
+ * <p>
+ * The tests are tagged {@code performance} and run by {@code ./gradlew performanceTest}, not by the regular
+ * {@code test} task. Every measured operation is warmed up first, so the budgets describe the steady state
+ * after JIT compilation. The allocation budgets are roughly twice the measured values and the time budgets
+ * leave room for slow build machines; a failure means a change made the path noticeably more expensive.
+ */
+@Tag("performance")
+class AllocationBudgetTest {
+
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int MEASURED_ITERATIONS = 1_000;
+    private static final String[] SESSION_INPUTS = {"John", "3", "1", "1", "3", "5", "4", "end", ""};
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final PrintStream originalOut = System.out;
+
+    @BeforeEach
+    void setUp() {
+        assertTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void fullCustomerSessionShouldStayWithinBudget() {
+        // given
+        ProductService productService = new ProductService();
+        PrintService printService = new PrintService(productService);
+        CustomerService customerService = new CustomerService(new HashMap<>());
+        OrderSession session = new OrderSession(customerService, productService, printService, text -> {
+        });
+        session.start();
+
+        // when
+        Budget budget = measure(() -> {
+            for (String input : SESSION_INPUTS) {
+                session.onInput(input);
+            }
+        });
+
+        // then
+        budget.assertWithin(140_000, 2_000_000);
+    }
+
+    @Test
+    void printReceiptOfHundredLineOrderShouldStayWithinBudget() {
+        // given
+        ProductService productService = new ProductService(List.of());
+        PrintService printService = new PrintService(productService);
+        List<Product> template = hundredLineOrder();
+        List<Product> buyingList = new ArrayList<>(template.size());
+        CustomerStampCard stampCard = new CustomerStampCard();
+
+        // when
+        Budget budget = measure(() -> {
+            buyingList.clear();
+            for (Product product : template) {
+                buyingList.add(product.copy());
+            }
+            stampCard.setNumberOfBeveragesBought(12);
+            printService.printReceipt(buyingList, stampCard, true);
+        });
+
+        // then
+        budget.assertWithin(360_000, 2_000_000);
+    }
+
+    @Test
+    void eventLoggingShouldStayWithinBudget(@TempDir Path directory) throws IOException {
+        // given
+        try (RingBufferEventLog eventLog = new RingBufferEventLog(directory, 1 << 16, 1L << 30)) {
+            int symbol = eventLog.symbol("Medium coffee");
+
+            // when
+            Budget budget = measure(() -> eventLog.log(EventType.ITEM_ADDED, 1, symbol));
+
+            // then
+            budget.assertWithin(0, 1_000);
+        }
+    }
+
+    @Test
+    void customerLookupShouldStayWithinBudget() {
+        // given
+        Map<String, Customer> customers = new HashMap<>();
+        CustomerService customerService = new CustomerService(customers);
+        String[] usernames = new String[1_000];
+        for (int i = 0; i < usernames.length; i++) {
+            usernames[i] = "customer" + i;
+            customerService.getCustomerByUsername(usernames[i]);
+        }
+        int[] next = new int[1];
+
+        // when
+        Budget budget = measure(() -> customerService.getCustomerByUsername(usernames[next[0]++ % usernames.length]));
+
+        // then
+        budget.assertWithin(16, 2_000);
+        assertEquals(usernames.length, customers.size());
+    }
+
+    private Budget measure(Runnable operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            operation.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        return new Budget(allocated / MEASURED_ITERATIONS, elapsed / MEASURED_ITERATIONS);
+    }
+
+    private static List<Product> hundredLineOrder() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            products.add(new CoffeeProduct("Big coffee", 3.55));
+            products.add(new ExtraProduct("Extra milk", 0.32));
+            products.add(new BeverageProduct("Freshly squeezed orange juice", 3.95));
+            products.add(new SnackProduct("Bacon roll", 4.53));
+        }
+        return products;
+    }
+
+    private record Budget(long bytesPerOperation, long nanosPerOperation) {
+
+        void assertWithin(long maxBytesPerOperation, long maxNanosPerOperation) {
+            assertTrue(bytesPerOperation <= maxBytesPerOperation,
+                    "Allocated " + bytesPerOperation + " bytes/op, budget is " + maxBytesPerOperation);
+            assertTrue(nanosPerOperation <= maxNanosPerOperation,
+                    "Took " + nanosPerOperation + " ns/op, budget is " + maxNanosPerOperation);
+        }
+    }
+}
@@ -41,4 +41,21 @@ class CustomerServiceTest {
         assertEquals(testExpectedCustomerName, result.getUsername());
         assertEquals(result.getCustomerStampCard().getNumberOfBeveragesBought(), 0);
     }
+
+    @Test
+    void shouldKeepExistedCustomerOnRepeatedLookup() {
+        // given
+        HashMap<String, Customer> customerRepo = new HashMap<>();
+        CustomerService customerService = new CustomerService(customerRepo);
+        Customer firstResult = customerService.getCustomerByUsername("testCustomer");
+        firstResult.getCustomerStampCard().increaseBeverageCount();
+
+        // when
+        customerService.getCustomerByUsername("testCustomer");
+        Customer result = customerService.getCustomerByUsername("testCustomer");
+
+        // then
+        assertSame(firstResult, result);
+        assertEquals(1, result.getCustomerStampCard().getNumberOfBeveragesBought());
+    }
 }
\ No newline at end of file
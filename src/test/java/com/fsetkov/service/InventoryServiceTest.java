@@ -0,0 +1,114 @@
+package com.fsetkov.service;
+
+import com.fsetkov.models.ExtraProduct;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.SnackProduct;
+import com.fsetkov.models.StockLevel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryServiceTest {
+
+    private final Product baconRoll = new SnackProduct("Bacon roll", 4.53);
+
+    @Test
+    void shouldReserveCommitAndReleaseUnits() {
+        // given
+        InventoryService inventoryService = new InventoryService();
+        inventoryService.setStock("Bacon roll", 2);
+        StockLevel stockLevel = inventoryService.getStockLevel("Bacon roll");
+
+        // when
+        assertTrue(inventoryService.reserve(baconRoll));
+        assertTrue(inventoryService.reserve(baconRoll));
+        boolean isThirdReserved = inventoryService.reserve(baconRoll);
+
+        // then
+        assertFalse(isThirdReserved);
+        assertFalse(inventoryService.isAvailable(baconRoll));
+        assertEquals(2, stockLevel.getReservedUnits());
+
+        inventoryService.commit(baconRoll);
+        inventoryService.release(baconRoll);
+        assertTrue(inventoryService.isAvailable(baconRoll));
+        assertEquals(1, stockLevel.getAvailableUnits());
+        assertEquals(0, stockLevel.getReservedUnits());
+    }
+
+    @Test
+    void shouldTreatUntrackedProductsAsUnlimited() {
+        // given
+        InventoryService inventoryService = new InventoryService();
+        Product extraMilk = new ExtraProduct("Extra milk", 0.32);
+
+        // when, then
+        assertTrue(inventoryService.isAvailable(extraMilk));
+        assertTrue(inventoryService.reserve(extraMilk));
+        assertDoesNotThrow(() -> inventoryService.commit(extraMilk));
+    }
+
+    @Test
+    void shouldKeepReservationsWhenStockIsSetDuringCheckout() {
+        // given
+        InventoryService inventoryService = new InventoryService();
+        inventoryService.setStock("Bacon roll", 2);
+        inventoryService.reserve(baconRoll);
+        inventoryService.reserve(baconRoll);
+
+        // when
+        inventoryService.setStock("Bacon roll", 5);
+        inventoryService.commit(baconRoll);
+        inventoryService.release(baconRoll);
+
+        // then
+        StockLevel stockLevel = inventoryService.getStockLevel("Bacon roll");
+        assertEquals(6, stockLevel.getAvailableUnits());
+        assertEquals(0, stockLevel.getReservedUnits());
+    }
+
+    @Test
+    void shouldRejectCommitWithoutReservation() {
+        StockLevel stockLevel = new StockLevel(1);
+
+        assertThrows(IllegalStateException.class, () -> stockLevel.commit(1));
+    }
+
+    @Test
+    void shouldNeverOversellLastUnitsWithCompetingTills() throws InterruptedException {
+        // given
+        InventoryService inventoryService = new InventoryService();
+        inventoryService.setStock("Bacon roll", 1_000);
+        AtomicInteger sold = new AtomicInteger();
+        List<Thread> tills = new ArrayList<>();
+        for (int till = 0; till < 8; till++) {
+            tills.add(new Thread(() -> {
+                for (int attempt = 0; attempt < 1_000; attempt++) {
+                    if (inventoryService.reserve(baconRoll)) {
+                        if (attempt % 3 == 0) {
+                            inventoryService.release(baconRoll);
+                        } else {
+                            inventoryService.commit(baconRoll);
+                            sold.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+
+        // when
+        tills.forEach(Thread::start);
+        for (Thread till : tills) {
+            till.join();
+        }
+
+        // then
+        StockLevel stockLevel = inventoryService.getStockLevel("Bacon roll");
+        assertEquals(1_000, sold.get() + stockLevel.getAvailableUnits());
+        assertEquals(0, stockLevel.getReservedUnits());
+    }
+}
@@ -0,0 +1,118 @@
+package com.fsetkov.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderIdempotencyGuardTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-03-01T08:00:00Z"));
+
+    @Test
+    void shouldRejectResubmittedOrders() {
+        // given
+        OrderIdempotencyGuard guard = new OrderIdempotencyGuard(Duration.ofMinutes(10), 1_000, 0.01, clock);
+
+        // when
+        boolean isFirstAccepted = guard.tryAccept("till-1/0001");
+        boolean isOtherAccepted = guard.tryAccept("till-2/0001");
+        boolean isRetryAccepted = guard.tryAccept("till-1/0001");
+
+        // then
+        assertTrue(isFirstAccepted);
+        assertTrue(isOtherAccepted);
+        assertFalse(isRetryAccepted);
+        OrderIdempotencyMetrics metrics = guard.getMetrics();
+        assertEquals(3, metrics.submissions());
+        assertEquals(1, metrics.duplicates());
+        assertEquals(1, metrics.exactLookups());
+    }
+
+    @Test
+    void shouldRememberOrdersForOneWindowAtLeast() {
+        // given
+        OrderIdempotencyGuard guard = new OrderIdempotencyGuard(Duration.ofMinutes(10), 1_000, 0.01, clock);
+        clock.advance(Duration.ofMinutes(9));
+        guard.tryAccept("till-1/0001");
+
+        // when
+        clock.advance(Duration.ofMinutes(10));
+        boolean isAcceptedWithinWindow = guard.tryAccept("till-1/0001");
+        clock.advance(Duration.ofMinutes(20));
+        boolean isAcceptedAfterTwoWindows = guard.tryAccept("till-1/0001");
+
+        // then
+        assertFalse(isAcceptedWithinWindow);
+        assertTrue(isAcceptedAfterTwoWindows);
+    }
+
+    @Test
+    void shouldAcceptNewOrdersReportedByOverfullFilters() {
+        // given
+        OrderIdempotencyGuard guard = new OrderIdempotencyGuard(Duration.ofMinutes(10), 10, 0.01, clock);
+
+        // when
+        int accepted = 0;
+        for (int i = 0; i < 5_000; i++) {
+            if (guard.tryAccept("till-1/" + i)) {
+                accepted++;
+            }
+        }
+
+        // then
+        assertEquals(5_000, accepted);
+        OrderIdempotencyMetrics metrics = guard.getMetrics();
+        assertEquals(0, metrics.duplicates());
+        assertTrue(metrics.falsePositives() > 0);
+        assertEquals(metrics.falsePositives(), metrics.exactLookups());
+        assertEquals((double) metrics.falsePositives() / 5_000, metrics.falsePositiveRate(), 1e-9);
+    }
+
+    @Test
+    void shouldKeepFalsePositiveRateNearConfiguredProbability() {
+        // given
+        OrderIdempotencyGuard guard = new OrderIdempotencyGuard(Duration.ofMinutes(10), 10_000, 0.01, clock);
+
+        // when
+        for (int i = 0; i < 10_000; i++) {
+            guard.tryAccept("till-1/" + i);
+        }
+
+        // then
+        assertTrue(guard.getMetrics().falsePositiveRate() < 0.01, () -> guard.getMetrics().toString());
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
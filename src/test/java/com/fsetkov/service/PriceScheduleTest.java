@@ -0,0 +1,123 @@
+package com.fsetkov.service;
+
+import com.fsetkov.models.CoffeeProduct;
+import com.fsetkov.models.ExtraProduct;
+import com.fsetkov.models.PriceRule;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.ProductType;
+import com.fsetkov.models.SnackProduct;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceScheduleTest {
+
+    private final Product smallCoffee = new CoffeeProduct("Small coffee", 2.55);
+    private final Product baconRoll = new SnackProduct("Bacon roll", 4.53);
+    private final Product extraMilk = new ExtraProduct("Extra milk", 0.32);
+    private final List<Product> catalog = List.of(smallCoffee, baconRoll, extraMilk);
+
+    @Test
+    void shouldReducePriceOnlyInsideWindow() {
+        // given
+        PriceSchedule schedule = PriceSchedule.compile(catalog, List.of(PriceRule.forProductType(
+                ProductType.BEVERAGE, EnumSet.of(DayOfWeek.FRIDAY), LocalTime.of(16, 0), LocalTime.of(18, 0), 20)));
+        int fridayStart = 4 * PriceRule.MINUTES_PER_DAY;
+
+        // when, then
+        assertEquals(255, schedule.getPrice(smallCoffee, fridayStart + 15 * 60 + 59));
+        assertEquals(204, schedule.getPrice(smallCoffee, fridayStart + 16 * 60));
+        assertEquals(204, schedule.getPrice(smallCoffee, fridayStart + 17 * 60 + 59));
+        assertEquals(255, schedule.getPrice(smallCoffee, fridayStart + 18 * 60));
+        assertEquals(453, schedule.getPrice(baconRoll, fridayStart + 17 * 60));
+    }
+
+    @Test
+    void shouldWrapWindowPastMidnightAndEndOfWeek() {
+        // given
+        PriceSchedule schedule = PriceSchedule.compile(catalog, List.of(PriceRule.forProduct(
+                "Bacon roll", EnumSet.of(DayOfWeek.SUNDAY), LocalTime.of(22, 0), LocalTime.of(2, 0), 50)));
+
+        // when, then
+        assertEquals(227, schedule.getPrice(baconRoll, PriceSchedule.minuteOfWeek(
+                LocalDateTime.of(2024, 1, 7, 23, 0))));
+        assertEquals(227, schedule.getPrice(baconRoll, PriceSchedule.minuteOfWeek(
+                LocalDateTime.of(2024, 1, 8, 1, 59))));
+        assertEquals(453, schedule.getPrice(baconRoll, PriceSchedule.minuteOfWeek(
+                LocalDateTime.of(2024, 1, 8, 2, 0))));
+    }
+
+    @Test
+    void shouldApplyLowestPriceOfOverlappingRules() {
+        // given
+        Set<DayOfWeek> everyDay = EnumSet.allOf(DayOfWeek.class);
+        PriceSchedule schedule = PriceSchedule.compile(catalog, List.of(
+                PriceRule.forProductType(ProductType.BEVERAGE, everyDay, LocalTime.of(8, 0), LocalTime.of(12, 0), 10),
+                PriceRule.forProduct("Small coffee", everyDay, LocalTime.of(9, 0), LocalTime.of(10, 0), 30)));
+
+        // when
+        long price = schedule.getPrice(smallCoffee, 9 * 60 + 30);
+
+        // then
+        assertEquals(179, price);
+    }
+
+    @Test
+    void shouldKeepPriceOfProductOutsideCatalog() {
+        // given
+        PriceSchedule schedule = PriceSchedule.compile(catalog, List.of(PriceRule.forProductType(
+                ProductType.EXTRA, EnumSet.allOf(DayOfWeek.class), LocalTime.MIDNIGHT, LocalTime.MIDNIGHT, 100)));
+
+        // when, then
+        assertEquals(0, schedule.getPrice(extraMilk, 0));
+        assertEquals(51, schedule.getPrice(new ExtraProduct("Foamed milk", 0.51), 0));
+    }
+
+    @Test
+    void shouldMatchRuleScanningForEveryMinuteOfWeek() {
+        // given
+        Random random = new Random(42);
+        List<PriceRule> rules = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+            days.add(DayOfWeek.of(1 + random.nextInt(7)));
+            days.add(DayOfWeek.of(1 + random.nextInt(7)));
+            LocalTime from = LocalTime.of(random.nextInt(24), random.nextInt(60));
+            LocalTime to = LocalTime.of(random.nextInt(24), random.nextInt(60));
+            rules.add(i % 2 == 0
+                    ? PriceRule.forProduct(catalog.get(random.nextInt(catalog.size())).getName(), days, from, to, 1 + random.nextInt(60))
+                    : PriceRule.forProductType(ProductType.values()[random.nextInt(3)], days, from, to, 1 + random.nextInt(60)));
+        }
+
+        // when
+        PriceSchedule schedule = PriceSchedule.compile(catalog, rules);
+
+        // then
+        for (int minute = 0; minute < PriceRule.MINUTES_PER_WEEK; minute++) {
+            for (Product product : catalog) {
+                long expected = PricingService.toMinorUnits(product.getPrice());
+                for (PriceRule rule : rules) {
+                    if (rule.appliesTo(product) && rule.isActiveAt(minute)) {
+                        expected = Math.min(expected, rule.apply(PricingService.toMinorUnits(product.getPrice())));
+                    }
+                }
+                assertEquals(expected, schedule.getPrice(product, minute));
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectRuleWithoutSingleTarget() {
+        assertThrows(IllegalArgumentException.class, () -> new PriceRule(
+                "Small coffee", ProductType.BEVERAGE, Set.of(), LocalTime.NOON, LocalTime.MIDNIGHT, 10));
+    }
+}
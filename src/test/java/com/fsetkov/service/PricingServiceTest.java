@@ -0,0 +1,115 @@
+package com.fsetkov.service;
+
+import com.fsetkov.models.CustomerStampCard;
+import com.fsetkov.models.PricedOrder;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.ProductType;
+import com.fsetkov.models.QuantityOrder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PricingServiceTest {
+
+    private final List<Product> catalog = new ProductService().getProducts();
+    private final PricingService pricingService = new PricingService(catalog);
+
+    @Test
+    void shouldPriceTenThousandCups() {
+        // given
+        QuantityOrder order = new QuantityOrder(catalog);
+        order.add(catalog.get(1), 10_000);
+
+        // when
+        PricedOrder pricedOrder = pricingService.price(order, 2_000, false);
+
+        // then
+        assertEquals(3_050_000, pricedOrder.subtotal());
+        assertEquals(610_000, pricedOrder.discount());
+        assertEquals(2_440_000, pricedOrder.total());
+        assertEquals(2_000, pricedOrder.freeBeverages());
+    }
+
+    @Test
+    void shouldStampAndRedeemOnCheckout() {
+        // given
+        QuantityOrder order = new QuantityOrder(catalog);
+        order.add(catalog.get(0), 12);
+        order.add(catalog.get(4), 1);
+        order.add(catalog.get(5), 3);
+        CustomerStampCard stampCard = new CustomerStampCard();
+        stampCard.setNumberOfBeveragesBought(3);
+
+        // when
+        PricedOrder pricedOrder = pricingService.checkout(order, stampCard);
+
+        // then
+        assertEquals(3, pricedOrder.freeBeverages());
+        assertTrue(pricedOrder.isFreeExtraApplied());
+        assertEquals(0, stampCard.getNumberOfBeveragesBought());
+        assertEquals(3 * 255 + 32, pricedOrder.discount());
+    }
+
+    @Test
+    void shouldNotStampRetriedSubmissionTwice() {
+        // given
+        PricingService guardedPricingService = new PricingService(
+                catalog, new OrderIdempotencyGuard(Duration.ofMinutes(10), 1_000));
+        QuantityOrder order = new QuantityOrder("till-1/0042", catalog);
+        order.add(catalog.get(0), 2);
+        CustomerStampCard stampCard = new CustomerStampCard();
+
+        // when
+        Optional<PricedOrder> submitted = guardedPricingService.submit(order, stampCard);
+        Optional<PricedOrder> retried = guardedPricingService.submit(order, stampCard);
+
+        // then
+        assertTrue(submitted.isPresent());
+        assertEquals(510, submitted.get().total());
+        assertTrue(retried.isEmpty());
+        assertEquals(2, stampCard.getNumberOfBeveragesBought());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 6, 7, 8})
+    void shouldPriceLikeTheProductListPath(int seed) {
+        // given
+        Random random = new Random(seed);
+        QuantityOrder order = new QuantityOrder(catalog);
+        List<Product> buyingList = new ArrayList<>();
+        for (int i = 0; i < catalog.size(); i++) {
+            int quantity = random.nextInt(4);
+            order.add(i, quantity);
+            for (int unit = 0; unit < quantity; unit++) {
+                buyingList.add(catalog.get(i).copy());
+            }
+        }
+        int freeBeverages = random.nextInt(6);
+        boolean isEligibleForFreeExtra = random.nextBoolean();
+
+        // when
+        PricedOrder pricedOrder = pricingService.price(order, freeBeverages, isEligibleForFreeExtra);
+
+        // then
+        buyingList.sort(Product.getProductTypeAndPriceComparator());
+        new ProductService(List.of()).applyFreeProducts(buyingList, freeBeverages, isEligibleForFreeExtra);
+        long expectedTotal = buyingList.stream().mapToLong(p -> PricingService.toMinorUnits(p.getPrice())).sum();
+        assertEquals(expectedTotal, pricedOrder.total());
+        assertEquals(Math.min(freeBeverages, order.getQuantity(ProductType.BEVERAGE)), pricedOrder.freeBeverages());
+    }
+
+    @Test
+    void shouldRejectOrderOfDifferentCatalog() {
+        QuantityOrder order = new QuantityOrder(new ProductService().getProducts());
+
+        assertThrows(IllegalArgumentException.class, () -> pricingService.price(order, 0, false));
+    }
+}
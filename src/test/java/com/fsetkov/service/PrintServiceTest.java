@@ -3,9 +3,11 @@ package com.fsetkov.service;
 import com.fsetkov.models.CoffeeProduct;
 import com.fsetkov.models.CustomerStampCard;
 import com.fsetkov.models.ExtraProduct;
+import com.fsetkov.models.PriceRule;
 import com.fsetkov.models.Product;
 import com.fsetkov.models.ProductType;
 import com.fsetkov.models.SnackProduct;
+import com.fsetkov.util.ChoiceParser;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,8 +18,14 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Scanner;
 
@@ -107,6 +115,77 @@ class PrintServiceTest {
         assertEquals(expectedOutput, actualOutput);
     }
 
+    @Test
+    void shouldPrintReceiptWithHappyHourPrices() {
+        // given
+        final CoffeeProduct smallCoffee = new CoffeeProduct("Small coffee", 2.55);
+        final SnackProduct baconRoll = new SnackProduct("Bacon roll", 4.53);
+        ProductService productService = new ProductService(new ArrayList<>(List.of(smallCoffee, baconRoll)));
+        productService.setPriceRules(List.of(PriceRule.forProductType(
+                ProductType.BEVERAGE, EnumSet.allOf(DayOfWeek.class), LocalTime.of(16, 0), LocalTime.of(18, 0), 20)));
+        Clock happyHour = Clock.fixed(Instant.parse("2024-01-05T17:00:00Z"), ZoneOffset.UTC);
+        printService = new PrintService(productService, scanner, happyHour);
+        List<Product> products = new ArrayList<>();
+        products.add(smallCoffee.copy());
+        products.add(baconRoll.copy());
+
+        // when
+        printService.printReceipt(products, new CustomerStampCard(), false);
+
+        // then
+        String actualOutput = out.toString();
+        assertTrue(actualOutput.contains(" 1. Small coffee                   | 2.04 CHF"));
+        assertTrue(actualOutput.contains("Total: 6.57 CHF"));
+        assertEquals(2.55, smallCoffee.getPrice());
+    }
+
+    @Test
+    void shouldPrintMenuWithHappyHourPricesWithoutChangingOrderedProducts() {
+        // given
+        final CoffeeProduct smallCoffee = new CoffeeProduct("Small coffee", 2.55);
+        final SnackProduct baconRoll = new SnackProduct("Bacon roll", 4.53);
+        ProductService productService = new ProductService(new ArrayList<>(List.of(smallCoffee, baconRoll)));
+        productService.setPriceRules(List.of(PriceRule.forProductType(
+                ProductType.BEVERAGE, EnumSet.allOf(DayOfWeek.class), LocalTime.of(16, 0), LocalTime.of(18, 0), 20)));
+        Clock happyHour = Clock.fixed(Instant.parse("2024-01-05T17:00:00Z"), ZoneOffset.UTC);
+        printService = new PrintService(productService, scanner, happyHour);
+        Product orderedCoffee = smallCoffee.copy();
+        List<Product> products = new ArrayList<>(List.of(orderedCoffee));
+
+        // when
+        printService.printPossibleProducts(productService.getProducts());
+        printService.printReceipt(products, new CustomerStampCard(), false);
+
+        // then
+        String actualOutput = out.toString();
+        assertTrue(actualOutput.contains(" 1. Small coffee                   | 2.04 CHF"
+                + System.lineSeparator() + " 2. Bacon roll"));
+        assertTrue(actualOutput.contains("Total: 2.04 CHF"));
+        assertEquals(2.55, orderedCoffee.getPrice());
+        assertEquals(2.04, products.get(0).getPrice());
+    }
+
+    @Test
+    void shouldServeRepeatedReceiptFromCache() {
+        // given
+        final CoffeeProduct mediumCoffee = new CoffeeProduct("Medium coffee", 3.05);
+        final ExtraProduct extraMilk = new ExtraProduct("Extra milk", 0.32);
+        String firstReceipt = printService.renderReceipt(
+                new ArrayList<>(List.of(mediumCoffee.copy(), extraMilk.copy())), new CustomerStampCard(), false);
+
+        // when
+        String repeatedReceipt = printService.renderReceipt(
+                new ArrayList<>(List.of(extraMilk.copy(), mediumCoffee.copy())), new CustomerStampCard(), false);
+        String discountedReceipt = printService.renderReceipt(
+                new ArrayList<>(List.of(mediumCoffee.copy(), extraMilk.copy())), new CustomerStampCard(), true);
+
+        // then
+        assertEquals(firstReceipt, repeatedReceipt);
+        assertTrue(discountedReceipt.contains("Total: 3.05 CHF"));
+        assertEquals(1, printService.getReceiptRenderCache().getMetrics().hits());
+        assertEquals(2, printService.getReceiptRenderCache().getMetrics().misses());
+    }
+
     @Test
     void shouldPrintReceipt_freeOneBeverageBonus() {
         // given
@@ -298,6 +377,72 @@ class PrintServiceTest {
         assertEquals(1.0, product.getPrice());
     }
 
+    @ParameterizedTest
+    @CsvSource({"2,1", "Coffee3,2", "coffee1,0", "Coffee,-2", "Tea,-2", "end,-1"})
+    void shouldResolveProductIndexByNumberOrName(String choice, int expectedIndex) {
+        // given
+        List<Product> products = Arrays.asList(
+                new CoffeeProduct("Coffee1", 1.0),
+                new CoffeeProduct("Coffee2", 2.0),
+                new CoffeeProduct("Coffee3", 3.0)
+        );
+        printService = new PrintService(new ProductService(products), scanner);
+
+        // when
+        int index = printService.resolveProductIndex(choice, products);
+
+        // then
+        assertEquals(expectedIndex, index);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0", "6", "12", "-1", "x", "on", "zz"})
+    void shouldRejectOutOfRangeNumberOrGarbageInProductMenu(String choice) {
+        // given
+        ProductService productService = new ProductService();
+        printService = new PrintService(productService, scanner);
+        List<Product> menu = productService.getSublistByProductTypePredicate(
+                productService.getProducts(), p -> p.getProductType() != ProductType.EXTRA);
+
+        // when
+        int index = printService.resolveProductIndex(choice, menu);
+
+        // then
+        assertEquals(ChoiceParser.INVALID_CHOICE, index);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0", "5", "7", "9", "12", "x", "on", "oh"})
+    void shouldRejectOutOfRangeNumberOrGarbageInExtrasMenu(String choice) {
+        // given
+        ProductService productService = new ProductService();
+        printService = new PrintService(productService, scanner);
+        List<Product> menu = productService.getSublistByProductTypePredicate(
+                productService.getProducts(), p -> p.getProductType() == ProductType.EXTRA);
+
+        // when
+        int index = printService.resolveProductIndex(choice, menu);
+
+        // then
+        assertEquals(ChoiceParser.INVALID_CHOICE, index);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"no,3", "No extra,3", "foamd milk,1", "4,3"})
+    void shouldResolveExtraByNumberOrName(String choice, int expectedIndex) {
+        // given
+        ProductService productService = new ProductService();
+        printService = new PrintService(productService, scanner);
+        List<Product> menu = productService.getSublistByProductTypePredicate(
+                productService.getProducts(), p -> p.getProductType() == ProductType.EXTRA);
+
+        // when
+        int index = printService.resolveProductIndex(choice, menu);
+
+        // then
+        assertEquals(expectedIndex, index);
+    }
+
     @ParameterizedTest
     @CsvSource({"1,0", "2,1", "3,2"})
     void testGetCorrectIndex(String input, int output) {
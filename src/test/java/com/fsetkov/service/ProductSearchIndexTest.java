@@ -0,0 +1,72 @@
+package com.fsetkov.service;
+
+import com.fsetkov.models.BeverageProduct;
+import com.fsetkov.models.CoffeeProduct;
+import com.fsetkov.models.Product;
+import com.fsetkov.models.SnackProduct;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    private final Product smallCoffee = new CoffeeProduct("Small coffee", 2.55);
+    private final Product mediumCoffee = new CoffeeProduct("Medium coffee", 3.05);
+    private final Product orangeJuice = new BeverageProduct("Freshly squeezed orange juice", 3.95);
+    private final Product baconRoll = new SnackProduct("Bacon roll", 4.53);
+
+    private ProductSearchIndex<Product> index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex<>(List.of(smallCoffee, mediumCoffee, orangeJuice, baconRoll));
+    }
+
+    @Test
+    void shouldFindByNamePrefix() {
+        assertEquals(List.of(mediumCoffee), List.copyOf(index.findByPrefix("med")));
+        assertEquals(List.of(mediumCoffee), List.copyOf(index.findByPrefix("MEDIUM C")));
+    }
+
+    @Test
+    void shouldFindByPrefixOfInnerWord() {
+        assertEquals(List.of(orangeJuice), List.copyOf(index.findByPrefix("orange")));
+        assertEquals(List.of(smallCoffee, mediumCoffee), List.copyOf(index.findByPrefix("coffee")));
+    }
+
+    @Test
+    void shouldReturnNothingForUnknownPrefix() {
+        assertTrue(index.findByPrefix("tea").isEmpty());
+    }
+
+    @Test
+    void shouldFindWithinEditDistance() {
+        assertEquals(List.of(orangeJuice), List.copyOf(index.findFuzzy("oragne", 2)));
+        assertEquals(List.of(baconRoll), List.copyOf(index.findFuzzy("bacn roll", 1)));
+        assertTrue(index.findFuzzy("oragne", 1).isEmpty());
+    }
+
+    @Test
+    void shouldPreferPrefixMatchesOverFuzzyMatches() {
+        assertEquals(List.of(baconRoll), List.copyOf(index.search("bac", 2)));
+        assertEquals(List.of(baconRoll), List.copyOf(index.search("becon", 2)));
+    }
+
+    @Test
+    void shouldUpdateIncrementally() {
+        // given
+        Product bigCoffee = new CoffeeProduct("Big coffee", 3.55);
+
+        // when
+        index.add(bigCoffee);
+        index.remove(smallCoffee);
+
+        // then
+        assertEquals(List.of(mediumCoffee, bigCoffee), List.copyOf(index.findByPrefix("coffee")));
+        assertTrue(index.findByPrefix("small").isEmpty());
+        assertTrue(index.findFuzzy("smal", 1).isEmpty());
+    }
+}
@@ -3,8 +3,12 @@ package com.fsetkov.service;
 import com.fsetkov.models.*;
 import org.junit.jupiter.api.Test;
 
+import java.time.DayOfWeek;
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -108,4 +112,85 @@ class ProductServiceTest {
         assertEquals(1, products.get(2).getPrice());
         assertEquals(0.5, products.get(3).getPrice());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldLeaveSoldOutProductsOutOfSublist() {
+        // given
+        final SnackProduct baconRoll = new SnackProduct("Bacon roll", 4.53);
+        final CoffeeProduct smallCoffee = new CoffeeProduct("Small coffee", 2.55);
+        InventoryService inventoryService = new InventoryService();
+        inventoryService.setStock("Bacon roll", 1);
+        ProductService productService = new ProductService(List.of(smallCoffee, baconRoll), inventoryService);
+        inventoryService.reserve(baconRoll);
+
+        // when
+        List<Product> sublist = productService.getSublistByProductTypePredicate(
+                productService.getProducts(),
+                product -> product.getProductType() != ProductType.EXTRA);
+
+        // then
+        assertEquals(List.of(smallCoffee), sublist);
+    }
+
+    @Test
+    void shouldScaleNameSearchDistanceWithTermLength() {
+        assertEquals(0, ProductService.maxNameSearchDistance("on"));
+        assertEquals(0, ProductService.maxNameSearchDistance("mlk"));
+        assertEquals(1, ProductService.maxNameSearchDistance("becon"));
+        assertEquals(2, ProductService.maxNameSearchDistance("oragne"));
+        assertEquals(2, ProductService.maxNameSearchDistance("freshly squeezed"));
+    }
+
+    @Test
+    void shouldNotMatchShortTermsWithEdits() {
+        // given
+        ProductService productService = new ProductService();
+
+        // when, then
+        assertTrue(productService.findProductsByName("on").isEmpty());
+        assertEquals(List.of("Freshly squeezed orange juice"),
+                productService.findProductsByName("oragne").stream().map(Product::getName).toList());
+    }
+
+    @Test
+    void shouldPublishNewSearchIndexOnCatalogChange() {
+        // given
+        ProductService productService = new ProductService();
+        Product baconRoll = productService.findProductsByName("bacon").iterator().next();
+        SnackProduct muffin = new SnackProduct("Blueberry muffin", 3.20);
+
+        // when
+        productService.addProduct(muffin);
+        productService.removeProduct(baconRoll);
+
+        // then
+        assertEquals(List.of(muffin), List.copyOf(productService.findProductsByName("muffin")));
+        assertTrue(productService.findProductsByName("bacon").isEmpty());
+    }
+
+    @Test
+    void shouldNeverKeepStaleScheduleWhenRulesChangeDuringCompile() throws InterruptedException {
+        // given
+        ProductService productService = new ProductService();
+        Product smallCoffee = productService.getProducts().get(0);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread till = new Thread(() -> {
+            while (running.get()) {
+                productService.getPriceSchedule();
+            }
+        });
+        till.start();
+
+        // when
+        for (int i = 0; i < 200; i++) {
+            productService.addProduct(new SnackProduct("Cookie " + i, 1.0));
+            productService.setPriceRules(List.of(PriceRule.forProductType(ProductType.BEVERAGE,
+                    EnumSet.allOf(DayOfWeek.class), LocalTime.MIN, LocalTime.MAX, i % 2 == 0 ? 10 : 20)));
+        }
+        running.set(false);
+        till.join();
+
+        // then
+        assertEquals(204, productService.getPriceSchedule().getPrice(smallCoffee, 0));
+    }
+}
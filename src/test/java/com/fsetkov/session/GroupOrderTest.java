@@ -0,0 +1,202 @@
+package com.fsetkov.session;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.Product;
+import com.fsetkov.service.CustomerService;
+import com.fsetkov.service.InventoryService;
+import com.fsetkov.service.OrderIdempotencyGuard;
+import com.fsetkov.service.PrintService;
+import com.fsetkov.service.ProductService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupOrderTest {
+
+    private static final int MEMBERS_COUNT = 20;
+
+    private final ProductService productService = new ProductService();
+    private final PrintService printService = new PrintService(productService);
+    private final List<Product> nonExtraProducts = productService.getProducts().subList(0, 5);
+    private final List<Product> extraProducts = productService.getProducts().subList(5, 9);
+
+    @Test
+    void shouldSplitBillLikeSeparateSessions() {
+        // given
+        Map<String, Customer> groupCustomers = new HashMap<>();
+        Map<String, Customer> sessionCustomers = new HashMap<>();
+        List<List<String>> memberInputs = randomMemberInputs(new Random(7));
+        for (int member = 0; member < MEMBERS_COUNT; member++) {
+            int stamps = member % 7;
+            groupCustomers.computeIfAbsent("member" + member, Customer::new)
+                    .getCustomerStampCard().setNumberOfBeveragesBought(stamps);
+            sessionCustomers.computeIfAbsent("member" + member, Customer::new)
+                    .getCustomerStampCard().setNumberOfBeveragesBought(stamps);
+        }
+
+        GroupOrder groupOrder = new GroupOrder(new CustomerService(groupCustomers), productService, printService);
+        for (int member = 0; member < MEMBERS_COUNT; member++) {
+            addInputs(groupOrder, "member" + member, memberInputs.get(member));
+        }
+
+        // when
+        Map<String, String> receipts;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            receipts = groupOrder.checkout(executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        assertEquals(MEMBERS_COUNT, receipts.size());
+        for (int member = 0; member < MEMBERS_COUNT; member++) {
+            String customerName = "member" + member;
+            String expectedReceipt = runSeparateSession(
+                    new CustomerService(sessionCustomers), customerName, memberInputs.get(member));
+            assertEquals(expectedReceipt, receipts.get(customerName), customerName);
+            assertEquals(
+                    sessionCustomers.get(customerName).getCustomerStampCard().getNumberOfBeveragesBought(),
+                    groupCustomers.get(customerName).getCustomerStampCard().getNumberOfBeveragesBought());
+        }
+    }
+
+    @Test
+    void shouldKeepMembersInJoiningOrder() {
+        // given
+        GroupOrder groupOrder = new GroupOrder(new CustomerService(new HashMap<>()), productService, printService);
+        groupOrder.addProduct("Jane", nonExtraProducts.get(0));
+        groupOrder.addProduct("John", nonExtraProducts.get(1));
+        groupOrder.addProduct("Jane", nonExtraProducts.get(4));
+
+        // when
+        Map<String, String> receipts = groupOrder.checkout();
+
+        // then
+        assertEquals(List.of("Jane", "John"), List.copyOf(receipts.keySet()));
+        assertTrue(receipts.get("Jane").contains("Bacon roll"));
+        assertTrue(groupOrder.getCustomerNames().isEmpty());
+    }
+
+    @Test
+    void shouldRefuseSoldOutProductsAndCommitReservationsAtCheckout() {
+        // given
+        InventoryService inventoryService = new InventoryService();
+        inventoryService.setStock("Bacon roll", 1);
+        ProductService stockedProductService = new ProductService(productService.getProducts(), inventoryService);
+        GroupOrder groupOrder = new GroupOrder(
+                new CustomerService(new HashMap<>()), stockedProductService, new PrintService(stockedProductService));
+        Product baconRoll = nonExtraProducts.get(4);
+
+        // when
+        boolean isAddedForJane = groupOrder.addProduct("Jane", baconRoll);
+        boolean isAddedForJohn = groupOrder.addProduct("John", baconRoll);
+        Map<String, String> receipts = groupOrder.checkout();
+
+        // then
+        assertTrue(isAddedForJane);
+        assertFalse(isAddedForJohn);
+        assertEquals(List.of("Jane"), List.copyOf(receipts.keySet()));
+        assertEquals(0, inventoryService.getStockLevel("Bacon roll").getAvailableUnits());
+        assertEquals(0, inventoryService.getStockLevel("Bacon roll").getReservedUnits());
+    }
+
+    @Test
+    void shouldReleaseReservationsWhenCancelled() {
+        // given
+        InventoryService inventoryService = new InventoryService();
+        inventoryService.setStock("Bacon roll", 1);
+        ProductService stockedProductService = new ProductService(productService.getProducts(), inventoryService);
+        GroupOrder groupOrder = new GroupOrder(
+                new CustomerService(new HashMap<>()), stockedProductService, new PrintService(stockedProductService));
+        groupOrder.addProduct("Jane", nonExtraProducts.get(4));
+
+        // when
+        groupOrder.cancel();
+
+        // then
+        assertTrue(groupOrder.getCustomerNames().isEmpty());
+        assertEquals(1, inventoryService.getStockLevel("Bacon roll").getAvailableUnits());
+        assertEquals(0, inventoryService.getStockLevel("Bacon roll").getReservedUnits());
+    }
+
+    @Test
+    void shouldCheckOutMembersThroughSharedCheckout() {
+        // given
+        InventoryService inventoryService = new InventoryService();
+        inventoryService.setStock("Bacon roll", 2);
+        ProductService stockedProductService = new ProductService(productService.getProducts(), inventoryService);
+        Map<String, Customer> customers = new HashMap<>();
+        GroupOrder groupOrder = new GroupOrder(
+                new CustomerService(customers), stockedProductService, new PrintService(stockedProductService));
+        OrderIdempotencyGuard idempotencyGuard = new OrderIdempotencyGuard(Duration.ofMinutes(1), 100);
+        groupOrder.setIdempotencyGuard(idempotencyGuard);
+        List<String> completedOrders = Collections.synchronizedList(new ArrayList<>());
+        groupOrder.addOrderCompletedListener((customer, products) -> completedOrders.add(customer.getUsername()));
+        groupOrder.addProduct("Jane", nonExtraProducts.get(0));
+        groupOrder.addProduct("Jane", nonExtraProducts.get(4));
+        groupOrder.addProduct("John", nonExtraProducts.get(0));
+        groupOrder.addProduct("John", nonExtraProducts.get(4));
+        idempotencyGuard.tryAccept(groupOrder.getOrderId("John"));
+
+        // when
+        Map<String, String> receipts = groupOrder.checkout();
+
+        // then
+        assertEquals(List.of("Jane"), List.copyOf(receipts.keySet()));
+        assertEquals(List.of("Jane"), completedOrders);
+        assertEquals(1, customers.get("Jane").getCustomerStampCard().getNumberOfBeveragesBought());
+        assertEquals(0, customers.get("John").getCustomerStampCard().getNumberOfBeveragesBought());
+        assertEquals(1, inventoryService.getStockLevel("Bacon roll").getAvailableUnits());
+        assertEquals(0, inventoryService.getStockLevel("Bacon roll").getReservedUnits());
+    }
+
+    private List<List<String>> randomMemberInputs(Random random) {
+        List<List<String>> memberInputs = new ArrayList<>();
+        for (int member = 0; member < MEMBERS_COUNT; member++) {
+            List<String> inputs = new ArrayList<>();
+            int itemsCount = 1 + random.nextInt(6);
+            for (int item = 0; item < itemsCount; item++) {
+                int productIndex = random.nextInt(nonExtraProducts.size());
+                inputs.add(String.valueOf(productIndex + 1));
+                if (productIndex < 3) {
+                    inputs.add(String.valueOf(1 + random.nextInt(extraProducts.size())));
+                }
+            }
+            memberInputs.add(inputs);
+        }
+        return memberInputs;
+    }
+
+    private void addInputs(GroupOrder groupOrder, String customerName, List<String> inputs) {
+        for (int i = 0; i < inputs.size(); i++) {
+            int productIndex = Integer.parseInt(inputs.get(i)) - 1;
+            groupOrder.addProduct(customerName, nonExtraProducts.get(productIndex));
+            if (productIndex < 3) {
+                groupOrder.addProduct(customerName, extraProducts.get(Integer.parseInt(inputs.get(++i)) - 1));
+            }
+        }
+    }
+
+    private String runSeparateSession(CustomerService customerService, String customerName, List<String> inputs) {
+        StringBuilder receipt = new StringBuilder();
+        OrderSession session = new OrderSession(
+                customerService, productService, printService, text -> {
+        }, receipt::append);
+        session.start();
+        session.onInput(customerName);
+        inputs.forEach(session::onInput);
+        session.onInput("end");
+        return receipt.toString();
+    }
+}
@@ -0,0 +1,135 @@
+package com.fsetkov.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimingWheelTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-03-01T08:00:00Z"));
+    private final HashedTimingWheel timingWheel = new HashedTimingWheel(Duration.ofMillis(100), 8, clock);
+    private final List<String> ran = new ArrayList<>();
+
+    @Test
+    void shouldRunTaskOnceDeadlinePassed() {
+        // given
+        timingWheel.schedule(() -> ran.add("a"), Duration.ofMillis(250));
+
+        // when
+        clock.advance(Duration.ofMillis(200));
+        int ranBeforeDeadline = timingWheel.advance();
+        clock.advance(Duration.ofMillis(100));
+        int ranAfterDeadline = timingWheel.advance();
+
+        // then
+        assertEquals(0, ranBeforeDeadline);
+        assertEquals(1, ranAfterDeadline);
+        assertEquals(List.of("a"), ran);
+        assertEquals(0, timingWheel.getPendingCount());
+    }
+
+    @Test
+    void shouldNotRunCancelledTask() {
+        // given
+        HashedTimingWheel.Timeout timeout = timingWheel.schedule(() -> ran.add("a"), Duration.ofMillis(100));
+        timingWheel.schedule(() -> ran.add("b"), Duration.ofMillis(100));
+
+        // when
+        boolean isCancelled = timeout.cancel();
+        clock.advance(Duration.ofSeconds(1));
+        timingWheel.advance();
+
+        // then
+        assertTrue(isCancelled);
+        assertFalse(timeout.cancel());
+        assertFalse(timeout.isExpired());
+        assertEquals(List.of("b"), ran);
+    }
+
+    @Test
+    void shouldKeepDeadlinesBeyondOneRevolutionForLaterRounds() {
+        // given
+        timingWheel.schedule(() -> ran.add("near"), Duration.ofMillis(300));
+        timingWheel.schedule(() -> ran.add("far"), Duration.ofMillis(300 + 8 * 100));
+
+        // when
+        clock.advance(Duration.ofMillis(300));
+        timingWheel.advance();
+        List<String> ranInFirstRound = List.copyOf(ran);
+        clock.advance(Duration.ofMillis(800));
+        timingWheel.advance();
+
+        // then
+        assertEquals(List.of("near"), ranInFirstRound);
+        assertEquals(List.of("near", "far"), ran);
+    }
+
+    @Test
+    void shouldRunAllDueTasksAfterClockJumpsSeveralRevolutions() {
+        // given
+        for (int i = 1; i <= 20; i++) {
+            timingWheel.schedule(() -> ran.add("task"), Duration.ofMillis(i * 150L));
+        }
+
+        // when
+        clock.advance(Duration.ofMinutes(1));
+        int ranTasks = timingWheel.advance();
+
+        // then
+        assertEquals(20, ranTasks);
+        assertEquals(0, timingWheel.getPendingCount());
+    }
+
+    @Test
+    void shouldLetTaskScheduleAnotherTimeout() {
+        // given
+        timingWheel.schedule(
+                () -> timingWheel.schedule(() -> ran.add("rescheduled"), Duration.ofMillis(100)),
+                Duration.ofMillis(100));
+
+        // when
+        clock.advance(Duration.ofMillis(100));
+        timingWheel.advance();
+        clock.advance(Duration.ofMillis(100));
+        timingWheel.advance();
+
+        // then
+        assertEquals(List.of("rescheduled"), ran);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
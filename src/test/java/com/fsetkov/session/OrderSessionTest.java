@@ -0,0 +1,311 @@
+package com.fsetkov.session;
+
+import com.fsetkov.models.Customer;
+import com.fsetkov.models.PrepaidAccount;
+import com.fsetkov.service.CustomerService;
+import com.fsetkov.service.InventoryService;
+import com.fsetkov.service.OrderIdempotencyGuard;
+import com.fsetkov.service.PrintService;
+import com.fsetkov.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderSessionTest {
+
+    private final Map<String, Customer> customers = new HashMap<>();
+    private final StringBuilder output = new StringBuilder();
+    private OrderSession session;
+
+    @BeforeEach
+    void setUp() {
+        ProductService productService = new ProductService();
+        session = new OrderSession(
+                new CustomerService(customers),
+                productService,
+                new PrintService(productService),
+                output::append);
+    }
+
+    private InventoryService useInventoryWithBaconRolls(int baconRolls) {
+        InventoryService inventoryService = new InventoryService();
+        inventoryService.setStock("Bacon roll", baconRolls);
+        ProductService productService = new ProductService(new ProductService().getProducts(), inventoryService);
+        session = new OrderSession(
+                new CustomerService(customers),
+                productService,
+                new PrintService(productService),
+                output::append);
+        return inventoryService;
+    }
+
+    @Test
+    void shouldGreetOnStart() {
+        // when
+        session.start();
+
+        // then
+        assertEquals(OrderSession.State.AWAITING_CUSTOMER_NAME, session.getState());
+        assertTrue(output.toString().startsWith("Hello at our coffee shop, what is your name?"));
+    }
+
+    @Test
+    void shouldWalkThroughOrderStates() {
+        // given
+        session.start();
+
+        // when, then
+        assertEquals(OrderSession.State.AWAITING_PRODUCT, session.onInput("John"));
+        assertEquals(OrderSession.State.AWAITING_EXTRA, session.onInput("1"));
+        assertEquals(OrderSession.State.AWAITING_PRODUCT, session.onInput("2"));
+        assertEquals(OrderSession.State.AWAITING_PRODUCT, session.onInput("5"));
+        assertEquals(OrderSession.State.AWAITING_EXIT_CONFIRMATION, session.onInput("end"));
+        assertEquals(OrderSession.State.AWAITING_CUSTOMER_NAME, session.onInput(""));
+        assertEquals(OrderSession.State.AWAITING_PRODUCT, session.onInput("Jane"));
+        assertEquals(OrderSession.State.AWAITING_EXIT_CONFIRMATION, session.onInput("end"));
+        assertEquals(OrderSession.State.EXITED, session.onInput("exit"));
+        assertTrue(session.isExited());
+        assertEquals(1, customers.get("John").getCustomerStampCard().getNumberOfBeveragesBought());
+        assertTrue(output.toString().contains("Total: 7.08 CHF"));
+    }
+
+    @Test
+    void shouldStayInStateOnInvalidInput() {
+        // given
+        session.start();
+        session.onInput("John");
+        output.setLength(0);
+
+        // when
+        OrderSession.State state = session.onInput("tea");
+
+        // then
+        assertEquals(OrderSession.State.AWAITING_PRODUCT, state);
+        assertEquals("Invalid choice. Please enter a valid product index or write 'end'" + System.lineSeparator(),
+                output.toString());
+    }
+
+    @Test
+    void shouldSkipExtraWhenCustomerEndsExtraChoice() {
+        // given
+        session.start();
+        session.onInput("John");
+        session.onInput("1");
+
+        // when
+        OrderSession.State state = session.onInput("end");
+
+        // then
+        assertEquals(OrderSession.State.AWAITING_PRODUCT, state);
+    }
+
+    @Test
+    void shouldNotifyListenersAboutCompletedOrder() {
+        // given
+        List<String> orderedProductNames = new ArrayList<>();
+        session.addOrderCompletedListener((customer, products) ->
+                products.forEach(product -> orderedProductNames.add(customer.getUsername() + ":" + product.getName())));
+        session.start();
+        session.onInput("John");
+        session.onInput("1");
+        session.onInput("1");
+
+        // when
+        session.onInput("end");
+
+        // then
+        assertEquals(List.of("John:Small coffee", "John:Extra milk"), orderedProductNames);
+    }
+
+    @Test
+    void shouldCommitReservedProductsWhenOrderEnds() {
+        // given
+        InventoryService inventoryService = useInventoryWithBaconRolls(2);
+        session.start();
+        session.onInput("John");
+
+        // when
+        session.onInput("5");
+        session.onInput("end");
+
+        // then
+        assertEquals(1, inventoryService.getStockLevel("Bacon roll").getAvailableUnits());
+        assertEquals(0, inventoryService.getStockLevel("Bacon roll").getReservedUnits());
+    }
+
+    @Test
+    void shouldNotCheckOutOrderWhoseIdWasAlreadyCheckedOut() {
+        // given
+        InventoryService inventoryService = useInventoryWithBaconRolls(1);
+        OrderIdempotencyGuard idempotencyGuard = new OrderIdempotencyGuard(Duration.ofMinutes(1), 100);
+        session.setIdempotencyGuard(idempotencyGuard);
+        session.start();
+        session.onInput("John");
+        session.onInput("1");
+        session.onInput("end");
+        session.onInput("5");
+        assertTrue(idempotencyGuard.tryAccept(session.getOrderId()));
+
+        // when
+        OrderSession.State state = session.onInput("end");
+
+        // then
+        assertEquals(OrderSession.State.AWAITING_EXIT_CONFIRMATION, state);
+        assertNull(session.getOrderId());
+        assertEquals(0, customers.get("John").getCustomerStampCard().getNumberOfBeveragesBought());
+        assertEquals(1, inventoryService.getStockLevel("Bacon roll").getAvailableUnits());
+        assertEquals(0, inventoryService.getStockLevel("Bacon roll").getReservedUnits());
+        assertTrue(output.toString().contains("This order was already placed and is not charged again"));
+        assertFalse(output.toString().contains("Total:"));
+    }
+
+    @Test
+    void shouldReleaseReservedProductsWhenOrderIsCancelled() {
+        // given
+        InventoryService inventoryService = useInventoryWithBaconRolls(1);
+        session.start();
+        session.onInput("John");
+        session.onInput("5");
+
+        // when
+        session.cancelOrder();
+
+        // then
+        assertEquals(OrderSession.State.AWAITING_CUSTOMER_NAME, session.getState());
+        assertEquals(1, inventoryService.getStockLevel("Bacon roll").getAvailableUnits());
+        assertEquals(0, customers.get("John").getCustomerStampCard().getNumberOfBeveragesBought());
+    }
+
+    @Test
+    void shouldReleaseReservedProductsWhenSessionExpires() {
+        // given
+        InventoryService inventoryService = useInventoryWithBaconRolls(1);
+        session.start();
+        session.onInput("John");
+        session.onInput("5");
+
+        // when
+        int releasedProducts = session.expire();
+
+        // then
+        assertEquals(1, releasedProducts);
+        assertTrue(session.isExited());
+        assertEquals(1, inventoryService.getStockLevel("Bacon roll").getAvailableUnits());
+        assertTrue(output.toString().contains("Your order was cancelled because the terminal was left idle"));
+    }
+
+    @Test
+    void shouldRefuseProductsBeyondMaxOrderLines() {
+        // given
+        InventoryService inventoryService = useInventoryWithBaconRolls(5);
+        session.setMaxOrderLines(2);
+        session.start();
+        session.onInput("John");
+
+        // when
+        session.onInput("5");
+        session.onInput("5");
+        OrderSession.State state = session.onInput("5");
+
+        // then
+        assertEquals(OrderSession.State.AWAITING_PRODUCT, state);
+        assertTrue(output.toString().contains("Sorry, an order holds at most 2 products, write 'end' to finish it"));
+        assertEquals(2, inventoryService.getStockLevel("Bacon roll").getReservedUnits());
+        assertEquals(OrderSession.State.AWAITING_EXIT_CONFIRMATION, session.onInput("end"));
+        assertTrue(output.toString().contains("Total: 9.06 CHF"));
+    }
+
+    @Test
+    void shouldHideSoldOutProductsFromMenu() {
+        // given
+        useInventoryWithBaconRolls(1);
+        session.start();
+        session.onInput("John");
+        session.onInput("5");
+        output.setLength(0);
+
+        // when
+        session.onInput("1");
+        session.onInput("4");
+
+        // then
+        assertFalse(output.toString().contains("Bacon roll"));
+    }
+
+    @Test
+    void shouldChargeReceiptTotalToPrepaidAccount() {
+        // given
+        PrepaidAccount corporateCard = new PrepaidAccount("corporate", 1_000);
+        customers.put("John", new Customer("John"));
+        customers.put("Jane", new Customer("Jane"));
+        customers.get("John").setPrepaidAccount(corporateCard);
+        customers.get("Jane").setPrepaidAccount(corporateCard);
+        session.start();
+
+        // when
+        orderMediumCoffeeWithoutExtra("John");
+        orderMediumCoffeeWithoutExtra("Jane");
+        orderMediumCoffeeWithoutExtra("John");
+        orderMediumCoffeeWithoutExtra("Jane");
+
+        // then
+        assertEquals(85, corporateCard.getBalance());
+        assertTrue(output.toString().contains("Charged 3.05 CHF to prepaid account corporate"));
+        assertTrue(output.toString().contains("Prepaid account corporate holds only 0.85 CHF, please pay 3.05 CHF"));
+    }
+
+    @Test
+    void shouldPrintBalanceLeftByOwnDebitWhenAnotherTillTopsUpMeanwhile() {
+        // given
+        PrepaidAccount corporateCard = new PrepaidAccount("corporate", 1_000) {
+            @Override
+            public long tryDebit(long amount) {
+                long remainingBalance = super.tryDebit(amount);
+                topUp(5_000);
+                return remainingBalance;
+            }
+        };
+        customers.put("John", new Customer("John"));
+        customers.get("John").setPrepaidAccount(corporateCard);
+        session.start();
+
+        // when
+        orderMediumCoffeeWithoutExtra("John");
+
+        // then
+        assertEquals(5_695, corporateCard.getBalance());
+        assertTrue(output.toString().contains("remaining balance 6.95 CHF"));
+    }
+
+    private void orderMediumCoffeeWithoutExtra(String customerName) {
+        session.onInput(customerName);
+        session.onInput("2");
+        session.onInput("end");
+        session.onInput("end");
+        session.onInput("");
+    }
+
+    @Test
+    void shouldIgnoreInputAfterExit() {
+        // given
+        session.start();
+        session.onInput("John");
+        session.onInput("end");
+        session.onInput("exit");
+        output.setLength(0);
+
+        // when
+        OrderSession.State state = session.onInput("John");
+
+        // then
+        assertEquals(OrderSession.State.EXITED, state);
+        assertEquals("", output.toString());
+    }
+}
@@ -0,0 +1,181 @@
+package com.fsetkov.session;
+
+import com.fsetkov.service.CustomerService;
+import com.fsetkov.service.InventoryService;
+import com.fsetkov.service.PrintService;
+import com.fsetkov.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionManagerTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-03-01T08:00:00Z"));
+    private final HashedTimingWheel timingWheel = new HashedTimingWheel(Duration.ofSeconds(1), 64, clock);
+    private final InventoryService inventoryService = new InventoryService();
+    private final StringBuilder output = new StringBuilder();
+    private ProductService productService;
+    private CustomerService customerService;
+    private SessionManager sessionManager;
+
+    @BeforeEach
+    void setUp() {
+        inventoryService.setStock("Bacon roll", 3);
+        productService = new ProductService(new ProductService().getProducts(), inventoryService);
+        customerService = new CustomerService(new HashMap<>());
+        sessionManager = new SessionManager(timingWheel, clock, Duration.ofMinutes(5), 2);
+    }
+
+    private OrderSession newSession() {
+        return new OrderSession(customerService, productService, new PrintService(productService), output::append);
+    }
+
+    @Test
+    void shouldExpireIdleSessionAndReleaseReservedProducts() {
+        // given
+        List<String> expiredTerminals = new ArrayList<>();
+        sessionManager.addSessionExpiredListener(expiredTerminals::add);
+        sessionManager.open("kiosk-1", newSession());
+        sessionManager.onInput("kiosk-1", "John");
+        sessionManager.onInput("kiosk-1", "5");
+
+        // when
+        clock.advance(Duration.ofMinutes(5));
+        timingWheel.advance();
+
+        // then
+        assertEquals(List.of("kiosk-1"), expiredTerminals);
+        assertEquals(3, inventoryService.getStockLevel("Bacon roll").getAvailableUnits());
+        assertEquals(0, sessionManager.getOpenSessionCount());
+        assertEquals(Optional.empty(), sessionManager.onInput("kiosk-1", "5"));
+        assertEquals(new SessionMetrics(1, 0, 0, 1, 1, 0), sessionManager.getMetrics());
+        assertEquals(0, timingWheel.getPendingCount());
+    }
+
+    @Test
+    void shouldPassInputAfterExpiryToRenewedSession() {
+        // given
+        List<String> expiredTerminals = new ArrayList<>();
+        sessionManager.addSessionExpiredListener(expiredTerminals::add);
+        sessionManager.setRenewalSessionFactory(terminalId -> newSession());
+        sessionManager.open("kiosk-1", newSession());
+        sessionManager.onInput("kiosk-1", "John");
+        sessionManager.onInput("kiosk-1", "5");
+
+        // when
+        clock.advance(Duration.ofMinutes(5));
+        timingWheel.advance();
+
+        // then
+        assertEquals(List.of("kiosk-1"), expiredTerminals);
+        assertEquals(3, inventoryService.getStockLevel("Bacon roll").getAvailableUnits());
+        assertEquals(1, sessionManager.getOpenSessionCount());
+        assertEquals(Optional.of(OrderSession.State.AWAITING_PRODUCT), sessionManager.onInput("kiosk-1", "Jane"));
+        assertEquals(new SessionMetrics(2, 0, 0, 1, 1, 1), sessionManager.getMetrics());
+        assertEquals(1, timingWheel.getPendingCount());
+    }
+
+    @Test
+    void shouldPostponeExpiryOnInput() {
+        // given
+        sessionManager.open("kiosk-1", newSession());
+        clock.advance(Duration.ofMinutes(4));
+        sessionManager.onInput("kiosk-1", "John");
+
+        // when
+        clock.advance(Duration.ofMinutes(4));
+        timingWheel.advance();
+
+        // then
+        assertEquals(1, sessionManager.getOpenSessionCount());
+        assertEquals(Optional.of(OrderSession.State.AWAITING_EXTRA), sessionManager.onInput("kiosk-1", "1"));
+
+        clock.advance(Duration.ofMinutes(5));
+        timingWheel.advance();
+        assertEquals(0, sessionManager.getOpenSessionCount());
+        assertEquals(1, sessionManager.getMetrics().expired());
+    }
+
+    @Test
+    void shouldRefuseSessionsBeyondMaximum() {
+        // given
+        sessionManager.open("kiosk-1", newSession());
+        sessionManager.open("kiosk-2", newSession());
+
+        // when
+        boolean isOpened = sessionManager.open("kiosk-3", newSession());
+
+        // then
+        assertFalse(isOpened);
+        assertEquals(2, sessionManager.getOpenSessionCount());
+        assertEquals(1, sessionManager.getMetrics().rejected());
+        assertTrue(sessionManager.close("kiosk-1"));
+        assertTrue(sessionManager.open("kiosk-3", newSession()));
+    }
+
+    @Test
+    void shouldRejectSecondSessionOfTerminal() {
+        // given
+        sessionManager.open("kiosk-1", newSession());
+
+        // when, then
+        assertThrows(IllegalStateException.class, () -> sessionManager.open("kiosk-1", newSession()));
+        assertEquals(1, sessionManager.getOpenSessionCount());
+    }
+
+    @Test
+    void shouldCloseExitedSessionAndCancelItsTimeout() {
+        // given
+        sessionManager.open("kiosk-1", newSession());
+        sessionManager.onInput("kiosk-1", "John");
+        sessionManager.onInput("kiosk-1", "end");
+
+        // when
+        Optional<OrderSession.State> state = sessionManager.onInput("kiosk-1", "exit");
+
+        // then
+        assertEquals(Optional.of(OrderSession.State.EXITED), state);
+        assertEquals(0, sessionManager.getOpenSessionCount());
+        assertEquals(0, timingWheel.getPendingCount());
+        assertEquals(1, sessionManager.getMetrics().closed());
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.fsetkov.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChoiceParserTest {
+
+    @ParameterizedTest
+    @CsvSource({"1,0", "3,2", "+2,1", "03,2"})
+    void shouldParseValidChoice(String choice, int expectedIndex) {
+        // when
+        int result = ChoiceParser.parseChoice(choice, 3);
+
+        // then
+        assertEquals(expectedIndex, result);
+        assertTrue(ChoiceParser.isIndex(result));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0", "4", "-1", "abc", "1a", "+", "99999999999", "2147483648"})
+    void shouldReturnInvalidChoiceCode(String choice) {
+        // when
+        int result = ChoiceParser.parseChoice(choice, 3);
+
+        // then
+        assertEquals(ChoiceParser.INVALID_CHOICE, result);
+        assertFalse(ChoiceParser.isIndex(result));
+    }
+
+    @Test
+    void shouldReturnInvalidChoiceCodeForEmptyOrMissingInput() {
+        assertEquals(ChoiceParser.INVALID_CHOICE, ChoiceParser.parseChoice("", 3));
+        assertEquals(ChoiceParser.INVALID_CHOICE, ChoiceParser.parseChoice(null, 3));
+    }
+
+    @Test
+    void shouldReturnEndOfChoiceCode() {
+        assertEquals(ChoiceParser.END_OF_CHOICE, ChoiceParser.parseChoice(Constants.END_CUSTOMER_CHOICE_OPTION, 3));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0,true", "12,true", "+2,true", "-1,true", "x,false", "1a,false", "+,false", "'',false"})
+    void shouldRecognizeNumbers(String choice, boolean expected) {
+        // when
+        boolean isNumber = ChoiceParser.isNumber(choice);
+
+        // then
+        assertEquals(expected, isNumber);
+    }
+}